@@ -6,7 +6,12 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
 public class AiServiceApplication {
 
     public static void main(String[] args) {
-        SpringApplication.run(AiServiceApplication.class, args);
+        SpringApplication app = new SpringApplication(AiServiceApplication.class);
+        // "batch" as first argument: offline re-triage (BatchTriageRunner) instead of the web service
+        if (args.length > 0 && "batch".equals(args[0])) {
+            app.setAdditionalProfiles("batch");
+        }
+        app.run(args);
     }
 
 }
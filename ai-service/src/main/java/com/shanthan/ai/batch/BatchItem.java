@@ -0,0 +1,19 @@
+package com.shanthan.ai.batch;
+
+import com.shanthan.ai.model.FailureEventPayload;
+
+/**
+ * One historical failure to re-triage. The id is stable across runs
+ * (source file + position or test identity), which is what the checkpoint
+ * records.
+ */
+final class BatchItem {
+
+    final String id;
+    final FailureEventPayload payload;
+
+    BatchItem(String id, FailureEventPayload payload) {
+        this.id = id;
+        this.payload = payload;
+    }
+}
@@ -0,0 +1,150 @@
+package com.shanthan.ai.batch;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Compact JSONL output of a batch run, which doubles as its checkpoint.
+ *
+ * One line per analysed item with short keys:
+ * {"id":..,"test":..,"type":..,"conf":..,"sev":..,"rule":..,"summary":..,"ms":..}
+ * Lines are flushed every flushEvery records, so after a crash at most that
+ * many items are analysed again. On resume the ids of complete lines already
+ * in the file are loaded and skipped, and new lines are appended after a torn
+ * tail if there is one.
+ */
+final class BatchResultWriter implements AutoCloseable {
+
+    private static final JsonFactory JSON = new JsonFactory();
+    private static final SerializedString ID = new SerializedString("id");
+
+    private final Set<String> done;
+    private final OutputStream out;
+    private final JsonGenerator json;
+    private final int flushEvery;
+    private int unflushed;
+
+    private BatchResultWriter(Set<String> done, OutputStream out, int flushEvery) throws IOException {
+        this.done = done;
+        this.out = out;
+        this.flushEvery = flushEvery;
+        this.json = JSON.createGenerator(out, JsonEncoding.UTF8);
+        json.setRootValueSeparator(null);
+    }
+
+    static BatchResultWriter open(Path output, boolean resume, int flushEvery) throws IOException {
+        Set<String> done = new HashSet<>();
+        boolean tornTail = false;
+        if (resume && Files.exists(output)) {
+            loadIds(output, done);
+            tornTail = !endsWithNewline(output);
+        }
+        if (output.getParent() != null) {
+            Files.createDirectories(output.getParent());
+        }
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(output, StandardOpenOption.CREATE,
+                resume ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE), 65536);
+        if (tornTail) {
+            out.write('\n');
+        }
+        return new BatchResultWriter(done, out, flushEvery);
+    }
+
+    /**
+     * Items already in the output (from an earlier run); safe to call from any thread.
+     */
+    boolean isDone(String id) {
+        synchronized (done) {
+            return done.contains(id);
+        }
+    }
+
+    int resumedCount() {
+        synchronized (done) {
+            return done.size();
+        }
+    }
+
+    synchronized void write(BatchItem item, FailureAnalysisResponse r, long millis) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("id", item.id);
+        json.writeStringField("test", item.payload.getFeature() == null
+                ? item.payload.getTestName()
+                : item.payload.getFeature() + "." + item.payload.getTestName());
+        json.writeStringField("type", r.getFailureType() == null ? null : r.getFailureType().name());
+        json.writeNumberField("conf", Math.round(r.getAiConfidence() * 100) / 100.0);
+        json.writeNumberField("sev", r.getSeverityScore());
+        if (r.isRuleBasedOverrideApplied()) {
+            json.writeBooleanField("rule", true);
+        }
+        json.writeStringField("summary", r.getRootCauseSummary());
+        json.writeNumberField("ms", millis);
+        json.writeEndObject();
+        json.writeRaw('\n');
+
+        if (++unflushed >= flushEvery) {
+            flush();
+        }
+    }
+
+    synchronized void flush() throws IOException {
+        json.flush();
+        unflushed = 0;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        flush();
+        json.close();
+        out.close();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static boolean endsWithNewline(Path output) throws IOException {
+        try (RandomAccessFile f = new RandomAccessFile(output.toFile(), "r")) {
+            if (f.length() == 0) return true;
+            f.seek(f.length() - 1);
+            return f.read() == '\n';
+        }
+    }
+
+    /**
+     * Reads only the "id" of each line with the streaming parser; a torn line does not count.
+     */
+    private static void loadIds(Path output, Set<String> done) throws IOException {
+        try (BufferedReader lines = Files.newBufferedReader(output, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (line.isBlank() || !line.endsWith("}")) continue;
+                try (JsonParser p = JSON.createParser(line)) {
+                    if (p.nextToken() == JsonToken.START_OBJECT
+                            && p.nextFieldName(ID) && p.nextToken() == JsonToken.VALUE_STRING) {
+                        done.add(p.getText());
+                    }
+                } catch (IOException e) {
+                    // torn line from an interrupted run
+                }
+            }
+        }
+    }
+}
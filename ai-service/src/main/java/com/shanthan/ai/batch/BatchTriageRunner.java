@@ -0,0 +1,223 @@
+package com.shanthan.ai.batch;
+
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.service.FailureAnalysisService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Offline re-triage of historical failures ("batch" profile), e.g. after a
+ * prompt or model change:
+ *
+ *   java -jar ai-service.jar batch --batch.input=archive/reports,dumps/failures.jsonl
+ *                                  --batch.output=target/retriage.jsonl
+ *
+ * - Inputs are files or directories (walked recursively, in sorted order):
+ *   surefire/failsafe TEST-*.xml reports are read with StAX, *.jsonl(.gz)
+ *   payload dumps line by line; nothing is loaded whole
+ * - Each failed test is re-scored with FailureAnalysisService.rescore():
+ *   always a fresh LLM answer with the current prompt and model (through
+ *   the bulkhead, behind live traffic), never a cached or locally
+ *   classified one, and without adding FAIL outcomes or analytics rows
+ *   for failures that were already counted when they happened
+ * - At most batch.parallelism items are in flight; the reader blocks until a
+ *   slot frees up, so memory stays flat however large the archive is.
+ *   Keep it at or below llm.bulkhead.workers + queueCapacity, otherwise the
+ *   bulkhead sheds work that the batch would rather wait for
+ * - Results go to a compact JSONL file that is also the checkpoint; with
+ *   batch.resume=true (default) a re-run skips items already written.
+ *   Items without a real LLM answer (shed, stubbed, unreadable) are not
+ *   written: they count as failed (exit code 1) and the next run retries them
+ */
+@Component
+@Profile("batch")
+public class BatchTriageRunner implements ApplicationRunner {
+
+    private final FailureAnalysisService failureAnalysisService;
+    private final ConfigurableApplicationContext context;
+    private final List<String> inputs;
+    private final Path output;
+    private final int parallelism;
+    private final boolean resume;
+    private final int flushEvery;
+    private final int progressEvery;
+    private final boolean exitWhenDone;
+    private final SurefireReportReader surefireReader;
+    private final FailureDumpReader dumpReader = new FailureDumpReader();
+
+    private final AtomicInteger read = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger analysed = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong analysisMillis = new AtomicLong();
+
+    public BatchTriageRunner(FailureAnalysisService failureAnalysisService,
+                             ConfigurableApplicationContext context,
+                             @Value("${batch.input:target/surefire-reports}") List<String> inputs,
+                             @Value("${batch.output:target/retriage.jsonl}") Path output,
+                             @Value("${batch.parallelism:${llm.bulkhead.workers:16}}") int parallelism,
+                             @Value("${batch.resume:true}") boolean resume,
+                             @Value("${batch.flushEvery:50}") int flushEvery,
+                             @Value("${batch.progressEvery:500}") int progressEvery,
+                             @Value("${batch.maxTextChars:8000}") int maxTextChars,
+                             @Value("${batch.exitWhenDone:true}") boolean exitWhenDone) {
+        this.failureAnalysisService = failureAnalysisService;
+        this.context = context;
+        this.inputs = inputs;
+        this.output = output;
+        this.parallelism = Math.max(1, parallelism);
+        this.resume = resume;
+        this.flushEvery = Math.max(1, flushEvery);
+        this.progressEvery = Math.max(1, progressEvery);
+        this.exitWhenDone = exitWhenDone;
+        this.surefireReader = new SurefireReportReader(maxTextChars);
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        int exitCode = triage();
+        if (exitWhenDone) {
+            System.exit(SpringApplication.exit(context, () -> exitCode));
+        }
+    }
+
+    /**
+     * One pass over all inputs.
+     *
+     * @return 0 when every item was analysed or skipped, 1 when some failed
+     *         (they are retried by the next run), 2 when the output could not be written
+     */
+    int triage() {
+        long start = System.nanoTime();
+        int exitCode = 0;
+        AtomicInteger threads = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "batch-triage-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        Semaphore inFlight = new Semaphore(parallelism);
+
+        try (BatchResultWriter writer = BatchResultWriter.open(output, resume, flushEvery)) {
+            System.out.println("DEBUG >>> [Batch] Re-triaging " + inputs + " -> " + output
+                    + " (parallelism=" + parallelism + ", already done=" + writer.resumedCount() + ")");
+
+            for (String input : inputs) {
+                for (Source source : sourcesOf(Path.of(input.trim()))) {
+                    readSource(source, item -> {
+                        read.incrementAndGet();
+                        if (writer.isDone(item.id)) {
+                            skipped.incrementAndGet();
+                            return;
+                        }
+                        inFlight.acquireUninterruptibly();
+                        pool.execute(() -> {
+                            try {
+                                analyse(item, writer);
+                            } finally {
+                                inFlight.release();
+                            }
+                        });
+                    });
+                }
+            }
+            inFlight.acquireUninterruptibly(parallelism); // drain
+        } catch (IOException | UncheckedIOException e) {
+            System.out.println("DEBUG >>> [Batch] Aborted: " + e.getMessage());
+            exitCode = 2;
+        } finally {
+            pool.shutdownNow();
+        }
+
+        long seconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start));
+        int n = analysed.get();
+        System.out.println("DEBUG >>> [Batch] Done: read=" + read.get() + " skipped=" + skipped.get()
+                + " analysed=" + n + " failed=" + failed.get()
+                + " avgMs=" + (n == 0 ? 0 : analysisMillis.get() / n)
+                + " rate=" + (n / seconds) + "/s");
+
+        if (failed.get() > 0 && exitCode == 0) {
+            exitCode = 1;
+        }
+        return exitCode;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private record Source(Path file, String name) {
+    }
+
+    private void analyse(BatchItem item, BatchResultWriter writer) {
+        long t0 = System.nanoTime();
+        try {
+            FailureAnalysisResponse response = failureAnalysisService.rescore(item.payload);
+            long ms = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - t0);
+            writer.write(item, response, ms);
+            analysisMillis.addAndGet(ms);
+            int n = analysed.incrementAndGet();
+            if (n % progressEvery == 0) {
+                System.out.println("DEBUG >>> [Batch] " + n + " analysed (" + skipped.get() + " skipped)");
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+            System.out.println("DEBUG >>> [Batch] Failed " + item.id + ": " + e.getMessage());
+        }
+    }
+
+    private void readSource(Source source, Consumer<BatchItem> sink) {
+        try {
+            if (SurefireReportReader.accepts(source.file())) {
+                surefireReader.read(source.file(), source.name(), sink);
+            } else {
+                dumpReader.read(source.file(), source.name(), sink);
+            }
+        } catch (IOException | RuntimeException e) {
+            // one broken report or dump (I/O, or a parser's unchecked exception) should not
+            // stop a months-long re-run; it counts as a failed item and the run exits with 1
+            failed.incrementAndGet();
+            System.out.println("DEBUG >>> [Batch] Skipping " + source.file() + ": " + e);
+        }
+    }
+
+    /**
+     * Input files in a stable order; ids are relative to the input so archives can move.
+     */
+    private static List<Source> sourcesOf(Path input) throws IOException {
+        List<Source> sources = new ArrayList<>();
+        if (Files.isDirectory(input)) {
+            try (Stream<Path> files = Files.walk(input)) {
+                files.filter(Files::isRegularFile)
+                        .filter(f -> SurefireReportReader.accepts(f) || FailureDumpReader.accepts(f))
+                        .sorted()
+                        .forEach(f -> sources.add(new Source(f,
+                                input.relativize(f).toString().replace('\\', '/'))));
+            }
+        } else if (Files.isRegularFile(input)) {
+            sources.add(new Source(input, input.getFileName().toString()));
+        } else {
+            System.out.println("DEBUG >>> [Batch] Input not found: " + input);
+        }
+        return sources;
+    }
+}
@@ -0,0 +1,65 @@
+package com.shanthan.ai.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.shanthan.ai.model.FailureEventPayload;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Streams FailureEventPayload records from a JSONL dump (one payload per
+ * line, optionally .gz). Only the current line is held in memory. Unknown
+ * fields are ignored so older and newer dumps both load, and malformed lines
+ * are logged and skipped.
+ */
+final class FailureDumpReader {
+
+    private final ObjectReader reader = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+            .readerFor(FailureEventPayload.class);
+
+    static boolean accepts(Path file) {
+        String name = file.getFileName().toString();
+        return name.endsWith(".jsonl") || name.endsWith(".jsonl.gz");
+    }
+
+    /**
+     * @param source stable name of the file (relative to the batch input), prefix of every item id
+     * @return number of records handed to the sink
+     */
+    int read(Path file, String source, Consumer<BatchItem> sink) throws IOException {
+        int count = 0;
+        try (InputStream raw = Files.newInputStream(file);
+             InputStream in = file.toString().endsWith(".gz") ? new GZIPInputStream(raw, 65536) : raw;
+             BufferedReader lines = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 65536)) {
+            String line;
+            int lineNo = 0;
+            while ((line = lines.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                FailureEventPayload payload;
+                try {
+                    payload = reader.readValue(line);
+                } catch (JsonProcessingException e) {
+                    System.out.println("DEBUG >>> [Batch] Skipping malformed line " + source + ":" + lineNo
+                            + ": " + e.getOriginalMessage());
+                    continue;
+                }
+                sink.accept(new BatchItem(source + ":" + lineNo, payload));
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,176 @@
+package com.shanthan.ai.batch;
+
+import com.shanthan.ai.model.FailureEventPayload;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * Streams failed test cases out of a surefire/failsafe report
+ * (TEST-*.xml) with StAX, so report size does not matter: only the current
+ * testcase is held, and its text fields are capped while they are read.
+ *
+ * A testcase becomes a BatchItem when it has a failure or error child:
+ * - testName / feature come from name / classname, suiteName from the testsuite
+ * - failureMessage is the message attribute, stackTrace the element text
+ * - rawLogSnippet is the testcase's system-out (and system-err)
+ */
+final class SurefireReportReader {
+
+    private final XMLInputFactory factory;
+    private final int maxTextChars;
+
+    SurefireReportReader(int maxTextChars) {
+        this.maxTextChars = maxTextChars;
+        this.factory = XMLInputFactory.newFactory();
+        // Reports are local files, but never resolve external entities or DTDs
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, false);
+    }
+
+    static boolean accepts(Path file) {
+        String name = file.getFileName().toString();
+        return name.startsWith("TEST-") && name.endsWith(".xml");
+    }
+
+    /**
+     * @param source stable name of the file (relative to the batch input), prefix of every item id
+     * @return number of failed test cases handed to the sink
+     */
+    int read(Path file, String source, Consumer<BatchItem> sink) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            XMLStreamReader xml = factory.createXMLStreamReader(in);
+            try {
+                return readSuite(source, xml, sink);
+            } finally {
+                xml.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed surefire report " + file + ": " + e.getMessage(), e);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private int readSuite(String source, XMLStreamReader xml, Consumer<BatchItem> sink) throws XMLStreamException {
+        String suite = null;
+        int count = 0;
+        while (xml.hasNext()) {
+            if (xml.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String element = xml.getLocalName();
+            if ("testsuite".equals(element)) {
+                suite = xml.getAttributeValue(null, "name");
+            } else if ("testcase".equals(element)) {
+                FailureEventPayload payload = readTestCase(xml, suite);
+                if (payload != null) {
+                    String id = source + "#" + payload.getFeature() + "." + payload.getTestName()
+                            + "@" + xml.getLocation().getLineNumber();
+                    sink.accept(new BatchItem(id, payload));
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads up to the testcase's end tag; null if it passed or was skipped.
+     */
+    private FailureEventPayload readTestCase(XMLStreamReader xml, String suite) throws XMLStreamException {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName(xml.getAttributeValue(null, "name"));
+        p.setFeature(xml.getAttributeValue(null, "classname"));
+        p.setSuiteName(suite);
+        p.setTestType(testTypeOf(p.getFeature()));
+
+        boolean failed = false;
+        StringBuilder log = null;
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String element = xml.getLocalName();
+            if (!failed && ("failure".equals(element) || "error".equals(element))) {
+                failed = true;
+                String type = xml.getAttributeValue(null, "type");
+                String message = xml.getAttributeValue(null, "message");
+                p.setFailureMessage(message != null ? message : type);
+                p.setStackTrace(readText(xml));
+            } else if ("system-out".equals(element) || "system-err".equals(element)) {
+                if (log == null) log = new StringBuilder();
+                if (log.length() < maxTextChars) {
+                    log.append(readText(xml));
+                } else {
+                    skip(xml);
+                }
+            } else {
+                depth++;
+            }
+        }
+        if (!failed) {
+            return null;
+        }
+        if (log != null && log.length() > 0) {
+            p.setRawLogSnippet(log.length() > maxTextChars ? log.substring(0, maxTextChars) : log.toString());
+        }
+        return p;
+    }
+
+    /**
+     * Element text up to maxTextChars; consumes the end tag. Text past the cap is discarded unread.
+     */
+    private String readText(XMLStreamReader xml) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            } else if ((event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA)
+                    && sb.length() < maxTextChars) {
+                int len = Math.min(xml.getTextLength(), maxTextChars - sb.length());
+                sb.append(xml.getTextCharacters(), xml.getTextStart(), len);
+            }
+        }
+        return sb.toString().strip();
+    }
+
+    private static void skip(XMLStreamReader xml) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0 && xml.hasNext()) {
+            int event = xml.next();
+            if (event == XMLStreamConstants.START_ELEMENT) depth++;
+            else if (event == XMLStreamConstants.END_ELEMENT) depth--;
+        }
+    }
+
+    /**
+     * Reports carry no test type; the package naming of this repo (…ui…, …api…) is a good proxy.
+     */
+    private static String testTypeOf(String className) {
+        if (className == null) return "UNKNOWN";
+        String c = className.toLowerCase();
+        if (c.contains(".ui.") || c.contains("selenium") || c.contains("page")) return "UI";
+        if (c.contains(".api.") || c.contains("rest")) return "API";
+        return "UNKNOWN";
+    }
+}
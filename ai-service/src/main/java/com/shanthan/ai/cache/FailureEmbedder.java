@@ -0,0 +1,199 @@
+package com.shanthan.ai.cache;
+
+import com.shanthan.ai.model.FailureEventPayload;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local embedding of a failure for the semantic cache: signed feature
+ * hashing of the compacted failure into a fixed-size, L2-normalised vector,
+ * so cosine similarity is a plain dot product. No model, no network.
+ *
+ * Features (weight):
+ * - test type, class and method (1 / 1.5 / 1.5)
+ * - exception class (2), HTTP method + masked path and status code (2)
+ * - the failing locator's selector, if any (3): locator failures that differ
+ *   only in the selector are different failures
+ * - message word unigrams (1) and bigrams (0.7) of the first line, later
+ *   lines at 0.3 (Selenium's session/build/driver info lines are skipped);
+ *   volatile tokens (numbers other than 3-digit codes, ids, hex, uuids)
+ *   collapse to one shape token
+ * - top stack frames without line numbers (1.5 for the first three, then 1)
+ *
+ * Failures that differ only in ids or line numbers therefore land on
+ * (nearly) the same vector, while a different exception, endpoint or
+ * assertion moves it far away.
+ */
+public final class FailureEmbedder {
+
+    public static final int DIM = 512;
+    private static final int MAX_FRAMES = 8;
+    private static final int MAX_MESSAGE_CHARS = 2000;
+    private static final Pattern SELECTOR = Pattern.compile(
+            "\"selector\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"|By\\.\\w+:\\s*(\\S+)");
+    private static final String[] DRIVER_INFO = {
+            "(session info", "session info", "build info", "system info", "driver info", "capabilities",
+            "for documentation", "command:", "element:"};
+
+    private FailureEmbedder() {
+    }
+
+    public static float[] embed(FailureEventPayload p) {
+        float[] v = new float[DIM];
+        add(v, "t:", p.getTestType(), 1f);
+        add(v, "c:", p.getFeature(), 1.5f);
+        add(v, "n:", p.getTestName(), 1.5f);
+        if (p.getEndpoint() != null) {
+            add(v, "e:", (p.getHttpMethod() == null ? "" : p.getHttpMethod() + " ") + maskPath(p.getEndpoint()), 2f);
+        }
+        if (p.getStatusCode() != null) {
+            add(v, "s:", String.valueOf(p.getStatusCode()), 2f);
+        }
+        add(v, "x:", exceptionClass(p.getStackTrace()), 2f);
+        add(v, "l:", selector(p.getFailureMessage()), 3f);
+        addMessage(v, p.getFailureMessage());
+        addFrames(v, p.getStackTrace());
+        normalize(v);
+        return v;
+    }
+
+    public static float cosine(float[] a, int aOffset, float[] b) {
+        float dot = 0f;
+        for (int i = 0; i < DIM; i++) {
+            dot += a[aOffset + i] * b[i];
+        }
+        return dot;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static void addMessage(float[] v, String message) {
+        if (message == null) return;
+        String text = message.length() > MAX_MESSAGE_CHARS ? message.substring(0, MAX_MESSAGE_CHARS) : message;
+        boolean first = true;
+        for (String line : text.split("\n")) {
+            if (line.isBlank() || isDriverInfo(line)) continue;
+            addWords(v, line, first ? 1f : 0.3f);
+            first = false;
+        }
+    }
+
+    private static void addWords(float[] v, String text, float weight) {
+        String prev = null;
+        int i = 0;
+        int n = text.length();
+        while (i < n) {
+            while (i < n && !isWordChar(text.charAt(i))) i++;
+            int start = i;
+            while (i < n && isWordChar(text.charAt(i))) i++;
+            if (start == i) break;
+            String token = shape(text.substring(start, i).toLowerCase(Locale.ROOT));
+            if (token.equals(prev) && token.charAt(0) == '#') continue; // uuid pieces etc.
+            add(v, "w:", token, weight);
+            if (prev != null) {
+                add(v, "b:", prev + ' ' + token, 0.7f * weight);
+            }
+            prev = token;
+        }
+    }
+
+    private static boolean isDriverInfo(String line) {
+        String l = line.strip().toLowerCase(Locale.ROOT);
+        for (String prefix : DRIVER_INFO) {
+            if (l.startsWith(prefix)) return true;
+        }
+        return false;
+    }
+
+    private static String selector(String message) {
+        if (message == null) return null;
+        Matcher m = SELECTOR.matcher(message);
+        if (!m.find()) return null;
+        return m.group(1) != null ? m.group(1) : m.group(2);
+    }
+
+    private static void addFrames(float[] v, String stackTrace) {
+        if (stackTrace == null) return;
+        int frames = 0;
+        int pos = 0;
+        while (frames < MAX_FRAMES && pos < stackTrace.length()) {
+            int end = stackTrace.indexOf('\n', pos);
+            if (end < 0) end = stackTrace.length();
+            String line = stackTrace.substring(pos, end).strip();
+            pos = end + 1;
+            if (!line.startsWith("at ")) continue;
+            int paren = line.indexOf('(');
+            String frame = paren > 0 ? line.substring(3, paren) : line.substring(3);
+            add(v, "f:", frame, frames < 3 ? 1.5f : 1f);
+            frames++;
+        }
+    }
+
+    private static String exceptionClass(String stackTrace) {
+        if (stackTrace == null || stackTrace.isBlank()) return null;
+        int end = stackTrace.indexOf('\n');
+        String first = end < 0 ? stackTrace : stackTrace.substring(0, end);
+        int colon = first.indexOf(':');
+        return (colon > 0 ? first.substring(0, colon) : first).strip();
+    }
+
+    private static String maskPath(String endpoint) {
+        int q = endpoint.indexOf('?');
+        String path = q >= 0 ? endpoint.substring(0, q) : endpoint;
+        StringBuilder sb = new StringBuilder(path.length());
+        for (String segment : path.split("/", -1)) {
+            if (sb.length() > 0 || path.startsWith("/")) sb.append('/');
+            sb.append(shape(segment));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Collapses volatile tokens: 3-digit numbers (HTTP status and similar
+     * codes) stay, other numbers become "#", letter+digit ids and long hex
+     * runs become "#id".
+     */
+    private static String shape(String token) {
+        int digits = 0;
+        boolean hex = token.length() >= 8;
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (Character.isDigit(c)) digits++;
+            else if (c < 'a' || c > 'f') hex = false;
+        }
+        if (digits == token.length()) return token.length() == 3 ? token : "#";
+        if (digits > 0 && token.length() >= 4 || hex) return "#id";
+        return token;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    private static void add(float[] v, String prefix, String feature, float weight) {
+        if (feature == null || feature.isEmpty()) return;
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < prefix.length(); i++) {
+            h = (h ^ prefix.charAt(i)) * 0x100000001b3L;
+        }
+        for (int i = 0; i < feature.length(); i++) {
+            h = (h ^ feature.charAt(i)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        int index = (int) (h & (DIM - 1));
+        v[index] += (h < 0) ? -weight : weight;
+    }
+
+    private static void normalize(float[] v) {
+        double sum = 0;
+        for (float x : v) sum += x * x;
+        if (sum == 0) return;
+        float inv = (float) (1.0 / Math.sqrt(sum));
+        for (int i = 0; i < v.length; i++) v[i] *= inv;
+    }
+}
@@ -0,0 +1,71 @@
+package com.shanthan.ai.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Embedded SharedTriageStore for single-node runs and tests: a bounded map
+ * with per-entry expiry, and invalidations delivered in-process.
+ */
+public class LocalSharedTriageStore implements SharedTriageStore {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    private final int maxEntries;
+
+    public LocalSharedTriageStore(int maxEntries) {
+        this.maxEntries = maxEntries;
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Entry e = entries.get(key);
+        if (e == null) return null;
+        if (e.expiresAtMillis < System.currentTimeMillis()) {
+            entries.remove(key, e);
+            return null;
+        }
+        return e.value;
+    }
+
+    @Override
+    public void put(String key, byte[] value, Duration ttl) {
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            evictExpiredOrAny();
+        }
+        entries.put(key, new Entry(value, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public void invalidate(String key) {
+        if (ALL_KEYS.equals(key)) {
+            entries.clear();
+        } else {
+            entries.remove(key);
+        }
+        listeners.forEach(l -> l.accept(key));
+    }
+
+    @Override
+    public void subscribe(Consumer<String> invalidationListener) {
+        listeners.add(invalidationListener);
+    }
+
+    private void evictExpiredOrAny() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAtMillis < now);
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() >= maxEntries && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+
+    private record Entry(byte[] value, long expiresAtMillis) {
+    }
+}
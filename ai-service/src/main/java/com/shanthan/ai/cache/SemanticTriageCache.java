@@ -0,0 +1,425 @@
+package com.shanthan.ai.cache;
+
+import com.shanthan.ai.codec.TriageBinaryCodec;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FailureType;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Semantic layer behind the exact-fingerprint cache: reuses an analysis of a
+ * near-duplicate failure (same failure, different ids / wording / line
+ * numbers).
+ *
+ * - Recent cacheable analyses are kept with their FailureEmbedder vector in
+ *   a fixed ring (semantic.maxEntries) stored as one contiguous float[], and
+ *   a lookup is a brute-force dot-product scan (a few thousand x 512 floats,
+ *   well under a millisecond)
+ * - Only analyses of the same test (scopeOf: feature and test name) are
+ *   candidates, so a reuse never carries another test's root cause or Jira
+ *   summary
+ * - The best match is reused when its cosine similarity reaches the
+ *   threshold for the stored analysis's type (semantic.threshold.<TYPE>,
+ *   falling back to semantic.threshold.default); entries older than
+ *   cache.ttl.<TYPE> are ignored
+ * - semantic.verifyRate of the hits are not reused but analysed normally and
+ *   compared with the would-be reuse, which estimates the false-reuse rate
+ *   per type without labelling anything
+ * - Local to each replica; invalidations from the shared store (prompt or
+ *   model changes) clear it too
+ * - With semantic.snapshot set, the index is written there on shutdown and
+ *   read back by the start-up warm-up, so a restarted replica does not begin
+ *   cold
+ */
+@Component
+public class SemanticTriageCache {
+
+    private static final int SNAPSHOT_MAGIC = 0x53454d32; // "SEM2"
+
+    private final boolean enabled;
+    private final int capacity;
+    private final double verifyRate;
+    private final float defaultThreshold;
+    private final Path snapshot;
+    private final Map<FailureType, Float> thresholds = new EnumMap<>(FailureType.class);
+    private final Map<FailureType, Long> maxAgeMillis = new EnumMap<>(FailureType.class);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final float[] vectors;
+    private final Entry[] entries;
+    private final Map<String, Integer> slotById = new HashMap<>();
+    private int next;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Map<FailureType, TypeStats> byType = new EnumMap<>(FailureType.class);
+
+    private static final class Entry {
+        final String id;
+        final String scope;
+        final FailureAnalysisResponse response;
+        final long createdAt;
+
+        Entry(String id, String scope, FailureAnalysisResponse response, long createdAt) {
+            this.id = id;
+            this.scope = scope;
+            this.response = response;
+            this.createdAt = createdAt;
+        }
+    }
+
+    private static final class TypeStats {
+        final LongAdder hits = new LongAdder();
+        final LongAdder verified = new LongAdder();
+        final LongAdder falseReuses = new LongAdder();
+    }
+
+    /**
+     * A near-duplicate found by lookup(). When verify is set the caller must
+     * not reuse it, but analyse normally and report back via verify().
+     */
+    public static final class Match {
+        private final String sourceId;
+        private final float similarity;
+        private final FailureAnalysisResponse response;
+        private final boolean verify;
+
+        Match(String sourceId, float similarity, FailureAnalysisResponse response, boolean verify) {
+            this.sourceId = sourceId;
+            this.similarity = similarity;
+            this.response = response;
+            this.verify = verify;
+        }
+
+        public boolean isVerify() {
+            return verify;
+        }
+
+        public String getSourceId() {
+            return sourceId;
+        }
+
+        /**
+         * Private copy of the stored analysis, marked as reused.
+         */
+        public FailureAnalysisResponse reuse() {
+            FailureAnalysisResponse r = response.copy();
+            r.setReusedFrom(sourceId);
+            r.setReuseSimilarity(Math.round(similarity * 1000) / 1000.0);
+            return r;
+        }
+    }
+
+    public SemanticTriageCache(SharedTriageStore far,
+                               Environment env,
+                               @Value("${semantic.enabled:true}") boolean enabled,
+                               @Value("${semantic.maxEntries:5000}") int maxEntries,
+                               @Value("${semantic.verifyRate:0.05}") double verifyRate,
+                               @Value("${semantic.threshold.default:0.93}") float defaultThreshold,
+                               @Value("${cache.ttl.default:PT6H}") Duration defaultTtl,
+                               @Value("${semantic.snapshot:}") String snapshot) {
+        this.enabled = enabled;
+        this.snapshot = snapshot.isBlank() ? null : Path.of(snapshot);
+        this.capacity = Math.max(1, maxEntries);
+        this.verifyRate = verifyRate;
+        this.defaultThreshold = defaultThreshold;
+        for (FailureType type : FailureType.values()) {
+            thresholds.put(type, env.getProperty("semantic.threshold." + type.name(), Float.class, defaultThreshold));
+            maxAgeMillis.put(type, env.getProperty("cache.ttl." + type.name(), Duration.class, defaultTtl).toMillis());
+            byType.put(type, new TypeStats());
+        }
+        this.vectors = new float[capacity * FailureEmbedder.DIM];
+        this.entries = new Entry[capacity];
+
+        far.subscribe(key -> {
+            if (SharedTriageStore.ALL_KEYS.equals(key)) {
+                invalidateAll();
+            } else {
+                invalidate(key);
+            }
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Reuse scope of a failure: analyses are only shared between failures of
+     * the same test.
+     */
+    public static String scopeOf(FailureEventPayload request) {
+        return Objects.toString(request.getFeature(), "") + "#" + Objects.toString(request.getTestName(), "");
+    }
+
+    /**
+     * Best stored analysis in the given scope above its type's threshold, or null.
+     */
+    public Match lookup(String scope, float[] vector) {
+        if (!enabled) return null;
+        lookups.increment();
+
+        long now = System.currentTimeMillis();
+        int bestSlot = -1;
+        float best = -1f;
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                Entry e = entries[slot];
+                if (e == null || !e.scope.equals(scope)) continue;
+                float sim = FailureEmbedder.cosine(vectors, slot * FailureEmbedder.DIM, vector);
+                if (sim > best && sim >= thresholds.get(typeOf(e.response))
+                        && now - e.createdAt < maxAgeMillis.get(typeOf(e.response))) {
+                    best = sim;
+                    bestSlot = slot;
+                }
+            }
+            if (bestSlot < 0) {
+                misses.increment();
+                return null;
+            }
+            Entry e = entries[bestSlot];
+            TypeStats stats = byType.get(typeOf(e.response));
+            boolean verify = ThreadLocalRandom.current().nextDouble() < verifyRate;
+            if (verify) {
+                stats.verified.increment();
+            } else {
+                stats.hits.increment();
+            }
+            return new Match(e.id, best, e.response, verify);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Highest similarity in the index regardless of threshold and age, without
+     * counting a lookup (start-up warm-up, diagnostics).
+     */
+    public float bestSimilarity(float[] vector) {
+        float best = -1f;
+        lock.readLock().lock();
+        try {
+            for (int slot = 0; slot < capacity; slot++) {
+                if (entries[slot] != null) {
+                    best = Math.max(best, FailureEmbedder.cosine(vectors, slot * FailureEmbedder.DIM, vector));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return best;
+    }
+
+    /**
+     * Outcome of a verification sample: the fresh analysis of the same failure.
+     */
+    public void verify(Match match, FailureAnalysisResponse fresh) {
+        FailureType reused = typeOf(match.response);
+        if (fresh.getFailureType() != reused) {
+            byType.get(reused).falseReuses.increment();
+            System.out.println("DEBUG >>> Semantic cache false reuse: " + match.sourceId + " was " + reused
+                    + ", fresh analysis says " + fresh.getFailureType() + " (similarity " + match.similarity + ")");
+        }
+    }
+
+    /**
+     * Stores a fresh, cacheable analysis; the oldest entry is overwritten when full.
+     */
+    public void put(String id, String scope, float[] vector, FailureAnalysisResponse response) {
+        if (!enabled) return;
+        FailureAnalysisResponse stored = response.copy();
+        stored.setLocatorSuggestions(null);
+        store(id, scope, vector, stored, System.currentTimeMillis());
+    }
+
+    private void store(String id, String scope, float[] vector, FailureAnalysisResponse stored, long createdAt) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.get(id);
+            if (slot == null) {
+                slot = next;
+                next = (next + 1) % capacity;
+                if (entries[slot] != null) {
+                    slotById.remove(entries[slot].id);
+                }
+                slotById.put(id, slot);
+            }
+            System.arraycopy(vector, 0, vectors, slot * FailureEmbedder.DIM, FailureEmbedder.DIM);
+            entries[slot] = new Entry(id, scope, stored, createdAt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Reads the semantic.snapshot file written by a previous run, skipping
+     * entries past their type's age limit. Returns the number loaded.
+     */
+    public int loadSnapshot() throws IOException {
+        if (!enabled || snapshot == null || !Files.isRegularFile(snapshot)) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshot)))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != FailureEmbedder.DIM) {
+                System.out.println("DEBUG >>> Ignoring incompatible semantic snapshot " + snapshot);
+                return 0;
+            }
+            int count = in.readInt();
+            float[] vector = new float[FailureEmbedder.DIM];
+            for (int i = 0; i < count; i++) {
+                String id = in.readUTF();
+                String scope = in.readUTF();
+                long createdAt = in.readLong();
+                byte[] encoded = in.readNBytes(in.readInt());
+                for (int d = 0; d < vector.length; d++) {
+                    vector[d] = in.readFloat();
+                }
+                FailureAnalysisResponse response = TriageBinaryCodec.decodeResponse(encoded);
+                if (now - createdAt < maxAgeMillis.get(typeOf(response))) {
+                    store(id, scope, vector, response, createdAt);
+                    loaded++;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Writes the index to semantic.snapshot (oldest entry first) on shutdown.
+     */
+    @PreDestroy
+    public void saveSnapshot() {
+        if (!enabled || snapshot == null) {
+            return;
+        }
+        Path tmp = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        lock.readLock().lock();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(FailureEmbedder.DIM);
+            out.writeInt(slotById.size());
+            for (int i = 0; i < capacity; i++) {
+                int slot = (next + i) % capacity;
+                Entry e = entries[slot];
+                if (e == null) continue;
+                byte[] encoded = TriageBinaryCodec.encodeResponse(e.response);
+                out.writeUTF(e.id);
+                out.writeUTF(e.scope);
+                out.writeLong(e.createdAt);
+                out.writeInt(encoded.length);
+                out.write(encoded);
+                for (int d = 0; d < FailureEmbedder.DIM; d++) {
+                    out.writeFloat(vectors[slot * FailureEmbedder.DIM + d]);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> Semantic snapshot not written: " + e.getMessage());
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        try {
+            Files.move(tmp, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            System.out.println("DEBUG >>> Semantic snapshot written to " + snapshot);
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> Semantic snapshot not written: " + e.getMessage());
+        }
+    }
+
+    public void invalidate(String id) {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slotById.remove(id);
+            if (slot != null) {
+                entries[slot] = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(entries, null);
+            slotById.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long total = lookups.sum();
+        long hits = 0;
+        long verified = 0;
+        long falseReuses = 0;
+        Map<String, Object> types = new LinkedHashMap<>();
+        for (Map.Entry<FailureType, TypeStats> e : byType.entrySet()) {
+            TypeStats s = e.getValue();
+            long h = s.hits.sum();
+            long v = s.verified.sum();
+            long f = s.falseReuses.sum();
+            hits += h;
+            verified += v;
+            falseReuses += f;
+            if (h + v == 0) continue;
+            Map<String, Object> t = new LinkedHashMap<>();
+            t.put("threshold", thresholds.get(e.getKey()));
+            t.put("hits", h);
+            t.put("verified", v);
+            t.put("falseReuses", f);
+            t.put("falseReuseRate", v == 0 ? null : (double) f / v);
+            types.put(e.getKey().name(), t);
+        }
+
+        int size;
+        lock.readLock().lock();
+        try {
+            size = slotById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("size", size);
+        stats.put("lookups", total);
+        stats.put("hits", hits);
+        stats.put("verified", verified);
+        stats.put("misses", misses.sum());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (hits + verified) / total);
+        stats.put("falseReuses", falseReuses);
+        stats.put("falseReuseRate", verified == 0 ? null : (double) falseReuses / verified);
+        stats.put("defaultThreshold", defaultThreshold);
+        stats.put("byType", types);
+        return stats;
+    }
+
+    private static FailureType typeOf(FailureAnalysisResponse r) {
+        return r.getFailureType() != null ? r.getFailureType() : FailureType.UNKNOWN;
+    }
+}
@@ -0,0 +1,25 @@
+package com.shanthan.ai.cache;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Far cache tier shared by all ai-service replicas (e.g. Redis, Hazelcast).
+ * Values are opaque bytes (the binary triage encoding), so implementations
+ * never need the model classes.
+ *
+ * Invalidations must be broadcast to every subscriber on every replica so
+ * their near caches drop the key too. {@link #ALL_KEYS} means "everything".
+ */
+public interface SharedTriageStore {
+
+    String ALL_KEYS = "*";
+
+    byte[] get(String key);
+
+    void put(String key, byte[] value, Duration ttl);
+
+    void invalidate(String key);
+
+    void subscribe(Consumer<String> invalidationListener);
+}
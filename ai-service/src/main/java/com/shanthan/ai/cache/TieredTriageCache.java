@@ -0,0 +1,149 @@
+package com.shanthan.ai.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.shanthan.ai.codec.TriageBinaryCodec;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Two-tier cache for triage results, keyed by failure fingerprint.
+ * - Near tier: in-process Caffeine cache (W-TinyLFU admission, size-bounded)
+ * - Far tier: SharedTriageStore shared by all replicas, so adding replicas
+ *   raises the hit rate instead of splitting it
+ *
+ * TTL is chosen per FailureType (cache.ttl.<TYPE>, falling back to
+ * cache.ttl.default). Near entries additionally live at most
+ * cache.near.maxTtl, which bounds staleness between replicas.
+ * Invalidations go through the far tier and are broadcast to every near tier.
+ */
+@Component
+public class TieredTriageCache {
+
+    private final Cache<String, FailureAnalysisResponse> near;
+    private final SharedTriageStore far;
+    private final Map<FailureType, Duration> ttlByType = new EnumMap<>(FailureType.class);
+    private final Duration nearMaxTtl;
+
+    private final LongAdder nearHits = new LongAdder();
+    private final LongAdder farHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public TieredTriageCache(SharedTriageStore far,
+                             Environment env,
+                             @Value("${cache.near.maxEntries:10000}") long nearMaxEntries,
+                             @Value("${cache.near.maxTtl:PT10M}") Duration nearMaxTtl,
+                             @Value("${cache.ttl.default:PT6H}") Duration defaultTtl) {
+        this.far = far;
+        this.nearMaxTtl = nearMaxTtl;
+        for (FailureType type : FailureType.values()) {
+            ttlByType.put(type, env.getProperty("cache.ttl." + type.name(), Duration.class, defaultTtl));
+        }
+
+        this.near = Caffeine.newBuilder()
+                .maximumSize(nearMaxEntries)
+                .expireAfter(new Expiry<String, FailureAnalysisResponse>() {
+                    @Override
+                    public long expireAfterCreate(String key, FailureAnalysisResponse value, long currentTime) {
+                        return nearTtl(value).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, FailureAnalysisResponse value,
+                                                  long currentTime, long currentDuration) {
+                        return nearTtl(value).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, FailureAnalysisResponse value,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+
+        far.subscribe(key -> {
+            if (SharedTriageStore.ALL_KEYS.equals(key)) {
+                near.invalidateAll();
+            } else {
+                near.invalidate(key);
+            }
+        });
+    }
+
+    /**
+     * Returns a private copy of the cached analysis, or null on a miss in both tiers.
+     */
+    public FailureAnalysisResponse get(String key) {
+        FailureAnalysisResponse hit = near.getIfPresent(key);
+        if (hit != null) {
+            nearHits.increment();
+            return hit.copy();
+        }
+
+        byte[] bytes = far.get(key);
+        if (bytes != null) {
+            try {
+                FailureAnalysisResponse decoded = TriageBinaryCodec.decodeResponse(bytes);
+                near.put(key, decoded);
+                farHits.increment();
+                return decoded.copy();
+            } catch (IllegalArgumentException e) {
+                System.out.println("DEBUG >>> Dropping unreadable shared cache entry " + key + ": " + e.getMessage());
+                far.invalidate(key);
+            }
+        }
+
+        misses.increment();
+        return null;
+    }
+
+    public void put(String key, FailureAnalysisResponse response) {
+        FailureAnalysisResponse stored = response.copy();
+        near.put(key, stored);
+        far.put(key, TriageBinaryCodec.encodeResponse(stored), ttlFor(stored));
+    }
+
+    /**
+     * Removes the key (or everything for SharedTriageStore.ALL_KEYS) on all replicas.
+     */
+    public void invalidate(String key) {
+        far.invalidate(key);
+    }
+
+    public Map<String, Object> stats() {
+        long nh = nearHits.sum();
+        long fh = farHits.sum();
+        long m = misses.sum();
+        long total = nh + fh + m;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("nearHits", nh);
+        stats.put("farHits", fh);
+        stats.put("misses", m);
+        stats.put("hitRate", total == 0 ? 0.0 : (double) (nh + fh) / total);
+        stats.put("nearSize", near.estimatedSize());
+        stats.put("nearEvictions", near.stats().evictionCount());
+        return stats;
+    }
+
+    private Duration ttlFor(FailureAnalysisResponse response) {
+        FailureType type = response.getFailureType() != null ? response.getFailureType() : FailureType.UNKNOWN;
+        return ttlByType.get(type);
+    }
+
+    private Duration nearTtl(FailureAnalysisResponse response) {
+        Duration ttl = ttlFor(response);
+        return ttl.compareTo(nearMaxTtl) < 0 ? ttl : nearMaxTtl;
+    }
+}
@@ -0,0 +1,448 @@
+package com.shanthan.ai.classifier;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shanthan.ai.cache.FailureEmbedder;
+import com.shanthan.ai.client.LatencyHistogram;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FailureType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Offline triage: a softmax (multinomial logistic regression) classifier over
+ * the FailureEmbedder vector of a failure (signed hashed tokens of the
+ * exception, message, status code, endpoint and top frames) plus a few
+ * one-hot features the hashed tokens do not generalise: HTTP status class
+ * and test type. Predicting is one (512 + 8) x classes dot product, a few
+ * microseconds on a CPU.
+ *
+ * - Trained at start-up from classifier.seed (labeled JSONL: a failure
+ *   payload plus "failureType") and any classifier.training files in the
+ *   same format, e.g. an export of historical triaged failures
+ * - With classifier.learnOnline, confident LLM answers are fed back as
+ *   extra training examples, so the model adapts to this project's failures
+ * - classifier.mode: "fallback" answers locally whenever the LLM cannot
+ *   (no key, quota, upstream error, shed, tenant over budget); "first" also
+ *   answers locally before calling the LLM when the top class reaches
+ *   classifier.minConfidence (an UNKNOWN prediction never skips the LLM);
+ *   "off" disables both
+ *
+ * Weights are read under an optimistic StampedLock read and only
+ * write-locked for the (rare) online updates.
+ */
+@Component
+public class LocalTriageClassifier {
+
+    private static final FailureType[] TYPES = FailureType.values();
+    private static final int EXTRA = 8;
+    private static final int DIM = FailureEmbedder.DIM + EXTRA;
+
+    private final String mode;
+    private final double minConfidence;
+    private final boolean learnOnline;
+    private final double learnMinConfidence;
+    private final double onlineRate;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final StampedLock lock = new StampedLock();
+    private final float[][] weights = new float[TYPES.length][DIM];
+    private final float[] bias = new float[TYPES.length];
+    private final long[] examples = new long[TYPES.length];   // seed + learned, per class
+    private int seedExamples;
+    private double trainingAccuracy;
+
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder predictions = new LongAdder();
+    private final LongAdder firstTierAnswers = new LongAdder();
+    private final LongAdder fallbackAnswers = new LongAdder();
+    private final LongAdder learned = new LongAdder();
+
+    /**
+     * Top class and its softmax probability.
+     */
+    public static final class Prediction {
+        private final FailureType type;
+        private final double confidence;
+
+        Prediction(FailureType type, double confidence) {
+            this.type = type;
+            this.confidence = confidence;
+        }
+
+        public FailureType getType() {
+            return type;
+        }
+
+        public double getConfidence() {
+            return confidence;
+        }
+    }
+
+    public LocalTriageClassifier(ResourceLoader resourceLoader,
+                                 @Value("${classifier.mode:fallback}") String mode,
+                                 @Value("${classifier.seed:classpath:classifier/seed.jsonl}") String seed,
+                                 @Value("${classifier.training:}") List<String> training,
+                                 @Value("${classifier.epochs:40}") int epochs,
+                                 @Value("${classifier.learningRate:0.5}") double learningRate,
+                                 @Value("${classifier.minConfidence:0.8}") double minConfidence,
+                                 @Value("${classifier.learnOnline:true}") boolean learnOnline,
+                                 @Value("${classifier.learnMinConfidence:0.7}") double learnMinConfidence,
+                                 @Value("${classifier.onlineRate:0.1}") double onlineRate) {
+        this.mode = mode.toLowerCase(Locale.ROOT);
+        this.minConfidence = minConfidence;
+        this.learnOnline = learnOnline;
+        this.learnMinConfidence = learnMinConfidence;
+        this.onlineRate = onlineRate;
+        if ("off".equals(this.mode)) {
+            return;
+        }
+
+        List<float[]> xs = new ArrayList<>();
+        List<FailureType> ys = new ArrayList<>();
+        List<String> sources = new ArrayList<>();
+        sources.add(seed);
+        training.stream().filter(s -> !s.isBlank()).forEach(sources::add);
+        for (String source : sources) {
+            readExamples(resourceLoader.getResource(source.trim()), xs, ys);
+        }
+        seedExamples = xs.size();
+        train(xs, ys, epochs, learningRate);
+        System.out.println("DEBUG >>> Local classifier trained on " + seedExamples + " examples, mode=" + this.mode
+                + ", training accuracy=" + Math.round(trainingAccuracy * 1000) / 1000.0);
+    }
+
+    public boolean isFirstTier() {
+        return "first".equals(mode) && trained();
+    }
+
+    public boolean isFallback() {
+        return !"off".equals(mode) && trained();
+    }
+
+    /**
+     * Whether a first-tier prediction may answer instead of the LLM: confident
+     * enough, and a type that tells the engineer something (not UNKNOWN).
+     */
+    public boolean answersFirst(Prediction prediction) {
+        return prediction.getType() != FailureType.UNKNOWN && prediction.getConfidence() >= minConfidence;
+    }
+
+    /**
+     * Classifies the failure; pass its FailureEmbedder vector if already computed, else null.
+     */
+    public Prediction classify(FailureEventPayload request, float[] embedding) {
+        long start = System.nanoTime();
+        double[] p = probabilities(features(request, embedding));
+        int best = 0;
+        for (int c = 1; c < p.length; c++) {
+            if (p[c] > p[best]) best = c;
+        }
+        predictions.increment();
+        latency.recordNanos(System.nanoTime() - start);
+        return new Prediction(TYPES[best], p[best]);
+    }
+
+    /**
+     * Triage answer built from a prediction; firstTier = answered instead of
+     * calling the LLM, otherwise a fallback for an LLM that was unavailable.
+     */
+    public FailureAnalysisResponse respond(FailureEventPayload request, Prediction prediction,
+                                           boolean firstTier, String reason) {
+        (firstTier ? firstTierAnswers : fallbackAnswers).increment();
+        FailureType type = prediction.getType();
+        double confidence = Math.round(prediction.getConfidence() * 1000) / 1000.0;
+
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        r.setFailureType(type);
+        r.setAiConfidence(confidence);
+        r.setSeverityScore(severityOf(type));
+        r.setRootCauseSummary("Classified by the local model as " + type + " (p=" + confidence + "): "
+                + describe(type) + (reason == null ? "" : " LLM not used: " + reason + "."));
+        r.setRecommendedNextSteps(nextSteps(type));
+        String feature = request.getFeature() == null ? "" : "[" + shortName(request.getFeature()) + "] ";
+        r.setJiraSummaryTemplate(feature + type.name().toLowerCase(Locale.ROOT).replace('_', ' ')
+                + " in " + request.getTestName());
+        r.setSimilarFailures(new ArrayList<>());
+        return r;
+    }
+
+    /**
+     * Feeds an LLM answer back as a training example (one SGD step), if it
+     * is confident and of a class the failure text can tell apart.
+     */
+    public void learn(FailureEventPayload request, float[] embedding, FailureAnalysisResponse response) {
+        FailureType type = response.getFailureType();
+        if (!learnOnline || "off".equals(mode) || type == null
+                || type == FailureType.UNKNOWN || type == FailureType.FLAKY_TEST
+                || response.getAiConfidence() < learnMinConfidence) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            step(features(request, embedding), type.ordinal(), onlineRate, new double[TYPES.length]);
+            examples[type.ordinal()]++;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        learned.increment();
+    }
+
+    /**
+     * Runs one prediction so the scoring path is compiled before the first failure arrives.
+     */
+    public void warmUp(FailureEventPayload sample) {
+        if (!"off".equals(mode)) {
+            probabilities(features(sample, null));
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("mode", mode);
+        s.put("minConfidence", minConfidence);
+        s.put("seedExamples", seedExamples);
+        s.put("trainingAccuracy", Math.round(trainingAccuracy * 1000) / 1000.0);
+        s.put("learnedOnline", learned.sum());
+        Map<String, Long> perClass = new LinkedHashMap<>();
+        long stamp = lock.readLock();
+        try {
+            for (int c = 0; c < TYPES.length; c++) {
+                if (examples[c] > 0) perClass.put(TYPES[c].name(), examples[c]);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        s.put("examples", perClass);
+        s.put("predictions", predictions.sum());
+        s.put("firstTierAnswers", firstTierAnswers.sum());
+        s.put("fallbackAnswers", fallbackAnswers.sum());
+        s.put("latency", latency.snapshot());
+        return s;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * Embedding followed by the one-hot extras: status 2xx/3xx, 401/403,
+     * other 4xx, 5xx, no status; UI, API, other test type.
+     */
+    private static float[] features(FailureEventPayload request, float[] embedding) {
+        float[] x = Arrays.copyOf(embedding != null ? embedding : FailureEmbedder.embed(request), DIM);
+        int base = FailureEmbedder.DIM;
+        Integer status = request.getStatusCode();
+        if (status == null) x[base + 4] = 1f;
+        else if (status >= 500) x[base + 3] = 1f;
+        else if (status == 401 || status == 403) x[base + 1] = 1f;
+        else if (status >= 400) x[base + 2] = 1f;
+        else x[base] = 1f;
+        String type = request.getTestType();
+        x[base + ("UI".equalsIgnoreCase(type) ? 5 : "API".equalsIgnoreCase(type) ? 6 : 7)] = 1f;
+        return x;
+    }
+
+    private boolean trained() {
+        return seedExamples > 0 || learned.sum() > 0;
+    }
+
+    private double[] probabilities(float[] x) {
+        double[] p = new double[TYPES.length];
+        long stamp = lock.tryOptimisticRead();
+        scores(x, p);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                scores(x, p);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        softmax(p);
+        return p;
+    }
+
+    private void readExamples(Resource resource, List<float[]> xs, List<FailureType> ys) {
+        if (!resource.exists()) {
+            System.out.println("DEBUG >>> Classifier training data not found: " + resource);
+            return;
+        }
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (line.isBlank()) continue;
+                JsonNode node = mapper.readTree(line);
+                JsonNode label = node.path("failureType");
+                if (!(node instanceof ObjectNode obj) || !label.isTextual()) continue;
+                FailureType type;
+                try {
+                    type = FailureType.valueOf(label.asText());
+                } catch (IllegalArgumentException e) {
+                    continue;
+                }
+                obj.remove("failureType");
+                xs.add(features(mapper.treeToValue(obj, FailureEventPayload.class), null));
+                ys.add(type);
+            }
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> Classifier training data unreadable: " + resource + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Plain SGD over shuffled examples with a decaying rate; deterministic (fixed shuffle seed).
+     */
+    private void train(List<float[]> xs, List<FailureType> ys, int epochs, double learningRate) {
+        if (xs.isEmpty()) return;
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < xs.size(); i++) {
+            order.add(i);
+            examples[ys.get(i).ordinal()]++;
+        }
+        Random random = new Random(42);
+        double[] p = new double[TYPES.length];
+        for (int epoch = 0; epoch < epochs; epoch++) {
+            Collections.shuffle(order, random);
+            double rate = learningRate / (1 + epoch * 0.1);
+            for (int i : order) {
+                step(xs.get(i), ys.get(i).ordinal(), rate, p);
+            }
+        }
+
+        int correct = 0;
+        for (int i = 0; i < xs.size(); i++) {
+            scores(xs.get(i), p);
+            int best = 0;
+            for (int c = 1; c < p.length; c++) {
+                if (p[c] > p[best]) best = c;
+            }
+            if (best == ys.get(i).ordinal()) correct++;
+        }
+        trainingAccuracy = (double) correct / xs.size();
+    }
+
+    /**
+     * One cross-entropy gradient step; p is scratch space. Caller holds the write lock (or is the constructor).
+     */
+    private void step(float[] x, int label, double rate, double[] p) {
+        scores(x, p);
+        softmax(p);
+        for (int c = 0; c < TYPES.length; c++) {
+            if (examples[c] == 0 && c != label) continue;
+            float g = (float) (rate * ((c == label ? 1.0 : 0.0) - p[c]));
+            float[] w = weights[c];
+            for (int i = 0; i < DIM; i++) {
+                if (x[i] != 0f) w[i] += g * x[i];
+            }
+            bias[c] += g;
+        }
+    }
+
+    /**
+     * Logits; classes without a single example get -inf so they are never predicted.
+     */
+    private void scores(float[] x, double[] out) {
+        for (int c = 0; c < TYPES.length; c++) {
+            if (examples[c] == 0) {
+                out[c] = Double.NEGATIVE_INFINITY;
+                continue;
+            }
+            float[] w = weights[c];
+            float dot = bias[c];
+            for (int i = 0; i < DIM; i++) {
+                dot += w[i] * x[i];
+            }
+            out[c] = dot;
+        }
+    }
+
+    private static void softmax(double[] z) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double v : z) max = Math.max(max, v);
+        if (max == Double.NEGATIVE_INFINITY) {
+            Arrays.fill(z, 1.0 / z.length);
+            return;
+        }
+        double sum = 0;
+        for (int i = 0; i < z.length; i++) {
+            z[i] = Math.exp(z[i] - max);
+            sum += z[i];
+        }
+        for (int i = 0; i < z.length; i++) z[i] /= sum;
+    }
+
+    private static final Map<FailureType, String[]> ADVICE = new EnumMap<>(Map.ofEntries(
+            Map.entry(FailureType.LOCATOR_ISSUE, new String[]{"3",
+                    "the element could not be found or used with the current locator.",
+                    "1. Check the locator against the current DOM (see locator suggestions, if any).\n2. Prefer stable ids or data-test attributes.\n3. Add an explicit wait if the element renders late."}),
+            Map.entry(FailureType.ENVIRONMENT, new String[]{"4",
+                    "the test could not reach a dependency or the browser/driver setup is broken.",
+                    "1. Check that the target environment and its hosts resolve and accept connections.\n2. Check driver/browser versions and certificates.\n3. Re-run once the environment is healthy."}),
+            Map.entry(FailureType.BACKEND_5XX, new String[]{"4",
+                    "the service under test answered with a server error.",
+                    "1. Look up the request in the service logs around the failure time.\n2. Check recent deployments of the service.\n3. File a backend bug with the request and response."}),
+            Map.entry(FailureType.AUTHENTICATION, new String[]{"3",
+                    "the request or session was not authenticated or not authorized.",
+                    "1. Check the test credentials and token expiry.\n2. Check the roles/scopes the test user needs.\n3. Verify the auth configuration of the environment."}),
+            Map.entry(FailureType.TIMEOUT, new String[]{"3",
+                    "an operation did not complete within its timeout.",
+                    "1. Check whether the page or service is slow in this environment.\n2. Wait for a specific condition instead of a fixed time.\n3. Raise the timeout only if the slowness is expected."}),
+            Map.entry(FailureType.ASSERTION_FAILURE, new String[]{"3",
+                    "the application answered, but with a different value than the test expects.",
+                    "1. Compare expected and actual values in the failure message.\n2. Decide whether the product or the test expectation changed.\n3. Fix the side that is wrong."}),
+            Map.entry(FailureType.FLAKY_TEST, new String[]{"2",
+                    "the test looks timing- or order-dependent (animations, async state read too early, shared data).",
+                    "1. Check the test's pass/fail history (GET /api/ai/flakiness).\n2. Wait for the condition the assertion depends on instead of a fixed sleep.\n3. Isolate data shared with tests running in parallel."}),
+            Map.entry(FailureType.TEST_DATA_ISSUE, new String[]{"3",
+                    "the data the test relies on is missing, left over from an earlier run, or created by a test that did not run first.",
+                    "1. Check that the seed / fixture data exists in this environment.\n2. Create the data the test needs in its own setup and clean it up afterwards.\n3. Remove ordering dependencies between tests."}),
+            Map.entry(FailureType.CLIENT_REQUEST_ISSUE, new String[]{"2",
+                    "the service rejected the request the test sent (payload, parameters, headers or method).",
+                    "1. Read the validation message in the response body.\n2. Compare the request with the current API documentation.\n3. Fix the request builder or test data in the test."}),
+            Map.entry(FailureType.CONTRACT_MISMATCH, new String[]{"4",
+                    "the response status, headers or body shape differ from the API contract the test expects.",
+                    "1. Diff the response against the schema / contract (field names, types, status codes).\n2. Check recent API changes and whether they were announced.\n3. Update the contract and clients, or file a bug for the breaking change."}),
+            Map.entry(FailureType.RATE_LIMITING, new String[]{"2",
+                    "the request was throttled (429 or a rate-limit / quota message).",
+                    "1. Check the rate limits and quota of the test account or API key.\n2. Honour Retry-After and back off in the client.\n3. Reduce parallelism or use a dedicated key for test runs."})));
+
+    private static int severityOf(FailureType type) {
+        String[] a = ADVICE.get(type);
+        return a == null ? 2 : Integer.parseInt(a[0]);
+    }
+
+    private static String describe(FailureType type) {
+        String[] a = ADVICE.get(type);
+        return a == null ? "no specific pattern recognised." : a[1];
+    }
+
+    private static String nextSteps(FailureType type) {
+        String[] a = ADVICE.get(type);
+        return a == null ? "Review the failure manually." : a[2];
+    }
+
+    private static String shortName(String className) {
+        int dot = className.lastIndexOf('.');
+        return dot < 0 ? className : className.substring(dot + 1);
+    }
+}
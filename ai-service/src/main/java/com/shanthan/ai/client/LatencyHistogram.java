@@ -0,0 +1,64 @@
+package com.shanthan.ai.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free latency histogram with power-of-two microsecond buckets
+ * (1us .. ~35min). Recording is two atomic increments; percentiles are
+ * reported as the upper bound of the bucket they fall in, i.e. at most 2x off,
+ * which is plenty for queue-wait and call-time dashboards.
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 32;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sumMicros = new AtomicLong();
+    private final AtomicLong maxMicros = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        long micros = Math.max(0, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+        counts.incrementAndGet(bucket);
+        total.incrementAndGet();
+        sumMicros.addAndGet(micros);
+        maxMicros.accumulateAndGet(micros, Math::max);
+    }
+
+    public long count() {
+        return total.get();
+    }
+
+    /**
+     * Upper bound (ms) of the bucket holding the given quantile, 0 when empty.
+     */
+    public double percentileMillis(double quantile) {
+        long n = total.get();
+        if (n == 0) return 0.0;
+        long rank = (long) Math.ceil(quantile * n);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(1L << i, maxMicros.get()) / 1000.0;
+            }
+        }
+        return maxMicros.get() / 1000.0;
+    }
+
+    public Map<String, Object> snapshot() {
+        long n = total.get();
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("count", n);
+        s.put("meanMs", n == 0 ? 0.0 : sumMicros.get() / 1000.0 / n);
+        s.put("p50Ms", percentileMillis(0.50));
+        s.put("p95Ms", percentileMillis(0.95));
+        s.put("p99Ms", percentileMillis(0.99));
+        s.put("maxMs", maxMicros.get() / 1000.0);
+        return s;
+    }
+}
@@ -0,0 +1,160 @@
+package com.shanthan.ai.client;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bulkhead around LLM calls: they run on their own bounded pool, so a slow
+ * provider can only tie up llm.bulkhead.workers threads, never the servlet
+ * or stream worker pools.
+ *
+ * Work is shed (Rejected) instead of piling up when:
+ * - the queue (llm.bulkhead.queueCapacity) is full
+ * - a task waited longer than llm.bulkhead.maxQueueWait before starting
+ * - the caller's overall deadline (maxQueueWait + openai.callTimeout) passes
+ * Callers answer shed requests with a fast rule-based result, which keeps
+ * latency bounded under overload.
+ *
+ * The queue is weighted-fair across flows (tenants) and priority-ordered
+ * within a flow (WeightedFairTaskQueue); when it is full, higher-priority
+ * work preempts the lowest-priority queued call.
+ */
+@Component
+public class LlmBulkhead {
+
+    private final ThreadPoolExecutor executor;
+    private final WeightedFairTaskQueue queue;
+    private final AtomicLong seq = new AtomicLong();
+    private final int queueCapacity;
+    private final long maxQueueWaitNanos;
+    private final long deadlineNanos;
+
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+    private final LatencyHistogram callTime = new LatencyHistogram();
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejectedFull = new LongAdder();
+    private final LongAdder rejectedStale = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+
+    /**
+     * Thrown when the bulkhead sheds a call; the message says why.
+     */
+    public static class Rejected extends RuntimeException {
+        public Rejected(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    public LlmBulkhead(@Value("${llm.bulkhead.workers:16}") int workers,
+                       @Value("${llm.bulkhead.queueCapacity:64}") int queueCapacity,
+                       @Value("${llm.bulkhead.maxQueueWait:PT10S}") Duration maxQueueWait,
+                       @Value("${openai.callTimeout:PT90S}") Duration callTimeout) {
+        this.queueCapacity = queueCapacity;
+        this.maxQueueWaitNanos = maxQueueWait.toNanos();
+        this.deadlineNanos = maxQueueWait.plus(callTimeout).plusSeconds(1).toNanos();
+
+        AtomicInteger n = new AtomicInteger();
+        this.queue = new WeightedFairTaskQueue(queueCapacity);
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                queue,
+                r -> {
+                    Thread t = new Thread(r, "llm-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    public <T> T execute(Callable<T> call) {
+        return execute(call, WeightedFairTaskQueue.DEFAULT_FLOW, WeightedFairTaskQueue.DEFAULT_PRIORITY);
+    }
+
+    /**
+     * Runs the call on the bulkhead pool and waits for it (bounded).
+     *
+     * @param flow     fairness key, normally the tenant (TenantQuotas)
+     * @param priority higher runs sooner; see TriagePriorityPolicy
+     * @throws Rejected when the call was shed; other failures of the call propagate
+     */
+    public <T> T execute(Callable<T> call, String flow, int priority) {
+        long enqueued = System.nanoTime();
+        Callable<T> timed = () -> {
+            long waited = System.nanoTime() - enqueued;
+            queueWait.recordNanos(waited);
+            if (waited > maxQueueWaitNanos) {
+                rejectedStale.increment();
+                throw new Rejected("waited " + waited / 1_000_000 + " ms in the LLM queue");
+            }
+            long start = System.nanoTime();
+            try {
+                return call.call();
+            } finally {
+                callTime.recordNanos(System.nanoTime() - start);
+                completed.increment();
+            }
+        };
+        String flowKey = flow == null || flow.isBlank() ? WeightedFairTaskQueue.DEFAULT_FLOW : flow;
+        PrioritizedTask<T> future = new PrioritizedTask<>(timed, flowKey, priority, seq.incrementAndGet());
+
+        try {
+            executor.execute(future);
+            submitted.increment();
+        } catch (RejectedExecutionException e) {
+            rejectedFull.increment();
+            throw new Rejected("LLM queue full (" + queueCapacity + " waiting)");
+        }
+
+        try {
+            return future.get(deadlineNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOut.increment();
+            throw new Rejected("LLM call exceeded " + deadlineNanos / 1_000_000 + " ms");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new Rejected("interrupted while waiting for the LLM");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException re) throw re;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("workers", executor.getMaximumPoolSize());
+        s.put("active", executor.getActiveCount());
+        s.put("queueDepth", executor.getQueue().size());
+        s.put("queueCapacity", queueCapacity);
+        s.put("submitted", submitted.sum());
+        s.put("completed", completed.sum());
+        s.put("rejectedQueueFull", rejectedFull.sum());
+        s.put("rejectedStale", rejectedStale.sum());
+        s.put("timedOut", timedOut.sum());
+        s.put("preempted", queue.preempted());
+        s.put("queueWait", queueWait.snapshot());
+        s.put("callTime", callTime.snapshot());
+        s.put("flows", queue.flowStats());
+        return s;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
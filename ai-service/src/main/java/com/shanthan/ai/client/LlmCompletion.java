@@ -0,0 +1,29 @@
+package com.shanthan.ai.client;
+
+import lombok.Getter;
+
+/**
+ * One chat completion: the assistant content plus what it cost.
+ * Token counts come from the provider's "usage" block (0 when absent or
+ * stubbed); latency is the HTTP call only, excluding any queueing.
+ */
+@Getter
+public class LlmCompletion {
+
+    private final String content;
+    private final String model;
+    private final long promptTokens;
+    private final long completionTokens;
+    private final long latencyNanos;
+    private final boolean stubbed;   // no real model answer (missing key, quota, upstream/transport error)
+
+    public LlmCompletion(String content, String model, long promptTokens, long completionTokens,
+                         long latencyNanos, boolean stubbed) {
+        this.content = content;
+        this.model = model;
+        this.promptTokens = promptTokens;
+        this.completionTokens = completionTokens;
+        this.latencyNanos = latencyNanos;
+        this.stubbed = stubbed;
+    }
+}
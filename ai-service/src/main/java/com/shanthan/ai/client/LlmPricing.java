@@ -0,0 +1,43 @@
+package com.shanthan.ai.client;
+
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Token prices per model (shadow.price."[model]".input/output, USD per 1M
+ * tokens), used for the shadow report and per-tenant spend.
+ */
+@Component
+public class LlmPricing {
+
+    private final Map<String, double[]> prices = new LinkedHashMap<>();
+
+    public LlmPricing(Environment env) {
+        Binder.get(env)
+                .bind("shadow.price", Bindable.mapOf(String.class, String.class))
+                .orElse(Map.of())
+                .forEach((key, value) -> {
+                    // flattened keys: "<model>.input" / "<model>.output"
+                    int dot = key.lastIndexOf('.');
+                    if (dot < 0) return;
+                    double[] p = prices.computeIfAbsent(key.substring(0, dot), k -> new double[2]);
+                    p["output".equals(key.substring(dot + 1)) ? 1 : 0] = Double.parseDouble(value);
+                });
+    }
+
+    public boolean knows(String model) {
+        return prices.containsKey(model);
+    }
+
+    /**
+     * USD for the given token counts; 0 for a model without a price.
+     */
+    public double costUsd(String model, long promptTokens, long completionTokens) {
+        double[] price = prices.get(model);
+        return price == null ? 0 : (promptTokens * price[0] + completionTokens * price[1]) / 1_000_000.0;
+    }
+}
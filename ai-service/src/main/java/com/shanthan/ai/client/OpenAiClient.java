@@ -11,6 +11,7 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import jakarta.annotation.PostConstruct;
 import java.io.IOException;
+import java.time.Duration;
 
 /**
  * Thin wrapper around OpenAI's Chat Completions API.
@@ -22,6 +23,10 @@ import java.io.IOException;
  * - Returns the assistant's message content as a String
  * - On 429 / error, returns a stubbed fallback JSON so the rest of the
  *   framework continues to work for demo purposes.
+ * - Explicit connect/read/write/call timeouts (openai.*Timeout); a call that
+ *   hits one is treated like any other connection error
+ * - complete() also reports token usage and latency; ShadowEvaluator builds
+ *   a second instance for the candidate model with the public constructor
  */
 @Component
 public class OpenAiClient {
@@ -29,7 +34,7 @@ public class OpenAiClient {
     private static final MediaType JSON
             = MediaType.parse("application/json; charset=utf-8");
 
-    private final OkHttpClient httpClient = new OkHttpClient();
+    private final OkHttpClient httpClient;
     private final ObjectMapper mapper = new ObjectMapper();
 
     private final String apiKey;
@@ -39,10 +44,20 @@ public class OpenAiClient {
     public OpenAiClient(
             @Value("${openai.apiKey:}") String apiKey,
             @Value("${openai.baseUrl:https://api.openai.com/v1}") String baseUrl,
-            @Value("${openai.model:gpt-4.1-mini}") String model) {
+            @Value("${openai.model:gpt-4.1-mini}") String model,
+            @Value("${openai.connectTimeout:PT5S}") Duration connectTimeout,
+            @Value("${openai.readTimeout:PT60S}") Duration readTimeout,
+            @Value("${openai.writeTimeout:PT10S}") Duration writeTimeout,
+            @Value("${openai.callTimeout:PT90S}") Duration callTimeout) {
         this.apiKey = apiKey;
         this.baseUrl = baseUrl;
         this.model = model;
+        this.httpClient = new OkHttpClient.Builder()
+                .connectTimeout(connectTimeout)
+                .readTimeout(readTimeout)
+                .writeTimeout(writeTimeout)
+                .callTimeout(callTimeout)
+                .build();
     }
 
     @PostConstruct
@@ -64,13 +79,22 @@ public class OpenAiClient {
      *    is still can be demoed even without real OpenAI responses.
      */
     public String generateAnalysis(String systemPrompt, String userPrompt) {
+        return complete(systemPrompt, userPrompt).getContent();
+    }
+
+    /**
+     * Same as generateAnalysis, but also reports token usage and call latency
+     * (used for model comparisons, see ShadowEvaluator).
+     */
+    public LlmCompletion complete(String systemPrompt, String userPrompt) {
         // If API key is missing, don't even try; return stubbed response
         if (apiKey == null || apiKey.isBlank()) {
             System.out.println("DEBUG >>> OPENAI_API_KEY missing, returning stubbed analysis.");
-            return stubbedResponse("AI key not configured. This is a stubbed fallback response.",
-                    "Configure OPENAI_API_KEY to enable real AI triage.");
+            return stubbed(stubbedResponse("AI key not configured. This is a stubbed fallback response.",
+                    "Configure OPENAI_API_KEY to enable real AI triage."), 0);
         }
 
+        long start = System.nanoTime();
         try {
             // Build the chat/completions request body
             JsonNode bodyJson = buildRequestBody(systemPrompt, userPrompt);
@@ -87,6 +111,7 @@ public class OpenAiClient {
 
             try (Response response = httpClient.newCall(request).execute()) {
                 String responseBody = response.body() != null ? response.body().string() : "";
+                long latency = System.nanoTime() - start;
                 System.out.println("DEBUG >>> OpenAI HTTP status: " + response.code());
                 System.out.println("DEBUG >>> OpenAI response body length: " + responseBody.length());
 
@@ -95,16 +120,16 @@ public class OpenAiClient {
 
                     // If quota / rate limit / auth errors -> return stubbed JSON
                     if (response.code() == 429 || response.code() == 401 || response.code() == 403) {
-                        return stubbedResponse(
+                        return stubbed(stubbedResponse(
                                 "AI triage is temporarily unavailable (OpenAI quota / rate limit / auth issue). This is a stubbed fallback response.",
                                 "Review this failure manually. Check OpenAI billing/usage or key if you want live AI triage."
-                        );
+                        ), latency);
                     }
 
-                    return stubbedResponse(
+                    return stubbed(stubbedResponse(
                             "AI triage failed with an upstream error. This is a stubbed fallback response.",
                             "Review the failure manually and check AI service logs."
-                    );
+                    ), latency);
                 }
 
                 // Parse the assistant's message content:
@@ -116,25 +141,35 @@ public class OpenAiClient {
                 //         "content": "{ ...JSON we asked for... }"
                 //       }
                 //     }
-                //   ]
+                //   ],
+                //   "usage": { "prompt_tokens": 812, "completion_tokens": 96, ... }
                 // }
-                return extractAssistantContent(responseBody);
+                JsonNode root = readTree(responseBody);
+                JsonNode usage = root == null ? null : root.path("usage");
+                return new LlmCompletion(extractAssistantContent(root, responseBody), model,
+                        usage == null ? 0 : usage.path("prompt_tokens").asLong(),
+                        usage == null ? 0 : usage.path("completion_tokens").asLong(),
+                        latency, false);
             }
         } catch (IOException e) {
             System.out.println("DEBUG >>> OpenAI call failed: " + e.getMessage());
-            return stubbedResponse(
+            return stubbed(stubbedResponse(
                     "AI triage failed due to connection/exception. This is a stubbed fallback response.",
                     "Check network / API key configuration."
-            );
+            ), System.nanoTime() - start);
         } catch (Exception e) {
             System.out.println("DEBUG >>> OpenAI unexpected error: " + e.getMessage());
-            return stubbedResponse(
+            return stubbed(stubbedResponse(
                     "AI triage crashed while parsing the LLM response. This is a stubbed fallback response.",
                     "Check AI service logs and response structure."
-            );
+            ), System.nanoTime() - start);
         }
     }
 
+    public String getModel() {
+        return model;
+    }
+
     private JsonNode buildRequestBody(String systemPrompt, String userPrompt) {
         var root = mapper.createObjectNode();
         root.put("model", model);
@@ -153,13 +188,24 @@ public class OpenAiClient {
         return root;
     }
 
+    private JsonNode readTree(String responseBody) {
+        try {
+            return mapper.readTree(responseBody);
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> Failed to parse OpenAI response: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * Extracts the assistant's message.content from the OpenAI response JSON.
      * If parsing fails, we just return the raw response.
      */
-    private String extractAssistantContent(String responseBody) {
+    private String extractAssistantContent(JsonNode root, String responseBody) {
+        if (root == null) {
+            return responseBody;
+        }
         try {
-            JsonNode root = mapper.readTree(responseBody);
             JsonNode choices = root.path("choices");
             if (!choices.isArray() || choices.isEmpty()) {
                 System.out.println("DEBUG >>> OpenAI response has no choices array; returning raw body.");
@@ -182,6 +228,10 @@ public class OpenAiClient {
         }
     }
 
+    private LlmCompletion stubbed(String content, long latencyNanos) {
+        return new LlmCompletion(content, model, 0, 0, latencyNanos, true);
+    }
+
     /**
      * Stubbed JSON that matches the expected structure of the model output.
      * This keeps the rest of the pipeline working even when OpenAI is unavailable.
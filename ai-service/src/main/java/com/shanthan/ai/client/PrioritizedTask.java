@@ -0,0 +1,30 @@
+package com.shanthan.ai.client;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+
+/**
+ * An LLM call with its scheduling attributes: the flow (suite) it is
+ * fair-queued under and its priority (higher runs first within the flow and
+ * gives the flow a larger share of the workers).
+ */
+final class PrioritizedTask<T> extends FutureTask<T> {
+
+    final String flow;
+    final int priority;
+    final long seq;
+
+    PrioritizedTask(Callable<T> call, String flow, int priority, long seq) {
+        super(call);
+        this.flow = flow;
+        this.priority = priority;
+        this.seq = seq;
+    }
+
+    /**
+     * Fails the task without running it (queue preemption).
+     */
+    void shed(String reason) {
+        setException(new LlmBulkhead.Rejected(reason));
+    }
+}
@@ -0,0 +1,326 @@
+package com.shanthan.ai.client;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Work queue for the LLM pool: weighted-fair across flows (tenants),
+ * priority order within a flow.
+ *
+ * - Each flow keeps a virtual time; the non-empty flow with the smallest
+ *   virtual time is served next and advances by 1 / weight, where weight is
+ *   the priority of its best queued task. A gating suite at priority 90 thus
+ *   gets ~9x the dispatch rate of a nightly suite at 10, and equal-priority
+ *   suites share evenly, however deep one suite's backlog is.
+ * - A flow exists only while it has queued tasks: it is dropped as soon as
+ *   it drains, so one-off tenants do not accumulate. A flow that becomes
+ *   active again starts at the current virtual time, so idle suites cannot
+ *   bank credit.
+ * - Bounded: when full, a new task evicts the lowest-priority queued task if
+ *   it outranks it (the evicted caller is shed); otherwise offer() fails and
+ *   the executor rejects the new task.
+ */
+final class WeightedFairTaskQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    static final String DEFAULT_FLOW = "default";
+    static final int DEFAULT_PRIORITY = 50;
+
+    private static final Comparator<Entry> BY_PRIORITY =
+            Comparator.comparingInt((Entry e) -> -e.priority).thenComparingLong(e -> e.seq);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Map<String, Flow> flows = new HashMap<>();
+    private final int capacity;
+    private final AtomicLong seq = new AtomicLong();
+    private final AtomicLong preempted = new AtomicLong();
+    private int count;
+    private double virtualTime;
+
+    private static final class Entry {
+        final Runnable task;
+        final int priority;
+        final long seq;
+
+        Entry(Runnable task, int priority, long seq) {
+            this.task = task;
+            this.priority = priority;
+            this.seq = seq;
+        }
+    }
+
+    private static final class Flow {
+        final String key;
+        final PriorityQueue<Entry> tasks = new PriorityQueue<>(BY_PRIORITY);
+        double vtime;
+        long served;
+
+        Flow(String key) {
+            this.key = key;
+        }
+    }
+
+    WeightedFairTaskQueue(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public boolean offer(Runnable r) {
+        PrioritizedTask<?> victim = null;
+        lock.lock();
+        try {
+            String flowKey = r instanceof PrioritizedTask<?> t ? t.flow : DEFAULT_FLOW;
+            int priority = r instanceof PrioritizedTask<?> t ? t.priority : DEFAULT_PRIORITY;
+
+            if (count >= capacity) {
+                victim = evictBelow(priority);
+                if (victim == null) {
+                    return false;
+                }
+            }
+
+            Flow flow = flows.computeIfAbsent(flowKey, Flow::new);
+            if (flow.tasks.isEmpty()) {
+                flow.vtime = virtualTime;
+            }
+            flow.tasks.add(new Entry(r, priority, seq.incrementAndGet()));
+            count++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (victim != null) {
+            preempted.incrementAndGet();
+            victim.shed("preempted in the LLM queue by higher-priority work");
+        }
+        return true;
+    }
+
+    @Override
+    public boolean offer(Runnable r, long timeout, TimeUnit unit) {
+        return offer(r);
+    }
+
+    @Override
+    public void put(Runnable r) {
+        if (!offer(r)) {
+            throw new IllegalStateException("LLM queue full");
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        lock.lock();
+        try {
+            return count == 0 ? null : dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                notEmpty.await();
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count == 0) {
+                if (nanos <= 0) return null;
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+            return dequeue();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            Flow flow = nextFlow();
+            return flow == null ? null : flow.tasks.peek().task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        lock.lock();
+        try {
+            for (Iterator<Flow> it = flows.values().iterator(); it.hasNext(); ) {
+                Flow flow = it.next();
+                if (flow.tasks.removeIf(e -> e.task == o)) {
+                    count--;
+                    if (flow.tasks.isEmpty()) it.remove();
+                    return true;
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        lock.lock();
+        try {
+            int n = 0;
+            while (count > 0 && n < maxElements) {
+                c.add(dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Snapshot iterator (ThreadPoolExecutor only uses it for diagnostics).
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        lock.lock();
+        try {
+            List<Runnable> all = new ArrayList<>(count);
+            flows.values().forEach(f -> f.tasks.forEach(e -> all.add(e.task)));
+            return all.iterator();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long preempted() {
+        return preempted.get();
+    }
+
+    /**
+     * Per-flow queued count, current weight and dispatches since the flow
+     * became active, for metrics; drained flows are not listed.
+     */
+    Map<String, Object> flowStats() {
+        lock.lock();
+        try {
+            Map<String, Object> stats = new LinkedHashMap<>();
+            flows.forEach((key, flow) -> {
+                Map<String, Object> f = new LinkedHashMap<>();
+                f.put("queued", flow.tasks.size());
+                f.put("headPriority", flow.tasks.isEmpty() ? 0 : flow.tasks.peek().priority);
+                f.put("dispatched", flow.served);
+                stats.put(key, f);
+            });
+            return stats;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods (caller holds the lock)
+    // ------------------------------------------------------------------------
+
+    private Runnable dequeue() {
+        Flow flow = nextFlow();
+        Entry e = flow.tasks.poll();
+        virtualTime = flow.vtime;
+        flow.vtime += 1.0 / Math.max(1, e.priority);
+        flow.served++;
+        count--;
+        if (flow.tasks.isEmpty()) {
+            flows.remove(flow.key);
+        }
+        return e.task;
+    }
+
+    private Flow nextFlow() {
+        Flow best = null;
+        for (Flow flow : flows.values()) {
+            if (best == null || flow.vtime < best.vtime
+                    || (flow.vtime == best.vtime && flow.tasks.peek().priority > best.tasks.peek().priority)) {
+                best = flow;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Removes the lowest-priority (newest on ties) queued task if it ranks
+     * below the given priority; null when nothing may be evicted.
+     */
+    private PrioritizedTask<?> evictBelow(int priority) {
+        Flow victimFlow = null;
+        Entry victim = null;
+        for (Flow flow : flows.values()) {
+            for (Entry e : flow.tasks) {
+                if (e.priority < priority && e.task instanceof PrioritizedTask<?>
+                        && (victim == null || e.priority < victim.priority
+                        || (e.priority == victim.priority && e.seq > victim.seq))) {
+                    victim = e;
+                    victimFlow = flow;
+                }
+            }
+        }
+        if (victim == null) {
+            return null;
+        }
+        victimFlow.tasks.remove(victim);
+        count--;
+        if (victimFlow.tasks.isEmpty()) {
+            flows.remove(victimFlow.key);
+        }
+        return (PrioritizedTask<?>) victim.task;
+    }
+}
@@ -0,0 +1,97 @@
+package com.shanthan.ai.codec;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Counterpart of {@link ProtoWriter}. Unknown fields are skipped so older
+ * readers keep working when fields are added to the schema.
+ */
+final class ProtoReader {
+
+    private final byte[] buf;
+    private int pos;
+    private final int limit;
+
+    ProtoReader(byte[] buf) {
+        this(buf, 0, buf.length);
+    }
+
+    private ProtoReader(byte[] buf, int offset, int length) {
+        this.buf = buf;
+        this.pos = offset;
+        this.limit = offset + length;
+    }
+
+    /**
+     * Returns the next tag (field << 3 | wireType), or -1 at the end of the message.
+     */
+    int readTag() {
+        if (pos >= limit) return -1;
+        return (int) readRawVarint();
+    }
+
+    long readVarint() {
+        return readRawVarint();
+    }
+
+    String readString() {
+        int len = (int) readRawVarint();
+        checkAvailable(len);
+        String s = new String(buf, pos, len, StandardCharsets.UTF_8);
+        pos += len;
+        return s;
+    }
+
+    /**
+     * Returns a reader over an embedded message and advances past it.
+     */
+    ProtoReader readMessage() {
+        int len = (int) readRawVarint();
+        checkAvailable(len);
+        ProtoReader nested = new ProtoReader(buf, pos, len);
+        pos += len;
+        return nested;
+    }
+
+    double readDouble() {
+        checkAvailable(8);
+        long bits = 0;
+        for (int i = 0; i < 8; i++) {
+            bits |= (buf[pos++] & 0xFFL) << (8 * i);
+        }
+        return Double.longBitsToDouble(bits);
+    }
+
+    void skip(int tag) {
+        switch (tag & 0x7) {
+            case ProtoWriter.VARINT -> readRawVarint();
+            case ProtoWriter.FIXED64 -> { checkAvailable(8); pos += 8; }
+            case ProtoWriter.LENGTH_DELIMITED -> {
+                int len = (int) readRawVarint();
+                checkAvailable(len);
+                pos += len;
+            }
+            case 5 -> { checkAvailable(4); pos += 4; }
+            default -> throw new IllegalArgumentException("Unsupported wire type " + (tag & 0x7));
+        }
+    }
+
+    private long readRawVarint() {
+        long result = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            checkAvailable(1);
+            byte b = buf[pos++];
+            result |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return result;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    private void checkAvailable(int n) {
+        if (n < 0 || n > limit - pos) {
+            throw new IllegalArgumentException("Truncated message");
+        }
+    }
+}
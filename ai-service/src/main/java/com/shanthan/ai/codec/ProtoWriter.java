@@ -0,0 +1,79 @@
+package com.shanthan.ai.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Minimal protobuf wire-format writer (varint, fixed64 and length-delimited
+ * fields only). Null/empty values are skipped, like proto3 defaults.
+ */
+final class ProtoWriter {
+
+    static final int VARINT = 0;
+    static final int FIXED64 = 1;
+    static final int LENGTH_DELIMITED = 2;
+
+    private byte[] buf;
+    private int pos;
+
+    ProtoWriter(int initialCapacity) {
+        this.buf = new byte[Math.max(16, initialCapacity)];
+    }
+
+    void writeString(int field, String value) {
+        if (value == null || value.isEmpty()) return;
+        writeBytes(field, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    void writeBytes(int field, byte[] value) {
+        if (value == null) return;
+        writeTag(field, LENGTH_DELIMITED);
+        writeRawVarint(value.length);
+        ensure(value.length);
+        System.arraycopy(value, 0, buf, pos, value.length);
+        pos += value.length;
+    }
+
+    void writeVarint(int field, long value) {
+        if (value == 0) return;
+        writeTag(field, VARINT);
+        writeRawVarint(value);
+    }
+
+    void writeBool(int field, boolean value) {
+        if (value) writeVarint(field, 1);
+    }
+
+    void writeDouble(int field, double value) {
+        if (value == 0.0) return;
+        writeTag(field, FIXED64);
+        long bits = Double.doubleToRawLongBits(value);
+        ensure(8);
+        for (int i = 0; i < 8; i++) {
+            buf[pos++] = (byte) (bits >>> (8 * i));
+        }
+    }
+
+    byte[] toByteArray() {
+        return Arrays.copyOf(buf, pos);
+    }
+
+    private void writeTag(int field, int wireType) {
+        writeRawVarint(((long) field << 3) | wireType);
+    }
+
+    private void writeRawVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buf[pos++] = (byte) value;
+    }
+
+    private void ensure(int extra) {
+        if (pos + extra > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+        }
+    }
+}
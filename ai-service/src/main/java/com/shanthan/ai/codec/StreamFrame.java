@@ -0,0 +1,39 @@
+package com.shanthan.ai.codec;
+
+/**
+ * A request or response on the analysis stream, tagged with the
+ * correlation id chosen by the client. A backpressure response has no body
+ * and a retryAfterMillis > 0.
+ */
+public final class StreamFrame<T> {
+
+    private final long correlationId;
+    private final T body;
+    private final long retryAfterMillis;
+
+    public StreamFrame(long correlationId, T body) {
+        this(correlationId, body, 0);
+    }
+
+    public StreamFrame(long correlationId, T body, long retryAfterMillis) {
+        this.correlationId = correlationId;
+        this.body = body;
+        this.retryAfterMillis = retryAfterMillis;
+    }
+
+    public boolean isBackpressure() {
+        return retryAfterMillis > 0;
+    }
+
+    public long getRetryAfterMillis() {
+        return retryAfterMillis;
+    }
+
+    public long getCorrelationId() {
+        return correlationId;
+    }
+
+    public T getBody() {
+        return body;
+    }
+}
@@ -0,0 +1,295 @@
+package com.shanthan.ai.codec;
+
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FailureType;
+import com.shanthan.ai.model.LocatorSuggestion;
+import com.shanthan.ai.model.SimilarFailure;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary encoding of the triage models, wire-compatible with
+ * src/main/proto/triage.proto. Used by the application/x-protobuf HTTP
+ * converter and by the /api/ai/stream WebSocket.
+ *
+ * Shared with the listeners (they depend on the ai-service jar), so both
+ * sides always agree on field numbers.
+ */
+public final class TriageBinaryCodec {
+
+    public static final String MEDIA_TYPE = "application/x-protobuf";
+
+    private TriageBinaryCodec() {
+    }
+
+    // ------------------------------------------------------------------------
+    // FailureEventPayload
+    // ------------------------------------------------------------------------
+
+    public static byte[] encodePayload(FailureEventPayload p) {
+        ProtoWriter w = new ProtoWriter(estimateSize(p));
+        writePayload(w, p);
+        return w.toByteArray();
+    }
+
+    public static FailureEventPayload decodePayload(byte[] data) {
+        return readPayload(new ProtoReader(data));
+    }
+
+    // ------------------------------------------------------------------------
+    // FailureAnalysisResponse
+    // ------------------------------------------------------------------------
+
+    public static byte[] encodeResponse(FailureAnalysisResponse r) {
+        ProtoWriter w = new ProtoWriter(512);
+        writeResponse(w, r);
+        return w.toByteArray();
+    }
+
+    public static FailureAnalysisResponse decodeResponse(byte[] data) {
+        return readResponse(new ProtoReader(data));
+    }
+
+    // ------------------------------------------------------------------------
+    // Stream frames
+    // ------------------------------------------------------------------------
+
+    public static byte[] encodeStreamRequest(long correlationId, FailureEventPayload p) {
+        ProtoWriter w = new ProtoWriter(estimateSize(p) + 16);
+        w.writeVarint(1, correlationId);
+        w.writeBytes(2, encodePayload(p));
+        return w.toByteArray();
+    }
+
+    public static StreamFrame<FailureEventPayload> decodeStreamRequest(byte[] data) {
+        ProtoReader r = new ProtoReader(data);
+        long id = 0;
+        FailureEventPayload payload = new FailureEventPayload();
+        for (int tag = r.readTag(); tag != -1; tag = r.readTag()) {
+            switch (tag >>> 3) {
+                case 1 -> id = r.readVarint();
+                case 2 -> payload = readPayload(r.readMessage());
+                default -> r.skip(tag);
+            }
+        }
+        return new StreamFrame<>(id, payload);
+    }
+
+    public static byte[] encodeStreamResponse(long correlationId, FailureAnalysisResponse response) {
+        ProtoWriter w = new ProtoWriter(512);
+        w.writeVarint(1, correlationId);
+        w.writeBytes(2, encodeResponse(response));
+        return w.toByteArray();
+    }
+
+    /**
+     * StreamResponse without an analysis: the request was not accepted and
+     * should be sent again after retryAfterMillis.
+     */
+    public static byte[] encodeStreamBackpressure(long correlationId, long retryAfterMillis) {
+        ProtoWriter w = new ProtoWriter(16);
+        w.writeVarint(1, correlationId);
+        w.writeVarint(3, retryAfterMillis);
+        return w.toByteArray();
+    }
+
+    public static StreamFrame<FailureAnalysisResponse> decodeStreamResponse(byte[] data) {
+        ProtoReader r = new ProtoReader(data);
+        long id = 0;
+        long retryAfter = 0;
+        FailureAnalysisResponse response = null;
+        for (int tag = r.readTag(); tag != -1; tag = r.readTag()) {
+            switch (tag >>> 3) {
+                case 1 -> id = r.readVarint();
+                case 2 -> response = readResponse(r.readMessage());
+                case 3 -> retryAfter = r.readVarint();
+                default -> r.skip(tag);
+            }
+        }
+        if (response == null && retryAfter <= 0) {
+            response = new FailureAnalysisResponse();
+        }
+        return new StreamFrame<>(id, response, retryAfter);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static void writePayload(ProtoWriter w, FailureEventPayload p) {
+        w.writeString(1, p.getTestName());
+        w.writeString(2, p.getSuiteName());
+        w.writeString(3, p.getFeature());
+        w.writeString(4, p.getEnvironment());
+        w.writeString(5, p.getRunId());
+        w.writeString(6, p.getSessionId());
+        if (p.getEventTimestamp() != null) w.writeVarint(7, p.getEventTimestamp());
+        w.writeString(8, p.getTestType());
+        w.writeString(9, p.getFailureMessage());
+        w.writeString(10, p.getStackTrace());
+        w.writeString(11, p.getRawLogSnippet());
+        if (p.getTags() != null) {
+            for (String tag : p.getTags()) {
+                w.writeString(12, tag);
+            }
+        }
+        w.writeString(13, p.getHttpMethod());
+        w.writeString(14, p.getEndpoint());
+        if (p.getStatusCode() != null) w.writeVarint(15, p.getStatusCode());
+        w.writeString(16, p.getRequestBody());
+        w.writeString(17, p.getResponseBody());
+        w.writeString(18, p.getPageUrl());
+        w.writeString(19, p.getScreenshotHash());
+        w.writeString(20, p.getDomHash());
+        w.writeString(21, p.getDomSnapshot());
+        w.writeString(22, p.getTraceSignature());
+    }
+
+    private static FailureEventPayload readPayload(ProtoReader r) {
+        FailureEventPayload p = new FailureEventPayload();
+        List<String> tags = null;
+        for (int tag = r.readTag(); tag != -1; tag = r.readTag()) {
+            switch (tag >>> 3) {
+                case 1 -> p.setTestName(r.readString());
+                case 2 -> p.setSuiteName(r.readString());
+                case 3 -> p.setFeature(r.readString());
+                case 4 -> p.setEnvironment(r.readString());
+                case 5 -> p.setRunId(r.readString());
+                case 6 -> p.setSessionId(r.readString());
+                case 7 -> p.setEventTimestamp(r.readVarint());
+                case 8 -> p.setTestType(r.readString());
+                case 9 -> p.setFailureMessage(r.readString());
+                case 10 -> p.setStackTrace(r.readString());
+                case 11 -> p.setRawLogSnippet(r.readString());
+                case 12 -> {
+                    if (tags == null) tags = new ArrayList<>();
+                    tags.add(r.readString());
+                }
+                case 13 -> p.setHttpMethod(r.readString());
+                case 14 -> p.setEndpoint(r.readString());
+                case 15 -> p.setStatusCode((int) r.readVarint());
+                case 16 -> p.setRequestBody(r.readString());
+                case 17 -> p.setResponseBody(r.readString());
+                case 18 -> p.setPageUrl(r.readString());
+                case 19 -> p.setScreenshotHash(r.readString());
+                case 20 -> p.setDomHash(r.readString());
+                case 21 -> p.setDomSnapshot(r.readString());
+                case 22 -> p.setTraceSignature(r.readString());
+                default -> r.skip(tag);
+            }
+        }
+        p.setTags(tags);
+        return p;
+    }
+
+    private static void writeResponse(ProtoWriter w, FailureAnalysisResponse r) {
+        if (r.getFailureType() != null) w.writeString(1, r.getFailureType().name());
+        w.writeString(2, r.getRootCauseSummary());
+        w.writeString(3, r.getRecommendedNextSteps());
+        w.writeVarint(4, r.getSeverityScore());
+        w.writeString(5, r.getJiraSummaryTemplate());
+        if (r.getSimilarFailures() != null) {
+            for (SimilarFailure sim : r.getSimilarFailures()) {
+                ProtoWriter nested = new ProtoWriter(128);
+                nested.writeString(1, sim.getId());
+                nested.writeString(2, sim.getShortDescription());
+                nested.writeString(3, sim.getSuspectedRootCause());
+                nested.writeString(4, sim.getLink());
+                w.writeBytes(6, nested.toByteArray());
+            }
+        }
+        w.writeDouble(7, r.getAiConfidence());
+        w.writeBool(8, r.isRuleBasedOverrideApplied());
+        if (r.getLocatorSuggestions() != null) {
+            for (LocatorSuggestion s : r.getLocatorSuggestions()) {
+                ProtoWriter nested = new ProtoWriter(128);
+                nested.writeString(1, s.getSelector());
+                nested.writeString(2, s.getBy());
+                nested.writeDouble(3, s.getScore());
+                nested.writeString(4, s.getElement());
+                w.writeBytes(9, nested.toByteArray());
+            }
+        }
+        w.writeString(10, r.getReusedFrom());
+        if (r.getReuseSimilarity() != null) w.writeDouble(11, r.getReuseSimilarity());
+    }
+
+    private static FailureAnalysisResponse readResponse(ProtoReader r) {
+        FailureAnalysisResponse resp = new FailureAnalysisResponse();
+        List<SimilarFailure> similar = new ArrayList<>();
+        List<LocatorSuggestion> suggestions = null;
+        for (int tag = r.readTag(); tag != -1; tag = r.readTag()) {
+            switch (tag >>> 3) {
+                case 1 -> resp.setFailureType(parseType(r.readString()));
+                case 2 -> resp.setRootCauseSummary(r.readString());
+                case 3 -> resp.setRecommendedNextSteps(r.readString());
+                case 4 -> resp.setSeverityScore((int) r.readVarint());
+                case 5 -> resp.setJiraSummaryTemplate(r.readString());
+                case 6 -> similar.add(readSimilar(r.readMessage()));
+                case 7 -> resp.setAiConfidence(r.readDouble());
+                case 8 -> resp.setRuleBasedOverrideApplied(r.readVarint() != 0);
+                case 9 -> {
+                    if (suggestions == null) suggestions = new ArrayList<>();
+                    suggestions.add(readSuggestion(r.readMessage()));
+                }
+                case 10 -> resp.setReusedFrom(r.readString());
+                case 11 -> resp.setReuseSimilarity(r.readDouble());
+                default -> r.skip(tag);
+            }
+        }
+        resp.setSimilarFailures(similar);
+        resp.setLocatorSuggestions(suggestions);
+        return resp;
+    }
+
+    private static SimilarFailure readSimilar(ProtoReader r) {
+        SimilarFailure sim = new SimilarFailure();
+        for (int tag = r.readTag(); tag != -1; tag = r.readTag()) {
+            switch (tag >>> 3) {
+                case 1 -> sim.setId(r.readString());
+                case 2 -> sim.setShortDescription(r.readString());
+                case 3 -> sim.setSuspectedRootCause(r.readString());
+                case 4 -> sim.setLink(r.readString());
+                default -> r.skip(tag);
+            }
+        }
+        return sim;
+    }
+
+    private static LocatorSuggestion readSuggestion(ProtoReader r) {
+        LocatorSuggestion s = new LocatorSuggestion();
+        for (int tag = r.readTag(); tag != -1; tag = r.readTag()) {
+            switch (tag >>> 3) {
+                case 1 -> s.setSelector(r.readString());
+                case 2 -> s.setBy(r.readString());
+                case 3 -> s.setScore(r.readDouble());
+                case 4 -> s.setElement(r.readString());
+                default -> r.skip(tag);
+            }
+        }
+        return s;
+    }
+
+    private static FailureType parseType(String name) {
+        try {
+            return FailureType.valueOf(name);
+        } catch (IllegalArgumentException e) {
+            return FailureType.UNKNOWN;
+        }
+    }
+
+    private static int estimateSize(FailureEventPayload p) {
+        return 256
+                + length(p.getStackTrace())
+                + length(p.getFailureMessage())
+                + length(p.getRawLogSnippet())
+                + length(p.getRequestBody())
+                + length(p.getResponseBody())
+                + length(p.getDomSnapshot());
+    }
+
+    private static int length(String s) {
+        return s == null ? 0 : s.length();
+    }
+}
@@ -0,0 +1,48 @@
+package com.shanthan.ai.codec;
+
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import java.io.IOException;
+
+/**
+ * Lets the existing REST endpoints read/write the triage models as
+ * application/x-protobuf. JSON stays the default; clients opt in with
+ * Content-Type / Accept headers.
+ */
+public class TriageBinaryMessageConverter extends AbstractHttpMessageConverter<Object> {
+
+    public TriageBinaryMessageConverter() {
+        super(MediaType.parseMediaType(TriageBinaryCodec.MEDIA_TYPE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return clazz == FailureEventPayload.class || clazz == FailureAnalysisResponse.class;
+    }
+
+    @Override
+    protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) throws IOException {
+        byte[] data = inputMessage.getBody().readAllBytes();
+        try {
+            return clazz == FailureEventPayload.class
+                    ? TriageBinaryCodec.decodePayload(data)
+                    : TriageBinaryCodec.decodeResponse(data);
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException("Invalid binary triage message: " + e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object o, HttpOutputMessage outputMessage) throws IOException {
+        byte[] data = o instanceof FailureEventPayload p
+                ? TriageBinaryCodec.encodePayload(p)
+                : TriageBinaryCodec.encodeResponse((FailureAnalysisResponse) o);
+        outputMessage.getHeaders().setContentLength(data.length);
+        outputMessage.getBody().write(data);
+    }
+}
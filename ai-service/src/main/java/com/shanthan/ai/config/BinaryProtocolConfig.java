@@ -0,0 +1,59 @@
+package com.shanthan.ai.config;
+
+import com.shanthan.ai.codec.TriageBinaryMessageConverter;
+import com.shanthan.ai.controller.FailureStreamHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import java.util.List;
+
+/**
+ * Wires the binary ingestion channel next to the JSON REST API:
+ * - application/x-protobuf on POST /api/ai/analyze-failure
+ * - a long-lived binary WebSocket at /api/ai/stream
+ * Skipped when running without a web server (the "batch" profile).
+ */
+@Configuration
+@ConditionalOnWebApplication
+@EnableWebSocket
+public class BinaryProtocolConfig implements WebMvcConfigurer, WebSocketConfigurer {
+
+    private final FailureStreamHandler streamHandler;
+    private final int maxMessageBytes;
+
+    public BinaryProtocolConfig(FailureStreamHandler streamHandler,
+                                @Value("${stream.maxMessageBytes:1048576}") int maxMessageBytes) {
+        this.streamHandler = streamHandler;
+        this.maxMessageBytes = maxMessageBytes;
+    }
+
+    /**
+     * Appended last so JSON stays the default when the client sends no Accept header.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new TriageBinaryMessageConverter());
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(streamHandler, "/api/ai/stream");
+    }
+
+    /**
+     * Tomcat's default WebSocket buffer is 8 KB, smaller than a typical stack trace.
+     */
+    @Bean
+    public ServletServerContainerFactoryBean webSocketContainer() {
+        ServletServerContainerFactoryBean container = new ServletServerContainerFactoryBean();
+        container.setMaxBinaryMessageBufferSize(maxMessageBytes);
+        return container;
+    }
+}
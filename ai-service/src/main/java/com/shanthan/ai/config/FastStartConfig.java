@@ -0,0 +1,28 @@
+package com.shanthan.ai.config;
+
+import com.shanthan.ai.controller.FailureAnalysisController;
+import com.shanthan.ai.controller.FailureStreamHandler;
+import com.shanthan.ai.startup.StartupProbe;
+import com.shanthan.ai.startup.WarmupRunner;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With spring.main.lazy-initialization=true (fast-start profile) only the
+ * triage hot path is created at boot: the ingestion endpoints, everything
+ * they depend on, and the warm-up. Metrics and admin endpoints, run
+ * analytics and the shadow report are created on first use.
+ */
+@Configuration
+public class FastStartConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter hotPathBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(
+                FailureAnalysisController.class,
+                FailureStreamHandler.class,
+                WarmupRunner.class,
+                StartupProbe.class);
+    }
+}
@@ -0,0 +1,175 @@
+package com.shanthan.ai.config;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Transparently inflates request bodies sent with Content-Encoding: gzip
+ * (Tomcat only compresses responses). The inflated size is capped so a small
+ * compressed body cannot expand into an arbitrarily large one; going over
+ * the cap fails the body read and the request is rejected with 400.
+ *
+ * The inflating stream only supports blocking reads, so gzip requests are
+ * not async-capable: startAsync() and setReadListener() fail with
+ * IllegalStateException instead of half-working on a non-blocking body.
+ *
+ * Also stamps the request start time used for the X-Triage-Server-Millis header.
+ */
+@Component
+public class GzipRequestFilter extends OncePerRequestFilter {
+
+    static final String START_NANOS_ATTR = "triage.startNanos";
+
+    private final long maxInflatedBytes;
+
+    public GzipRequestFilter(@Value("${compression.maxInflatedBytes:10485760}") long maxInflatedBytes) {
+        this.maxInflatedBytes = maxInflatedBytes;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        request.setAttribute(START_NANOS_ATTR, System.nanoTime());
+
+        String encoding = request.getHeader("Content-Encoding");
+        if (encoding == null || !encoding.toLowerCase().contains("gzip")) {
+            chain.doFilter(request, response);
+        } else {
+            chain.doFilter(new GzipRequestWrapper(request, maxInflatedBytes), response);
+        }
+    }
+
+    private static final class GzipRequestWrapper extends HttpServletRequestWrapper {
+
+        private final long maxInflatedBytes;
+        private ServletInputStream stream;
+
+        GzipRequestWrapper(HttpServletRequest request, long maxInflatedBytes) {
+            super(request);
+            this.maxInflatedBytes = maxInflatedBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (stream == null) {
+                stream = new InflatingStream(new GZIPInputStream(super.getInputStream(), 8192), maxInflatedBytes);
+            }
+            return stream;
+        }
+
+        @Override
+        public boolean isAsyncSupported() {
+            return false;
+        }
+
+        @Override
+        public AsyncContext startAsync() {
+            throw new IllegalStateException("Async processing is not supported for gzip-encoded requests");
+        }
+
+        @Override
+        public AsyncContext startAsync(ServletRequest request, ServletResponse response) {
+            throw new IllegalStateException("Async processing is not supported for gzip-encoded requests");
+        }
+
+        @Override
+        public String getHeader(String name) {
+            return "Content-Encoding".equalsIgnoreCase(name) ? null : super.getHeader(name);
+        }
+
+        @Override
+        public int getContentLength() {
+            return -1;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return -1;
+        }
+    }
+
+    private static final class InflatingStream extends ServletInputStream {
+
+        private final InputStream in;
+        private final long limit;
+        private long read;
+        private boolean finished;
+
+        InflatingStream(InputStream in, long limit) {
+            this.in = in;
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b == -1) {
+                finished = true;
+            } else {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = in.read(b, off, len);
+            if (n == -1) {
+                finished = true;
+            } else {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public boolean isFinished() {
+            return finished;
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        /**
+         * Non-blocking reads need async mode, which the wrapper never allows.
+         */
+        @Override
+        public void setReadListener(ReadListener readListener) {
+            throw new IllegalStateException("Non-blocking reads are not supported for gzip-encoded requests");
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+
+        private void count(int n) throws IOException {
+            read += n;
+            if (read > limit) {
+                throw new InflatedSizeExceededException(limit);
+            }
+        }
+    }
+
+    static final class InflatedSizeExceededException extends IOException {
+        InflatedSizeExceededException(long limit) {
+            super("Inflated request body exceeds " + limit + " bytes");
+        }
+    }
+}
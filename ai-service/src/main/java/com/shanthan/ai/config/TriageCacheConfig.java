@@ -0,0 +1,23 @@
+package com.shanthan.ai.config;
+
+import com.shanthan.ai.cache.LocalSharedTriageStore;
+import com.shanthan.ai.cache.SharedTriageStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Falls back to the embedded shared store when no other SharedTriageStore
+ * bean (Redis, Hazelcast, ...) is defined.
+ */
+@Configuration
+public class TriageCacheConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(SharedTriageStore.class)
+    public SharedTriageStore localSharedTriageStore(
+            @Value("${cache.far.maxEntries:100000}") int maxEntries) {
+        return new LocalSharedTriageStore(maxEntries);
+    }
+}
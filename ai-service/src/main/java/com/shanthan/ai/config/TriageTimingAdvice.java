@@ -0,0 +1,84 @@
+package com.shanthan.ai.config;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.RequestBodyAdvice;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+import java.lang.reflect.Type;
+
+/**
+ * Reports server-side timing to clients via response headers so the listeners
+ * can split their round trip into network vs. server time:
+ * - X-Triage-Parse-Micros  : request body inflate + deserialization
+ * - X-Triage-Server-Millis : filter entry until the response body is written
+ */
+@ControllerAdvice
+public class TriageTimingAdvice implements RequestBodyAdvice, ResponseBodyAdvice<Object> {
+
+    public static final String PARSE_HEADER = "X-Triage-Parse-Micros";
+    public static final String SERVER_HEADER = "X-Triage-Server-Millis";
+
+    private static final String PARSE_START_ATTR = "triage.parseStartNanos";
+
+    @Override
+    public boolean supports(MethodParameter methodParameter, Type targetType,
+                            Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public HttpInputMessage beforeBodyRead(HttpInputMessage inputMessage, MethodParameter parameter,
+                                           Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        RequestContextHolder.currentRequestAttributes()
+                .setAttribute(PARSE_START_ATTR, System.nanoTime(), RequestAttributes.SCOPE_REQUEST);
+        return inputMessage;
+    }
+
+    @Override
+    public Object afterBodyRead(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        if (RequestContextHolder.currentRequestAttributes() instanceof ServletRequestAttributes attrs) {
+            Object start = attrs.getAttribute(PARSE_START_ATTR, RequestAttributes.SCOPE_REQUEST);
+            HttpServletResponse response = attrs.getResponse();
+            if (start instanceof Long s && response != null) {
+                response.setHeader(PARSE_HEADER, String.valueOf((System.nanoTime() - s) / 1_000));
+            }
+        }
+        return body;
+    }
+
+    @Override
+    public Object handleEmptyBody(Object body, HttpInputMessage inputMessage, MethodParameter parameter,
+                                  Type targetType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return body;
+    }
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        return true;
+    }
+
+    @Override
+    public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+                                  Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                  ServerHttpRequest request, ServerHttpResponse response) {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+            HttpServletRequest servletRequest = attrs.getRequest();
+            Object start = servletRequest.getAttribute(GzipRequestFilter.START_NANOS_ATTR);
+            if (start instanceof Long s) {
+                response.getHeaders().set(SERVER_HEADER, String.valueOf((System.nanoTime() - s) / 1_000_000));
+            }
+        }
+        return body;
+    }
+}
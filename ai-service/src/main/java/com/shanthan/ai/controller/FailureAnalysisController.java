@@ -1,13 +1,26 @@
 package com.shanthan.ai.controller;
 
+import com.shanthan.ai.model.AnalysisJob;
 import com.shanthan.ai.model.FailureAnalysisResponse;
 import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FlakinessScore;
+import com.shanthan.ai.model.TestOutcomeEvent;
+import com.shanthan.ai.service.AnalysisJobService;
 import com.shanthan.ai.service.FailureAnalysisService;
+import com.shanthan.ai.service.FlakinessTracker;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 
 @Slf4j
 @RestController
@@ -15,9 +28,15 @@ import org.springframework.web.bind.annotation.RestController;
 public class FailureAnalysisController {
 
     private final FailureAnalysisService failureAnalysisService;
+    private final FlakinessTracker flakinessTracker;
+    private final AnalysisJobService jobService;
 
-    public FailureAnalysisController(FailureAnalysisService failureAnalysisService) {
+    public FailureAnalysisController(FailureAnalysisService failureAnalysisService,
+                                     FlakinessTracker flakinessTracker,
+                                     AnalysisJobService jobService) {
         this.failureAnalysisService = failureAnalysisService;
+        this.flakinessTracker = flakinessTracker;
+        this.jobService = jobService;
     }
 
     @PostMapping("/analyze-failure")
@@ -27,4 +46,53 @@ public class FailureAnalysisController {
         return failureAnalysisService.analyzeFailure(request);
     }
 
+    /**
+     * Async mode: returns 202 + job id right away; poll GET /api/ai/jobs/{id}
+     * or pass a callback URL (query param or X-Callback-Url header) to get
+     * the finished job POSTed back. 503 + Retry-After when the backlog is full.
+     */
+    @PostMapping("/jobs")
+    public ResponseEntity<?> submitJob(@RequestBody FailureEventPayload request,
+                                       @RequestParam(name = "callbackUrl", required = false) String callbackParam,
+                                       @RequestHeader(name = "X-Callback-Url", required = false) String callbackHeader) {
+        String callbackUrl = callbackParam != null ? callbackParam : callbackHeader;
+        try {
+            AnalysisJob job = jobService.submit(request, callbackUrl);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/ai/jobs/" + job.getJobId()))
+                    .body(job);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(503).header("Retry-After", "5")
+                    .body(Map.of("error", "analysis backlog is full, retry later"));
+        }
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<AnalysisJob> job(@PathVariable("id") String id) {
+        AnalysisJob job = jobService.get(id);
+        return job == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(job);
+    }
+
+    /**
+     * Pass/skip outcomes from the listeners. Failures are recorded by
+     * analyze-failure itself, so FAIL events here are only needed for tests
+     * that are not triaged.
+     */
+    @PostMapping("/test-outcome")
+    public ResponseEntity<Void> recordOutcome(@RequestBody TestOutcomeEvent event) {
+        if (event.getOutcome() != null) {
+            flakinessTracker.record(event.getFeature(), event.getTestName(), event.getOutcome());
+        }
+        return ResponseEntity.accepted().build();
+    }
+
+    @GetMapping("/flakiness")
+    public ResponseEntity<FlakinessScore> flakiness(@RequestParam("feature") String feature,
+                                                    @RequestParam("testName") String testName) {
+        FlakinessScore score = flakinessTracker.lookup(feature, testName);
+        return score == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(score);
+    }
+
 }
@@ -0,0 +1,129 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.codec.StreamFrame;
+import com.shanthan.ai.codec.TriageBinaryCodec;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.service.FailureAnalysisService;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.BinaryWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bidirectional binary stream at /api/ai/stream.
+ * - A listener keeps one WebSocket open per suite
+ * - Each binary message is a StreamRequest (see triage.proto)
+ * - Analyses are sent back as StreamResponse frames as soon as each one
+ *   completes, so responses may arrive out of order (match on correlationId)
+ *
+ * When the worker queue is full the request is not run on the socket's
+ * reader thread (which would stall every other frame of that socket, pings
+ * included): it is answered at once with a backpressure frame carrying
+ * retry_after_ms (stream.retryAfter), and the client sends it again later.
+ * A frame that cannot be decoded is logged and dropped; the stream stays open.
+ */
+@Component
+public class FailureStreamHandler extends BinaryWebSocketHandler {
+
+    private static final int SEND_TIME_LIMIT_MS = 10_000;
+    private static final int SEND_BUFFER_BYTES = 16 * 1024 * 1024;
+
+    private final FailureAnalysisService failureAnalysisService;
+    private final ThreadPoolExecutor workers;
+    private final long retryAfterMillis;
+    private final Map<String, WebSocketSession> sessions = new ConcurrentHashMap<>();
+
+    public FailureStreamHandler(FailureAnalysisService failureAnalysisService,
+                                @Value("${stream.workers:8}") int workers,
+                                @Value("${stream.queueCapacity:256}") int queueCapacity,
+                                @Value("${stream.retryAfter:PT1S}") Duration retryAfter) {
+        this.failureAnalysisService = failureAnalysisService;
+        this.retryAfterMillis = Math.max(1, retryAfter.toMillis());
+        this.workers = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                r -> {
+                    Thread t = new Thread(r, "triage-stream");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        sessions.put(session.getId(),
+                new ConcurrentWebSocketSessionDecorator(session, SEND_TIME_LIMIT_MS, SEND_BUFFER_BYTES));
+        System.out.println("DEBUG >>> Stream opened: " + session.getId());
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        byte[] data = new byte[message.getPayloadLength()];
+        message.getPayload().get(data);
+        StreamFrame<FailureEventPayload> frame;
+        try {
+            frame = TriageBinaryCodec.decodeStreamRequest(data);
+        } catch (RuntimeException malformed) {
+            // one bad frame must not end the stream (Spring closes the session on a thrown
+            // exception); without a readable correlation id it cannot be answered either
+            System.out.println("DEBUG >>> Stream " + session.getId() + ": dropping malformed frame ("
+                    + data.length + " bytes): " + malformed.getMessage());
+            return;
+        }
+
+        try {
+            workers.execute(() -> {
+                FailureAnalysisResponse response = failureAnalysisService.analyzeFailure(frame.getBody());
+                WebSocketSession out = sessions.get(session.getId());
+                if (out == null || !out.isOpen()) {
+                    System.out.println("DEBUG >>> Stream closed before analysis " + frame.getCorrelationId() + " completed");
+                    return;
+                }
+                send(out, TriageBinaryCodec.encodeStreamResponse(frame.getCorrelationId(), response));
+            });
+        } catch (RejectedExecutionException full) {
+            System.out.println("DEBUG >>> Stream workers saturated, asking for a retry of " + frame.getCorrelationId()
+                    + " in " + retryAfterMillis + " ms");
+            WebSocketSession out = sessions.get(session.getId());
+            if (out != null && out.isOpen()) {
+                send(out, TriageBinaryCodec.encodeStreamBackpressure(frame.getCorrelationId(), retryAfterMillis));
+            }
+        }
+    }
+
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        sessions.remove(session.getId());
+        System.out.println("DEBUG >>> Stream closed: " + session.getId() + " (" + status + ")");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static void send(WebSocketSession out, byte[] frame) {
+        try {
+            out.sendMessage(new BinaryMessage(frame));
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> Stream send failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.queue.IngestConsumer;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * File-backed ingestion queue: per-partition ownership, offsets and lag, consumed/analysed
+ * counts and end-to-end latency; replay moves the owned partitions to an offset.
+ */
+@RestController
+@Profile("!batch")   // like IngestConsumer: no queue consumption in batch runs
+@RequestMapping("/api/ai/ingest")
+public class IngestController {
+
+    private final IngestConsumer consumer;
+
+    public IngestController(IngestConsumer consumer) {
+        this.consumer = consumer;
+    }
+
+    @GetMapping
+    public Map<String, Object> stats() {
+        return consumer.stats();
+    }
+
+    /**
+     * offset: "earliest" (default) or a byte offset from the stats that starts a record (400 otherwise);
+     * partition: all owned when absent.
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replay(
+            @RequestParam(name = "partition", required = false) Integer partition,
+            @RequestParam(name = "offset", defaultValue = "earliest") String offset) throws IOException {
+        long from;
+        try {
+            from = "earliest".equalsIgnoreCase(offset) ? -1 : Long.parseLong(offset);
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "offset must be 'earliest' or a number: " + offset));
+        }
+        try {
+            return ResponseEntity.ok(consumer.replay(partition, from));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+}
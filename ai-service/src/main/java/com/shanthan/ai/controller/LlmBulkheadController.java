@@ -0,0 +1,26 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.client.LlmBulkhead;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * LLM bulkhead metrics: queue depth, shed counts, queue-wait and call-time percentiles.
+ */
+@RestController
+@RequestMapping("/api/ai/llm")
+public class LlmBulkheadController {
+
+    private final LlmBulkhead bulkhead;
+
+    public LlmBulkheadController(LlmBulkhead bulkhead) {
+        this.bulkhead = bulkhead;
+    }
+
+    @GetMapping("/bulkhead")
+    public Map<String, Object> stats() {
+        return bulkhead.stats();
+    }
+}
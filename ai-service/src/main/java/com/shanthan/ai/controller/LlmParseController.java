@@ -0,0 +1,27 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.service.LlmResponseParser;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * LLM answer parsing metrics: fallback rate, type labels resolved exactly / by alias / not at all,
+ * per-field repairs and the re-analyses avoided by them.
+ */
+@RestController
+@RequestMapping("/api/ai/llm/parse")
+public class LlmParseController {
+
+    private final LlmResponseParser responseParser;
+
+    public LlmParseController(LlmResponseParser responseParser) {
+        this.responseParser = responseParser;
+    }
+
+    @GetMapping
+    public Map<String, Object> stats() {
+        return responseParser.stats();
+    }
+}
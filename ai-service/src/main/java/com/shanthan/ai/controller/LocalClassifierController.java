@@ -0,0 +1,26 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.classifier.LocalTriageClassifier;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * Local classifier metrics: mode, training examples per class, local answers and prediction latency.
+ */
+@RestController
+@RequestMapping("/api/ai/classifier")
+public class LocalClassifierController {
+
+    private final LocalTriageClassifier classifier;
+
+    public LocalClassifierController(LocalTriageClassifier classifier) {
+        this.classifier = classifier;
+    }
+
+    @GetMapping
+    public Map<String, Object> stats() {
+        return classifier.stats();
+    }
+}
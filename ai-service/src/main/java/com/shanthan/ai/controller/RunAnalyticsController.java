@@ -0,0 +1,43 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.model.AggregationDimension;
+import com.shanthan.ai.model.FailureAggregate;
+import com.shanthan.ai.service.TriageResultStore;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.List;
+
+/**
+ * Read-only aggregation endpoints over the in-memory triage result store.
+ * Time bounds are epoch millis; "to" is exclusive.
+ */
+@RestController
+@RequestMapping("/api/ai/analytics")
+public class RunAnalyticsController {
+
+    private final TriageResultStore resultStore;
+
+    public RunAnalyticsController(TriageResultStore resultStore) {
+        this.resultStore = resultStore;
+    }
+
+    @GetMapping("/failures")
+    public List<FailureAggregate> failures(
+            @RequestParam(name = "groupBy", defaultValue = "TYPE") AggregationDimension groupBy,
+            @RequestParam(name = "from", defaultValue = "0") long from,
+            @RequestParam(name = "to", defaultValue = "" + Long.MAX_VALUE) long to,
+            @RequestParam(name = "runId", required = false) String runId,
+            @RequestParam(name = "bucketMs", defaultValue = "60000") long bucketMs) {
+        return resultStore.aggregate(groupBy, from, to, runId, bucketMs);
+    }
+
+    @GetMapping("/runs/{runId}")
+    public List<FailureAggregate> run(
+            @PathVariable("runId") String runId,
+            @RequestParam(name = "groupBy", defaultValue = "TYPE") AggregationDimension groupBy) {
+        return resultStore.aggregate(groupBy, 0, Long.MAX_VALUE, runId, 60_000);
+    }
+}
@@ -0,0 +1,34 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.service.ShadowEvaluator;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * Primary vs candidate comparison from shadow evaluation (see ShadowEvaluator).
+ */
+@RestController
+@RequestMapping("/api/ai/shadow")
+public class ShadowEvaluationController {
+
+    private final ShadowEvaluator shadowEvaluator;
+
+    public ShadowEvaluationController(ShadowEvaluator shadowEvaluator) {
+        this.shadowEvaluator = shadowEvaluator;
+    }
+
+    @GetMapping("/report")
+    public Map<String, Object> report() {
+        return shadowEvaluator.report();
+    }
+
+    @DeleteMapping("/report")
+    public ResponseEntity<Void> reset() {
+        shadowEvaluator.reset();
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,26 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.startup.StartupMetrics;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * Start-up timeline of this replica: ready time, warm-up, first request latency.
+ */
+@RestController
+@RequestMapping("/api/ai")
+public class StartupMetricsController {
+
+    private final StartupMetrics metrics;
+
+    public StartupMetricsController(StartupMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @GetMapping("/startup")
+    public Map<String, Object> stats() {
+        return metrics.stats();
+    }
+}
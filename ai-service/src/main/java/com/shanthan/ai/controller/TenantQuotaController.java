@@ -0,0 +1,26 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.service.TenantQuotas;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * Per-tenant LLM spend: window requests/tokens vs budget, cost, degraded answers, call latency.
+ */
+@RestController
+@RequestMapping("/api/ai/tenants")
+public class TenantQuotaController {
+
+    private final TenantQuotas tenantQuotas;
+
+    public TenantQuotaController(TenantQuotas tenantQuotas) {
+        this.tenantQuotas = tenantQuotas;
+    }
+
+    @GetMapping
+    public Map<String, Object> stats() {
+        return tenantQuotas.stats();
+    }
+}
@@ -0,0 +1,48 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.cache.SemanticTriageCache;
+import com.shanthan.ai.cache.SharedTriageStore;
+import com.shanthan.ai.cache.TieredTriageCache;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import java.util.Map;
+
+/**
+ * Cache stats and invalidation (e.g. after changing the prompt or model).
+ * Invalidations are broadcast to every replica's near and semantic caches.
+ */
+@RestController
+@RequestMapping("/api/ai/cache")
+public class TriageCacheController {
+
+    private final TieredTriageCache cache;
+    private final SemanticTriageCache semanticCache;
+
+    public TriageCacheController(TieredTriageCache cache, SemanticTriageCache semanticCache) {
+        this.cache = cache;
+        this.semanticCache = semanticCache;
+    }
+
+    @GetMapping("/stats")
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = cache.stats();
+        stats.put("semantic", semanticCache.stats());
+        return stats;
+    }
+
+    @DeleteMapping("/{fingerprint}")
+    public ResponseEntity<Void> invalidate(@PathVariable("fingerprint") String fingerprint) {
+        cache.invalidate(fingerprint);
+        return ResponseEntity.noContent().build();
+    }
+
+    @DeleteMapping
+    public ResponseEntity<Void> invalidateAll() {
+        cache.invalidate(SharedTriageStore.ALL_KEYS);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,66 @@
+package com.shanthan.ai.locator;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * One element of a pruned DOM snapshot, as sent by the UI listener:
+ *   <input id="username" name="username" type="text"> @ body>div#app>form.login
+ *   <button class="btn" type="submit">Login</button> @ body>div#app>form.login
+ */
+final class DomElement {
+
+    private static final Pattern LINE = Pattern.compile(
+            "^<([a-zA-Z][a-zA-Z0-9-]*)((?:\\s+[^\\s=>]+=\"[^\"]*\")*)>(?:(.*)</\\1>)?\\s+@\\s?(.*)$");
+    private static final Pattern ATTR = Pattern.compile("([^\\s=>]+)=\"([^\"]*)\"");
+
+    final int index;
+    final String tag;
+    final Map<String, String> attrs;
+    final String text;
+    final List<String> path;   // ancestor steps, outermost first: tag, tag#id or tag.class
+    final String line;
+    final Map<String, Set<String>> tokens;   // attribute (or "text") -> its tokens
+
+    private DomElement(int index, String tag, Map<String, String> attrs, String text, List<String> path, String line) {
+        this.index = index;
+        this.tag = tag;
+        this.attrs = attrs;
+        this.text = text;
+        this.path = path;
+        this.line = line;
+        this.tokens = new LinkedHashMap<>();
+        attrs.forEach((k, v) -> tokens.put(k, Tokens.of(v)));
+        if (text != null && !text.isEmpty()) {
+            tokens.put("text", Tokens.of(text));
+        }
+    }
+
+    /**
+     * Parses one snapshot line; returns null for comments and unrecognised lines.
+     */
+    static DomElement parse(int index, String line) {
+        Matcher m = LINE.matcher(line.trim());
+        if (!m.matches()) {
+            return null;
+        }
+        Map<String, String> attrs = new LinkedHashMap<>();
+        Matcher a = ATTR.matcher(m.group(2));
+        while (a.find()) {
+            attrs.put(a.group(1).toLowerCase(Locale.ROOT), a.group(2));
+        }
+        String text = m.group(3) != null ? m.group(3).trim() : null;
+        String rawPath = m.group(4).trim();
+        List<String> path = rawPath.isEmpty() ? List.of() : List.of(rawPath.split(">"));
+        return new DomElement(index, m.group(1).toLowerCase(Locale.ROOT), attrs, text, path, line.trim());
+    }
+
+    String attr(String name) {
+        return attrs.get(name);
+    }
+}
@@ -0,0 +1,271 @@
+package com.shanthan.ai.locator;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The failing locator, parsed into what the test was looking for:
+ * target tag, attributes, text and ancestor hints.
+ *
+ * Understands what Selenium puts in NoSuchElementException messages
+ * ({"method":"css selector","selector":"#fake\-username\-field"}, By.id: x,
+ * {Using=id, value=x}) and the "# failing locator:" header of DOM snapshots.
+ */
+final class LocatorQuery {
+
+    private static final Pattern JSON_LOCATOR = Pattern.compile(
+            "\"method\"\\s*:\\s*\"([^\"]+)\"\\s*,\\s*\"selector\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern BY_LOCATOR = Pattern.compile(
+            "By\\.(id|name|className|cssSelector|xpath|linkText|partialLinkText|tagName):\\s*([^\\n]+?)\\s*(?:\\)|$)",
+            Pattern.MULTILINE);
+    private static final Pattern USING_LOCATOR = Pattern.compile("Using=([\\w ]+), value=([^}]+)}");
+    private static final Pattern SNAPSHOT_LOCATOR = Pattern.compile("^# failing locator: (.+)$", Pattern.MULTILINE);
+
+    private static final Pattern CSS_COMPOUND = Pattern.compile(
+            "(?:[a-zA-Z*][\\w-]*)?(?:#(?:\\\\.|[\\w-])+|\\.(?:\\\\.|[\\w-])+|\\[[^\\]]*]|::?[\\w-]+(?:\\([^)]*\\))?)*");
+    private static final Pattern CSS_TAG = Pattern.compile("^([a-zA-Z][\\w-]*)");
+    private static final Pattern CSS_ID = Pattern.compile("#((?:\\\\.|[\\w-])+)");
+    private static final Pattern CSS_CLASS = Pattern.compile("\\.((?:\\\\.|[\\w-])+)");
+    private static final Pattern CSS_ATTR = Pattern.compile(
+            "\\[\\s*([\\w-]+)\\s*(?:[~|^$*]?=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\]\\s]+)))?\\s*]");
+
+    private static final Pattern XPATH_TAG = Pattern.compile("^([a-zA-Z*][\\w-]*)");
+    private static final Pattern XPATH_ATTR = Pattern.compile("@([\\w-]+)\\s*[,=]\\s*['\"]([^'\"]*)['\"]");
+    private static final Pattern XPATH_TEXT = Pattern.compile(
+            "(?:text\\(\\)|normalize-space\\((?:text\\(\\))?\\)|\\.)\\s*[,=]\\s*['\"]([^'\"]*)['\"]");
+
+    final String raw;
+    final String tag;                  // null when the locator does not say
+    final Map<String, String> attrs;   // id, name, class, data-testid, ...
+    final String text;                 // link text / xpath text() predicate
+    final List<Step> ancestors;        // css/xpath ancestor steps, outermost first
+
+    private LocatorQuery(String raw, String tag, Map<String, String> attrs, String text, List<Step> ancestors) {
+        this.raw = raw;
+        this.tag = tag;
+        this.attrs = attrs;
+        this.text = text;
+        this.ancestors = ancestors;
+    }
+
+    /**
+     * Finds the locator in the failure message/stack trace (or the snapshot
+     * header); null if there is none.
+     */
+    static LocatorQuery fromFailure(String failureText, String snapshot) {
+        String text = failureText == null ? "" : failureText;
+
+        Matcher m = JSON_LOCATOR.matcher(text);
+        if (m.find()) {
+            return parse(m.group(1), m.group(2).replace("\\\\", "\\").replace("\\\"", "\""));
+        }
+        m = BY_LOCATOR.matcher(text);
+        if (m.find()) {
+            return parse(m.group(1), m.group(2));
+        }
+        m = USING_LOCATOR.matcher(text);
+        if (m.find()) {
+            return parse(m.group(1).trim(), m.group(2).trim());
+        }
+        if (snapshot != null) {
+            m = SNAPSHOT_LOCATOR.matcher(snapshot);
+            if (m.find()) {
+                String loc = m.group(1).trim();
+                return parse(loc.startsWith("/") || loc.startsWith("(") ? "xpath" : "css selector", loc);
+            }
+        }
+        return null;
+    }
+
+    static LocatorQuery parse(String method, String selector) {
+        String how = method.toLowerCase(Locale.ROOT).replace(" ", "");
+        Map<String, String> attrs = new LinkedHashMap<>();
+        return switch (how) {
+            case "id" -> {
+                attrs.put("id", selector);
+                yield new LocatorQuery(selector, null, attrs, null, List.of());
+            }
+            case "name" -> {
+                attrs.put("name", selector);
+                yield new LocatorQuery(selector, null, attrs, null, List.of());
+            }
+            case "classname" -> {
+                attrs.put("class", selector);
+                yield new LocatorQuery(selector, null, attrs, null, List.of());
+            }
+            case "tagname" -> new LocatorQuery(selector, selector.toLowerCase(Locale.ROOT), attrs, null, List.of());
+            case "linktext", "partiallinktext" -> new LocatorQuery(selector, "a", attrs, selector, List.of());
+            case "xpath" -> parseXpath(selector);
+            default -> parseCss(selector);
+        };
+    }
+
+    /**
+     * Every token of every value the locator mentions.
+     */
+    Set<String> tokens() {
+        Set<String> tokens = new LinkedHashSet<>();
+        attrs.values().forEach(v -> tokens.addAll(Tokens.of(v)));
+        tokens.addAll(Tokens.of(text));
+        return tokens;
+    }
+
+    /**
+     * One ancestor step of a locator (tag, id, classes), matched against the
+     * trie steps of a snapshot ("div", "div#app", "form.login").
+     */
+    static final class Step {
+        final String tag;
+        final String id;
+        final Set<String> classes;
+
+        Step(String tag, String id, Set<String> classes) {
+            this.tag = tag;
+            this.id = id;
+            this.classes = classes;
+        }
+
+        boolean matches(String trieStep) {
+            String stepTag = trieStep;
+            String stepId = null;
+            String stepClass = null;
+            int hash = trieStep.indexOf('#');
+            int dot = trieStep.indexOf('.');
+            if (hash > 0) {
+                stepTag = trieStep.substring(0, hash);
+                stepId = trieStep.substring(hash + 1);
+            } else if (dot > 0) {
+                stepTag = trieStep.substring(0, dot);
+                stepClass = trieStep.substring(dot + 1);
+            }
+            if (tag != null && !tag.equals(stepTag)) return false;
+            if (id != null) return id.equals(stepId);
+            if (!classes.isEmpty()) return stepClass != null && classes.contains(stepClass);
+            return tag != null;
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static LocatorQuery parseCss(String selector) {
+        List<String> compounds = new ArrayList<>();
+        Matcher m = CSS_COMPOUND.matcher(selector);
+        while (m.find()) {
+            if (!m.group().isEmpty()) {
+                compounds.add(m.group());
+            }
+        }
+        if (compounds.isEmpty()) {
+            return new LocatorQuery(selector, null, new LinkedHashMap<>(), null, List.of());
+        }
+
+        List<Step> ancestors = new ArrayList<>();
+        for (int i = 0; i < compounds.size() - 1; i++) {
+            Map<String, String> a = new LinkedHashMap<>();
+            String t = cssCompound(compounds.get(i), a);
+            Set<String> classes = new LinkedHashSet<>();
+            if (a.containsKey("class")) {
+                classes.addAll(List.of(a.get("class").split(" ")));
+            }
+            ancestors.add(new Step(t, a.get("id"), classes));
+        }
+
+        Map<String, String> attrs = new LinkedHashMap<>();
+        String tag = cssCompound(compounds.get(compounds.size() - 1), attrs);
+        return new LocatorQuery(selector, tag, attrs, null, ancestors);
+    }
+
+    private static String cssCompound(String compound, Map<String, String> attrs) {
+        Matcher m = CSS_ID.matcher(compound);
+        if (m.find()) attrs.put("id", unescapeCss(m.group(1)));
+        m = CSS_CLASS.matcher(compound.replaceAll("\\[[^\\]]*]", ""));
+        List<String> classes = new ArrayList<>();
+        while (m.find()) classes.add(unescapeCss(m.group(1)));
+        if (!classes.isEmpty()) attrs.put("class", String.join(" ", classes));
+        m = CSS_ATTR.matcher(compound);
+        while (m.find()) {
+            String v = m.group(2) != null ? m.group(2) : m.group(3) != null ? m.group(3) : m.group(4);
+            if (v != null) attrs.put(m.group(1).toLowerCase(Locale.ROOT), v);
+        }
+        m = CSS_TAG.matcher(compound);
+        return m.find() ? m.group(1).toLowerCase(Locale.ROOT) : null;
+    }
+
+    private static String unescapeCss(String s) {
+        return s.replaceAll("\\\\(.)", "$1");
+    }
+
+    private static LocatorQuery parseXpath(String xpath) {
+        List<String> steps = xpathSteps(xpath);
+        if (steps.isEmpty()) {
+            return new LocatorQuery(xpath, null, new LinkedHashMap<>(), null, List.of());
+        }
+
+        List<Step> ancestors = new ArrayList<>();
+        for (int i = 0; i < steps.size() - 1; i++) {
+            Map<String, String> a = new LinkedHashMap<>();
+            String t = xpathStep(steps.get(i), a, null);
+            if (t == null && a.isEmpty()) continue;
+            Set<String> classes = new LinkedHashSet<>();
+            if (a.containsKey("class")) {
+                classes.addAll(List.of(a.get("class").trim().split("\\s+")));
+            }
+            ancestors.add(new Step(t, a.get("id"), classes));
+        }
+
+        Map<String, String> attrs = new LinkedHashMap<>();
+        String[] text = new String[1];
+        String tag = xpathStep(steps.get(steps.size() - 1), attrs, text);
+        return new LocatorQuery(xpath, tag, attrs, text[0], ancestors);
+    }
+
+    private static String xpathStep(String step, Map<String, String> attrs, String[] text) {
+        Matcher m = XPATH_ATTR.matcher(step);
+        while (m.find()) attrs.put(m.group(1).toLowerCase(Locale.ROOT), m.group(2));
+        if (text != null) {
+            m = XPATH_TEXT.matcher(step);
+            if (m.find()) text[0] = m.group(1);
+        }
+        m = XPATH_TAG.matcher(step);
+        if (!m.find() || "*".equals(m.group(1))) return null;
+        return m.group(1).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Splits on '/' outside predicates and quotes.
+     */
+    private static List<String> xpathSteps(String xpath) {
+        List<String> steps = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        int depth = 0;
+        char quote = 0;
+        for (int i = 0; i < xpath.length(); i++) {
+            char c = xpath.charAt(i);
+            if (quote != 0) {
+                if (c == quote) quote = 0;
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '[' || c == '(') {
+                depth++;
+            } else if (c == ']' || c == ')') {
+                depth--;
+            } else if (c == '/' && depth == 0) {
+                if (current.length() > 0) steps.add(current.toString());
+                current.setLength(0);
+                continue;
+            }
+            current.append(c);
+        }
+        if (current.length() > 0) steps.add(current.toString());
+        return steps;
+    }
+}
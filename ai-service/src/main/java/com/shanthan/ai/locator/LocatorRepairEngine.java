@@ -0,0 +1,336 @@
+package com.shanthan.ai.locator;
+
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.LocatorSuggestion;
+import com.shanthan.ai.trace.StackTraceScanner;
+import com.shanthan.ai.trace.TraceHash;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Suggests replacement locators for "no such element" failures without an LLM.
+ *
+ * - The latest DOM snapshot per page is kept in a bounded LRU
+ *   (locator.maxPages) and indexed (PageIndex) the first time a locator
+ *   failure needs it, so a later failure on the same page can be repaired
+ *   even without a snapshot
+ * - The failing locator is parsed (LocatorQuery) and candidates are pulled
+ *   from the inverted index by token, then ranked by
+ *     attribute/text similarity (IDF-weighted, id/name/testid count most)
+ *     + tag agreement + position (inside the locator's ancestor hints)
+ * - The top locator.repair.maxSuggestions candidates are returned with a
+ *   stable selector (unique id > data-testid > unique name > aria/placeholder
+ *   > link text > css path)
+ */
+@Component
+public class LocatorRepairEngine {
+
+    private static final Map<String, Double> ATTR_WEIGHT = Map.ofEntries(
+            Map.entry("id", 3.0), Map.entry("data-testid", 3.0), Map.entry("name", 2.5),
+            Map.entry("aria-label", 2.0), Map.entry("placeholder", 2.0), Map.entry("text", 2.0),
+            Map.entry("for", 1.5), Map.entry("title", 1.0), Map.entry("alt", 1.0),
+            Map.entry("value", 1.0), Map.entry("class", 1.0), Map.entry("type", 1.0),
+            Map.entry("href", 0.5), Map.entry("role", 0.5));
+    private static final double MAX_WEIGHT = 3.0;
+    private static final Set<String> CONTROLS = Set.of("input", "textarea", "select", "button", "a");
+    private static final long NO_SUCH_ELEMENT = TraceHash.nameHash("NoSuchElementException");
+    private static final String SELENIUM_NO_SUCH_ELEMENT = "org.openqa.selenium.NoSuchElementException";
+
+    private final Map<String, Page> pages;
+    private final int maxSuggestions;
+    private final double minScore;
+
+    public LocatorRepairEngine(@Value("${locator.maxPages:500}") int maxPages,
+                               @Value("${locator.repair.maxSuggestions:3}") int maxSuggestions,
+                               @Value("${locator.repair.minScore:0.6}") double minScore) {
+        this.pages = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Page> eldest) {
+                return size() > maxPages;
+            }
+        };
+        this.maxSuggestions = maxSuggestions;
+        this.minScore = minScore;
+    }
+
+    /**
+     * Keeps the request's DOM snapshot (if any) and, for locator failures,
+     * returns ranked replacement suggestions (best first, possibly empty).
+     * Other failures never pay for indexing.
+     */
+    public List<LocatorSuggestion> suggest(FailureEventPayload request) {
+        String key = pageKey(request);
+        String snapshot = request.getDomSnapshot();
+        boolean locatorFailure = isLocatorFailure(request);
+
+        Page page;
+        if (snapshot != null && !snapshot.isBlank()) {
+            page = new Page(snapshot);
+            synchronized (pages) {
+                pages.put(key, page);
+            }
+        } else if (locatorFailure) {
+            synchronized (pages) {
+                page = pages.get(key);
+            }
+        } else {
+            page = null;
+        }
+
+        if (page == null || !locatorFailure) {
+            return List.of();
+        }
+        PageIndex index = page.index();
+        if (index.size() == 0) {
+            return List.of();
+        }
+        LocatorQuery query = LocatorQuery.fromFailure(
+                request.getFailureMessage() + "\n" + request.getStackTrace(), snapshot);
+        return query == null ? List.of() : rank(index, query);
+    }
+
+    /**
+     * Runs indexing, locator parsing and ranking on a sample failure without
+     * keeping its page (start-up warm-up). Returns the number of suggestions.
+     */
+    public int warmUp(FailureEventPayload sample) {
+        String snapshot = sample.getDomSnapshot();
+        if (snapshot == null || snapshot.isBlank()) {
+            return 0;
+        }
+        PageIndex page = PageIndex.build(snapshot);
+        LocatorQuery query = LocatorQuery.fromFailure(
+                sample.getFailureMessage() + "\n" + sample.getStackTrace(), snapshot);
+        return query == null || page.size() == 0 ? 0 : rank(page, query).size();
+    }
+
+    /**
+     * True when the best suggestion is good enough to answer without the LLM.
+     */
+    public boolean isConfident(List<LocatorSuggestion> suggestions) {
+        return !suggestions.isEmpty() && suggestions.get(0).getScore() >= minScore;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private List<LocatorSuggestion> rank(PageIndex page, LocatorQuery query) {
+        Set<String> tokens = query.tokens();
+        int n = page.size();
+
+        // Candidates + IDF weight per query token that exists on the page
+        BitSet candidates = new BitSet();
+        Map<String, BitSet> hits = new LinkedHashMap<>();
+        for (String t : tokens) {
+            BitSet bits = page.postings(t);
+            if (!bits.isEmpty()) {
+                hits.put(t, bits);
+                candidates.or(bits);
+            }
+        }
+        if (candidates.isEmpty() && query.tag != null) {
+            candidates.or(page.withTag(query.tag));
+        }
+        if (candidates.isEmpty()) {
+            return List.of();
+        }
+
+        List<BitSet> within = new ArrayList<>();
+        for (LocatorQuery.Step hint : query.ancestors) {
+            within.add(page.under(hint));
+        }
+        double coverage = tokens.isEmpty() ? 0.0 : (double) hits.size() / tokens.size();
+
+        List<LocatorSuggestion> scored = new ArrayList<>();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            DomElement e = page.elements.get(i);
+
+            double weighted = 0.0;
+            double total = 0.0;
+            for (Map.Entry<String, BitSet> hit : hits.entrySet()) {
+                double idf = Math.log(1.0 + (double) n / hit.getValue().cardinality());
+                total += idf;
+                if (hit.getValue().get(i)) {
+                    weighted += idf * strength(hit.getKey(), e, query) / MAX_WEIGHT;
+                }
+            }
+            double attrScore = total == 0.0 ? 0.0 : (weighted / total) * (0.5 + 0.5 * Math.sqrt(coverage));
+
+            double tagScore = query.tag == null
+                    ? (CONTROLS.contains(e.tag) ? 0.5 : 0.25)
+                    : query.tag.equals(e.tag) ? 1.0 : compatible(query.tag, e.tag) ? 0.5 : 0.0;
+
+            double positionScore = 0.5;
+            if (!within.isEmpty()) {
+                int inside = 0;
+                for (BitSet bits : within) {
+                    if (bits.get(i)) inside++;
+                }
+                positionScore = (double) inside / within.size();
+            }
+
+            double score = 0.7 * attrScore + 0.15 * tagScore + 0.15 * positionScore;
+            String[] selector = selectorFor(page, e);
+            if (selector[0].equals(query.raw)) {
+                continue; // the locator itself; it exists but is not what failed
+            }
+            scored.add(new LocatorSuggestion(selector[0], selector[1], Math.round(score * 1000) / 1000.0, e.line));
+        }
+
+        scored.sort((a, b) -> Double.compare(b.getScore(), a.getScore()));
+        return scored.size() > maxSuggestions ? new ArrayList<>(scored.subList(0, maxSuggestions)) : scored;
+    }
+
+    /**
+     * Best attribute weight at which the element carries the token; full
+     * weight when the locator used that same attribute, partial matches
+     * ("user" vs "username") count 60%.
+     */
+    private static double strength(String token, DomElement e, LocatorQuery query) {
+        double best = 0.0;
+        for (Map.Entry<String, Set<String>> attr : e.tokens.entrySet()) {
+            double w = ATTR_WEIGHT.getOrDefault(attr.getKey(), 0.5);
+            if (!query.attrs.isEmpty() && !query.attrs.containsKey(attr.getKey())) {
+                w *= 0.9;
+            }
+            double s = 0.0;
+            if (attr.getValue().contains(token)) {
+                s = w;
+            } else if (token.length() >= 4) {
+                for (String t : attr.getValue()) {
+                    if (t.length() >= 4 && (t.contains(token) || token.contains(t))) {
+                        s = 0.6 * w;
+                        break;
+                    }
+                }
+            }
+            best = Math.max(best, s);
+        }
+        return best;
+    }
+
+    private static boolean compatible(String a, String b) {
+        return (CONTROLS.contains(a) && CONTROLS.contains(b) && !"a".equals(a) && !"a".equals(b))
+                || ("a".equals(a) && "button".equals(b)) || ("button".equals(a) && "a".equals(b));
+    }
+
+    /**
+     * {css-or-xpath selector, Selenium By expression}
+     */
+    private static String[] selectorFor(PageIndex page, DomElement e) {
+        String id = e.attr("id");
+        if (id != null && page.isUnique("id", id) && !looksGenerated(id)) {
+            return new String[]{"#" + cssIdent(id), "By.id(\"" + java(id) + "\")"};
+        }
+        String testId = e.attr("data-testid");
+        if (testId != null) {
+            String css = "[data-testid='" + testId.replace("'", "\\'") + "']";
+            return new String[]{css, "By.cssSelector(\"" + java(css) + "\")"};
+        }
+        String name = e.attr("name");
+        if (name != null && page.isUnique("name", name)) {
+            return new String[]{e.tag + "[name='" + name.replace("'", "\\'") + "']", "By.name(\"" + java(name) + "\")"};
+        }
+        for (String attr : List.of("aria-label", "placeholder")) {
+            String v = e.attr(attr);
+            if (v != null && page.isUnique(attr, v)) {
+                String css = e.tag + "[" + attr + "='" + v.replace("'", "\\'") + "']";
+                return new String[]{css, "By.cssSelector(\"" + java(css) + "\")"};
+            }
+        }
+        if (e.text != null && !e.text.isEmpty() && !e.text.contains("'")) {
+            if ("a".equals(e.tag)) {
+                return new String[]{"//a[normalize-space()='" + e.text + "']", "By.linkText(\"" + java(e.text) + "\")"};
+            }
+            String xpath = "//" + e.tag + "[normalize-space()='" + e.text + "']";
+            return new String[]{xpath, "By.xpath(\"" + java(xpath) + "\")"};
+        }
+
+        StringBuilder css = new StringBuilder();
+        int from = Math.max(0, e.path.size() - 2);
+        for (String step : e.path.subList(from, e.path.size())) {
+            css.append(step).append(" > ");
+        }
+        css.append(e.tag);
+        String type = e.attr("type");
+        if (type != null) {
+            css.append("[type='").append(type).append("']");
+        }
+        return new String[]{css.toString(), "By.cssSelector(\"" + java(css.toString()) + "\")"};
+    }
+
+    private static boolean looksGenerated(String id) {
+        return id.matches(".*\\d{4,}.*") || id.matches("^[a-f0-9-]{16,}$") || id.startsWith(":");
+    }
+
+    private static String cssIdent(String id) {
+        return id.matches("[A-Za-z_][\\w-]*") ? id : id.replaceAll("([^\\w-])", "\\\\$1");
+    }
+
+    private static String java(String s) {
+        return s.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+
+    /**
+     * Selenium's NoSuchElementException anywhere in the cause chain (matched
+     * by class name, so "NoSuchElementException" in a message or a frame does
+     * not count, and by package, so java.util's from an empty iterator does
+     * not either), or Selenium's wording on the first line of the failure message.
+     */
+    private static boolean isLocatorFailure(FailureEventPayload request) {
+        String stack = request.getStackTrace();
+        if (stack != null && !stack.isBlank()
+                && StackTraceScanner.forThread().scan(stack).hasException(NO_SUCH_ELEMENT)
+                && stack.contains(SELENIUM_NO_SUCH_ELEMENT)) {
+            return true;
+        }
+        String msg = request.getFailureMessage() == null ? "" : request.getFailureMessage();
+        int eol = msg.indexOf('\n');
+        String first = eol < 0 ? msg : msg.substring(0, eol);
+        return first.contains("no such element") || first.contains("Unable to locate element");
+    }
+
+    /**
+     * Page URL without query/fragment and with numeric ids masked
+     * (/orders/123 and /orders/456 are the same page); the test class when
+     * no URL was captured.
+     */
+    private static String pageKey(FailureEventPayload request) {
+        String url = request.getPageUrl();
+        if (url != null && !url.isBlank()) {
+            int cut = url.length();
+            int q = url.indexOf('?');
+            int f = url.indexOf('#');
+            if (q >= 0) cut = q;
+            if (f >= 0 && f < cut) cut = f;
+            return url.substring(0, cut).replaceAll("/\\d+(?=/|$)", "/#");
+        }
+        return "feature:" + (request.getFeature() == null ? "" : request.getFeature());
+    }
+
+    /**
+     * Latest snapshot of a page; indexed on first use by a locator failure.
+     */
+    private static final class Page {
+        private final String snapshot;
+        private PageIndex index;
+
+        Page(String snapshot) {
+            this.snapshot = snapshot;
+        }
+
+        synchronized PageIndex index() {
+            if (index == null) {
+                index = PageIndex.build(snapshot);
+            }
+            return index;
+        }
+    }
+}
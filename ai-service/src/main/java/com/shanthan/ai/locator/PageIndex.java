@@ -0,0 +1,119 @@
+package com.shanthan.ai.locator;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable index over one DOM snapshot of a page.
+ * - Inverted index: token -> elements whose attributes/text contain it
+ * - Tag index: tag -> elements
+ * - Path trie: one node per ancestor step, each node knows every element
+ *   below it, so "elements inside form#login" is a trie walk plus a BitSet
+ *
+ * Built once per snapshot and then only read, so lookups need no locking.
+ */
+final class PageIndex {
+
+    final List<DomElement> elements;
+    private final Map<String, BitSet> postings = new HashMap<>();
+    private final Map<String, BitSet> byTag = new HashMap<>();
+    private final Map<String, Integer> valueCounts = new HashMap<>();
+    private final TrieNode root = new TrieNode("");
+
+    private PageIndex(List<DomElement> elements) {
+        this.elements = elements;
+        for (DomElement e : elements) {
+            byTag.computeIfAbsent(e.tag, k -> new BitSet()).set(e.index);
+            e.attrs.forEach((k, v) -> valueCounts.merge(k + "=" + v, 1, Integer::sum));
+            e.tokens.values().forEach(ts -> ts.forEach(t ->
+                    postings.computeIfAbsent(t, k -> new BitSet()).set(e.index)));
+
+            TrieNode node = root;
+            node.below.set(e.index);
+            for (String step : e.path) {
+                node = node.children.computeIfAbsent(step, TrieNode::new);
+                node.below.set(e.index);
+            }
+        }
+    }
+
+    static PageIndex build(String snapshot) {
+        List<DomElement> elements = new ArrayList<>();
+        for (String line : snapshot.split("\n")) {
+            if (line.isBlank() || line.startsWith("#")) continue;
+            DomElement e = DomElement.parse(elements.size(), line);
+            if (e != null) {
+                elements.add(e);
+            }
+        }
+        return new PageIndex(Collections.unmodifiableList(elements));
+    }
+
+    /**
+     * Elements holding the token, or a token it contains / is contained in
+     * (min length 4, so "user" meets "username" but "id" meets nothing).
+     */
+    BitSet postings(String token) {
+        BitSet exact = postings.get(token);
+        BitSet result = exact != null ? (BitSet) exact.clone() : new BitSet();
+        if (token.length() >= 4) {
+            postings.forEach((k, bits) -> {
+                if (k.length() >= 4 && !k.equals(token) && (k.contains(token) || token.contains(k))) {
+                    result.or(bits);
+                }
+            });
+        }
+        return result;
+    }
+
+    BitSet withTag(String tag) {
+        BitSet bits = byTag.get(tag);
+        return bits != null ? (BitSet) bits.clone() : new BitSet();
+    }
+
+    /**
+     * All elements below any ancestor step matching the hint.
+     */
+    BitSet under(LocatorQuery.Step hint) {
+        BitSet result = new BitSet();
+        collect(root, hint, result);
+        return result;
+    }
+
+    boolean isUnique(String attr, String value) {
+        return valueCounts.getOrDefault(attr + "=" + value, 0) == 1;
+    }
+
+    int size() {
+        return elements.size();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static void collect(TrieNode node, LocatorQuery.Step hint, BitSet result) {
+        for (TrieNode child : node.children.values()) {
+            if (hint.matches(child.step)) {
+                result.or(child.below);
+            } else {
+                collect(child, hint, result);
+            }
+        }
+    }
+
+    private static final class TrieNode {
+        final String step;
+        final Map<String, TrieNode> children = new LinkedHashMap<>();
+        final BitSet below = new BitSet();
+
+        TrieNode(String step) {
+            this.step = step;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.shanthan.ai.locator;
+
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Splits attribute values and locators into lowercase word tokens:
+ *   "fake-username-field" -> fake, username, field, fakeusernamefield
+ *   "userName"            -> user, name, username
+ * The joined form lets "user-name" and "username" meet in the index.
+ */
+final class Tokens {
+
+    private Tokens() {
+    }
+
+    static Set<String> of(String value) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (value == null || value.isEmpty()) {
+            return tokens;
+        }
+        String split = value.replaceAll("([a-z0-9])([A-Z])", "$1 $2").toLowerCase(Locale.ROOT);
+        StringBuilder joined = new StringBuilder();
+        int parts = 0;
+        for (String t : split.split("[^a-z0-9]+")) {
+            if (t.length() >= 2) {
+                tokens.add(t);
+                joined.append(t);
+                parts++;
+            }
+        }
+        if (parts > 1 && joined.length() <= 40) {
+            tokens.add(joined.toString());
+        }
+        return tokens;
+    }
+}
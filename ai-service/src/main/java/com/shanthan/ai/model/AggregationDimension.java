@@ -0,0 +1,14 @@
+package com.shanthan.ai.model;
+
+/**
+ * Columns the triage result store can group by.
+ * WINDOW buckets rows by event time (bucket size given in milliseconds).
+ */
+public enum AggregationDimension {
+    TYPE,
+    SUITE,
+    FEATURE,
+    ENVIRONMENT,
+    RUN,
+    WINDOW
+}
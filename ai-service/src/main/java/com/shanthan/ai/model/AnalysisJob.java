@@ -0,0 +1,36 @@
+package com.shanthan.ai.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.*;
+
+/**
+ * An asynchronous failure analysis (POST /api/ai/jobs). Written by the job
+ * worker, read by pollers, hence volatile fields; the worker sets status
+ * last, so a poller that sees DONE / FAILED also sees the result or error
+ * and completedAt. The fields without volatile are set before the job is
+ * published to the store.
+ */
+@Getter
+@Setter
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class AnalysisJob {
+
+    private String jobId;
+    private String testName;
+    private volatile JobStatus status;
+    private long submittedAt;                  // epoch millis
+    private volatile Long startedAt;
+    private volatile Long completedAt;
+    private String callbackUrl;                // POSTed the finished job, if set
+    private volatile String callbackStatus;    // PENDING, DELIVERED, FAILED
+    private volatile FailureAnalysisResponse result;
+    private volatile String error;
+
+    @JsonIgnore
+    public boolean isFinished() {
+        JobStatus s = status;
+        return s == JobStatus.DONE || s == JobStatus.FAILED;
+    }
+
+}
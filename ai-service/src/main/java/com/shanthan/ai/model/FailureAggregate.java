@@ -0,0 +1,23 @@
+package com.shanthan.ai.model;
+
+import lombok.*;
+
+@Getter
+@Setter
+public class FailureAggregate {
+
+    private String key;                 // group value, or bucket start (epoch millis) for WINDOW
+    private long count;
+    private double avgSeverity;
+    private double avgConfidence;
+    private int maxSeverity;
+    private long firstSeen;             // epoch millis
+    private long lastSeen;              // epoch millis
+
+    public FailureAggregate() {}
+
+    public FailureAggregate(String key) {
+        this.key = key;
+    }
+
+}
@@ -1,13 +1,14 @@
 package com.shanthan.ai.model;
 
 import lombok.*;
+import java.util.ArrayList;
 import java.util.List;
 
 @Getter
 @Setter
 public class FailureAnalysisResponse {
 
-    private FailureType failureType;   // e.g., LOCATOR_ISSUE, ENVIRONMENT, BACKEND_500
+    private FailureType failureType;   // e.g., LOCATOR_ISSUE, ENVIRONMENT, BACKEND_5XX (see FailureTaxonomy)
     private String rootCauseSummary;
     private String recommendedNextSteps;
     private int severityScore;              // 1–5
@@ -15,7 +16,28 @@ public class FailureAnalysisResponse {
     private List<SimilarFailure> similarFailures;
     private double aiConfidence;
     private boolean ruleBasedOverrideApplied;// 0.0 - 1.0
-
+    private List<LocatorSuggestion> locatorSuggestions; // replacement selectors for locator failures, best first
+    private String reusedFrom;              // fingerprint of the near-duplicate analysis reused by the semantic cache
+    private Double reuseSimilarity;         // cosine similarity to that failure, null when freshly analysed
+
+    /**
+     * Copy used when handing out cached results, so callers can't mutate the cached instance.
+     */
+    public FailureAnalysisResponse copy() {
+        FailureAnalysisResponse c = new FailureAnalysisResponse();
+        c.setFailureType(failureType);
+        c.setRootCauseSummary(rootCauseSummary);
+        c.setRecommendedNextSteps(recommendedNextSteps);
+        c.setSeverityScore(severityScore);
+        c.setJiraSummaryTemplate(jiraSummaryTemplate);
+        c.setSimilarFailures(similarFailures == null ? null : new ArrayList<>(similarFailures));
+        c.setAiConfidence(aiConfidence);
+        c.setRuleBasedOverrideApplied(ruleBasedOverrideApplied);
+        c.setLocatorSuggestions(locatorSuggestions == null ? null : new ArrayList<>(locatorSuggestions));
+        c.setReusedFrom(reusedFrom);
+        c.setReuseSimilarity(reuseSimilarity);
+        return c;
+    }
 
 }
 
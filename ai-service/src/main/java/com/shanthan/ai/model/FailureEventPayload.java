@@ -10,6 +10,11 @@ public class FailureEventPayload {
     private String feature;
     private String environment;
 
+    // Run/session correlation (set once per JVM by the listeners)
+    private String runId;
+    private String sessionId;
+    private Long eventTimestamp;   // epoch millis on the client; server time when absent
+
     /**
      * "UI" or "API"
      */
@@ -18,9 +23,16 @@ public class FailureEventPayload {
     // Failure details
     private String failureMessage;
     private String stackTrace;
+    private String traceSignature; // trace-core StackTraceScanner signature (32 hex) computed by the listener; used only without stackTrace
     private String rawLogSnippet;
     private List<String> tags;
 
+    // UI evidence captured by the listener (artifacts stay on the client, only hashes are sent)
+    private String pageUrl;
+    private String screenshotHash;   // sha-256 of the downscaled PNG in target/ai-artifacts
+    private String domHash;          // sha-256 of the pruned DOM excerpt
+    private String domSnapshot;      // pruned DOM: interactive elements, most relevant to the failing locator first
+
     // API-specific context (optional for UI tests)
     private String httpMethod;     // GET, POST, etc.
     private String endpoint;       // URL or path
@@ -28,6 +40,62 @@ public class FailureEventPayload {
     private String requestBody;
     private String responseBody;
 
+    public String getRunId() {
+        return runId;
+    }
+
+    public void setRunId(String runId) {
+        this.runId = runId;
+    }
+
+    public String getSessionId() {
+        return sessionId;
+    }
+
+    public void setSessionId(String sessionId) {
+        this.sessionId = sessionId;
+    }
+
+    public Long getEventTimestamp() {
+        return eventTimestamp;
+    }
+
+    public void setEventTimestamp(Long eventTimestamp) {
+        this.eventTimestamp = eventTimestamp;
+    }
+
+    public String getPageUrl() {
+        return pageUrl;
+    }
+
+    public void setPageUrl(String pageUrl) {
+        this.pageUrl = pageUrl;
+    }
+
+    public String getScreenshotHash() {
+        return screenshotHash;
+    }
+
+    public void setScreenshotHash(String screenshotHash) {
+        this.screenshotHash = screenshotHash;
+    }
+
+    public String getDomHash() {
+        return domHash;
+    }
+
+    public void setDomHash(String domHash) {
+        this.domHash = domHash;
+    }
+
+    public String getDomSnapshot() {
+        return domSnapshot;
+    }
+
+    public void setDomSnapshot(String domSnapshot) {
+        this.domSnapshot = domSnapshot;
+    }
+
     public String getTestType() {
         return testType;
     }
@@ -124,6 +192,14 @@ public class FailureEventPayload {
         this.stackTrace = stackTrace;
     }
 
+    public String getTraceSignature() {
+        return traceSignature;
+    }
+
+    public void setTraceSignature(String traceSignature) {
+        this.traceSignature = traceSignature;
+    }
+
     public String getRawLogSnippet() {
         return rawLogSnippet;
     }
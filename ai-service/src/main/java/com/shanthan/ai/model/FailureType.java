@@ -1,5 +1,10 @@
 package com.shanthan.ai.model;
 
+/**
+ * Canonical failure types. The LLM may answer with the prompt's wording
+ * (SERVER_BUG, WAITING_SYNC_ISSUE, ...); FailureTaxonomy maps those aliases
+ * onto these values when the response is parsed.
+ */
 public enum FailureType {
     LOCATOR_ISSUE,
     ENVIRONMENT,
@@ -7,5 +12,10 @@ public enum FailureType {
     AUTHENTICATION,
     TIMEOUT,
     ASSERTION_FAILURE,
+    FLAKY_TEST,
+    TEST_DATA_ISSUE,        // missing/wrong seed data, ordering dependencies between tests
+    CLIENT_REQUEST_ISSUE,   // bad payload or wrong expectation on the client side (API)
+    CONTRACT_MISMATCH,      // response shape/status differs from the API contract
+    RATE_LIMITING,          // 429 / throttling
     UNKNOWN
 }
@@ -0,0 +1,18 @@
+package com.shanthan.ai.model;
+
+import lombok.*;
+
+@Getter
+@Setter
+public class FlakinessScore {
+
+    private String testId;         // feature#testName
+    private int samples;           // pass/fail outcomes in the rolling window (max 64)
+    private int failures;          // failures in the window
+    private int flips;             // pass<->fail transitions in the window
+    private int skips;             // total skips seen (not part of the window)
+    private double flipRate;       // flips / (samples - 1)
+    private double entropy;        // binary entropy of the failure ratio, 0.0 - 1.0
+    private double score;          // sqrt(flipRate * entropy), 0.0 - 1.0
+
+}
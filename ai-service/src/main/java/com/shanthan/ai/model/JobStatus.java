@@ -0,0 +1,8 @@
+package com.shanthan.ai.model;
+
+public enum JobStatus {
+    QUEUED,
+    RUNNING,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,23 @@
+package com.shanthan.ai.model;
+
+import lombok.*;
+
+@Getter
+@Setter
+public class LocatorSuggestion {
+
+    private String selector;     // CSS selector or XPath for the replacement element
+    private String by;           // ready-to-paste Selenium expression, e.g. By.id("username")
+    private double score;        // 0.0 - 1.0 similarity to the failing locator
+    private String element;      // the matched element as it appears in the DOM snapshot
+
+    public LocatorSuggestion() {}
+
+    public LocatorSuggestion(String selector, String by, double score, String element) {
+        this.selector = selector;
+        this.by = by;
+        this.score = score;
+        this.element = element;
+    }
+
+}
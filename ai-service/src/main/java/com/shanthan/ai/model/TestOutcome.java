@@ -0,0 +1,7 @@
+package com.shanthan.ai.model;
+
+public enum TestOutcome {
+    PASS,
+    FAIL,
+    SKIP
+}
@@ -0,0 +1,20 @@
+package com.shanthan.ai.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.*;
+
+/**
+ * Compact per-test result sent by the listeners for every test (not only
+ * failures) so the service can keep a pass/fail history for flakiness scoring.
+ * Unknown fields are ignored: older listeners also sent suiteName and runId.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Getter
+@Setter
+public class TestOutcomeEvent {
+
+    private String testName;
+    private String feature;        // test class name
+    private TestOutcome outcome;
+
+}
@@ -0,0 +1,531 @@
+package com.shanthan.ai.queue;
+
+import lombok.Getter;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, file-backed, partitioned log (one "topic" per directory),
+ * shared by the test listeners (producers) and the ai-service consumers, in
+ * the same or in different JVMs:
+ *
+ *   <dir>/partitions                 partition count, fixed by the first open
+ *   <dir>/p-<n>/<base offset>.log    segments; a new one is started when the
+ *                                    last reaches segmentBytes
+ *   <dir>/p-<n>/.lock                appends hold an OS file lock on it
+ *   <dir>/offsets/<group>/p-<n>      committed offset of a consumer group
+ *   <dir>/offsets/<group>/p-<n>.lease  held (OS lock) by the partition's consumer
+ *
+ * A record is framed as magic, body length, CRC32 of the body, then the
+ * body: timestamp, key, value. Offsets are byte positions in the partition
+ * (segment base + position), so reading from an offset needs no index.
+ * Readers never lock: a record still being written is not returned until it
+ * is complete, and a damaged record (e.g. the torn tail of a crashed writer)
+ * is counted and skipped by scanning for the next valid frame.
+ *
+ * Appends reach the page cache, not the disk: they survive the crash or
+ * restart of any process, but not of the machine.
+ */
+public final class FailureLog implements Closeable {
+
+    private static final int MAGIC = 0x54524731;   // "TRG1"
+    private static final int HEADER = 12;          // magic, body length, crc
+    private static final int MIN_BODY = 10;        // timestamp + key length
+    private static final String SUFFIX = ".log";
+
+    private final Path dir;
+    private final int partitions;
+    private final long segmentBytes;
+    private final int maxRecordBytes;
+    private final Partition[] parts;
+    private final LongAdder corrupt = new LongAdder();
+
+    private static final class Partition {
+        final Path dir;
+        FileChannel lockChannel;   // opened on first append
+
+        Partition(Path dir) {
+            this.dir = dir;
+        }
+    }
+
+    /**
+     * One record as read back from the log.
+     */
+    @Getter
+    public static final class Record {
+        private final int partition;
+        private final long offset;
+        private final long nextOffset;
+        private final long timestamp;
+        private final String key;
+        private final byte[] value;
+
+        Record(int partition, long offset, long nextOffset, long timestamp, String key, byte[] value) {
+            this.partition = partition;
+            this.offset = offset;
+            this.nextOffset = nextOffset;
+            this.timestamp = timestamp;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Records read from one partition and the offset to continue from (past
+     * skipped damage too, so it can be ahead of the last record).
+     */
+    @Getter
+    public static final class Batch {
+        private final List<Record> records;
+        private final long nextOffset;
+
+        Batch(List<Record> records, long nextOffset) {
+            this.records = records;
+            this.nextOffset = nextOffset;
+        }
+    }
+
+    /**
+     * Exclusive ownership of a partition for a consumer group, across
+     * processes; released by close() or when the process exits.
+     */
+    public static final class Lease implements Closeable {
+        private final FileChannel channel;
+
+        private Lease(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private FailureLog(Path dir, int partitions, long segmentBytes, int maxRecordBytes) throws IOException {
+        this.dir = dir;
+        this.partitions = partitions;
+        this.segmentBytes = segmentBytes;
+        this.maxRecordBytes = maxRecordBytes;
+        this.parts = new Partition[partitions];
+        for (int i = 0; i < partitions; i++) {
+            parts[i] = new Partition(dir.resolve("p-" + i));
+            Files.createDirectories(parts[i].dir);
+        }
+    }
+
+    /**
+     * Opens (creating if needed) the log in dir. The partition count is the
+     * one stored in the directory when it already exists.
+     */
+    public static FailureLog open(Path dir, int partitions, long segmentBytes, int maxRecordBytes) throws IOException {
+        Files.createDirectories(dir);
+        Path countFile = dir.resolve("partitions");
+        if (!Files.exists(countFile)) {
+            Path tmp = Files.createTempFile(dir, "partitions", ".tmp");
+            Files.writeString(tmp, String.valueOf(Math.max(1, partitions)));
+            try {
+                Files.move(tmp, countFile);
+            } catch (FileAlreadyExistsException e) {
+                Files.deleteIfExists(tmp);   // another process created it first
+            }
+        }
+        int stored = Integer.parseInt(Files.readString(countFile).trim());
+        return new FailureLog(dir, stored, segmentBytes, maxRecordBytes);
+    }
+
+    public int partitions() {
+        return partitions;
+    }
+
+    /**
+     * Partition for a key; stable across JVMs (String.hashCode).
+     */
+    public int partitionFor(String key) {
+        return Math.floorMod(key == null ? 0 : key.hashCode(), partitions);
+    }
+
+    /**
+     * Appends a record and returns its offset. Safe across threads and processes.
+     */
+    public long append(int partition, String key, byte[] value) throws IOException {
+        byte[] k = key.getBytes(StandardCharsets.UTF_8);
+        int bodyLen = MIN_BODY + k.length + value.length;
+        if (k.length > Short.MAX_VALUE || bodyLen > maxRecordBytes) {
+            throw new IOException("record of " + bodyLen + " bytes exceeds the " + maxRecordBytes + " byte limit");
+        }
+        ByteBuffer buf = ByteBuffer.allocate(HEADER + bodyLen);
+        buf.putInt(MAGIC).putInt(bodyLen).putInt(0)
+                .putLong(System.currentTimeMillis()).putShort((short) k.length).put(k).put(value);
+        CRC32 crc = new CRC32();
+        crc.update(buf.array(), HEADER, bodyLen);
+        buf.putInt(8, (int) crc.getValue());
+        buf.flip();
+
+        Partition p = parts[partition];
+        synchronized (p) {
+            if (p.lockChannel == null) {
+                p.lockChannel = FileChannel.open(p.dir.resolve(".lock"),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+            try (FileLock ignored = p.lockChannel.lock()) {
+                long[] bases = segments(p);
+                long base = bases.length == 0 ? 0 : bases[bases.length - 1];
+                Path segment = segment(p, base);
+                long size = Files.exists(segment) ? Files.size(segment) : 0;
+                if (size >= segmentBytes) {
+                    base += size;
+                    segment = segment(p, base);
+                    size = 0;
+                }
+                try (FileChannel ch = FileChannel.open(segment, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                    while (buf.hasRemaining()) {
+                        ch.write(buf);
+                    }
+                }
+                return base + size;
+            }
+        }
+    }
+
+    /**
+     * Up to maxRecords complete records from offset on. An offset below the
+     * oldest retained segment reads from that segment.
+     */
+    public Batch read(int partition, long offset, int maxRecords) throws IOException {
+        Partition p = parts[partition];
+        List<Record> out = new ArrayList<>(Math.min(maxRecords, 256));
+        long[] bases = segments(p);
+        if (bases.length == 0) {
+            return new Batch(out, offset);
+        }
+        long pos = Math.max(offset, bases[0]);
+        int i = segmentIndex(bases, pos);
+        while (true) {
+            boolean last = i == bases.length - 1;
+            try (FileChannel ch = FileChannel.open(segment(p, bases[i]), StandardOpenOption.READ)) {
+                pos = readSegment(ch, partition, bases[i], pos, maxRecords, out);
+            } catch (NoSuchFileException e) {
+                // removed by retention meanwhile; continue with the next one
+            }
+            if (out.size() >= maxRecords || last) {
+                return new Batch(out, pos);
+            }
+            i++;
+            pos = bases[i];   // anything left in the previous segment is damage
+        }
+    }
+
+    /**
+     * Whether reading from offset starts at a record: a complete, CRC-valid
+     * frame, a segment boundary, the end of the partition, or an offset
+     * before the oldest retained record (read() starts there). An offset in
+     * the middle of a record would be read as damage.
+     */
+    public boolean isRecordStart(int partition, long offset) throws IOException {
+        Partition p = parts[partition];
+        long[] bases = segments(p);
+        if (bases.length == 0) {
+            return offset <= 0;
+        }
+        int i = segmentIndex(bases, offset);
+        if (offset <= bases[i]) {
+            return true;
+        }
+        try (FileChannel ch = FileChannel.open(segment(p, bases[i]), StandardOpenOption.READ)) {
+            long size = ch.size();
+            long local = offset - bases[i];
+            if (local >= size) {
+                return local == size;
+            }
+            if (local + HEADER > size) {
+                return false;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            readFully(ch, header, local);
+            int len = header.getInt(4);
+            if (header.getInt(0) != MAGIC || len < MIN_BODY || len > maxRecordBytes || local + HEADER + len > size) {
+                return false;
+            }
+            ByteBuffer body = ByteBuffer.allocate(len);
+            readFully(ch, body, local + HEADER);
+            CRC32 crc = new CRC32();
+            crc.update(body.array(), 0, len);
+            return (int) crc.getValue() == header.getInt(8);
+        } catch (NoSuchFileException e) {
+            return true;   // removed by retention meanwhile: read() starts at the next segment
+        }
+    }
+
+    /**
+     * Offset of the oldest retained record.
+     */
+    public long startOffset(int partition) throws IOException {
+        long[] bases = segments(parts[partition]);
+        return bases.length == 0 ? 0 : bases[0];
+    }
+
+    /**
+     * Offset the next append will get (unless a new segment is started).
+     */
+    public long endOffset(int partition) throws IOException {
+        Partition p = parts[partition];
+        long[] bases = segments(p);
+        if (bases.length == 0) {
+            return 0;
+        }
+        long base = bases[bases.length - 1];
+        try {
+            return base + Files.size(segment(p, base));
+        } catch (NoSuchFileException e) {
+            return base;
+        }
+    }
+
+    /**
+     * Committed offset of a consumer group, or -1 when it never committed.
+     */
+    public long committed(String group, int partition) throws IOException {
+        Path file = offsetFile(group, partition);
+        try {
+            return Long.parseLong(Files.readString(file).trim());
+        } catch (NoSuchFileException e) {
+            return -1;
+        }
+    }
+
+    public void commit(String group, int partition, long offset) throws IOException {
+        Path file = offsetFile(group, partition);
+        Files.createDirectories(file.getParent());
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        Files.writeString(tmp, String.valueOf(offset));
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Takes the partition for this group, or returns null when another
+     * consumer (in this or another process) holds it.
+     */
+    public Lease tryLease(String group, int partition) throws IOException {
+        Path file = offsetFile(group, partition).resolveSibling("p-" + partition + ".lease");
+        Files.createDirectories(file.getParent());
+        FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            if (ch.tryLock() != null) {
+                return new Lease(ch);
+            }
+        } catch (OverlappingFileLockException e) {
+            // held by another consumer thread of this JVM
+        }
+        ch.close();
+        return null;
+    }
+
+    /**
+     * Deletes whole segments that end at or before offset and were last
+     * written more than minAgeMillis ago; the last segment is always kept.
+     * Returns the number of segments deleted.
+     */
+    public int deleteBefore(int partition, long offset, long minAgeMillis) throws IOException {
+        Partition p = parts[partition];
+        long[] bases = segments(p);
+        long cutoff = System.currentTimeMillis() - minAgeMillis;
+        int deleted = 0;
+        for (int i = 0; i + 1 < bases.length && bases[i + 1] <= offset; i++) {
+            Path segment = segment(p, bases[i]);
+            try {
+                if (Files.getLastModifiedTime(segment).toMillis() < cutoff && Files.deleteIfExists(segment)) {
+                    deleted++;
+                }
+            } catch (NoSuchFileException ignored) {
+                // deleted by another consumer
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * Damaged records skipped by readers of this instance.
+     */
+    public long corrupt() {
+        return corrupt.sum();
+    }
+
+    public Path dir() {
+        return dir;
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (Partition p : parts) {
+            synchronized (p) {
+                if (p.lockChannel != null) {
+                    p.lockChannel.close();
+                    p.lockChannel = null;
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static Path segment(Partition p, long base) {
+        return p.dir.resolve(String.format("%020d", base) + SUFFIX);
+    }
+
+    private static long[] segments(Partition p) throws IOException {
+        try (Stream<Path> files = Files.list(p.dir)) {
+            return files.map(f -> f.getFileName().toString())
+                    .filter(n -> n.endsWith(SUFFIX) && n.length() == 20 + SUFFIX.length())
+                    .mapToLong(n -> Long.parseLong(n.substring(0, 20)))
+                    .sorted()
+                    .toArray();
+        }
+    }
+
+    /**
+     * Index of the segment holding offset (the last base at or below it).
+     */
+    private static int segmentIndex(long[] bases, long offset) {
+        int i = Arrays.binarySearch(bases, offset);
+        return i >= 0 ? i : Math.max(0, -i - 2);
+    }
+
+    private Path offsetFile(String group, int partition) {
+        return dir.resolve("offsets").resolve(group).resolve("p-" + partition);
+    }
+
+    /**
+     * Reads records of one segment from pos; returns where reading stopped
+     * (end of data, an incomplete record, or maxRecords reached).
+     */
+    private long readSegment(FileChannel ch, int partition, long base, long pos, int maxRecords,
+                             List<Record> out) throws IOException {
+        long size = ch.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        CRC32 crc = new CRC32();
+        while (out.size() < maxRecords) {
+            long local = pos - base;
+            if (local + HEADER > size) {
+                return pos;
+            }
+            header.clear();
+            readFully(ch, header, local);
+            int len = header.getInt(4);
+            if (header.getInt(0) != MAGIC || len < MIN_BODY || len > maxRecordBytes) {
+                corrupt.increment();
+                pos = resync(ch, base, pos + 1, size);
+                continue;
+            }
+            if (local + HEADER + len > size) {
+                // still being written, unless a complete record follows: appends are
+                // serialised, so this one was torn by a writer that died mid-record
+                long next = resync(ch, base, pos + 1, size);
+                if (!completeAt(ch, base, next, size)) {
+                    return pos;
+                }
+                corrupt.increment();
+                pos = next;
+                continue;
+            }
+            ByteBuffer body = ByteBuffer.allocate(len);
+            readFully(ch, body, local + HEADER);
+            crc.reset();
+            crc.update(body.array(), 0, len);
+            if ((int) crc.getValue() != header.getInt(8)) {
+                corrupt.increment();
+                pos = resync(ch, base, pos + 1, size);
+                continue;
+            }
+            long timestamp = body.getLong(0);
+            int keyLen = body.getShort(8);
+            if (keyLen < 0 || MIN_BODY + keyLen > len) {
+                corrupt.increment();
+                pos += HEADER + len;
+                continue;
+            }
+            String key = new String(body.array(), MIN_BODY, keyLen, StandardCharsets.UTF_8);
+            byte[] value = Arrays.copyOfRange(body.array(), MIN_BODY + keyLen, len);
+            long next = pos + HEADER + len;
+            out.add(new Record(partition, pos, next, timestamp, key, value));
+            pos = next;
+        }
+        return pos;
+    }
+
+    /**
+     * Whether a whole frame starts at pos (resync only returns CRC-checked ones when complete).
+     */
+    private static boolean completeAt(FileChannel ch, long base, long pos, long size) throws IOException {
+        long local = pos - base;
+        if (local + HEADER > size) {
+            return false;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER);
+        readFully(ch, header, local);
+        return local + HEADER + header.getInt(4) <= size;
+    }
+
+    /**
+     * Position of the next plausible frame at or after from: valid magic and
+     * length, and a matching CRC when the record is complete.
+     */
+    private long resync(FileChannel ch, long base, long from, long size) throws IOException {
+        long start = from - base;
+        if (start + HEADER > size) {
+            return base + Math.max(start, size - HEADER + 1);
+        }
+        MappedByteBuffer m = ch.map(FileChannel.MapMode.READ_ONLY, start, size - start);
+        CRC32 crc = new CRC32();
+        for (int i = 0; i + HEADER <= m.limit(); i++) {
+            if (m.getInt(i) != MAGIC) {
+                continue;
+            }
+            int len = m.getInt(i + 4);
+            if (len < MIN_BODY || len > maxRecordBytes) {
+                continue;
+            }
+            if ((long) i + HEADER + len > m.limit()) {
+                return base + start + i;   // may still be being written
+            }
+            crc.reset();
+            crc.update(m.duplicate().position(i + HEADER).limit(i + HEADER + len));
+            if ((int) crc.getValue() == m.getInt(i + 8)) {
+                return base + start + i;
+            }
+        }
+        return base + Math.max(start, size - HEADER + 1);
+    }
+
+    private static void readFully(FileChannel ch, ByteBuffer buf, long position) throws IOException {
+        while (buf.hasRemaining()) {
+            int n = ch.read(buf, position + buf.position());
+            if (n < 0) {
+                throw new EOFException("segment truncated at " + (position + buf.position()));
+            }
+        }
+    }
+}
@@ -0,0 +1,545 @@
+package com.shanthan.ai.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.client.LatencyHistogram;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FlakinessScore;
+import com.shanthan.ai.model.TestOutcome;
+import com.shanthan.ai.model.TestOutcomeEvent;
+import com.shanthan.ai.service.FailureAnalysisService;
+import com.shanthan.ai.service.FlakinessTracker;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Consumes failures the listeners append to the file-backed queue
+ * (-Dai.transport=queue), so triage no longer depends on the service being
+ * up while the tests run:
+ *
+ * - <ingest.dir>/failures is the input log, <ingest.dir>/results gets one
+ *   analysis per failure, keyed like it (listeners tail it for their report)
+ * - records keyed OUTCOME_KEY_PREFIX... are pass/skip outcomes
+ *   (TestOutcomeEvent) of the same tests, on the same partition as their
+ *   failures. The consumer thread records outcomes and the FAIL outcome of
+ *   each failure in log order before the analyses run in parallel, so the
+ *   flakiness history sees a test's runs in the order they happened
+ * - records that cannot be read or whose analysis throws are copied to
+ *   <ingest.dir>/dead-letter (same partition, key and bytes) and committed
+ *   past, so one poison record does not block its partition
+ * - ingest.consumers threads; thread i takes partitions p with
+ *   p % consumers == i, each under a lease (an OS file lock), so replicas on
+ *   the same host or shared volume split the partitions and a replica that
+ *   stops hands its partitions over. More throughput: more partitions and
+ *   consumers (up to one consumer per partition)
+ * - a consumer reads ingest.batchSize records, analyses them through
+ *   FailureAnalysisService with at most ingest.parallelism analyses in
+ *   flight across all consumers (back-pressure: nothing more is read until
+ *   slots free up), writes the results and only then commits the offset.
+ *   A crash or deploy mid-batch means the batch is analysed again
+ *   (at-least-once; the triage caches make repeats cheap), never dropped.
+ *   When a result cannot be written, the offset stops at that record and
+ *   the partition is retried from there after ingest.pollInterval. A record
+ *   this process already analysed is not counted again (FAIL outcome,
+ *   analytics row); those stores are in memory, so a new process has not
+ *   counted it yet
+ * - replay(): seeks owned partitions back to a record offset, e.g. to
+ *   re-triage history after a prompt change. Records up to where the
+ *   partition was are re-scored (FailureAnalysisService.rescore: fresh LLM
+ *   answer, nothing counted again); the bound is kept as group
+ *   "<ingest.group>.replay" so a restart mid-replay keeps re-scoring.
+ *   A re-score that gets no real answer (shed, stubbed) is handled like an
+ *   unwritten result: the offset stops there and the partition retries.
+ *   Segments are kept ingest.retention after they were consumed
+ *
+ * Consumption starts when the replica is ready (after the warm-up) and is
+ * off unless ingest.enabled.
+ */
+@Component
+@Profile("!batch")
+public class IngestConsumer {
+
+    /**
+     * Key prefix of TestOutcomeEvent records (the listeners' queue transport).
+     */
+    public static final String OUTCOME_KEY_PREFIX = "outcome/";
+
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    private final FailureAnalysisService failureAnalysisService;
+    private final FlakinessTracker flakinessTracker;
+    private final boolean enabled;
+    private final Path dir;
+    private final int configuredPartitions;
+    private final long segmentBytes;
+    private final int maxRecordBytes;
+    private final String group;
+    private final int consumers;
+    private final int batchSize;
+    private final int parallelism;
+    private final long pollMillis;
+    private final long leaseRetryMillis;
+    private final long retentionMillis;
+    private final long shutdownMillis;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private FailureLog failures;
+    private FailureLog results;
+    private FailureLog deadLetters;
+    private ExecutorService analysers;
+    private Semaphore inFlight;
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    private volatile boolean aborted;   // shutdown timed out: in-flight answers are not committed
+
+    private final Map<Integer, Assignment> owned = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> seeks = new ConcurrentHashMap<>();
+    private final Map<Integer, Long> recordedUntil = new ConcurrentHashMap<>();   // analysed by this process
+
+    private final LongAdder consumed = new LongAdder();
+    private final LongAdder analysed = new LongAdder();
+    private final LongAdder outcomes = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder segmentsDeleted = new LongAdder();
+    private final LatencyHistogram endToEnd = new LatencyHistogram();
+    private final LatencyHistogram analysisTime = new LatencyHistogram();
+
+    /**
+     * A partition this process owns, and where its consumer is.
+     */
+    private static final class Assignment {
+        final int partition;
+        final FailureLog.Lease lease;
+        volatile long position;
+        long replayUntil;   // records before it were consumed before a replay: re-scored
+        long lastRetentionCheck;
+
+        Assignment(int partition, FailureLog.Lease lease, long position) {
+            this.partition = partition;
+            this.lease = lease;
+            this.position = position;
+        }
+    }
+
+    public IngestConsumer(FailureAnalysisService failureAnalysisService,
+                          FlakinessTracker flakinessTracker,
+                          @Value("${ingest.enabled:false}") boolean enabled,
+                          @Value("${ingest.dir:${java.io.tmpdir}/ai-triage-queue}") Path dir,
+                          @Value("${ingest.partitions:8}") int partitions,
+                          @Value("${ingest.segmentBytes:16777216}") long segmentBytes,
+                          @Value("${ingest.maxRecordBytes:8388608}") int maxRecordBytes,
+                          @Value("${ingest.group:ai-service}") String group,
+                          @Value("${ingest.consumers:2}") int consumers,
+                          @Value("${ingest.batchSize:32}") int batchSize,
+                          @Value("${ingest.parallelism:${llm.bulkhead.workers:16}}") int parallelism,
+                          @Value("${ingest.pollInterval:PT0.5S}") Duration pollInterval,
+                          @Value("${ingest.leaseRetry:PT5S}") Duration leaseRetry,
+                          @Value("${ingest.retention:P7D}") Duration retention,
+                          @Value("${ingest.shutdownTimeout:PT30S}") Duration shutdownTimeout) {
+        this.failureAnalysisService = failureAnalysisService;
+        this.flakinessTracker = flakinessTracker;
+        this.enabled = enabled;
+        this.dir = dir;
+        this.configuredPartitions = partitions;
+        this.segmentBytes = segmentBytes;
+        this.maxRecordBytes = maxRecordBytes;
+        this.group = group;
+        this.consumers = Math.max(1, consumers);
+        this.batchSize = Math.max(1, batchSize);
+        this.parallelism = Math.max(1, parallelism);
+        this.pollMillis = pollInterval.toMillis();
+        this.leaseRetryMillis = leaseRetry.toMillis();
+        this.retentionMillis = retention.toMillis();
+        this.shutdownMillis = shutdownTimeout.toMillis();
+    }
+
+    @EventListener
+    public synchronized void onReady(ApplicationReadyEvent event) throws IOException {
+        if (!enabled || running) {
+            return;
+        }
+        failures = FailureLog.open(dir.resolve("failures"), configuredPartitions, segmentBytes, maxRecordBytes);
+        results = FailureLog.open(dir.resolve("results"), failures.partitions(), segmentBytes, maxRecordBytes);
+        deadLetters = FailureLog.open(dir.resolve("dead-letter"), failures.partitions(), segmentBytes, maxRecordBytes);
+        inFlight = new Semaphore(parallelism);
+        AtomicInteger n = new AtomicInteger();
+        analysers = Executors.newFixedThreadPool(parallelism, r -> {
+            Thread t = new Thread(r, "ingest-analysis-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        running = true;
+        int threadCount = Math.min(consumers, failures.partitions());
+        for (int i = 0; i < threadCount; i++) {
+            int index = i;
+            Thread t = new Thread(() -> consume(index, threadCount), "ingest-consumer-" + i);
+            t.setDaemon(true);
+            t.start();
+            threads.add(t);
+        }
+        System.out.println("DEBUG >>> Ingest: " + threadCount + " consumers on " + failures.partitions()
+                + " partitions of " + failures.dir() + " (group " + group + ")");
+    }
+
+    /**
+     * Moves the owned partitions (all, or just the given one) back or forward
+     * to offset; a negative offset means the oldest retained record. Partitions
+     * held by another replica are listed as not owned. Throws
+     * IllegalArgumentException, and seeks nothing, when offset is not the
+     * start of a record in every partition it applies to.
+     */
+    public Map<String, Object> replay(Integer partition, long offset) throws IOException {
+        List<Integer> seeked = new ArrayList<>();
+        List<Integer> notOwned = new ArrayList<>();
+        List<Integer> notARecord = new ArrayList<>();
+        int count = failures != null ? failures.partitions() : 0;
+        for (int p = 0; p < count; p++) {
+            if (partition != null && partition != p) {
+                continue;
+            }
+            if (!owned.containsKey(p)) {
+                notOwned.add(p);
+            } else if (offset >= 0 && !failures.isRecordStart(p, offset)) {
+                notARecord.add(p);
+            } else {
+                seeked.add(p);
+            }
+        }
+        if (!notARecord.isEmpty()) {
+            throw new IllegalArgumentException("offset " + offset + " is not the start of a record in partition(s) "
+                    + notARecord);
+        }
+        for (int p : seeked) {
+            seeks.put(p, offset);
+        }
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("offset", offset < 0 ? "earliest" : offset);
+        r.put("seeked", seeked);
+        r.put("notOwned", notOwned);
+        return r;
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("enabled", enabled);
+        s.put("dir", dir.toString());
+        s.put("group", group);
+        s.put("running", running);
+        if (failures == null) {
+            return s;
+        }
+        long lag = 0;
+        Map<String, Object> perPartition = new LinkedHashMap<>();
+        for (int p = 0; p < failures.partitions(); p++) {
+            Map<String, Object> ps = new LinkedHashMap<>();
+            try {
+                Assignment a = owned.get(p);
+                long end = failures.endOffset(p);
+                long position = a != null ? a.position : failures.committed(group, p);
+                if (position < 0) position = failures.startOffset(p);
+                ps.put("owned", a != null);
+                ps.put("start", failures.startOffset(p));
+                ps.put("position", position);
+                ps.put("end", end);
+                ps.put("lagBytes", Math.max(0, end - position));
+                lag += Math.max(0, end - position);
+            } catch (IOException e) {
+                ps.put("error", e.getMessage());
+            }
+            perPartition.put("p-" + p, ps);
+        }
+        s.put("consumers", threads.size());
+        s.put("parallelism", parallelism);
+        s.put("inFlight", parallelism - inFlight.availablePermits());
+        s.put("lagBytes", lag);
+        s.put("consumed", consumed.sum());
+        s.put("analysed", analysed.sum());
+        s.put("outcomes", outcomes.sum());
+        s.put("batches", batches.sum());
+        s.put("deadLettered", deadLettered.sum());
+        s.put("corrupt", failures.corrupt());
+        s.put("errors", errors.sum());
+        s.put("segmentsDeleted", segmentsDeleted.sum());
+        s.put("endToEnd", endToEnd.snapshot());
+        s.put("analysisTime", analysisTime.snapshot());
+        s.put("partitions", perPartition);
+        return s;
+    }
+
+    /**
+     * Lets the consumers finish and commit their current batch, then releases
+     * the partitions for the next replica.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long deadline = System.currentTimeMillis() + shutdownMillis;
+        for (Thread t : threads) {
+            t.join(Math.max(1, deadline - System.currentTimeMillis()));
+        }
+        aborted = true;
+        analysers.shutdownNow();
+        try {
+            failures.close();
+            results.close();
+            deadLetters.close();
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> Ingest: close failed: " + e.getMessage());
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private void consume(int index, int threadCount) {
+        List<Assignment> mine = new ArrayList<>();
+        long nextLeaseAttempt = 0;
+        while (running) {
+            try {
+                long now = System.currentTimeMillis();
+                if (now >= nextLeaseAttempt && mine.size() * threadCount < failures.partitions()) {
+                    acquire(index, threadCount, mine);
+                    nextLeaseAttempt = now + leaseRetryMillis;
+                }
+                boolean idle = true;
+                for (Assignment a : mine) {
+                    if (!running) break;
+                    idle &= !poll(a);
+                }
+                if (idle) {
+                    Thread.sleep(pollMillis);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (Exception e) {
+                errors.increment();
+                System.out.println("DEBUG >>> Ingest consumer " + index + " error: " + e.getMessage());
+                sleepQuietly(pollMillis);
+            }
+        }
+        for (Assignment a : mine) {
+            owned.remove(a.partition);
+            try {
+                a.lease.close();
+            } catch (IOException ignored) {
+                // released with the process anyway
+            }
+        }
+    }
+
+    private void acquire(int index, int threadCount, List<Assignment> mine) throws IOException {
+        for (int p = index; p < failures.partitions(); p += threadCount) {
+            if (owned.containsKey(p)) continue;
+            FailureLog.Lease lease = failures.tryLease(group, p);
+            if (lease == null) continue;
+            long position = failures.committed(group, p);
+            if (position < 0) position = failures.startOffset(p);
+            Assignment a = new Assignment(p, lease, position);
+            a.replayUntil = failures.committed(group + REPLAY_SUFFIX, p);
+            mine.add(a);
+            owned.put(p, a);
+            System.out.println("DEBUG >>> Ingest: took partition " + p + " at offset " + position);
+        }
+    }
+
+    /**
+     * One batch of one partition; false when there was nothing to read.
+     */
+    private boolean poll(Assignment a) throws IOException, InterruptedException {
+        Long seek = seeks.remove(a.partition);
+        if (seek != null) {
+            // everything consumed so far is re-scored rather than counted again
+            a.replayUntil = Math.max(a.replayUntil, Math.max(a.position, recordedUntil.getOrDefault(a.partition, -1L)));
+            failures.commit(group + REPLAY_SUFFIX, a.partition, a.replayUntil);
+            a.position = seek < 0 ? failures.startOffset(a.partition) : seek;
+            failures.commit(group, a.partition, a.position);
+            System.out.println("DEBUG >>> Ingest: partition " + a.partition + " replays from " + a.position);
+        }
+
+        FailureLog.Batch batch = failures.read(a.partition, a.position, batchSize);
+        if (batch.getRecords().isEmpty()) {
+            if (batch.getNextOffset() != a.position) {
+                a.position = batch.getNextOffset();   // skipped damage
+                failures.commit(group, a.partition, a.position);
+            }
+            return false;
+        }
+
+        List<FailureLog.Record> records = batch.getRecords();
+        List<CompletableFuture<Boolean>> pending = new ArrayList<>(records.size());
+        long replayUntil = a.replayUntil;
+        long recorded = recordedUntil.getOrDefault(a.partition, -1L);
+        for (FailureLog.Record record : records) {
+            consumed.increment();
+            boolean firstDelivery = record.getOffset() >= Math.max(replayUntil, recorded);
+            if (record.getKey().startsWith(OUTCOME_KEY_PREFIX)) {
+                pending.add(CompletableFuture.completedFuture(recordOutcome(record, firstDelivery)));
+                continue;
+            }
+            FailureEventPayload payload;
+            try {
+                payload = mapper.readValue(record.getValue(), FailureEventPayload.class);
+            } catch (Exception e) {
+                pending.add(CompletableFuture.completedFuture(deadLetter(record, e)));
+                continue;
+            }
+            // here, not in the analysis: in log order with the outcomes around it
+            FlakinessScore flakiness = firstDelivery ? recordFail(payload) : null;
+            inFlight.acquire();
+            CompletableFuture<Boolean> f = CompletableFuture.supplyAsync(
+                    () -> analyse(record, payload, flakiness, replayUntil, recorded), analysers);
+            f.whenComplete((v, err) -> inFlight.release());
+            pending.add(f);
+        }
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).join();
+        recordedUntil.merge(a.partition, batch.getNextOffset(), Math::max);
+        if (aborted) {
+            return true;   // interrupted answers; the next owner analyses the batch again
+        }
+
+        // commit only up to the first record whose result is not in the results log
+        int written = 0;
+        while (written < records.size() && pending.get(written).join()) {
+            written++;
+        }
+        a.position = written == records.size() ? batch.getNextOffset() : records.get(written).getOffset();
+        failures.commit(group, a.partition, a.position);
+        if (written < records.size()) {
+            throw new IOException("result of p-" + a.partition + "@" + a.position
+                    + " not written; the partition resumes there");
+        }
+        batches.increment();
+
+        long now = System.currentTimeMillis();
+        if (now - a.lastRetentionCheck > 60_000) {
+            a.lastRetentionCheck = now;
+            segmentsDeleted.add(failures.deleteBefore(a.partition, a.position, retentionMillis));
+            segmentsDeleted.add(results.deleteBefore(a.partition, results.endOffset(a.partition), retentionMillis));
+        }
+        return true;
+    }
+
+    /**
+     * Analyses one record and appends its result; false when the result (or
+     * the dead letter) could not be written, or a replayed record got no
+     * real LLM answer, so the offset must not move past this record. Records before replayUntil are re-scored, records
+     * before recordedUntil were analysed (and counted) by this process
+     * already; others come with the score their FAIL outcome returned.
+     */
+    private boolean analyse(FailureLog.Record record, FailureEventPayload payload, FlakinessScore flakiness,
+                            long replayUntil, long recordedUntil) {
+        byte[] result;
+        try {
+            long start = System.nanoTime();
+            FailureAnalysisResponse response;
+            if (record.getOffset() < replayUntil) {
+                response = failureAnalysisService.rescore(payload);
+            } else if (record.getOffset() < recordedUntil) {
+                response = failureAnalysisService.analyzeRedelivered(payload);
+            } else {
+                response = failureAnalysisService.analyzeFailure(payload, flakiness, true);
+            }
+            analysisTime.recordNanos(System.nanoTime() - start);
+            result = mapper.writeValueAsBytes(response);
+        } catch (FailureAnalysisService.RescoreUnavailable e) {
+            // a replay without a real answer: keep the old result, retry from here
+            errors.increment();
+            System.out.println("DEBUG >>> Ingest: re-score of " + record.getKey() + " unavailable: " + e.getMessage());
+            return false;
+        } catch (Exception e) {
+            // an analysis that failed: delivering it again would fail again
+            return deadLetter(record, e);
+        }
+        try {
+            results.append(record.getPartition(), record.getKey(), result);
+        } catch (IOException e) {
+            errors.increment();
+            System.out.println("DEBUG >>> Ingest: could not write result for " + record.getKey() + ": " + e.getMessage());
+            return false;
+        }
+        analysed.increment();
+        endToEnd.recordNanos(TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - record.getTimestamp())));
+        return true;
+    }
+
+    /**
+     * Records a pass/skip outcome record in the flakiness history (once:
+     * not when it is delivered again or replayed); false when it could not
+     * be read and not be dead-lettered either.
+     */
+    private boolean recordOutcome(FailureLog.Record record, boolean firstDelivery) {
+        TestOutcomeEvent event;
+        try {
+            event = mapper.readValue(record.getValue(), TestOutcomeEvent.class);
+        } catch (Exception e) {
+            return deadLetter(record, e);
+        }
+        if (firstDelivery && event.getOutcome() != null) {
+            flakinessTracker.record(event.getFeature(), event.getTestName(), event.getOutcome());
+            outcomes.increment();
+        }
+        return true;
+    }
+
+    /**
+     * The FAIL outcome every failure also is; null (no history) when it cannot be recorded.
+     */
+    private FlakinessScore recordFail(FailureEventPayload payload) {
+        try {
+            return flakinessTracker.record(payload.getFeature(), payload.getTestName(), TestOutcome.FAIL);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    /**
+     * Moves a record that cannot be analysed to the dead-letter log (same
+     * partition and key, original bytes) so the partition can go on.
+     */
+    private boolean deadLetter(FailureLog.Record record, Exception cause) {
+        deadLettered.increment();
+        System.out.println("DEBUG >>> Ingest: dead-lettering p-" + record.getPartition()
+                + "@" + record.getOffset() + " (" + record.getKey() + "): " + cause);
+        try {
+            deadLetters.append(record.getPartition(), record.getKey(), record.getValue());
+            return true;
+        } catch (IOException e) {
+            errors.increment();
+            System.out.println("DEBUG >>> Ingest: could not dead-letter " + record.getKey() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
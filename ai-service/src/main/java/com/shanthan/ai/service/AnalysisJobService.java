@@ -0,0 +1,307 @@
+package com.shanthan.ai.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.shanthan.ai.model.AnalysisJob;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.JobStatus;
+import jakarta.annotation.PreDestroy;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.Dns;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Asynchronous analyses: submit() returns a job immediately, a small pool
+ * runs FailureAnalysisService (which still goes through the LLM bulkhead and
+ * scheduler), and the result is kept for polling and optionally POSTed to a
+ * callback URL.
+ *
+ * - Jobs live in a bounded Caffeine store (jobs.maxJobs); finished jobs
+ *   expire jobs.ttl after completion, queued and running ones never do
+ * - At most jobs.maxPending jobs wait for a worker; beyond that submit()
+ *   throws RejectedExecutionException and the controller answers 503
+ * - Callbacks are retried jobs.callbackAttempts times with exponential backoff
+ * - Callback URLs must use one of jobs.callbackSchemes and, when
+ *   jobs.callbackHosts is set, name one of those hosts ("*.example.com"
+ *   matches subdomains). Unless jobs.callbackAllowPrivate, a host resolving
+ *   to a loopback, link-local, private (site-local), wildcard or multicast
+ *   address is refused, both at submit and when connecting (a custom Dns,
+ *   so re-resolving to an internal address does not get through), and
+ *   redirects are not followed
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final FailureAnalysisService failureAnalysisService;
+    private final Cache<String, AnalysisJob> jobs;
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService callbackRetries;
+    private final OkHttpClient callbackClient;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final int callbackAttempts;
+    private final List<String> callbackSchemes;
+    private final List<String> callbackHosts;
+    private final boolean callbackAllowPrivate;
+
+    public AnalysisJobService(FailureAnalysisService failureAnalysisService,
+                              @Value("${jobs.workers:32}") int workerCount,
+                              @Value("${jobs.maxPending:10000}") int maxPending,
+                              @Value("${jobs.maxJobs:100000}") long maxJobs,
+                              @Value("${jobs.ttl:PT1H}") Duration ttl,
+                              @Value("${jobs.callbackTimeout:PT5S}") Duration callbackTimeout,
+                              @Value("${jobs.callbackAttempts:3}") int callbackAttempts,
+                              @Value("${jobs.callbackSchemes:https,http}") List<String> callbackSchemes,
+                              @Value("${jobs.callbackHosts:}") List<String> callbackHosts,
+                              @Value("${jobs.callbackAllowPrivate:false}") boolean callbackAllowPrivate) {
+        this.failureAnalysisService = failureAnalysisService;
+        this.callbackAttempts = callbackAttempts;
+        this.callbackSchemes = normalised(callbackSchemes);
+        this.callbackHosts = normalised(callbackHosts);
+        this.callbackAllowPrivate = callbackAllowPrivate;
+        long ttlNanos = ttl.toNanos();
+        this.jobs = Caffeine.newBuilder()
+                .maximumSize(maxJobs)
+                .expireAfter(new Expiry<String, AnalysisJob>() {
+                    @Override
+                    public long expireAfterCreate(String id, AnalysisJob job, long now) {
+                        return job.isFinished() ? ttlNanos : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, AnalysisJob job, long now, long current) {
+                        return job.isFinished() ? ttlNanos : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, AnalysisJob job, long now, long current) {
+                        return current;
+                    }
+                })
+                .build();
+
+        AtomicInteger n = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(maxPending),
+                r -> {
+                    Thread t = new Thread(r, "analysis-job-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.callbackRetries = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "job-callback-retry");
+            t.setDaemon(true);
+            return t;
+        });
+        this.callbackClient = new OkHttpClient.Builder()
+                .connectTimeout(callbackTimeout)
+                .callTimeout(callbackTimeout)
+                .dns(this::resolveCallbackHost)
+                .followRedirects(false)
+                .followSslRedirects(false)
+                .build();
+    }
+
+    /**
+     * Queues the analysis and returns the job (status QUEUED).
+     *
+     * @throws IllegalArgumentException if callbackUrl is not an allowed URL (see the class comment)
+     * @throws java.util.concurrent.RejectedExecutionException if too many jobs are pending
+     */
+    public AnalysisJob submit(FailureEventPayload request, String callbackUrl) {
+        if (callbackUrl != null && !callbackUrl.isBlank()) {
+            checkCallbackUrl(callbackUrl);
+        }
+
+        AnalysisJob job = new AnalysisJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setTestName(request.getTestName());
+        job.setStatus(JobStatus.QUEUED);
+        job.setSubmittedAt(System.currentTimeMillis());
+        if (callbackUrl != null && !callbackUrl.isBlank()) {
+            job.setCallbackUrl(callbackUrl);
+            job.setCallbackStatus("PENDING");
+        }
+
+        jobs.put(job.getJobId(), job);
+        try {
+            workers.execute(() -> run(job, request));
+        } catch (RuntimeException e) {
+            jobs.invalidate(job.getJobId());
+            throw e;
+        }
+        return job;
+    }
+
+    /**
+     * The job, or null if it is unknown or has expired.
+     */
+    public AnalysisJob get(String jobId) {
+        return jobs.getIfPresent(jobId);
+    }
+
+    public int pending() {
+        return workers.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdownNow();
+        callbackRetries.shutdownNow();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private void run(AnalysisJob job, FailureEventPayload request) {
+        // status is written last: a poller that sees it also sees what it stands for
+        job.setStartedAt(System.currentTimeMillis());
+        job.setStatus(JobStatus.RUNNING);
+        JobStatus status;
+        try {
+            job.setResult(failureAnalysisService.analyzeFailure(request));
+            status = JobStatus.DONE;
+        } catch (Exception e) {
+            job.setError(e.getMessage());
+            status = JobStatus.FAILED;
+        }
+        job.setCompletedAt(System.currentTimeMillis());
+        job.setStatus(status);
+        jobs.put(job.getJobId(), job); // finished: expires jobs.ttl from now
+
+        if (job.getCallbackUrl() != null) {
+            deliver(job, 1);
+        }
+    }
+
+    private void deliver(AnalysisJob job, int attempt) {
+        byte[] body;
+        try {
+            body = mapper.writeValueAsBytes(job);
+        } catch (IOException e) {
+            job.setCallbackStatus("FAILED");
+            return;
+        }
+
+        Request request = new Request.Builder()
+                .url(job.getCallbackUrl())
+                .header("X-Triage-Job-Id", job.getJobId())
+                .post(RequestBody.create(body, JSON))
+                .build();
+
+        callbackClient.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    if (response.isSuccessful()) {
+                        job.setCallbackStatus("DELIVERED");
+                    } else {
+                        retry(job, attempt, "HTTP " + response.code());
+                    }
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                retry(job, attempt, e.getMessage());
+            }
+        });
+    }
+
+    private void checkCallbackUrl(String callbackUrl) {
+        HttpUrl url = HttpUrl.parse(callbackUrl);
+        if (url == null) {
+            throw new IllegalArgumentException("callbackUrl must be an http(s) URL: " + callbackUrl);
+        }
+        if (!callbackSchemes.contains(url.scheme())) {
+            throw new IllegalArgumentException("callbackUrl scheme must be one of " + callbackSchemes + ": " + callbackUrl);
+        }
+        if (!callbackHosts.isEmpty() && !isAllowedHost(url.host())) {
+            throw new IllegalArgumentException("callbackUrl host is not in jobs.callbackHosts: " + url.host());
+        }
+        try {
+            resolveCallbackHost(url.host());
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("callbackUrl host refused: " + e.getMessage());
+        }
+    }
+
+    private boolean isAllowedHost(String host) {
+        for (String allowed : callbackHosts) {
+            if (allowed.startsWith("*.") ? host.endsWith(allowed.substring(1)) : host.equals(allowed)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Dns for the callback client: the host's addresses, or UnknownHostException
+     * when one of them is internal (and those are not allowed).
+     */
+    private List<InetAddress> resolveCallbackHost(String host) throws UnknownHostException {
+        List<InetAddress> addresses = Dns.SYSTEM.lookup(host);
+        if (!callbackAllowPrivate) {
+            for (InetAddress a : addresses) {
+                if (a.isLoopbackAddress() || a.isLinkLocalAddress() || a.isSiteLocalAddress()
+                        || a.isAnyLocalAddress() || a.isMulticastAddress() || isUniqueLocal(a)) {
+                    throw new UnknownHostException(host + " resolves to internal address " + a.getHostAddress());
+                }
+            }
+        }
+        return addresses;
+    }
+
+    /**
+     * IPv6 unique local (fc00::/7), which isSiteLocalAddress() does not cover.
+     */
+    private static boolean isUniqueLocal(InetAddress a) {
+        byte[] b = a.getAddress();
+        return b.length == 16 && (b[0] & 0xfe) == 0xfc;
+    }
+
+    private static List<String> normalised(List<String> values) {
+        return values.stream()
+                .map(v -> v.trim().toLowerCase(Locale.ROOT))
+                .filter(v -> !v.isEmpty())
+                .toList();
+    }
+
+    private void retry(AnalysisJob job, int attempt, String reason) {
+        if (attempt >= callbackAttempts) {
+            System.out.println("DEBUG >>> Job callback gave up for " + job.getJobId() + ": " + reason);
+            job.setCallbackStatus("FAILED");
+            return;
+        }
+        long delayMs = 1000L << (attempt - 1);
+        System.out.println("DEBUG >>> Job callback attempt " + attempt + " failed for " + job.getJobId()
+                + " (" + reason + "), retrying in " + delayMs + " ms");
+        callbackRetries.schedule(() -> deliver(job, attempt + 1), delayMs, TimeUnit.MILLISECONDS);
+    }
+}
@@ -1,61 +1,335 @@
 package com.shanthan.ai.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.cache.FailureEmbedder;
+import com.shanthan.ai.cache.SemanticTriageCache;
+import com.shanthan.ai.cache.TieredTriageCache;
+import com.shanthan.ai.classifier.LocalTriageClassifier;
+import com.shanthan.ai.client.LlmBulkhead;
+import com.shanthan.ai.client.LlmCompletion;
 import com.shanthan.ai.client.OpenAiClient;
+import com.shanthan.ai.locator.LocatorRepairEngine;
 import com.shanthan.ai.model.FailureAnalysisResponse;
 import com.shanthan.ai.model.FailureEventPayload;
 import com.shanthan.ai.model.FailureType;
+import com.shanthan.ai.model.FlakinessScore;
+import com.shanthan.ai.model.LocatorSuggestion;
+import com.shanthan.ai.model.TestOutcome;
+import com.shanthan.ai.trace.StackTraceScanner;
+import com.shanthan.ai.trace.TraceHash;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.springframework.stereotype.Service;
 
 @Service
 public class FailureAnalysisService {
 
+    private static final long NO_SUCH_ELEMENT = TraceHash.nameHash("NoSuchElementException");
+    private static final int RESCORE_PRIORITY = 0;   // re-triage waits behind live failures
+
     private final OpenAiClient openAiClient;
+    private final TriageResultStore resultStore;
+    private final FlakinessTracker flakinessTracker;
+    private final TieredTriageCache triageCache;
+    private final SemanticTriageCache semanticCache;
+    private final LocatorRepairEngine locatorRepair;
+    private final LlmBulkhead llmBulkhead;
+    private final TriagePriorityPolicy priorityPolicy;
+    private final ShadowEvaluator shadowEvaluator;
+    private final TenantQuotas tenantQuotas;
+    private final LocalTriageClassifier classifier;
+    private final LlmResponseParser responseParser;
     private final ObjectMapper mapper = new ObjectMapper();
 
-    public FailureAnalysisService(SimilarityStore similarityStore, OpenAiClient openAiClient) {
+    /**
+     * Thrown by rescore() when no real LLM answer came back (shed, stubbed
+     * or unreadable); the caller should retry the item later instead of
+     * storing a rule-based stand-in as its answer.
+     */
+    public static class RescoreUnavailable extends RuntimeException {
+        public RescoreUnavailable(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    public FailureAnalysisService(SimilarityStore similarityStore,
+                                  OpenAiClient openAiClient,
+                                  TriageResultStore resultStore,
+                                  FlakinessTracker flakinessTracker,
+                                  TieredTriageCache triageCache,
+                                  SemanticTriageCache semanticCache,
+                                  LocatorRepairEngine locatorRepair,
+                                  LlmBulkhead llmBulkhead,
+                                  TriagePriorityPolicy priorityPolicy,
+                                  ShadowEvaluator shadowEvaluator,
+                                  TenantQuotas tenantQuotas,
+                                  LocalTriageClassifier classifier,
+                                  LlmResponseParser responseParser) {
         this.openAiClient = openAiClient;
+        this.resultStore = resultStore;
+        this.flakinessTracker = flakinessTracker;
+        this.triageCache = triageCache;
+        this.semanticCache = semanticCache;
+        this.locatorRepair = locatorRepair;
+        this.llmBulkhead = llmBulkhead;
+        this.priorityPolicy = priorityPolicy;
+        this.shadowEvaluator = shadowEvaluator;
+        this.tenantQuotas = tenantQuotas;
+        this.classifier = classifier;
+        this.responseParser = responseParser;
     }
 
     public FailureAnalysisResponse analyzeFailure(FailureEventPayload request) {
+        // Every failure is also a FAIL outcome in the test's pass/fail history
+        FlakinessScore flakiness;
+        try {
+            flakiness = flakinessTracker.record(request.getFeature(), request.getTestName(), TestOutcome.FAIL);
+        } catch (Exception e) {
+            flakiness = null;
+        }
+        return analyzeFailure(request, flakiness, true);
+    }
+
+    /**
+     * analyzeFailure for a failure this service has already analysed once,
+     * e.g. a queue record delivered again because its offset was not
+     * committed: same answer path, but neither the FAIL outcome nor the
+     * analytics row is recorded a second time.
+     */
+    public FailureAnalysisResponse analyzeRedelivered(FailureEventPayload request) {
+        FlakinessScore flakiness;
+        try {
+            flakiness = flakinessTracker.lookup(request.getFeature(), request.getTestName());
+        } catch (Exception e) {
+            flakiness = null;
+        }
+        return analyzeFailure(request, flakiness, false);
+    }
+
+    /**
+     * analyzeFailure for a failure whose FAIL outcome the caller has already
+     * recorded (flakiness is the score that returned), or must not record
+     * again, e.g. a queue record delivered a second time (pass the lookup()
+     * score). The result goes to the analytics store only when recordResult.
+     */
+    public FailureAnalysisResponse analyzeFailure(FailureEventPayload request, FlakinessScore flakiness,
+                                                  boolean recordResult) {
 
         try {
-            String systemPrompt = buildSystemPrompt();
-            String userPrompt = buildUserPrompt(request);
+            // Known-flaky tests are classified locally, no LLM call needed
+            if (flakinessTracker.isFlaky(flakiness)) {
+                System.out.println("DEBUG >>> Flaky test detected, skipping LLM: " + flakiness.getTestId()
+                        + " score=" + flakiness.getScore());
+                return recorded(request, flakyResponse(flakiness), recordResult);
+            }
 
-            String llmRaw = openAiClient.generateAnalysis(systemPrompt, userPrompt);
+            // Locator failures with a close match in the captured DOM are answered locally
+            List<LocatorSuggestion> suggestions = locatorRepair.suggest(request);
+            if (locatorRepair.isConfident(suggestions)) {
+                return recorded(request, locatorRepairResponse(request, suggestions), recordResult);
+            }
 
-            System.out.println("DEBUG >>> LLM raw response: " + llmRaw);
-            FailureAnalysisResponse response;
+            // Same failure already triaged here or on another replica?
+            String fingerprint = FailureFingerprint.of(request);
+            FailureAnalysisResponse cached = triageCache.get(fingerprint);
+            if (cached != null) {
+                System.out.println("DEBUG >>> Triage cache hit: " + fingerprint);
+                // Suggestions depend on the DOM of this run, never on the cached entry
+                cached.setLocatorSuggestions(suggestions.isEmpty() ? null : suggestions);
+                return recorded(request, cached, recordResult);
+            }
 
-            try {
-                response = mapper.readValue(llmRaw, FailureAnalysisResponse.class);
-            } catch (Exception ex) {
-                response = fallbackResponse(
-                        "AI response could not be parsed. This is a fallback triage.",
-                        "Review the failure manually and check AI service logs.");
+            // Near-duplicate of a recent analysis of the same test (different ids, wording, line numbers)?
+            String scope = SemanticTriageCache.scopeOf(request);
+            float[] embedding = semanticCache.isEnabled() ? FailureEmbedder.embed(request) : null;
+            SemanticTriageCache.Match nearDuplicate = embedding == null ? null : semanticCache.lookup(scope, embedding);
+            if (nearDuplicate != null && !nearDuplicate.isVerify()) {
+                FailureAnalysisResponse reused = nearDuplicate.reuse();
+                System.out.println("DEBUG >>> Semantic cache hit: " + fingerprint + " ~ " + nearDuplicate.getSourceId()
+                        + " (" + reused.getReuseSimilarity() + ")");
+                reused.setLocatorSuggestions(suggestions.isEmpty() ? null : suggestions);
+                return recorded(request, reused, recordResult);
             }
-            // Ensure non-null similarFailures
-            if (response.getSimilarFailures() == null) {
-                response.setSimilarFailures(new ArrayList<>());
+
+            // Local classifier as first tier: confident predictions skip the LLM (never cached)
+            float[] features = embedding != null || !classifier.isFallback() ? embedding : FailureEmbedder.embed(request);
+            if (classifier.isFirstTier()) {
+                LocalTriageClassifier.Prediction local = classifier.classify(request, features);
+                if (classifier.answersFirst(local)) {
+                    FailureAnalysisResponse response = classifier.respond(request, local, true, null);
+                    applyRuleOverrides(request, response);
+                    response.setLocatorSuggestions(suggestions.isEmpty() ? null : suggestions);
+                    return recorded(request, response, recordResult);
+                }
             }
 
-            // Apply simple rule-based overrides (optional but nice)
-            applyRuleOverrides(request, response);
+            // Tenant over its LLM budget for this window: answer from the sampled
+            // near-duplicate if there is one, else from rules only
+            String tenant = tenantQuotas.tenantOf(request);
+            if (!tenantQuotas.admit(tenant)) {
+                System.out.println("DEBUG >>> Tenant over LLM quota, degrading: " + tenant);
+                FailureAnalysisResponse response = nearDuplicate != null
+                        ? nearDuplicate.reuse()
+                        : quotaResponse(request, features, tenant);
+                response.setLocatorSuggestions(suggestions.isEmpty() ? null : suggestions);
+                return recorded(request, response, recordResult);
+            }
 
-            // Optionally seed similarity examples by type
-            seedSimilarityIfEmpty(request, response);
+            // LLM calls run in their own bounded pool, fair-queued per tenant and ordered by priority;
+            // when it is saturated we answer from rules only
+            int priority = priorityPolicy.priorityOf(request, fingerprint);
+            LlmAnswer answer;
+            try {
+                answer = askLlm(request, flakiness, fingerprint, tenant, priority, features);
+            } catch (LlmBulkhead.Rejected shed) {
+                System.out.println("DEBUG >>> LLM call shed: " + shed.getMessage());
+                FailureAnalysisResponse response = shedResponse(request, features, shed.getMessage());
+                response.setLocatorSuggestions(suggestions.isEmpty() ? null : suggestions);
+                return recorded(request, response, recordResult);
+            }
 
-            return response;
+            FailureAnalysisResponse response = answer.response();
+            if (answer.cacheable()) {
+                classifier.learn(request, features, response);
+                triageCache.put(fingerprint, response);
+                if (embedding != null) {
+                    semanticCache.put(fingerprint, scope, embedding, response);
+                }
+                if (nearDuplicate != null) {
+                    // sampled hit: compare what we would have reused with the fresh answer
+                    semanticCache.verify(nearDuplicate, response);
+                }
+            }
+            if (!suggestions.isEmpty()) {
+                response.setLocatorSuggestions(suggestions);
+            }
+            return recorded(request, response, recordResult);
 
         } catch (Exception e) {
             System.out.println("DEBUG >>> FailureAnalysisService.analyze error: " + e.getMessage());
-            return fallbackResponse(
+            FailureAnalysisResponse response = fallbackResponse(
                     "AI triage failed due to an exception in the analysis service.",
                     "Review logs and validate the AI pipeline configuration.");
+            return recorded(request, response, recordResult);
+        }
+    }
+
+    /**
+     * Re-scores a failure with the current prompt and model, e.g. batch
+     * re-triage after a prompt change or a queue replay: always asks the LLM
+     * (through the bulkhead, behind live traffic), skipping the caches, the
+     * flaky / locator / classifier short-circuits and the tenant quota check.
+     * Nothing is recorded: no FAIL outcome, no analytics row, no cache or
+     * classifier update. The call and its tokens are still charged to the
+     * tenant, and a configured shadow candidate still sees the call.
+     *
+     * @throws RescoreUnavailable when the call was shed or the answer was
+     *         stubbed or unreadable; nothing is returned for it
+     */
+    public FailureAnalysisResponse rescore(FailureEventPayload request) {
+        String fingerprint = FailureFingerprint.of(request);
+        float[] features = classifier.isFallback() ? FailureEmbedder.embed(request) : null;
+        String tenant = tenantQuotas.tenantOf(request);
+        FlakinessScore flakiness = flakinessTracker.lookup(request.getFeature(), request.getTestName());
+        LlmAnswer answer;
+        try {
+            answer = askLlm(request, flakiness, fingerprint, tenant, RESCORE_PRIORITY, features);
+        } catch (LlmBulkhead.Rejected shed) {
+            System.out.println("DEBUG >>> Re-score shed: " + shed.getMessage());
+            throw new RescoreUnavailable("LLM saturated (" + shed.getMessage() + ")");
+        }
+        if (!answer.cacheable()) {
+            throw new RescoreUnavailable("LLM answer was stubbed or unreadable");
         }
+        return answer.response();
+    }
+
+    /**
+     * Runs the local (non-LLM) steps of analyzeFailure on a sample failure
+     * without recording anything: locator ranking, fingerprint, embedding and
+     * similarity scan, local classifier, prompt building, rule overrides and a
+     * response JSON round trip through the response parser. Used by the
+     * start-up warm-up so the first real request finds these paths loaded and
+     * compiled.
+     */
+    public void warmUp(FailureEventPayload sample) throws IOException {
+        locatorRepair.warmUp(sample);
+        FailureFingerprint.of(sample);
+        if (semanticCache.isEnabled()) {
+            semanticCache.bestSimilarity(FailureEmbedder.embed(sample));
+        }
+        classifier.warmUp(sample);
+        buildUserPrompt(sample, flakinessTracker.lookup(sample.getFeature(), sample.getTestName()));
+
+        FailureAnalysisResponse r = fallbackResponse("warm-up", "warm-up");
+        applyRuleOverrides(sample, r);
+        responseParser.parseQuietly(mapper.writeValueAsString(r));
+    }
+
+    /**
+     * The LLM's answer, and whether it is a real one (worth caching).
+     */
+    private record LlmAnswer(FailureAnalysisResponse response, boolean cacheable) {
+    }
+
+    /**
+     * One LLM call through the bulkhead, parsed and post-processed; stubbed or
+     * unreadable answers become local / fallback responses (not cacheable).
+     */
+    private LlmAnswer askLlm(FailureEventPayload request, FlakinessScore flakiness, String fingerprint,
+                             String tenant, int priority, float[] features) throws LlmBulkhead.Rejected {
+        String systemPrompt = buildSystemPrompt();
+        String userPrompt = buildUserPrompt(request, flakiness);
+
+        LlmCompletion completion = llmBulkhead.execute(() -> openAiClient.complete(systemPrompt, userPrompt),
+                tenant, priority);
+        tenantQuotas.record(tenant, completion);
+
+        String llmRaw = completion.getContent();
+        System.out.println("DEBUG >>> LLM raw response: " + llmRaw);
+        if (completion.isStubbed() && classifier.isFallback()) {
+            // no key / quota / upstream error: the local model beats the UNKNOWN stub
+            return new LlmAnswer(localResponse(request, features, "LLM unavailable"), false);
+        }
+        FailureAnalysisResponse response;
+        boolean cacheable = false;
+
+        try {
+            response = responseParser.parse(llmRaw, request.getTestType());
+            // The client's stubbed answers (no key, quota, upstream error) are UNKNOWN / 0.0
+            cacheable = !(response.getFailureType() == FailureType.UNKNOWN && response.getAiConfidence() == 0.0);
+            shadowEvaluator.observe(fingerprint, systemPrompt, userPrompt, completion, response);
+        } catch (Exception ex) {
+            shadowEvaluator.observe(fingerprint, systemPrompt, userPrompt, completion, null);
+            response = classifier.isFallback()
+                    ? localResponse(request, features, "LLM response could not be parsed")
+                    : fallbackResponse(
+                            "AI response could not be parsed. This is a fallback triage.",
+                            "Review the failure manually and check AI service logs.");
+        }
+        // Ensure non-null similarFailures
+        if (response.getSimilarFailures() == null) {
+            response.setSimilarFailures(new ArrayList<>());
+        }
+
+        // Apply simple rule-based overrides (optional but nice)
+        applyRuleOverrides(request, response);
+
+        // Optionally seed similarity examples by type
+        seedSimilarityIfEmpty(request, response);
+
+        response.setLocatorSuggestions(null);
+        return new LlmAnswer(response, cacheable);
+    }
+
+    private FailureAnalysisResponse recorded(FailureEventPayload request, FailureAnalysisResponse response,
+                                             boolean recordResult) {
+        if (recordResult) {
+            resultStore.record(request, response);
+        }
+        return response;
     }
 
     @NotNull
@@ -68,6 +342,10 @@ public class FailureAnalysisService {
             - failureMessage and stackTrace
             - For UI tests: Selenium-style exceptions and locators (id/xpath/css)
             - For API tests: httpMethod, endpoint, statusCode, requestBody, responseBody
+            - For UI tests (when captured): pageUrl and domSnapshot, the interactive elements of
+              the page at failure time, most relevant to the failing locator first
+            - flakinessHistory: pass/fail history of this test; a score >= 0.5 means it
+              frequently flips between pass and fail and is likely a FLAKY_TEST
             
             Your job:
             1. Classify the failure into a concrete failureType.
@@ -142,7 +420,7 @@ public class FailureAnalysisService {
         return s.substring(0, maxLen) + "... [truncated]";
     }
 
-    private String buildUserPrompt(FailureEventPayload request){
+    private String buildUserPrompt(FailureEventPayload request, FlakinessScore flakiness){
         return """
             testType: %s
             testName: %s
@@ -165,6 +443,15 @@ public class FailureAnalysisService {
             
             responseBody (may be truncated):
             %s
+            
+            flakinessHistory:
+            %s
+            
+            pageUrl: %s
+            screenshotHash: %s
+            
+            domSnapshot (pruned, may be truncated):
+            %s
             """.formatted(
                       nullSafe(request.getTestType()),
                 nullSafe(request.getTestName()),
@@ -177,10 +464,95 @@ public class FailureAnalysisService {
                 nullSafe(request.getEndpoint()),
                 request.getStatusCode() == null ? "" : request.getStatusCode().toString(),
                 snippet(request.getRequestBody(), 2000),
-                snippet(request.getResponseBody(), 2000)
+                snippet(request.getResponseBody(), 2000),
+                describeFlakiness(flakiness),
+                nullSafe(request.getPageUrl()),
+                nullSafe(request.getScreenshotHash()),
+                snippet(request.getDomSnapshot(), 4000)
         );
     }
 
+    private String describeFlakiness(FlakinessScore flakiness) {
+        if (flakiness == null || flakiness.getSamples() < 2) {
+            return "no history";
+        }
+        return "score=%.2f (last %d runs: %d failures, %d pass/fail flips)".formatted(
+                flakiness.getScore(), flakiness.getSamples(),
+                flakiness.getFailures(), flakiness.getFlips());
+    }
+
+    private FailureAnalysisResponse flakyResponse(FlakinessScore flakiness) {
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        r.setFailureType(FailureType.FLAKY_TEST);
+        r.setRootCauseSummary(("Test alternates between pass and fail (%d failures and %d flips "
+                + "in the last %d runs), which points to flakiness rather than a new defect.")
+                .formatted(flakiness.getFailures(), flakiness.getFlips(), flakiness.getSamples()));
+        r.setRecommendedNextSteps("1. Check for missing waits or shared test data. "
+                + "2. Quarantine the test until it is stabilised. "
+                + "3. Compare failing runs for environment differences.");
+        r.setSeverityScore(2);
+        r.setJiraSummaryTemplate("Stabilise flaky test " + flakiness.getTestId());
+        r.setSimilarFailures(new ArrayList<>());
+        r.setAiConfidence(Math.min(1.0, flakiness.getScore()));
+        r.setRuleBasedOverrideApplied(true);
+        return r;
+    }
+
+    private FailureAnalysisResponse locatorRepairResponse(FailureEventPayload request,
+                                                          List<LocatorSuggestion> suggestions) {
+        LocatorSuggestion best = suggestions.get(0);
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        r.setFailureType(FailureType.LOCATOR_ISSUE);
+        r.setRootCauseSummary(("The locator matched no element on the page. The closest element in the "
+                + "captured DOM is %s (similarity %.2f), so the locator is most likely stale or wrong.")
+                .formatted(best.getElement(), best.getScore()));
+        r.setRecommendedNextSteps(("1. Replace the locator with %s. "
+                + "2. Prefer stable attributes (id, name, data-testid) over layout-dependent selectors. "
+                + "3. Re-run the test.").formatted(best.getBy()));
+        r.setSeverityScore(2);
+        r.setJiraSummaryTemplate("[" + nullSafe(request.getFeature()) + "] Fix stale locator in "
+                + nullSafe(request.getTestName()) + " (suggested: " + best.getSelector() + ")");
+        r.setSimilarFailures(new ArrayList<>());
+        r.setAiConfidence(best.getScore());
+        r.setRuleBasedOverrideApplied(true);
+        r.setLocatorSuggestions(suggestions);
+        return r;
+    }
+
+    /**
+     * Fast answer when the LLM bulkhead sheds the call: local classifier or rules only, never cached.
+     */
+    private FailureAnalysisResponse shedResponse(FailureEventPayload request, float[] features, String reason) {
+        if (classifier.isFallback()) {
+            return localResponse(request, features, "LLM saturated (" + reason + ")");
+        }
+        FailureAnalysisResponse r = fallbackResponse(
+                "AI triage skipped because the LLM is saturated (" + reason + "). Rule-based classification only.",
+                "Review the failure manually, or re-submit it once the AI service is less busy.");
+        applyRuleOverrides(request, r);
+        return r;
+    }
+
+    /**
+     * Answer for a tenant over its LLM budget: local classifier or rules only, never cached.
+     */
+    private FailureAnalysisResponse quotaResponse(FailureEventPayload request, float[] features, String tenant) {
+        if (classifier.isFallback()) {
+            return localResponse(request, features, "tenant '" + tenant + "' is over its LLM quota");
+        }
+        FailureAnalysisResponse r = fallbackResponse(
+                "AI triage skipped because tenant '" + tenant + "' is over its LLM quota. Rule-based classification only.",
+                "Review the failure manually, or raise tenant.budget for this tenant.");
+        applyRuleOverrides(request, r);
+        return r;
+    }
+
+    private FailureAnalysisResponse localResponse(FailureEventPayload request, float[] features, String reason) {
+        FailureAnalysisResponse r = classifier.respond(request, classifier.classify(request, features), false, reason);
+        applyRuleOverrides(request, r);
+        return r;
+    }
+
     private FailureAnalysisResponse fallbackResponse(String rootCause,
                                                      String nextSteps) {
         FailureAnalysisResponse r = new FailureAnalysisResponse();
@@ -199,13 +571,13 @@ public class FailureAnalysisService {
      * You already saw this for locator issues; you can expand later.
      */
     private void applyRuleOverrides(FailureEventPayload request, FailureAnalysisResponse response) {
-        String stack = nullSafe(request.getStackTrace());
         String msg = nullSafe(request.getFailureMessage());
         String type = nullSafe(request.getTestType());
 
-        // Example: Selenium NoSuchElement -> LOCATOR_ISSUE
+        // Example: Selenium NoSuchElement (anywhere in the cause chain) -> LOCATOR_ISSUE
         if ("UI".equalsIgnoreCase(type) &&
-                (stack.contains("NoSuchElementException") || msg.contains("no such element"))) {
+                (msg.contains("no such element")
+                        || StackTraceScanner.forThread().scan(request.getStackTrace()).hasException(NO_SUCH_ELEMENT))) {
             response.setFailureType(FailureType.LOCATOR_ISSUE);
             response.setRuleBasedOverrideApplied(true);
             response.setAiConfidence(Math.max(response.getAiConfidence(), 0.9));
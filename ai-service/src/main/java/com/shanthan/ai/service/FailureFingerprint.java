@@ -0,0 +1,64 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.trace.Fingerprint128;
+import com.shanthan.ai.trace.StackTraceScanner;
+
+/**
+ * Stable identity of a failure, used as the triage cache key.
+ * Volatile details are normalized away so re-runs of the same failure map to
+ * the same fingerprint:
+ * - digit runs (ids, ports, line numbers, timestamps) become '#'
+ * - the stack trace contributes its trace-core signature (exception classes
+ *   and top frames, see StackTraceScanner), computed here from the text; the
+ *   listener's traceSignature is only used when no text was sent, and a
+ *   mismatch with the text is logged, never trusted
+ * - the query string is dropped from endpoints
+ */
+public final class FailureFingerprint {
+
+    private FailureFingerprint() {
+    }
+
+    public static String of(FailureEventPayload p) {
+        Fingerprint128 fp = new Fingerprint128()
+                .add(p.getTestType())
+                .add(p.getFeature())
+                .add(p.getTestName())
+                .add(p.getHttpMethod())
+                .add(stripQuery(p.getEndpoint()))
+                .add(p.getStatusCode() == null ? null : p.getStatusCode().toString())
+                .addNormalized(p.getFailureMessage());
+
+        String sig = p.getTraceSignature();
+        if (isBlank(p.getStackTrace()) && isSignature(sig)) {
+            fp.add(Long.parseUnsignedLong(sig, 0, 16, 16)).add(Long.parseUnsignedLong(sig, 16, 32, 16));
+        } else {
+            StackTraceScanner scanner = StackTraceScanner.forThread().scan(p.getStackTrace());
+            if (sig != null && !sig.equalsIgnoreCase(scanner.signatureHex())) {
+                System.out.println("DEBUG >>> traceSignature " + sig + " does not match the stack trace of "
+                        + p.getTestName() + ", using " + scanner.signatureHex());
+            }
+            fp.add(scanner.signatureHi()).add(scanner.signatureLo());
+        }
+        return fp.hex();
+    }
+
+    private static boolean isSignature(String sig) {
+        if (sig == null || sig.length() != 32) return false;
+        for (int i = 0; i < 32; i++) {
+            if (Character.digit(sig.charAt(i), 16) < 0) return false;
+        }
+        return true;
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    private static String stripQuery(String endpoint) {
+        if (endpoint == null) return null;
+        int q = endpoint.indexOf('?');
+        return q < 0 ? endpoint : endpoint.substring(0, q);
+    }
+}
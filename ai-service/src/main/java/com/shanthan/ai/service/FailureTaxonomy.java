@@ -0,0 +1,156 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.model.FailureType;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maps the failure-type labels an LLM answers with onto FailureType.
+ *
+ * - One hash table, built at start-up, holds the canonical names and their
+ *   aliases: the system prompt's categories (SERVER_BUG, WAITING_SYNC_ISSUE,
+ *   AUTHENTICATION_AUTHORIZATION, ...), common variants (BACKEND_500, AUTH,
+ *   THROTTLING) and any taxonomy.alias."[LABEL]": TYPE entries
+ * - Lookups normalise without allocating a new key when the label is already
+ *   canonical-looking: upper case, runs of non-alphanumerics become one '_'
+ *   ("Waiting / sync issue" == WAITING_SYNC_ISSUE)
+ * - allowed() says whether a type is valid for a test type (UI or API), per
+ *   the prompt's rules; other test types accept everything
+ */
+@Component
+public class FailureTaxonomy {
+
+    /**
+     * How a label was resolved.
+     */
+    public enum Match { EXACT, ALIAS, UNKNOWN_LABEL }
+
+    private static final Set<FailureType> UI_EXCLUDED = EnumSet.of(
+            FailureType.BACKEND_5XX, FailureType.CLIENT_REQUEST_ISSUE,
+            FailureType.CONTRACT_MISMATCH, FailureType.RATE_LIMITING);
+    private static final Set<FailureType> API_EXCLUDED = EnumSet.of(FailureType.LOCATOR_ISSUE);
+
+    private final Map<String, FailureType> byLabel = new HashMap<>();
+    private final Map<String, Boolean> isAlias = new HashMap<>();
+
+    public FailureTaxonomy(Environment env) {
+        for (FailureType type : FailureType.values()) {
+            put(type.name(), type, false);
+        }
+        // the system prompt's categories
+        alias("WAITING_SYNC_ISSUE", FailureType.TIMEOUT);
+        alias("BROWSER_ENVIRONMENT", FailureType.ENVIRONMENT);
+        alias("ENVIRONMENT_ISSUE", FailureType.ENVIRONMENT);
+        alias("SERVER_BUG", FailureType.BACKEND_5XX);
+        alias("AUTHENTICATION_AUTHORIZATION", FailureType.AUTHENTICATION);
+        alias("RATE_LIMITING_THROTTLING", FailureType.RATE_LIMITING);
+        alias("DATA_DEPENDENCY", FailureType.TEST_DATA_ISSUE);
+        alias("OTHER", FailureType.UNKNOWN);
+        // common variants
+        alias("BACKEND_500", FailureType.BACKEND_5XX);
+        alias("SERVER_ERROR", FailureType.BACKEND_5XX);
+        alias("BACKEND_ERROR", FailureType.BACKEND_5XX);
+        alias("SYNC_ISSUE", FailureType.TIMEOUT);
+        alias("WAIT_ISSUE", FailureType.TIMEOUT);
+        alias("TIMEOUT_ISSUE", FailureType.TIMEOUT);
+        alias("INFRASTRUCTURE", FailureType.ENVIRONMENT);
+        alias("AUTH", FailureType.AUTHENTICATION);
+        alias("AUTHORIZATION", FailureType.AUTHENTICATION);
+        alias("THROTTLING", FailureType.RATE_LIMITING);
+        alias("RATE_LIMIT", FailureType.RATE_LIMITING);
+        alias("TEST_DATA", FailureType.TEST_DATA_ISSUE);
+        alias("DATA_ISSUE", FailureType.TEST_DATA_ISSUE);
+        alias("CLIENT_ERROR", FailureType.CLIENT_REQUEST_ISSUE);
+        alias("CONTRACT_ISSUE", FailureType.CONTRACT_MISMATCH);
+        alias("SCHEMA_MISMATCH", FailureType.CONTRACT_MISMATCH);
+        alias("ASSERTION", FailureType.ASSERTION_FAILURE);
+        alias("ASSERTION_ERROR", FailureType.ASSERTION_FAILURE);
+        alias("LOCATOR", FailureType.LOCATOR_ISSUE);
+        alias("ELEMENT_NOT_FOUND", FailureType.LOCATOR_ISSUE);
+        alias("FLAKY", FailureType.FLAKY_TEST);
+        alias("INTERMITTENT", FailureType.FLAKY_TEST);
+
+        Binder.get(env)
+                .bind("taxonomy.alias", Bindable.mapOf(String.class, FailureType.class))
+                .orElse(Map.of())
+                .forEach(this::alias);
+    }
+
+    /**
+     * The type for a label, or null when the label is unknown.
+     */
+    public FailureType resolve(String label) {
+        return label == null ? null : byLabel.get(normalize(label));
+    }
+
+    /**
+     * Like resolve, but says how the label matched.
+     */
+    public Match match(String label) {
+        if (label == null) return Match.UNKNOWN_LABEL;
+        Boolean alias = isAlias.get(normalize(label));
+        return alias == null ? Match.UNKNOWN_LABEL : alias ? Match.ALIAS : Match.EXACT;
+    }
+
+    public boolean allowed(String testType, FailureType type) {
+        if ("UI".equalsIgnoreCase(testType)) return !UI_EXCLUDED.contains(type);
+        if ("API".equalsIgnoreCase(testType)) return !API_EXCLUDED.contains(type);
+        return true;
+    }
+
+    /**
+     * Number of labels (canonical + aliases) the table knows.
+     */
+    public int size() {
+        return byLabel.size();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private void alias(String label, FailureType type) {
+        put(label, type, true);
+    }
+
+    private void put(String label, FailureType type, boolean alias) {
+        String key = normalize(label);
+        byLabel.put(key, type);
+        isAlias.put(key, alias);
+    }
+
+    /**
+     * Upper case, non-alphanumeric runs collapsed to '_', trimmed; returns
+     * the label itself when it is already in that form.
+     */
+    static String normalize(String label) {
+        int n = label.length();
+        boolean clean = n > 0 && label.charAt(0) != '_' && label.charAt(n - 1) != '_';
+        for (int i = 0; i < n && clean; i++) {
+            char c = label.charAt(i);
+            clean = (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                    || (c == '_' && label.charAt(i - 1) != '_');
+        }
+        if (clean) {
+            return label;
+        }
+        StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            char c = label.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toUpperCase(c));
+            } else if (sb.length() > 0 && sb.charAt(sb.length() - 1) != '_') {
+                sb.append('_');
+            }
+        }
+        int len = sb.length();
+        if (len > 0 && sb.charAt(len - 1) == '_') sb.setLength(len - 1);
+        return sb.toString();
+    }
+}
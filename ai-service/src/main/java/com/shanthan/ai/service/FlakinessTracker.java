@@ -0,0 +1,177 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.model.FlakinessScore;
+import com.shanthan.ai.model.TestOutcome;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps a rolling pass/fail history per test and scores how flaky it is.
+ *
+ * - Each test is keyed by a 64-bit hash of "feature#testName" (no String keys kept)
+ * - History is a 64-bit window: bit 0 is the newest outcome, 1 = FAIL, 0 = PASS
+ * - Storage is a fixed 2-way set-associative table (flakiness.maxTests slots),
+ *   so memory is bounded; on a full set the least recently updated test is evicted
+ * - Every update and score is O(1) (shift + popcount)
+ *
+ * Score = sqrt(flipRate * entropy): a test that always fails scores 0 (it is
+ * broken, not flaky), one that alternates pass/fail scores close to 1.
+ */
+@Component
+public class FlakinessTracker {
+
+    private static final int WINDOW = 64;
+    private static final int LOCK_STRIPES = 64;
+
+    private final long[] keys;
+    private final long[] history;
+    private final byte[] samples;
+    private final int[] skips;
+    private final long[] lastTouched;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final int mask;
+    private final AtomicLong clock = new AtomicLong();
+
+    private final int minSamples;
+    private final double threshold;
+
+    public FlakinessTracker(@Value("${flakiness.maxTests:65536}") int maxTests,
+                            @Value("${flakiness.minSamples:8}") int minSamples,
+                            @Value("${flakiness.threshold:0.5}") double threshold) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxTests - 1)) << 1;
+        this.keys = new long[capacity];
+        this.history = new long[capacity];
+        this.samples = new byte[capacity];
+        this.skips = new int[capacity];
+        this.lastTouched = new long[capacity];
+        this.mask = capacity - 1;
+        this.minSamples = Math.max(2, minSamples);
+        this.threshold = threshold;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    /**
+     * Records one outcome and returns the updated score.
+     */
+    public FlakinessScore record(String feature, String testName, TestOutcome outcome) {
+        String testId = testId(feature, testName);
+        long key = hash64(testId);
+        int set = (int) (key & mask) & ~1;
+
+        synchronized (lockFor(set)) {
+            int slot = findOrClaim(set, key);
+            if (outcome == TestOutcome.SKIP) {
+                skips[slot]++;
+            } else {
+                history[slot] = (history[slot] << 1) | (outcome == TestOutcome.FAIL ? 1L : 0L);
+                if (samples[slot] < WINDOW) {
+                    samples[slot]++;
+                }
+            }
+            lastTouched[slot] = clock.incrementAndGet();
+            return score(testId, slot);
+        }
+    }
+
+    /**
+     * Current score without recording anything; null if the test was never seen.
+     */
+    public FlakinessScore lookup(String feature, String testName) {
+        String testId = testId(feature, testName);
+        long key = hash64(testId);
+        int set = (int) (key & mask) & ~1;
+
+        synchronized (lockFor(set)) {
+            for (int slot = set; slot <= set + 1; slot++) {
+                if (keys[slot] == key && lastTouched[slot] != 0) {
+                    return score(testId, slot);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * True when there is enough history and the score crosses flakiness.threshold.
+     */
+    public boolean isFlaky(FlakinessScore score) {
+        return score != null
+                && score.getSamples() >= minSamples
+                && score.getScore() >= threshold;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * Set indexes are always even, so the stripe comes from the set number
+     * (set / 2); set % LOCK_STRIPES would only ever pick the even stripes.
+     */
+    private Object lockFor(int set) {
+        return locks[(set >>> 1) % LOCK_STRIPES];
+    }
+
+    private int findOrClaim(int set, long key) {
+        int other = set + 1;
+        if (keys[set] == key && lastTouched[set] != 0) return set;
+        if (keys[other] == key && lastTouched[other] != 0) return other;
+
+        // Evict the least recently touched way (an empty slot has lastTouched == 0)
+        int victim = lastTouched[set] <= lastTouched[other] ? set : other;
+        keys[victim] = key;
+        history[victim] = 0L;
+        samples[victim] = 0;
+        skips[victim] = 0;
+        return victim;
+    }
+
+    private FlakinessScore score(String testId, int slot) {
+        int n = samples[slot];
+        long h = history[slot];
+        long windowMask = n == WINDOW ? -1L : (1L << n) - 1;
+
+        int failures = Long.bitCount(h & windowMask);
+        int flips = n < 2 ? 0 : Long.bitCount((h ^ (h >>> 1)) & (windowMask >>> 1));
+
+        double flipRate = n < 2 ? 0.0 : (double) flips / (n - 1);
+        double p = n == 0 ? 0.0 : (double) failures / n;
+        double entropy = (p <= 0.0 || p >= 1.0)
+                ? 0.0
+                : -(p * log2(p) + (1 - p) * log2(1 - p));
+
+        FlakinessScore s = new FlakinessScore();
+        s.setTestId(testId);
+        s.setSamples(n);
+        s.setFailures(failures);
+        s.setFlips(flips);
+        s.setSkips(skips[slot]);
+        s.setFlipRate(flipRate);
+        s.setEntropy(entropy);
+        s.setScore(Math.sqrt(flipRate * entropy));
+        return s;
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+
+    private static String testId(String feature, String testName) {
+        return (feature == null ? "" : feature) + "#" + (testName == null ? "" : testName);
+    }
+
+    /**
+     * FNV-1a 64-bit over the UTF-16 chars.
+     */
+    private static long hash64(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+}
@@ -0,0 +1,315 @@
+package com.shanthan.ai.service;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.client.LatencyHistogram;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureType;
+import com.shanthan.ai.model.SimilarFailure;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Turns the LLM's answer into a FailureAnalysisResponse with a single
+ * streaming pass over the JSON, validating field by field instead of
+ * rejecting the whole answer for one bad value:
+ *
+ * - failureType goes through FailureTaxonomy (aliases, prompt wording);
+ *   an unknown label becomes UNKNOWN but keeps the rest of the analysis;
+ *   a type not valid for the test type (e.g. SERVER_BUG for a UI test) is
+ *   kept with its confidence capped at 0.5
+ * - severityScore accepts numbers and numeric strings, clamped to 1-5
+ * - aiConfidence accepts 0-1, percentages (85) and numeric strings
+ * - recommendedNextSteps may be a list; its items are joined by lines
+ * - text around the JSON object (code fences, a preamble) is skipped
+ * - unknown fields (classifiedFailureType is read as failureType) are ignored
+ *
+ * Only an answer without a readable JSON object is rejected (IOException),
+ * which the caller turns into a fallback response. stats() counts how often
+ * each repair was needed; "reanalysisAvoided" are answers a strict parse
+ * would have rejected, i.e. fallback responses that would not have been
+ * cached and would have been analysed again on the next occurrence.
+ */
+@Component
+public class LlmResponseParser {
+
+    private static final int MAX_LABELS = 100;
+
+    private final FailureTaxonomy taxonomy;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final LongAdder parsed = new LongAdder();
+    private final LongAdder exact = new LongAdder();
+    private final LongAdder aliased = new LongAdder();
+    private final LongAdder unknownLabel = new LongAdder();
+    private final LongAdder crossTestType = new LongAdder();
+    private final LongAdder unwrapped = new LongAdder();
+    private final LongAdder unknownFields = new LongAdder();
+    private final LongAdder unparseable = new LongAdder();
+    private final LongAdder reanalysisAvoided = new LongAdder();
+    private final Map<String, LongAdder> fieldErrors = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> labels = new ConcurrentHashMap<>();
+    private final LatencyHistogram parseTime = new LatencyHistogram();
+
+    public LlmResponseParser(FailureTaxonomy taxonomy) {
+        this.taxonomy = taxonomy;
+    }
+
+    /**
+     * Parses and validates an answer for a failure of the given test type, counting the outcome.
+     *
+     * @throws IOException when the answer holds no readable JSON object
+     */
+    public FailureAnalysisResponse parse(String raw, String testType) throws IOException {
+        long start = System.nanoTime();
+        Outcome outcome = new Outcome();
+        try {
+            FailureAnalysisResponse r = read(raw, testType, outcome);
+            record(outcome);
+            return r;
+        } catch (IOException e) {
+            unparseable.increment();
+            throw e;
+        } finally {
+            parseTime.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Same parse without metrics (shadow evaluation); null when unreadable.
+     */
+    public FailureAnalysisResponse parseQuietly(String raw) {
+        try {
+            return read(raw, null, new Outcome());
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long ok = parsed.sum();
+        long bad = unparseable.sum();
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("taxonomyLabels", taxonomy.size());
+        s.put("parsed", ok);
+        s.put("unparseable", bad);
+        s.put("fallbackRate", ok + bad == 0 ? 0.0 : Math.round(bad * 10000.0 / (ok + bad)) / 10000.0);
+        s.put("exactType", exact.sum());
+        s.put("aliasedType", aliased.sum());
+        s.put("unknownTypeLabel", unknownLabel.sum());
+        s.put("crossTestType", crossTestType.sum());
+        s.put("unwrapped", unwrapped.sum());
+        s.put("unknownFields", unknownFields.sum());
+        s.put("reanalysisAvoided", reanalysisAvoided.sum());
+        s.put("fieldErrors", counts(fieldErrors));
+        s.put("nonCanonicalLabels", counts(labels));
+        s.put("parseTime", parseTime.snapshot());
+        return s;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * What one parse had to repair.
+     */
+    private static final class Outcome {
+        FailureTaxonomy.Match match = FailureTaxonomy.Match.UNKNOWN_LABEL;
+        String label;
+        boolean crossTestType;
+        boolean unwrapped;
+        boolean unknownFields;
+        List<String> fieldErrors;
+
+        void fieldError(String field) {
+            if (fieldErrors == null) fieldErrors = new ArrayList<>(2);
+            fieldErrors.add(field);
+        }
+    }
+
+    private FailureAnalysisResponse read(String raw, String testType, Outcome outcome) throws IOException {
+        if (raw == null) throw new IOException("empty LLM answer");
+        int from = raw.indexOf('{');
+        int to = raw.lastIndexOf('}');
+        if (from < 0 || to < from) throw new IOException("no JSON object in LLM answer");
+        outcome.unwrapped = from > 0 && !raw.substring(0, from).isBlank()
+                || to < raw.length() - 1 && !raw.substring(to + 1).isBlank();
+
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        try (JsonParser p = mapper.getFactory().createParser(raw.substring(from, to + 1))) {
+            if (p.nextToken() != JsonToken.START_OBJECT) throw new IOException("LLM answer is not a JSON object");
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                JsonToken t = p.nextToken();
+                switch (field) {
+                    case "failureType" -> readType(p, t, r, outcome);
+                    case "classifiedFailureType" -> {
+                        readType(p, t, r, outcome);
+                        outcome.unknownFields = true;
+                    }
+                    case "rootCauseSummary" -> r.setRootCauseSummary(text(p, t, field, outcome));
+                    case "recommendedNextSteps" -> r.setRecommendedNextSteps(text(p, t, field, outcome));
+                    case "jiraSummaryTemplate" -> r.setJiraSummaryTemplate(text(p, t, field, outcome));
+                    case "severityScore" -> r.setSeverityScore(severity(p, t, outcome));
+                    case "aiConfidence" -> r.setAiConfidence(confidence(p, t, outcome));
+                    case "similarFailures" -> r.setSimilarFailures(similar(p, t, outcome));
+                    case "ruleBasedOverrideApplied", "locatorSuggestions", "reusedFrom", "reuseSimilarity" ->
+                            p.skipChildren();   // set by the service, not the LLM
+                    default -> {
+                        p.skipChildren();
+                        outcome.unknownFields = true;
+                    }
+                }
+            }
+        }
+
+        if (r.getFailureType() == null) {
+            r.setFailureType(FailureType.UNKNOWN);
+            if (outcome.label == null) outcome.fieldError("failureType");
+        }
+        if (!taxonomy.allowed(testType, r.getFailureType())) {
+            outcome.crossTestType = true;
+            r.setAiConfidence(Math.min(r.getAiConfidence(), 0.5));
+        }
+        return r;
+    }
+
+    private void readType(JsonParser p, JsonToken t, FailureAnalysisResponse r, Outcome outcome) throws IOException {
+        if (t != JsonToken.VALUE_STRING) {
+            p.skipChildren();
+            outcome.fieldError("failureType");
+            return;
+        }
+        String label = p.getText();
+        outcome.label = label;
+        outcome.match = taxonomy.match(label);
+        FailureType type = taxonomy.resolve(label);
+        r.setFailureType(type != null ? type : FailureType.UNKNOWN);
+    }
+
+    private static String text(JsonParser p, JsonToken t, String field, Outcome outcome) throws IOException {
+        if (t == JsonToken.VALUE_STRING) return p.getText();
+        if (t == JsonToken.VALUE_NULL) return null;
+        if (t == JsonToken.START_ARRAY) {
+            // lists of steps: one per line
+            StringBuilder sb = new StringBuilder();
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (p.currentToken().isScalarValue()) {
+                    if (sb.length() > 0) sb.append('\n');
+                    sb.append(p.getText());
+                } else {
+                    p.skipChildren();
+                }
+            }
+            return sb.toString();
+        }
+        if (t.isScalarValue()) return p.getText();
+        p.skipChildren();
+        outcome.fieldError(field);
+        return null;
+    }
+
+    private static int severity(JsonParser p, JsonToken t, Outcome outcome) throws IOException {
+        double v = number(p, t);
+        if (Double.isNaN(v)) {
+            outcome.fieldError("severityScore");
+            return 3;
+        }
+        if (v < 1 || v > 5) outcome.fieldError("severityScore");
+        return (int) Math.max(1, Math.min(5, Math.round(v)));
+    }
+
+    private static double confidence(JsonParser p, JsonToken t, Outcome outcome) throws IOException {
+        double v = number(p, t);
+        if (Double.isNaN(v) || v < 0) {
+            outcome.fieldError("aiConfidence");
+            return 0.0;
+        }
+        if (v > 1) {
+            outcome.fieldError("aiConfidence");
+            v = v <= 100 ? v / 100 : 1.0;
+        }
+        return v;
+    }
+
+    /**
+     * Number from a numeric or numeric-string token ("85%" too); NaN otherwise.
+     */
+    private static double number(JsonParser p, JsonToken t) throws IOException {
+        if (t == JsonToken.VALUE_NUMBER_INT || t == JsonToken.VALUE_NUMBER_FLOAT) {
+            return p.getDoubleValue();
+        }
+        if (t == JsonToken.VALUE_STRING) {
+            String s = p.getText().strip();
+            boolean percent = s.endsWith("%");
+            try {
+                double v = Double.parseDouble(percent ? s.substring(0, s.length() - 1) : s);
+                return percent ? v / 100 : v;
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        p.skipChildren();
+        return Double.NaN;
+    }
+
+    private List<SimilarFailure> similar(JsonParser p, JsonToken t, Outcome outcome) throws IOException {
+        if (t == JsonToken.VALUE_NULL) return new ArrayList<>();
+        if (t != JsonToken.START_ARRAY) {
+            p.skipChildren();
+            outcome.fieldError("similarFailures");
+            return new ArrayList<>();
+        }
+        try {
+            return new ArrayList<>(Arrays.asList(p.readValueAs(SimilarFailure[].class)));
+        } catch (IOException e) {
+            // the parser position is lost; treat as an unreadable answer
+            outcome.fieldError("similarFailures");
+            throw e;
+        }
+    }
+
+    private void record(Outcome outcome) {
+        parsed.increment();
+        boolean strictWouldFail = outcome.unwrapped || outcome.unknownFields || outcome.fieldErrors != null;
+        switch (outcome.match) {
+            case EXACT -> exact.increment();
+            case ALIAS -> {
+                aliased.increment();
+                strictWouldFail = true;
+            }
+            case UNKNOWN_LABEL -> {
+                unknownLabel.increment();
+                strictWouldFail |= outcome.label != null;
+            }
+        }
+        if (outcome.match != FailureTaxonomy.Match.EXACT && outcome.label != null
+                && (labels.size() < MAX_LABELS || labels.containsKey(outcome.label))) {
+            labels.computeIfAbsent(outcome.label, k -> new LongAdder()).increment();
+        }
+        if (outcome.crossTestType) crossTestType.increment();
+        if (outcome.unwrapped) unwrapped.increment();
+        if (outcome.unknownFields) unknownFields.increment();
+        if (outcome.fieldErrors != null) {
+            for (String field : outcome.fieldErrors) {
+                fieldErrors.computeIfAbsent(field, k -> new LongAdder()).increment();
+            }
+        }
+        if (strictWouldFail) reanalysisAvoided.increment();
+    }
+
+    private static Map<String, Long> counts(Map<String, LongAdder> adders) {
+        Map<String, Long> m = new LinkedHashMap<>();
+        adders.forEach((k, v) -> m.put(k, v.sum()));
+        return m;
+    }
+}
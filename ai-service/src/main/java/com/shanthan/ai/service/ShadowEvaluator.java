@@ -0,0 +1,298 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.client.LatencyHistogram;
+import com.shanthan.ai.client.LlmBulkhead;
+import com.shanthan.ai.client.LlmCompletion;
+import com.shanthan.ai.client.LlmPricing;
+import com.shanthan.ai.client.OpenAiClient;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureType;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shadow A/B evaluation of a candidate model and/or prompt.
+ *
+ * A fixed fraction (shadow.fraction) of primary LLM calls is mirrored to the
+ * candidate after the primary answer is in. Its answer is only measured,
+ * never returned or cached, but it is a real LLM call and is treated as one:
+ * - Mirrors are handed to a small pool (shadow.workers, shadow.queueCapacity;
+ *   overflow is dropped and counted), which submits them to the LLM bulkhead
+ *   as flow "shadow" at the lowest priority, so any live call preempts them
+ * - They are charged to the "shadow" tenant in TenantQuotas and stop while it
+ *   is over its budget (tenant.budget.*.shadow), so the candidate's spend
+ *   is capped and never counts against a real tenant
+ *
+ * Sampling is by failure fingerprint, so the same failures are mirrored on
+ * every run, and a batch re-triage against mock servers is reproducible.
+ *
+ * For each variant on the mirrored pairs: call latency, prompt/completion
+ * tokens and cost (shadow.price.<model>.input/output, USD per 1M tokens),
+ * parse failures and stubbed/errored answers. For the pairs where both sides
+ * answered: classification agreement, a confusion map and the mean severity
+ * and confidence deltas.
+ */
+@Component
+public class ShadowEvaluator {
+
+    public static final String SHADOW_TENANT = "shadow";
+    private static final int SHADOW_PRIORITY = -1;   // behind live calls and re-triage
+
+    private final boolean enabled;
+    private final int sampleBasisPoints;
+    private final OpenAiClient primaryClient;
+    private final OpenAiClient candidate;
+    private final String candidateSystemPrompt;
+    private final ThreadPoolExecutor executor;
+    private final LlmPricing pricing;
+    private final LlmResponseParser responseParser;
+    private final LlmBulkhead llmBulkhead;
+    private final TenantQuotas tenantQuotas;
+
+    private volatile Stats stats = new Stats();
+
+    private static final class Variant {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder calls = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final LongAdder parseFailures = new LongAdder();
+        final LongAdder stubbed = new LongAdder();
+        final Map<FailureType, LongAdder> types = new ConcurrentHashMap<>();
+    }
+
+    private static final class Stats {
+        final long startedAt = System.currentTimeMillis();
+        final Variant primary = new Variant();
+        final Variant candidate = new Variant();
+        final LongAdder mirrored = new LongAdder();
+        final LongAdder dropped = new LongAdder();
+        final LongAdder overBudget = new LongAdder();
+        final LongAdder shed = new LongAdder();
+        final LongAdder compared = new LongAdder();
+        final LongAdder agreed = new LongAdder();
+        final LongAdder severityDelta = new LongAdder();
+        final LongAdder confidenceDeltaMilli = new LongAdder();
+        final Map<String, LongAdder> confusion = new ConcurrentHashMap<>();
+    }
+
+    public ShadowEvaluator(OpenAiClient primaryClient,
+                           LlmPricing pricing,
+                           LlmResponseParser responseParser,
+                           LlmBulkhead llmBulkhead,
+                           TenantQuotas tenantQuotas,
+                           @Value("${shadow.enabled:false}") boolean enabled,
+                           @Value("${shadow.fraction:0.1}") double fraction,
+                           @Value("${shadow.model:}") String model,
+                           @Value("${shadow.baseUrl:${openai.baseUrl:https://api.openai.com/v1}}") String baseUrl,
+                           @Value("${shadow.apiKey:${openai.apiKey:}}") String apiKey,
+                           @Value("${shadow.systemPromptFile:}") String systemPromptFile,
+                           @Value("${shadow.workers:2}") int workers,
+                           @Value("${shadow.queueCapacity:100}") int queueCapacity,
+                           @Value("${openai.callTimeout:PT90S}") Duration callTimeout) throws IOException {
+        this.primaryClient = primaryClient;
+        this.enabled = enabled;
+        this.sampleBasisPoints = (int) Math.round(Math.max(0, Math.min(1, fraction)) * 10_000);
+        this.candidate = new OpenAiClient(apiKey, baseUrl,
+                model == null || model.isBlank() ? primaryClient.getModel() : model,
+                Duration.ofSeconds(5), callTimeout, Duration.ofSeconds(10), callTimeout);
+        this.candidateSystemPrompt = systemPromptFile == null || systemPromptFile.isBlank()
+                ? null
+                : Files.readString(Path.of(systemPromptFile));
+
+        this.pricing = pricing;
+        this.responseParser = responseParser;
+        this.llmBulkhead = llmBulkhead;
+        this.tenantQuotas = tenantQuotas;
+
+        AtomicInteger n = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)),
+                r -> {
+                    Thread t = new Thread(r, "shadow-llm-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                (r, pool) -> stats.dropped.increment());
+
+        if (enabled) {
+            System.out.println("DEBUG >>> Shadow evaluation on: " + sampleBasisPoints / 100.0 + "% of LLM calls -> "
+                    + candidate.getModel() + " @ " + baseUrl
+                    + (candidateSystemPrompt != null ? " with prompt " + systemPromptFile : ""));
+        }
+    }
+
+    /**
+     * Called after every primary LLM call. If this fingerprint is sampled and
+     * the shadow budget allows, records the primary side and queues the
+     * candidate call; returns at once.
+     *
+     * @param primaryParsed the primary's classification before rule overrides, null if unparseable
+     */
+    public void observe(String fingerprint, String systemPrompt, String userPrompt,
+                        LlmCompletion primary, FailureAnalysisResponse primaryParsed) {
+        if (!enabled || !sampled(fingerprint)) {
+            return;
+        }
+        Stats s = stats;
+        if (!tenantQuotas.admit(SHADOW_TENANT)) {
+            s.overBudget.increment();
+            return;
+        }
+        s.mirrored.increment();
+        // the caller goes on to apply rule overrides to its instance
+        FailureAnalysisResponse a = primaryParsed == null ? null : primaryParsed.copy();
+        record(s.primary, primary, a);
+
+        String prompt = candidateSystemPrompt != null ? candidateSystemPrompt : systemPrompt;
+        executor.execute(() -> {
+            try {
+                LlmCompletion shadow = llmBulkhead.execute(() -> candidate.complete(prompt, userPrompt),
+                        SHADOW_TENANT, SHADOW_PRIORITY);
+                tenantQuotas.record(SHADOW_TENANT, shadow);
+                FailureAnalysisResponse parsed = parse(shadow);
+                record(s.candidate, shadow, parsed);
+                compare(s, primary, a, shadow, parsed);
+            } catch (LlmBulkhead.Rejected e) {
+                s.shed.increment();
+            } catch (RuntimeException e) {
+                System.out.println("DEBUG >>> Shadow call failed: " + e.getMessage());
+                s.candidate.stubbed.increment();
+            }
+        });
+    }
+
+    /**
+     * Parses a completion the same way FailureAnalysisService does (without
+     * counting it in the parse metrics); null when it holds no readable JSON.
+     */
+    public FailureAnalysisResponse parse(LlmCompletion completion) {
+        return responseParser.parseQuietly(completion.getContent());
+    }
+
+    public Map<String, Object> report() {
+        Stats s = stats;
+        Map<String, Object> r = new LinkedHashMap<>();
+        r.put("enabled", enabled);
+        r.put("fraction", sampleBasisPoints / 10_000.0);
+        r.put("since", s.startedAt);
+        r.put("mirrored", s.mirrored.sum());
+        r.put("dropped", s.dropped.sum());
+        r.put("overBudget", s.overBudget.sum());
+        r.put("shed", s.shed.sum());
+        r.put("pending", executor.getQueue().size() + executor.getActiveCount());
+
+        Map<String, Object> variants = new LinkedHashMap<>();
+        variants.put("primary", variantReport(s.primary, primaryClient.getModel()));
+        variants.put("candidate", variantReport(s.candidate, candidate.getModel()));
+        r.put("variants", variants);
+
+        long compared = s.compared.sum();
+        Map<String, Object> agreement = new LinkedHashMap<>();
+        agreement.put("compared", compared);
+        agreement.put("agreed", s.agreed.sum());
+        agreement.put("rate", compared == 0 ? null : round((double) s.agreed.sum() / compared));
+        agreement.put("meanSeverityDelta", compared == 0 ? null : round((double) s.severityDelta.sum() / compared));
+        agreement.put("meanConfidenceDelta", compared == 0 ? null
+                : round(s.confidenceDeltaMilli.sum() / 1000.0 / compared));
+        Map<String, Long> confusion = new LinkedHashMap<>();
+        s.confusion.entrySet().stream()
+                .sorted((a, b) -> Long.compare(b.getValue().sum(), a.getValue().sum()))
+                .forEach(e -> confusion.put(e.getKey(), e.getValue().sum()));
+        agreement.put("disagreements", confusion);
+        r.put("agreement", agreement);
+        return r;
+    }
+
+    /**
+     * Starts a fresh comparison window (e.g. after changing the candidate).
+     */
+    public void reset() {
+        stats = new Stats();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private boolean sampled(String fingerprint) {
+        if (sampleBasisPoints >= 10_000) return true;
+        return Math.floorMod(fingerprint.hashCode() * 0x9E3779B9, 10_000) < sampleBasisPoints;
+    }
+
+    private static void record(Variant v, LlmCompletion c, FailureAnalysisResponse parsed) {
+        v.calls.increment();
+        v.latency.recordNanos(c.getLatencyNanos());
+        v.promptTokens.add(c.getPromptTokens());
+        v.completionTokens.add(c.getCompletionTokens());
+        if (c.isStubbed()) {
+            v.stubbed.increment();
+        } else if (parsed == null) {
+            v.parseFailures.increment();
+        } else if (parsed.getFailureType() != null) {
+            v.types.computeIfAbsent(parsed.getFailureType(), k -> new LongAdder()).increment();
+        }
+    }
+
+    private static void compare(Stats s, LlmCompletion primary, FailureAnalysisResponse a,
+                                LlmCompletion shadow, FailureAnalysisResponse b) {
+        if (primary.isStubbed() || shadow.isStubbed() || a == null || b == null) {
+            return;
+        }
+        s.compared.increment();
+        if (a.getFailureType() == b.getFailureType()) {
+            s.agreed.increment();
+        } else {
+            s.confusion.computeIfAbsent(a.getFailureType() + "->" + b.getFailureType(), k -> new LongAdder())
+                    .increment();
+        }
+        s.severityDelta.add(b.getSeverityScore() - a.getSeverityScore());
+        s.confidenceDeltaMilli.add(Math.round((b.getAiConfidence() - a.getAiConfidence()) * 1000));
+    }
+
+    private Map<String, Object> variantReport(Variant v, String model) {
+        long calls = v.calls.sum();
+        long in = v.promptTokens.sum();
+        long out = v.completionTokens.sum();
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("model", model);
+        m.put("calls", calls);
+        m.put("latency", v.latency.snapshot());
+        m.put("promptTokens", in);
+        m.put("completionTokens", out);
+        m.put("avgTokensPerCall", calls == 0 ? 0 : (in + out) / calls);
+        if (pricing.knows(model)) {
+            double usd = pricing.costUsd(model, in, out);
+            m.put("costUsd", Math.round(usd * 1_000_000) / 1_000_000.0);
+            m.put("costPer1kCallsUsd", calls == 0 ? 0 : Math.round(usd / calls * 1000 * 1000) / 1000.0);
+        }
+        m.put("parseFailureRate", calls == 0 ? 0 : round((double) v.parseFailures.sum() / calls));
+        m.put("stubbedRate", calls == 0 ? 0 : round((double) v.stubbed.sum() / calls));
+        Map<String, Long> types = new LinkedHashMap<>();
+        v.types.forEach((t, c) -> types.put(t.name(), c.sum()));
+        m.put("types", types);
+        return m;
+    }
+
+    private static double round(double v) {
+        return Math.round(v * 1000) / 1000.0;
+    }
+}
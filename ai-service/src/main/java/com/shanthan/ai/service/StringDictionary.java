@@ -0,0 +1,71 @@
+package com.shanthan.ai.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality string columns (suite, feature,
+ * environment, run). Each distinct value is stored once and rows only keep
+ * its int code. Not thread-safe; callers guard it with their own lock.
+ * Values stay until compact() drops the ones no row refers to any more.
+ */
+final class StringDictionary {
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    int encode(String value) {
+        String v = value == null ? "" : value;
+        Integer code = codes.get(v);
+        if (code != null) {
+            return code;
+        }
+        int next = values.size();
+        values.add(v);
+        codes.put(v, next);
+        return next;
+    }
+
+    /**
+     * Returns the code for an existing value, or -1 if it was never seen.
+     */
+    int lookup(String value) {
+        Integer code = codes.get(value == null ? "" : value);
+        return code == null ? -1 : code;
+    }
+
+    String decode(int code) {
+        return values.get(code);
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    /**
+     * Keeps only the values used by column[0..rows) and rewrites the column
+     * with the new codes (in first-seen order).
+     */
+    void compact(int[] column, int rows) {
+        int[] remap = new int[values.size()];
+        Arrays.fill(remap, -1);
+        List<String> kept = new ArrayList<>();
+        for (int i = 0; i < rows; i++) {
+            int code = column[i];
+            if (remap[code] < 0) {
+                remap[code] = kept.size();
+                kept.add(values.get(code));
+            }
+            column[i] = remap[code];
+        }
+        values.clear();
+        values.addAll(kept);
+        codes.clear();
+        for (int i = 0; i < kept.size(); i++) {
+            codes.put(kept.get(i), i);
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.client.LatencyHistogram;
+import com.shanthan.ai.client.LlmCompletion;
+import com.shanthan.ai.client.LlmPricing;
+import com.shanthan.ai.model.FailureEventPayload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Per-tenant LLM accounting and budgets.
+ *
+ * - Tenant: the first tag starting with one of tenant.tagPrefixes
+ *   ("tenant:", "team:"), else the suite name, else "default"; at most
+ *   tenant.maxTenants are tracked, later ones share "other"
+ * - Usage (requests, prompt/completion tokens, cost) is kept in a ring of
+ *   tenant.buckets LongAdder buckets covering tenant.window, so recording is
+ *   lock-free and the window slides one bucket at a time; a bucket is only
+ *   locked for the reset when it is reused for a newer slice
+ * - Budgets per window: tenant.budget.requests."[name]" and
+ *   tenant.budget.tokens."[name]", falling back to the "default" entry;
+ *   0 or missing = unlimited
+ *
+ * admit() is checked before an LLM call; a tenant over budget is answered
+ * from cache or rules instead (see FailureAnalysisService). Only answered
+ * calls are charged, in record(): a call that is shed by the bulkhead, times
+ * out or gets a stubbed answer costs the tenant nothing. In-flight calls may
+ * therefore overshoot a budget by one call each.
+ */
+@Component
+public class TenantQuotas {
+
+    public static final String DEFAULT_TENANT = "default";
+    public static final String OTHER_TENANT = "other";
+
+    private final LlmPricing pricing;
+    private final List<String> tagPrefixes;
+    private final int maxTenants;
+    private final int buckets;
+    private final long bucketMillis;
+    private final Map<String, Long> requestBudgets;
+    private final Map<String, Long> tokenBudgets;
+    private final Map<String, Usage> tenants = new ConcurrentHashMap<>();
+
+    /**
+     * One slice of the window.
+     */
+    private static final class Bucket {
+        volatile long slice = -1;
+        final LongAdder requests = new LongAdder();
+        final LongAdder promptTokens = new LongAdder();
+        final LongAdder completionTokens = new LongAdder();
+        final LongAdder costMicros = new LongAdder();
+    }
+
+    private static final class Usage {
+        final Bucket[] ring;
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder totalRequests = new LongAdder();
+        final LongAdder totalCostMicros = new LongAdder();
+        final LongAdder degraded = new LongAdder();
+
+        Usage(int buckets) {
+            ring = new Bucket[buckets];
+            Arrays.setAll(ring, i -> new Bucket());
+        }
+    }
+
+    public TenantQuotas(Environment env,
+                        LlmPricing pricing,
+                        @Value("${tenant.tagPrefixes:tenant:,team:}") List<String> tagPrefixes,
+                        @Value("${tenant.maxTenants:256}") int maxTenants,
+                        @Value("${tenant.window:PT1H}") Duration window,
+                        @Value("${tenant.buckets:12}") int buckets) {
+        this.pricing = pricing;
+        this.tagPrefixes = tagPrefixes;
+        this.maxTenants = maxTenants;
+        this.buckets = Math.max(1, buckets);
+        this.bucketMillis = Math.max(1, window.toMillis() / this.buckets);
+        Binder binder = Binder.get(env);
+        this.requestBudgets = binder.bind("tenant.budget.requests", Bindable.mapOf(String.class, Long.class))
+                .orElse(Map.of());
+        this.tokenBudgets = binder.bind("tenant.budget.tokens", Bindable.mapOf(String.class, Long.class))
+                .orElse(Map.of());
+    }
+
+    /**
+     * Tenant key for this failure (see class comment).
+     */
+    public String tenantOf(FailureEventPayload request) {
+        String tenant = null;
+        if (request.getTags() != null) {
+            for (String tag : request.getTags()) {
+                if (tag == null) continue;
+                for (String prefix : tagPrefixes) {
+                    if (tag.length() > prefix.length() && tag.startsWith(prefix)) {
+                        tenant = tag.substring(prefix.length()).trim();
+                        break;
+                    }
+                }
+                if (tenant != null) break;
+            }
+        }
+        if (tenant == null || tenant.isEmpty()) {
+            tenant = request.getSuiteName();
+        }
+        if (tenant == null || tenant.isBlank()) {
+            return DEFAULT_TENANT;
+        }
+        return tenants.containsKey(tenant) || tenants.size() < maxTenants ? tenant : OTHER_TENANT;
+    }
+
+    /**
+     * True when the tenant is within its request and token budgets for the
+     * current window; false counts a degraded answer. Nothing is charged here.
+     */
+    public boolean admit(String tenant) {
+        Usage usage = usage(tenant);
+        long now = System.currentTimeMillis();
+        long requestBudget = budget(requestBudgets, tenant);
+        long tokenBudget = budget(tokenBudgets, tenant);
+
+        if ((requestBudget > 0 && windowSum(usage, now, b -> b.requests) >= requestBudget)
+                || (tokenBudget > 0 && windowTokens(usage, now) >= tokenBudget)) {
+            usage.degraded.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Charges a completed LLM call (one request plus its tokens and cost) and
+     * records its latency. A stubbed completion (no real answer) is not charged.
+     */
+    public void record(String tenant, LlmCompletion completion) {
+        Usage usage = usage(tenant);
+        usage.latency.recordNanos(completion.getLatencyNanos());
+        if (completion.isStubbed()) {
+            return;
+        }
+        Bucket bucket = current(usage, System.currentTimeMillis());
+        bucket.requests.increment();
+        bucket.promptTokens.add(completion.getPromptTokens());
+        bucket.completionTokens.add(completion.getCompletionTokens());
+        long micros = Math.round(pricing.costUsd(completion.getModel(),
+                completion.getPromptTokens(), completion.getCompletionTokens()) * 1_000_000);
+        bucket.costMicros.add(micros);
+        usage.totalRequests.increment();
+        usage.totalCostMicros.add(micros);
+    }
+
+    /**
+     * Window usage, budgets, lifetime spend and LLM latency per tenant.
+     */
+    public Map<String, Object> stats() {
+        long now = System.currentTimeMillis();
+        Map<String, Object> perTenant = new TreeMap<>();
+        tenants.forEach((tenant, usage) -> {
+            Map<String, Object> t = new LinkedHashMap<>();
+            long prompt = windowSum(usage, now, b -> b.promptTokens);
+            long completion = windowSum(usage, now, b -> b.completionTokens);
+            t.put("requests", windowSum(usage, now, b -> b.requests));
+            t.put("requestBudget", budget(requestBudgets, tenant));
+            t.put("promptTokens", prompt);
+            t.put("completionTokens", completion);
+            t.put("tokenBudget", budget(tokenBudgets, tenant));
+            t.put("costUsd", windowSum(usage, now, b -> b.costMicros) / 1_000_000.0);
+            t.put("degraded", usage.degraded.sum());
+            t.put("totalRequests", usage.totalRequests.sum());
+            t.put("totalCostUsd", usage.totalCostMicros.sum() / 1_000_000.0);
+            t.put("latency", usage.latency.snapshot());
+            perTenant.put(tenant, t);
+        });
+
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("windowSeconds", bucketMillis * buckets / 1000);
+        s.put("buckets", buckets);
+        s.put("tenants", perTenant);
+        return s;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private Usage usage(String tenant) {
+        return tenants.computeIfAbsent(tenant, k -> new Usage(buckets));
+    }
+
+    private static long budget(Map<String, Long> budgets, String tenant) {
+        Long b = budgets.get(tenant);
+        if (b == null) b = budgets.get(DEFAULT_TENANT);
+        return b == null ? 0 : b;
+    }
+
+    /**
+     * The bucket for the current slice, reset first if it still holds an expired one.
+     */
+    private Bucket current(Usage usage, long now) {
+        long slice = now / bucketMillis;
+        Bucket bucket = usage.ring[(int) (slice % buckets)];
+        if (bucket.slice != slice) {
+            synchronized (bucket) {
+                if (bucket.slice != slice) {
+                    bucket.requests.reset();
+                    bucket.promptTokens.reset();
+                    bucket.completionTokens.reset();
+                    bucket.costMicros.reset();
+                    bucket.slice = slice;
+                }
+            }
+        }
+        return bucket;
+    }
+
+    private long windowSum(Usage usage, long now, Function<Bucket, LongAdder> counter) {
+        long oldest = now / bucketMillis - buckets + 1;
+        long sum = 0;
+        for (Bucket b : usage.ring) {
+            if (b.slice >= oldest) {
+                sum += counter.apply(b).sum();
+            }
+        }
+        return sum;
+    }
+
+    private long windowTokens(Usage usage, long now) {
+        return windowSum(usage, now, b -> b.promptTokens) + windowSum(usage, now, b -> b.completionTokens);
+    }
+}
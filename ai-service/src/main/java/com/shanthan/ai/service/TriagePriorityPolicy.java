@@ -0,0 +1,77 @@
+package com.shanthan.ai.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.shanthan.ai.model.FailureEventPayload;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides how urgently a failure needs an LLM slot.
+ *
+ * - Base priority: the highest scheduler.priority.<keyword> whose keyword
+ *   appears in the payload's tags, suite name or environment
+ *   (e.g. prod-smoke 100 > gating 90 > nightly 10), else scheduler.defaultPriority
+ * - Novelty: a fingerprint not seen within scheduler.noveltyWindow gets
+ *   scheduler.noveltyBoost on top; repeats of a failure already being
+ *   triaged wait behind new ones
+ */
+@Component
+public class TriagePriorityPolicy {
+
+    private final List<Map.Entry<String, Integer>> keywords;
+    private final int defaultPriority;
+    private final int noveltyBoost;
+    private final Cache<String, Boolean> seen;
+
+    public TriagePriorityPolicy(Environment env,
+                                @Value("${scheduler.defaultPriority:50}") int defaultPriority,
+                                @Value("${scheduler.noveltyBoost:20}") int noveltyBoost,
+                                @Value("${scheduler.noveltyWindow:PT1H}") Duration noveltyWindow,
+                                @Value("${scheduler.noveltyMaxEntries:100000}") long noveltyMaxEntries) {
+        Map<String, Integer> configured = Binder.get(env)
+                .bind("scheduler.priority", Bindable.mapOf(String.class, Integer.class))
+                .orElse(Map.of());
+        this.keywords = new ArrayList<>();
+        configured.forEach((k, v) -> keywords.add(Map.entry(k.toLowerCase(Locale.ROOT), v)));
+        this.defaultPriority = defaultPriority;
+        this.noveltyBoost = noveltyBoost;
+        this.seen = Caffeine.newBuilder()
+                .maximumSize(noveltyMaxEntries)
+                .expireAfterWrite(noveltyWindow)
+                .build();
+    }
+
+    /**
+     * Priority for this failure; also marks its fingerprint as seen.
+     */
+    public int priorityOf(FailureEventPayload request, String fingerprint) {
+        int base = -1;
+        StringBuilder haystack = new StringBuilder();
+        if (request.getTags() != null) {
+            request.getTags().forEach(t -> haystack.append(t).append(' '));
+        }
+        haystack.append(request.getSuiteName()).append(' ').append(request.getEnvironment());
+        String text = haystack.toString().toLowerCase(Locale.ROOT);
+
+        for (Map.Entry<String, Integer> k : keywords) {
+            if (k.getValue() > base && text.contains(k.getKey())) {
+                base = k.getValue();
+            }
+        }
+        if (base < 0) {
+            base = defaultPriority;
+        }
+
+        boolean novel = seen.asMap().putIfAbsent(fingerprint, Boolean.TRUE) == null;
+        return novel ? base + noveltyBoost : base;
+    }
+}
@@ -0,0 +1,255 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.model.AggregationDimension;
+import com.shanthan.ai.model.FailureAggregate;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FailureType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory columnar store of triage results so dashboards can aggregate
+ * failures without rescanning JSON.
+ * - One primitive array per column (time, severity, confidence, type ordinal)
+ * - Suite / feature / environment / run are dictionary-encoded int columns
+ * - Bounded by analytics.maxRows; once full, the oldest rows are overwritten,
+ *   and every time the ring wraps the dictionaries drop values no row uses
+ *   any more (unique run ids would otherwise pile up forever)
+ *
+ * Aggregations are a single sequential scan over the arrays, which keeps
+ * millions of rows in the low tens of milliseconds.
+ */
+@Component
+public class TriageResultStore {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final int maxRows;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private byte[] severities = new byte[INITIAL_CAPACITY];
+    private float[] confidences = new float[INITIAL_CAPACITY];
+    private byte[] types = new byte[INITIAL_CAPACITY];
+    private int[] suites = new int[INITIAL_CAPACITY];
+    private int[] features = new int[INITIAL_CAPACITY];
+    private int[] environments = new int[INITIAL_CAPACITY];
+    private int[] runs = new int[INITIAL_CAPACITY];
+
+    private final StringDictionary suiteDict = new StringDictionary();
+    private final StringDictionary featureDict = new StringDictionary();
+    private final StringDictionary environmentDict = new StringDictionary();
+    private final StringDictionary runDict = new StringDictionary();
+
+    private int size;
+    private int head;   // next slot to overwrite once the store is full
+
+    public TriageResultStore(@Value("${analytics.maxRows:2000000}") int maxRows) {
+        this.maxRows = Math.max(INITIAL_CAPACITY, maxRows);
+    }
+
+    public void record(FailureEventPayload request, FailureAnalysisResponse response) {
+        long ts = request.getEventTimestamp() != null
+                ? request.getEventTimestamp()
+                : System.currentTimeMillis();
+        FailureType type = response.getFailureType() != null
+                ? response.getFailureType()
+                : FailureType.UNKNOWN;
+
+        lock.writeLock().lock();
+        try {
+            int row;
+            if (size < maxRows) {
+                ensureCapacity(size + 1);
+                row = size++;
+            } else {
+                row = head;
+                head = (head + 1) % maxRows;
+            }
+            timestamps[row] = ts;
+            severities[row] = (byte) response.getSeverityScore();
+            confidences[row] = (float) response.getAiConfidence();
+            types[row] = (byte) type.ordinal();
+            suites[row] = suiteDict.encode(request.getSuiteName());
+            features[row] = featureDict.encode(request.getFeature());
+            environments[row] = environmentDict.encode(request.getEnvironment());
+            runs[row] = runDict.encode(request.getRunId());
+            if (size == maxRows && head == 0) {
+                compactDictionaries();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Groups rows in [fromMillis, toMillis) by the given dimension.
+     *
+     * @param runId        optional run filter (null = all runs)
+     * @param bucketMillis bucket size for WINDOW, ignored otherwise
+     */
+    public List<FailureAggregate> aggregate(AggregationDimension dimension,
+                                            long fromMillis,
+                                            long toMillis,
+                                            String runId,
+                                            long bucketMillis) {
+        lock.readLock().lock();
+        try {
+            int runFilter = -1;
+            if (runId != null && !runId.isBlank()) {
+                runFilter = runDict.lookup(runId);
+                if (runFilter < 0) {
+                    return new ArrayList<>();
+                }
+            }
+
+            if (dimension == AggregationDimension.WINDOW) {
+                return aggregateByWindow(fromMillis, toMillis, runFilter, Math.max(1, bucketMillis));
+            }
+
+            int[] column = null;
+            StringDictionary dict = null;
+            int groups;
+            switch (dimension) {
+                case SUITE -> { column = suites; dict = suiteDict; }
+                case FEATURE -> { column = features; dict = featureDict; }
+                case ENVIRONMENT -> { column = environments; dict = environmentDict; }
+                case RUN -> { column = runs; dict = runDict; }
+                default -> { }
+            }
+            groups = dict != null ? dict.size() : FailureType.values().length;
+
+            long[] counts = new long[groups];
+            long[] sevSum = new long[groups];
+            double[] confSum = new double[groups];
+            int[] sevMax = new int[groups];
+            long[] first = new long[groups];
+            long[] last = new long[groups];
+            Arrays.fill(first, Long.MAX_VALUE);
+
+            for (int i = 0; i < size; i++) {
+                long ts = timestamps[i];
+                if (ts < fromMillis || ts >= toMillis) continue;
+                if (runFilter >= 0 && runs[i] != runFilter) continue;
+
+                int g = column != null ? column[i] : types[i];
+                counts[g]++;
+                sevSum[g] += severities[i];
+                confSum[g] += confidences[i];
+                if (severities[i] > sevMax[g]) sevMax[g] = severities[i];
+                if (ts < first[g]) first[g] = ts;
+                if (ts > last[g]) last[g] = ts;
+            }
+
+            List<FailureAggregate> result = new ArrayList<>();
+            for (int g = 0; g < groups; g++) {
+                if (counts[g] == 0) continue;
+                String key = dict != null ? dict.decode(g) : FailureType.values()[g].name();
+                result.add(toAggregate(key, counts[g], sevSum[g], confSum[g], sevMax[g], first[g], last[g]));
+            }
+            result.sort(Comparator.comparingLong(FailureAggregate::getCount).reversed());
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Distinct suite + feature + environment + run values currently held.
+     */
+    int dictionaryEntries() {
+        lock.readLock().lock();
+        try {
+            return suiteDict.size() + featureDict.size() + environmentDict.size() + runDict.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private List<FailureAggregate> aggregateByWindow(long fromMillis, long toMillis,
+                                                     int runFilter, long bucketMillis) {
+        // bucket start -> {count, sevSum, sevMax, first, last}; confidence kept separately
+        Map<Long, long[]> buckets = new HashMap<>();
+        Map<Long, double[]> confidence = new HashMap<>();
+
+        for (int i = 0; i < size; i++) {
+            long ts = timestamps[i];
+            if (ts < fromMillis || ts >= toMillis) continue;
+            if (runFilter >= 0 && runs[i] != runFilter) continue;
+
+            long bucket = Math.floorDiv(ts, bucketMillis) * bucketMillis;
+            long[] acc = buckets.computeIfAbsent(bucket, b -> new long[]{0, 0, 0, Long.MAX_VALUE, 0});
+            acc[0]++;
+            acc[1] += severities[i];
+            if (severities[i] > acc[2]) acc[2] = severities[i];
+            if (ts < acc[3]) acc[3] = ts;
+            if (ts > acc[4]) acc[4] = ts;
+            confidence.computeIfAbsent(bucket, b -> new double[1])[0] += confidences[i];
+        }
+
+        List<FailureAggregate> result = new ArrayList<>();
+        buckets.forEach((bucket, acc) -> result.add(toAggregate(String.valueOf(bucket),
+                acc[0], acc[1], confidence.get(bucket)[0], (int) acc[2], acc[3], acc[4])));
+        result.sort(Comparator.comparingLong(a -> Long.parseLong(a.getKey())));
+        return result;
+    }
+
+    private FailureAggregate toAggregate(String key, long count, long sevSum, double confSum,
+                                         int sevMax, long first, long last) {
+        FailureAggregate a = new FailureAggregate(key);
+        a.setCount(count);
+        a.setAvgSeverity((double) sevSum / count);
+        a.setAvgConfidence(confSum / count);
+        a.setMaxSeverity(sevMax);
+        a.setFirstSeen(first);
+        a.setLastSeen(last);
+        return a;
+    }
+
+    /**
+     * One pass per maxRows writes, so the dictionaries hold at most about
+     * 2 x maxRows values between compactions. Called under the write lock.
+     */
+    private void compactDictionaries() {
+        suiteDict.compact(suites, size);
+        featureDict.compact(features, size);
+        environmentDict.compact(environments, size);
+        runDict.compact(runs, size);
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= timestamps.length) {
+            return;
+        }
+        int newCap = (int) Math.min((long) maxRows, Math.max(needed, (long) timestamps.length * 2));
+        timestamps = Arrays.copyOf(timestamps, newCap);
+        severities = Arrays.copyOf(severities, newCap);
+        confidences = Arrays.copyOf(confidences, newCap);
+        types = Arrays.copyOf(types, newCap);
+        suites = Arrays.copyOf(suites, newCap);
+        features = Arrays.copyOf(features, newCap);
+        environments = Arrays.copyOf(environments, newCap);
+        runs = Arrays.copyOf(runs, newCap);
+    }
+}
@@ -0,0 +1,96 @@
+package com.shanthan.ai.startup;
+
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Start-up timeline of this replica, all relative to JVM start:
+ * - started: context refreshed and web server listening
+ * - warm-up: WarmupRunner (runs between started and ready)
+ * - ready: ApplicationReadyEvent, the replica takes traffic
+ * - first request: server time of the first HTTP request after ready
+ *   (from StartupMetricsFilter; the warm-up's own requests do not count), and
+ *   when it finished
+ */
+@Component
+public class StartupMetrics {
+
+    private final long jvmStartMillis = ManagementFactory.getRuntimeMXBean().getStartTime();
+    private final AtomicBoolean firstRequestSeen = new AtomicBoolean();
+
+    private volatile long startedMillis = -1;
+    private volatile long readyMillis = -1;
+    private volatile long warmupMillis = -1;
+    private volatile int warmupSamples;
+    private volatile int warmupIterations;
+    private volatile int snapshotEntries;
+    private volatile long firstRequestMicros = -1;
+    private volatile long firstRequestAtMillis = -1;
+    private volatile String firstRequestPath;
+
+    @EventListener
+    public void onStarted(ApplicationStartedEvent event) {
+        startedMillis = sinceJvmStart();
+    }
+
+    @EventListener
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void onReady(ApplicationReadyEvent event) {
+        readyMillis = sinceJvmStart();
+        System.out.println("DEBUG >>> Startup: started " + startedMillis + " ms, warm-up " + warmupMillis
+                + " ms, ready " + readyMillis + " ms after JVM start");
+    }
+
+    public void warmupDone(long millis, int samples, int iterations, int snapshotEntries) {
+        this.warmupMillis = millis;
+        this.warmupSamples = samples;
+        this.warmupIterations = iterations;
+        this.snapshotEntries = snapshotEntries;
+    }
+
+    public boolean isFirstRequestRecorded() {
+        return firstRequestSeen.get();
+    }
+
+    /**
+     * Called for requests until the first one after ready is kept.
+     */
+    public void recordRequest(String path, long nanos) {
+        if (readyMillis >= 0 && firstRequestSeen.compareAndSet(false, true)) {
+            firstRequestMicros = nanos / 1_000;
+            firstRequestAtMillis = sinceJvmStart();
+            firstRequestPath = path;
+            System.out.println("DEBUG >>> First request " + path + " served in " + firstRequestMicros + " us");
+        }
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> s = new LinkedHashMap<>();
+        s.put("jvmStartEpochMillis", jvmStartMillis);
+        s.put("startedMillis", startedMillis);
+        s.put("warmupMillis", warmupMillis);
+        s.put("warmupSamples", warmupSamples);
+        s.put("warmupIterations", warmupIterations);
+        s.put("semanticSnapshotEntries", snapshotEntries);
+        s.put("readyMillis", readyMillis);
+        s.put("firstRequestPath", firstRequestPath);
+        s.put("firstRequestMicros", firstRequestMicros);
+        s.put("firstRequestAtMillis", firstRequestAtMillis);
+        s.put("cds", ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(a -> a.startsWith("-XX:SharedArchiveFile")));
+        s.put("aot", Boolean.getBoolean("spring.aot.enabled"));
+        return s;
+    }
+
+    private long sinceJvmStart() {
+        return System.currentTimeMillis() - jvmStartMillis;
+    }
+}
@@ -0,0 +1,42 @@
+package com.shanthan.ai.startup;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import java.io.IOException;
+
+/**
+ * Times requests for StartupMetrics until the first one after ready has been
+ * recorded; after that it only passes requests through. Runs first, so the
+ * time includes the other filters (gzip inflation).
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class StartupMetricsFilter extends OncePerRequestFilter {
+
+    private final StartupMetrics startupMetrics;
+
+    public StartupMetricsFilter(StartupMetrics startupMetrics) {
+        this.startupMetrics = startupMetrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain chain) throws ServletException, IOException {
+        if (startupMetrics.isFirstRequestRecorded()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            startupMetrics.recordRequest(request.getRequestURI(), System.nanoTime() - start);
+        }
+    }
+}
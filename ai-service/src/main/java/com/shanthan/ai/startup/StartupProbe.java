@@ -0,0 +1,98 @@
+package com.shanthan.ai.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.model.FailureEventPayload;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Start-up measurement for the build (startup.probe=true, see the fast-start
+ * Maven profile): once the replica is ready it sends its first request, one
+ * warm-up sample to POST /api/ai/analyze-failure, writes StartupMetrics plus
+ * the client-side latency to startup.probe.report as JSON, and exits.
+ */
+@Component
+@Profile("!batch")   // needs WarmupRunner and the web server, neither exists in batch runs
+public class StartupProbe {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final StartupMetrics metrics;
+    private final WarmupRunner warmupRunner;
+    private final ObjectMapper objectMapper;
+    private final Environment env;
+    private final boolean enabled;
+    private final String report;
+
+    public StartupProbe(StartupMetrics metrics,
+                        WarmupRunner warmupRunner,
+                        ObjectMapper objectMapper,
+                        Environment env,
+                        @Value("${startup.probe.enabled:false}") boolean enabled,
+                        @Value("${startup.probe.report:target/startup-metrics.json}") String report) {
+        this.metrics = metrics;
+        this.warmupRunner = warmupRunner;
+        this.objectMapper = objectMapper;
+        this.env = env;
+        this.enabled = enabled;
+        this.report = report;
+    }
+
+    @EventListener
+    @Order(Ordered.LOWEST_PRECEDENCE) // after StartupMetrics has marked the replica ready
+    public void onReady(ApplicationReadyEvent event) {
+        if (!enabled) {
+            return;
+        }
+        int exitCode = 0;
+        try {
+            List<FailureEventPayload> samples = warmupRunner.readSamples();
+            FailureEventPayload sample = samples.isEmpty() ? new FailureEventPayload() : samples.get(0);
+            String url = "http://127.0.0.1:" + env.getProperty("local.server.port") + "/api/ai/analyze-failure";
+
+            long start = System.nanoTime();
+            Request request = new Request.Builder()
+                    .url(url)
+                    .post(RequestBody.create(objectMapper.writeValueAsBytes(sample), JSON))
+                    .build();
+            int status;
+            try (Response response = new OkHttpClient().newCall(request).execute()) {
+                status = response.code();
+            }
+            long clientMicros = (System.nanoTime() - start) / 1_000;
+
+            Map<String, Object> stats = metrics.stats();
+            stats.put("probeStatus", status);
+            stats.put("probeClientMicros", clientMicros);
+            Path out = Path.of(report);
+            if (out.getParent() != null) {
+                Files.createDirectories(out.getParent());
+            }
+            Files.write(out, objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(stats));
+            System.out.println("DEBUG >>> Startup probe: ready " + stats.get("readyMillis") + " ms, first request "
+                    + clientMicros + " us (HTTP " + status + "), report " + out.toAbsolutePath());
+            exitCode = status == 200 ? 0 : 1;
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> Startup probe failed: " + e.getMessage());
+            exitCode = 1;
+        }
+        int code = exitCode;
+        System.exit(SpringApplication.exit(event.getApplicationContext(), () -> code));
+    }
+}
@@ -0,0 +1,168 @@
+package com.shanthan.ai.startup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.cache.SemanticTriageCache;
+import com.shanthan.ai.codec.TriageBinaryCodec;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.service.FailureAnalysisService;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.env.Environment;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Brings a fresh replica to steady-state latency before it takes traffic
+ * (ApplicationRunners finish before ApplicationReadyEvent):
+ *
+ * - loads the semantic similarity index from its snapshot (semantic.snapshot)
+ * - runs warmup.iterations rounds of the local triage path over the sample
+ *   failures in warmup.payloads (classpath: or file: JSONL, one payload per
+ *   line): locator indexing and ranking, the regex rules in LocatorQuery /
+ *   DomElement / FailureEmbedder, trace scanning and fingerprints, rule
+ *   overrides, and the JSON and binary serializers
+ * - sends warmup.httpRequests loopback requests to GET /api/ai/startup, which
+ *   loads the Tomcat / MVC / Jackson request path and the OkHttp client
+ *   classes the LLM client uses
+ *
+ * Nothing is recorded or cached and no LLM call is made.
+ */
+@Component
+@Profile("!batch")
+public class WarmupRunner implements ApplicationRunner {
+
+    private final FailureAnalysisService failureAnalysisService;
+    private final SemanticTriageCache semanticCache;
+    private final StartupMetrics metrics;
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final Environment env;
+    private final boolean enabled;
+    private final String payloads;
+    private final int iterations;
+    private final int httpRequests;
+
+    public WarmupRunner(FailureAnalysisService failureAnalysisService,
+                        SemanticTriageCache semanticCache,
+                        StartupMetrics metrics,
+                        ResourceLoader resourceLoader,
+                        ObjectMapper objectMapper,
+                        Environment env,
+                        @Value("${warmup.enabled:true}") boolean enabled,
+                        @Value("${warmup.payloads:classpath:warmup/failures.jsonl}") String payloads,
+                        @Value("${warmup.iterations:200}") int iterations,
+                        @Value("${warmup.httpRequests:20}") int httpRequests) {
+        this.failureAnalysisService = failureAnalysisService;
+        this.semanticCache = semanticCache;
+        this.metrics = metrics;
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.env = env;
+        this.enabled = enabled;
+        this.payloads = payloads;
+        this.iterations = iterations;
+        this.httpRequests = httpRequests;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        int snapshotEntries = 0;
+        try {
+            snapshotEntries = semanticCache.loadSnapshot();
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> Semantic snapshot not loaded: " + e.getMessage());
+        }
+
+        List<FailureEventPayload> samples = readSamples();
+        try {
+            for (int i = 0; i < iterations; i++) {
+                for (FailureEventPayload sample : samples) {
+                    warmUp(sample);
+                }
+            }
+            warmUpHttp();
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> Warm-up stopped early: " + e.getMessage());
+        }
+
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        metrics.warmupDone(millis, samples.size(), iterations, snapshotEntries);
+        System.out.println("DEBUG >>> Warm-up: " + samples.size() + " samples x " + iterations
+                + " iterations, " + snapshotEntries + " semantic snapshot entries, " + millis + " ms");
+    }
+
+    /**
+     * The samples, for StartupProbe.
+     */
+    public List<FailureEventPayload> readSamples() {
+        List<FailureEventPayload> samples = new ArrayList<>();
+        Resource resource = resourceLoader.getResource(payloads);
+        if (!resource.exists()) {
+            System.out.println("DEBUG >>> Warm-up payloads not found: " + payloads);
+            return samples;
+        }
+        try (BufferedReader in = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            for (String line = in.readLine(); line != null; line = in.readLine()) {
+                if (!line.isBlank()) {
+                    samples.add(objectMapper.readValue(line, FailureEventPayload.class));
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> Warm-up payloads unreadable: " + e.getMessage());
+        }
+        return samples;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private void warmUpHttp() throws IOException {
+        String port = env.getProperty("local.server.port");
+        if (port == null || httpRequests <= 0) {
+            return; // not a web application
+        }
+        OkHttpClient client = new OkHttpClient();
+        Request request = new Request.Builder().url("http://127.0.0.1:" + port + "/api/ai/startup").get().build();
+        for (int i = 0; i < httpRequests; i++) {
+            try (Response response = client.newCall(request).execute()) {
+                if (response.body() != null) {
+                    response.body().bytes();
+                }
+            }
+        }
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    private void warmUp(FailureEventPayload sample) throws IOException {
+        failureAnalysisService.warmUp(sample);
+
+        // Serializers as used by the controllers and the stream handler
+        FailureEventPayload decoded = objectMapper.readValue(objectMapper.writeValueAsBytes(sample),
+                FailureEventPayload.class);
+        decoded = TriageBinaryCodec.decodePayload(TriageBinaryCodec.encodePayload(decoded));
+        FailureAnalysisResponse response = new FailureAnalysisResponse();
+        response.setRootCauseSummary(decoded.getFailureMessage());
+        response.setRecommendedNextSteps(decoded.getTestName());
+        objectMapper.writeValueAsBytes(TriageBinaryCodec.decodeResponse(TriageBinaryCodec.encodeResponse(response)));
+    }
+}
@@ -0,0 +1,164 @@
+package com.shanthan.ai;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.model.FailureType;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local chat-completions endpoint for the concurrency tests. Every answer is
+ * derived from the request alone, so a test can tell which request an
+ * analysis belongs to:
+ *
+ * - rootCauseSummary = "echo <testName> <token>", where token is the value
+ *   after "token=" in the failure message
+ * - failureType: a label picked from the test name (some are prompt aliases,
+ *   see expectedType)
+ * - severityScore: 1-5, also from the test name
+ *
+ * failWhen() makes it answer HTTP 500 (an upstream error) for chosen tests.
+ */
+public final class MockLlm implements AutoCloseable {
+
+    private static final Pattern TEST_NAME = Pattern.compile("testName: (\\S+)");
+    private static final Pattern TOKEN = Pattern.compile("token=(\\S+)");
+
+    /**
+     * Labels the mock answers with and what they should map to.
+     */
+    private static final String[] LABELS = {
+            "ASSERTION_FAILURE", "SERVER_BUG", "CONTRACT_MISMATCH", "DATA_DEPENDENCY", "CLIENT_REQUEST_ISSUE"};
+    private static final Map<String, FailureType> MAPPED = Map.of(
+            "ASSERTION_FAILURE", FailureType.ASSERTION_FAILURE,
+            "SERVER_BUG", FailureType.BACKEND_5XX,
+            "CONTRACT_MISMATCH", FailureType.CONTRACT_MISMATCH,
+            "DATA_DEPENDENCY", FailureType.TEST_DATA_ISSUE,
+            "CLIENT_REQUEST_ISSUE", FailureType.CLIENT_REQUEST_ISSUE);
+
+    private final MockWebServer server = new MockWebServer();
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final AtomicLong calls = new AtomicLong();
+    private final long delayMillis;
+    private volatile Predicate<String> failing = testName -> false;
+
+    public MockLlm(long delayMillis) throws IOException {
+        this.delayMillis = delayMillis;
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return answer(request);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Base URL to use as openai.baseUrl.
+     */
+    public String baseUrl() {
+        String url = server.url("/v1").toString();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * Tests whose calls get an HTTP 500 from now on; testName -> false heals them.
+     */
+    public void failWhen(Predicate<String> testNames) {
+        this.failing = testNames;
+    }
+
+    public long calls() {
+        return calls.get();
+    }
+
+    public static FailureType expectedType(String testName) {
+        return MAPPED.get(label(testName));
+    }
+
+    public static int expectedSeverity(String testName) {
+        return 1 + Math.floorMod(testName.hashCode() >> 8, 5);
+    }
+
+    public static String expectedRootCause(String testName, String token) {
+        return "echo " + testName + " " + token;
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.shutdown();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static String label(String testName) {
+        return LABELS[Math.floorMod(testName.hashCode(), LABELS.length)];
+    }
+
+    private MockResponse answer(RecordedRequest request) {
+        calls.incrementAndGet();
+        drainRecorded();
+        try {
+            JsonNode body = mapper.readTree(request.getBody().readUtf8());
+            String user = body.path("messages").path(1).path("content").asText();
+            String testName = find(TEST_NAME, user);
+            String token = find(TOKEN, user);
+            if (failing.test(testName)) {
+                return new MockResponse().setResponseCode(500).setBody("upstream error for " + testName);
+            }
+
+            var content = mapper.createObjectNode();
+            content.put("failureType", label(testName));
+            content.put("rootCauseSummary", expectedRootCause(testName, token));
+            content.put("recommendedNextSteps", "check " + token);
+            content.put("severityScore", expectedSeverity(testName));
+            content.put("jiraSummaryTemplate", "[" + testName + "] " + token);
+            content.putArray("similarFailures");
+            content.put("aiConfidence", 0.8);
+
+            var completion = mapper.createObjectNode();
+            completion.put("model", body.path("model").asText());
+            completion.putArray("choices").addObject().putObject("message")
+                    .put("role", "assistant")
+                    .put("content", mapper.writeValueAsString(content));
+            completion.putObject("usage").put("prompt_tokens", user.length() / 4).put("completion_tokens", 60);
+
+            return new MockResponse()
+                    .setHeader("Content-Type", "application/json")
+                    .setBody(mapper.writeValueAsString(completion))
+                    .setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+        } catch (IOException e) {
+            return new MockResponse().setResponseCode(500).setBody(e.toString());
+        }
+    }
+
+    /**
+     * MockWebServer keeps every request for takeRequest(); nothing here reads
+     * them, so drop them or a soak run measures the mock's memory.
+     */
+    private void drainRecorded() {
+        try {
+            while (server.takeRequest(0, TimeUnit.MILLISECONDS) != null) {
+                // discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static String find(Pattern pattern, String text) {
+        Matcher m = pattern.matcher(text);
+        return m.find() ? m.group(1) : "";
+    }
+}
@@ -0,0 +1,204 @@
+package com.shanthan.ai.batch;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.MockLlm;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.service.FailureAnalysisService;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * Batch re-triage of a surefire report and a JSONL dump against a local mock
+ * LLM: what the readers produce, what lands in the checkpoint, the exit code
+ * when items get no real answer, and what a resumed run skips and retries.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Timeout(value = 60, unit = TimeUnit.SECONDS)
+class BatchTriageRunnerTest {
+
+    private static final MockLlm LLM = startLlm();
+
+    private static final String REPORT = """
+            <?xml version="1.0" encoding="UTF-8"?>
+            <testsuite name="Regression" tests="4" failures="1" errors="1" skipped="1">
+              <testcase name="listsOrders" classname="com.example.api.OrdersApiTest" time="0.1"/>
+              <testcase name="totalIsSummed" classname="com.example.api.OrdersApiTest" time="0.2">
+                <failure message="order total mismatch token=t1" type="java.lang.AssertionError">java.lang.AssertionError: order total mismatch
+                    at com.example.api.OrdersApiTest.totalIsSummed(OrdersApiTest.java:42)</failure>
+                <system-out>POST /api/orders -> 200</system-out>
+              </testcase>
+              <testcase name="orderIsCreated" classname="com.example.api.OrdersApiTest" time="0.3">
+                <error message="server said 500 token=t2" type="java.lang.IllegalStateException">java.lang.IllegalStateException: 500</error>
+              </testcase>
+              <testcase name="ordersArePaged" classname="com.example.api.OrdersApiTest" time="0.0">
+                <skipped/>
+              </testcase>
+            </testsuite>
+            """;
+
+    @Autowired
+    private FailureAnalysisService service;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("openai.apiKey", () -> "test-key");
+        registry.add("openai.baseUrl", LLM::baseUrl);
+        registry.add("warmup.enabled", () -> "false");
+        registry.add("semantic.enabled", () -> "false");
+        registry.add("semantic.snapshot", () -> "");
+        registry.add("classifier.mode", () -> "off");   // a failed call must stay unanswered
+    }
+
+    @AfterAll
+    static void stopLlm() throws IOException {
+        LLM.close();
+    }
+
+    @Test
+    void readersStreamOnlyFailedTestCasesAndWellFormedLines() throws Exception {
+        Path report = Files.writeString(dir.resolve("TEST-com.example.api.OrdersApiTest.xml"), REPORT);
+        Path dump = writeDump(dir.resolve("failures.jsonl"));
+
+        List<BatchItem> items = new ArrayList<>();
+        assertThat(new SurefireReportReader(8000).read(report, "TEST-orders.xml", items::add)).isEqualTo(2);
+        assertThat(new FailureDumpReader().read(dump, "failures.jsonl", items::add)).isEqualTo(2);
+
+        assertThat(items).extracting(i -> i.payload.getTestName(), i -> i.payload.getSuiteName(),
+                        i -> i.payload.getTestType(), i -> i.payload.getFailureMessage())
+                .containsExactly(
+                        tuple("totalIsSummed", "Regression", "API", "order total mismatch token=t1"),
+                        tuple("orderIsCreated", "Regression", "API", "server said 500 token=t2"),
+                        tuple("refundIsIssued", null, "API", "refund missing token=t3"),
+                        tuple("invoiceIsSent", null, "API", "invoice missing token=t4"));
+        FailureEventPayload first = items.get(0).payload;
+        assertThat(first.getStackTrace()).startsWith("java.lang.AssertionError: order total mismatch");
+        assertThat(first.getRawLogSnippet()).isEqualTo("POST /api/orders -> 200");
+        assertThat(items.get(0).id).startsWith("TEST-orders.xml#com.example.api.OrdersApiTest.totalIsSummed@");
+        // line 2 is malformed, line 4 blank: ids keep the real line numbers
+        assertThat(items.subList(2, 4)).extracting(i -> i.id)
+                .containsExactly("failures.jsonl:1", "failures.jsonl:3");
+    }
+
+    @Test
+    void failedItemsStayOutOfTheCheckpointAndAreRetriedOnResume() throws Exception {
+        Path input = Files.createDirectories(dir.resolve("archive"));
+        Files.writeString(Files.createDirectories(input.resolve("reports"))
+                .resolve("TEST-com.example.api.OrdersApiTest.xml"), REPORT);
+        writeDump(Files.createDirectories(input.resolve("dumps")).resolve("failures.jsonl"));
+        Path output = dir.resolve("out/retriage.jsonl");
+
+        LLM.failWhen("refundIsIssued"::equals);
+        try {
+            assertThat(runner(input, output).triage()).isEqualTo(1);
+        } finally {
+            LLM.failWhen(testName -> false);
+        }
+        assertThat(results(output)).extracting(r -> r.path("test").asText(), r -> r.path("type").asText())
+                .containsExactlyInAnyOrder(
+                        tuple("com.example.api.OrdersApiTest.totalIsSummed", type("totalIsSummed")),
+                        tuple("com.example.api.OrdersApiTest.orderIsCreated", type("orderIsCreated")),
+                        tuple("com.example.api.RefundsApiTest.invoiceIsSent", type("invoiceIsSent")));
+
+        try (BatchResultWriter writer = BatchResultWriter.open(output, true, 1)) {
+            assertThat(writer.resumedCount()).isEqualTo(3);
+            assertThat(writer.isDone("dumps/failures.jsonl:3")).isTrue();
+            assertThat(writer.isDone("dumps/failures.jsonl:1")).isFalse();
+        }
+
+        // a torn tail from a crash is neither counted nor glued to the next line
+        Files.writeString(output, "{\"id\":\"dumps/failures.jsonl:1\",\"te", StandardOpenOption.APPEND);
+        long callsBefore = LLM.calls();
+        assertThat(runner(input, output).triage()).isEqualTo(0);
+
+        // only the failed item was sent again
+        assertThat(LLM.calls() - callsBefore).isEqualTo(1);
+        List<JsonNode> results = results(output);
+        assertThat(results).extracting(r -> r.path("id").asText()).doesNotHaveDuplicates().hasSize(4)
+                .contains("dumps/failures.jsonl:1");
+        assertThat(results.get(3).path("summary").asText())
+                .isEqualTo(MockLlm.expectedRootCause("refundIsIssued", "t3"));
+        try (BatchResultWriter writer = BatchResultWriter.open(output, true, 1)) {
+            assertThat(writer.resumedCount()).isEqualTo(4);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static MockLlm startLlm() {
+        try {
+            return new MockLlm(0);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private BatchTriageRunner runner(Path input, Path output) {
+        return new BatchTriageRunner(service, context, List.of(input.toString()), output,
+                2, true, 1, 100, 8000, false);
+    }
+
+    private Path writeDump(Path file) throws IOException {
+        return Files.writeString(file, String.join("\n",
+                mapper.writeValueAsString(payload("refundIsIssued", "refund missing token=t3")),
+                "{not json",
+                mapper.writeValueAsString(payload("invoiceIsSent", "invoice missing token=t4")),
+                "",
+                ""), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Complete lines only: a torn line is not a result.
+     */
+    private List<JsonNode> results(Path output) throws IOException {
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : Files.readAllLines(output)) {
+            if (line.endsWith("}")) {
+                results.add(mapper.readTree(line));
+            }
+        }
+        return results;
+    }
+
+    private static String type(String testName) {
+        return MockLlm.expectedType(testName).name();
+    }
+
+    private static FailureEventPayload payload(String testName, String message) {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName(testName);
+        p.setFeature("com.example.api.RefundsApiTest");
+        p.setTestType("API");
+        p.setFailureMessage(message);
+        p.setStackTrace("java.lang.AssertionError: " + message);
+        return p;
+    }
+}
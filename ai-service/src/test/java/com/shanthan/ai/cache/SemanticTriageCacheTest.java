@@ -0,0 +1,176 @@
+package com.shanthan.ai.cache;
+
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.mock.env.MockEnvironment;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * SemanticTriageCache with hand-made unit vectors, so every similarity is
+ * known exactly: per-type thresholds and TTLs, scope isolation, verification
+ * sampling, invalidation from the shared store and the snapshot round trip.
+ */
+class SemanticTriageCacheTest {
+
+    private static final String SCOPE = "com.example.LoginTest#login";
+
+    @TempDir
+    Path dir;
+
+    private final LocalSharedTriageStore far = new LocalSharedTriageStore(100);
+    private final MockEnvironment env = new MockEnvironment()
+            .withProperty("semantic.threshold.TIMEOUT", "0.99")
+            .withProperty("cache.ttl.ENVIRONMENT", "PT0.5S");
+
+    @Test
+    void reusesOnlyAboveTheStoredTypesThreshold() {
+        SemanticTriageCache cache = cache(0.0, "");
+        cache.put("assertion", SCOPE, axis(0), answer(FailureType.ASSERTION_FAILURE));
+        cache.put("timeout", "other#scope", axis(0), answer(FailureType.TIMEOUT));
+
+        SemanticTriageCache.Match match = cache.lookup(SCOPE, at(0.95f));
+        assertThat(match).isNotNull();
+        assertThat(match.isVerify()).isFalse();
+        FailureAnalysisResponse reused = match.reuse();
+        assertThat(reused.getReusedFrom()).isEqualTo("assertion");
+        assertThat(reused.getReuseSimilarity()).isEqualTo(0.95);
+        assertThat(cache.lookup(SCOPE, at(0.85f))).isNull();
+
+        // TIMEOUT needs 0.99
+        assertThat(cache.lookup("other#scope", at(0.95f))).isNull();
+        assertThat(cache.lookup("other#scope", at(0.995f)).getSourceId()).isEqualTo("timeout");
+
+        assertThat(cache.stats()).containsEntry("lookups", 4L).containsEntry("hits", 2L).containsEntry("misses", 2L);
+    }
+
+    @Test
+    void analysesAreOnlyReusedWithinTheSameTest() {
+        SemanticTriageCache cache = cache(0.0, "");
+        cache.put("a", SCOPE, axis(0), answer(FailureType.ASSERTION_FAILURE));
+
+        assertThat(cache.lookup("com.example.LoginTest#logout", axis(0))).isNull();
+        assertThat(cache.lookup("com.example.CartTest#login", axis(0))).isNull();
+        assertThat(cache.lookup(SCOPE, axis(0)).getSourceId()).isEqualTo("a");
+    }
+
+    @Test
+    void entriesOlderThanTheirTypesTtlAreIgnored() throws Exception {
+        SemanticTriageCache cache = cache(0.0, "");
+        cache.put("env", SCOPE, axis(0), answer(FailureType.ENVIRONMENT));
+        cache.put("assertion", SCOPE, axis(1), answer(FailureType.ASSERTION_FAILURE));
+        assertThat(cache.lookup(SCOPE, axis(0))).isNotNull();
+
+        Thread.sleep(700);
+        assertThat(cache.lookup(SCOPE, axis(0))).isNull();
+        assertThat(cache.lookup(SCOPE, axis(1)).getSourceId()).isEqualTo("assertion");
+    }
+
+    @Test
+    void sampledHitsAreVerifiedInsteadOfReused() {
+        SemanticTriageCache always = cache(1.0, "");
+        always.put("a", SCOPE, axis(0), answer(FailureType.ASSERTION_FAILURE));
+        SemanticTriageCache.Match sample = always.lookup(SCOPE, axis(0));
+        assertThat(sample.isVerify()).isTrue();
+
+        always.verify(sample, answer(FailureType.ASSERTION_FAILURE));
+        always.verify(always.lookup(SCOPE, axis(0)), answer(FailureType.TIMEOUT));
+        assertThat(always.stats()).containsEntry("hits", 0L).containsEntry("verified", 2L)
+                .containsEntry("falseReuses", 1L).containsEntry("falseReuseRate", 0.5);
+        assertThat(typeStats(always, "ASSERTION_FAILURE")).containsEntry("falseReuses", 1L);
+
+        SemanticTriageCache never = cache(0.0, "");
+        never.put("a", SCOPE, axis(0), answer(FailureType.ASSERTION_FAILURE));
+        for (int i = 0; i < 100; i++) {
+            assertThat(never.lookup(SCOPE, axis(0)).isVerify()).isFalse();
+        }
+    }
+
+    @Test
+    void sharedStoreInvalidationsClearTheIndex() {
+        SemanticTriageCache cache = cache(0.0, "");
+        cache.put("a", SCOPE, axis(0), answer(FailureType.ASSERTION_FAILURE));
+        cache.put("b", SCOPE, axis(1), answer(FailureType.ASSERTION_FAILURE));
+        cache.put("c", SCOPE, axis(2), answer(FailureType.ASSERTION_FAILURE));
+
+        far.invalidate("a");
+        assertThat(cache.lookup(SCOPE, axis(0))).isNull();
+        assertThat(cache.lookup(SCOPE, axis(1))).isNotNull();
+        assertThat(cache.stats()).containsEntry("size", 2);
+
+        far.invalidate(SharedTriageStore.ALL_KEYS);
+        assertThat(cache.lookup(SCOPE, axis(1))).isNull();
+        assertThat(cache.lookup(SCOPE, axis(2))).isNull();
+        assertThat(cache.stats()).containsEntry("size", 0);
+    }
+
+    @Test
+    void snapshotRoundTripKeepsLiveEntries() throws Exception {
+        String snapshot = dir.resolve("semantic.bin").toString();
+        SemanticTriageCache before = cache(0.0, snapshot);
+        FailureAnalysisResponse timeout = answer(FailureType.TIMEOUT);
+        timeout.setRootCauseSummary("login page slow to render");
+        before.put("timeout", SCOPE, axis(0), timeout);
+        before.put("env", SCOPE, axis(1), answer(FailureType.ENVIRONMENT));
+        before.saveSnapshot();
+
+        Thread.sleep(700);   // past the ENVIRONMENT ttl
+        SemanticTriageCache after = cache(0.0, snapshot);
+        assertThat(after.loadSnapshot()).isEqualTo(1);
+
+        FailureAnalysisResponse restored = after.lookup(SCOPE, axis(0)).reuse();
+        assertThat(restored.getFailureType()).isEqualTo(FailureType.TIMEOUT);
+        assertThat(restored.getRootCauseSummary()).isEqualTo("login page slow to render");
+        assertThat(restored.getAiConfidence()).isEqualTo(0.8);
+        assertThat(after.lookup(SCOPE, axis(1))).isNull();
+        assertThat(cache(0.0, dir.resolve("missing.bin").toString()).loadSnapshot()).isZero();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private SemanticTriageCache cache(double verifyRate, String snapshot) {
+        // Boot's converters, as in the application (cache.ttl.<TYPE> is read as a Duration)
+        env.setConversionService((ApplicationConversionService) ApplicationConversionService.getSharedInstance());
+        return new SemanticTriageCache(far, env, true, 16, verifyRate, 0.9f, Duration.ofHours(6), snapshot);
+    }
+
+    /**
+     * Unit vector along one dimension.
+     */
+    private static float[] axis(int d) {
+        float[] v = new float[FailureEmbedder.DIM];
+        v[d] = 1f;
+        return v;
+    }
+
+    /**
+     * Unit vector whose cosine with axis(0) is exactly the given similarity.
+     */
+    private static float[] at(float similarity) {
+        float[] v = new float[FailureEmbedder.DIM];
+        v[0] = similarity;
+        v[1] = (float) Math.sqrt(1 - similarity * similarity);
+        return v;
+    }
+
+    private static FailureAnalysisResponse answer(FailureType type) {
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        r.setFailureType(type);
+        r.setAiConfidence(0.8);
+        r.setSeverityScore(3);
+        return r;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> typeStats(SemanticTriageCache cache, String type) {
+        return (Map<String, Object>) ((Map<String, Object>) cache.stats().get("byType")).get(type);
+    }
+}
@@ -0,0 +1,224 @@
+package com.shanthan.ai.classifier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FailureType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LocalTriageClassifier trained on a handful of seed lines: predicted types
+ * and confidences, when each mode answers, online learning, and predictions
+ * racing online updates (the optimistic-read path).
+ */
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class LocalTriageClassifierTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @TempDir
+    Path dir;
+
+    private String seed;
+
+    @BeforeEach
+    void writeSeed() throws Exception {
+        List<String> lines = new ArrayList<>();
+        for (String page : List.of("Login", "Cart", "Checkout", "Profile")) {
+            lines.add(seedLine(locator(page, "submit-" + page.toLowerCase()), FailureType.LOCATOR_ISSUE));
+            lines.add(seedLine(backend(page, 500 + page.length() % 4), FailureType.BACKEND_5XX));
+            lines.add(seedLine(unauthorized(page), FailureType.AUTHENTICATION));
+        }
+        seed = "file:" + Files.write(dir.resolve("seed.jsonl"), lines);
+    }
+
+    @Test
+    void predictsTheSeedClassesOfUnseenFailures() {
+        LocalTriageClassifier classifier = classifier("fallback", 0.8, true);
+
+        assertThat(classifier.stats()).containsEntry("seedExamples", 12).containsEntry("trainingAccuracy", 1.0);
+        assertPredicts(classifier, locator("Orders", "order-row"), FailureType.LOCATOR_ISSUE);
+        assertPredicts(classifier, backend("Orders", 503), FailureType.BACKEND_5XX);
+        assertPredicts(classifier, unauthorized("Orders"), FailureType.AUTHENTICATION);
+    }
+
+    @Test
+    void modesDecideWhetherTheClassifierAnswers() {
+        LocalTriageClassifier off = classifier("off", 0.8, true);
+        assertThat(off.isFallback()).isFalse();
+        assertThat(off.isFirstTier()).isFalse();
+        assertThat(off.stats()).containsEntry("seedExamples", 0);
+
+        LocalTriageClassifier fallback = classifier("fallback", 0.8, true);
+        assertThat(fallback.isFallback()).isTrue();
+        assertThat(fallback.isFirstTier()).isFalse();
+
+        LocalTriageClassifier first = classifier("FIRST", 0.8, true);
+        assertThat(first.isFallback()).isTrue();
+        assertThat(first.isFirstTier()).isTrue();
+    }
+
+    @Test
+    void firstTierAnswersOnlyAtOrAboveTheThreshold() {
+        FailureEventPayload failure = backend("Orders", 502);
+        double confidence = classifier("first", 0.8, true).classify(failure, null).getConfidence();
+        assertThat(confidence).isGreaterThan(0.5).isLessThan(1.0);
+
+        // training is deterministic, so each instance predicts the same confidence
+        LocalTriageClassifier atThreshold = classifier("first", confidence, true);
+        LocalTriageClassifier aboveIt = classifier("first", Math.nextUp(confidence), true);
+        assertThat(atThreshold.answersFirst(atThreshold.classify(failure, null))).isTrue();
+        assertThat(aboveIt.answersFirst(aboveIt.classify(failure, null))).isFalse();
+
+        // an UNKNOWN prediction never skips the LLM
+        assertThat(atThreshold.answersFirst(new LocalTriageClassifier.Prediction(FailureType.UNKNOWN, 1.0)))
+                .isFalse();
+
+        FailureAnalysisResponse r = atThreshold.respond(failure, atThreshold.classify(failure, null), true, null);
+        assertThat(r.getFailureType()).isEqualTo(FailureType.BACKEND_5XX);
+        assertThat(r.getSeverityScore()).isEqualTo(4);
+        assertThat(r.getJiraSummaryTemplate()).isEqualTo("[OrdersApiTest] backend 5xx in loadsOrders");
+        assertThat(atThreshold.stats()).containsEntry("firstTierAnswers", 1L).containsEntry("fallbackAnswers", 0L);
+    }
+
+    @Test
+    void learnsOnlyConfidentInformativeAnswers() {
+        LocalTriageClassifier classifier = new LocalTriageClassifier(new DefaultResourceLoader(), "first",
+                "file:" + dir.resolve("missing.jsonl"), List.of(), 40, 0.5, 0.8, true, 0.7, 0.1);
+        assertThat(classifier.isFirstTier()).isFalse();
+
+        FailureEventPayload failure = unauthorized("Orders");
+        classifier.learn(failure, null, answer(FailureType.AUTHENTICATION, 0.5));
+        classifier.learn(failure, null, answer(FailureType.FLAKY_TEST, 0.9));
+        classifier.learn(failure, null, answer(FailureType.UNKNOWN, 0.9));
+        assertThat(classifier.stats()).containsEntry("learnedOnline", 0L);
+        assertThat(classifier.isFirstTier()).isFalse();
+
+        classifier.learn(failure, null, answer(FailureType.AUTHENTICATION, 0.9));
+        assertThat(classifier.stats()).containsEntry("learnedOnline", 1L);
+        assertThat(classifier.isFirstTier()).isTrue();
+        assertPredicts(classifier, failure, FailureType.AUTHENTICATION);
+
+        LocalTriageClassifier frozen = classifier("fallback", 0.8, false);
+        frozen.learn(failure, null, answer(FailureType.AUTHENTICATION, 0.9));
+        assertThat(frozen.stats()).containsEntry("learnedOnline", 0L);
+    }
+
+    @Test
+    void predictionsStayConsistentWhileOnlineUpdatesRun() throws Exception {
+        LocalTriageClassifier classifier = classifier("first", 0.8, true);
+        FailureEventPayload locator = locator("Orders", "order-row");
+        FailureEventPayload backend = backend("Orders", 500);
+        AtomicBoolean done = new AtomicBoolean();
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> readers = new ArrayList<>();
+            for (int t = 0; t < 3; t++) {
+                readers.add(pool.submit(() -> {
+                    int n = 0;
+                    while (!done.get()) {
+                        LocalTriageClassifier.Prediction p = classifier.classify(n % 2 == 0 ? locator : backend, null);
+                        assertThat(p.getType()).isIn(FailureType.LOCATOR_ISSUE, FailureType.BACKEND_5XX,
+                                FailureType.AUTHENTICATION);
+                        assertThat(p.getConfidence()).isBetween(0.0, 1.0);
+                        n++;
+                    }
+                    return n;
+                }));
+            }
+            for (int i = 0; i < 2000; i++) {
+                classifier.learn(backend("Page" + i, 500), null, answer(FailureType.BACKEND_5XX, 0.9));
+            }
+            done.set(true);
+            for (Future<Integer> reader : readers) {
+                assertThat(reader.get()).isPositive();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertThat(classifier.stats()).containsEntry("learnedOnline", 2000L);
+        assertPredicts(classifier, locator, FailureType.LOCATOR_ISSUE);
+        assertPredicts(classifier, backend, FailureType.BACKEND_5XX);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private LocalTriageClassifier classifier(String mode, double minConfidence, boolean learnOnline) {
+        return new LocalTriageClassifier(new DefaultResourceLoader(), mode, seed, List.of(""), 40, 0.5,
+                minConfidence, learnOnline, 0.7, 0.1);
+    }
+
+    private static void assertPredicts(LocalTriageClassifier classifier, FailureEventPayload failure,
+                                       FailureType expected) {
+        LocalTriageClassifier.Prediction p = classifier.classify(failure, null);
+        assertThat(p.getType()).as(failure.getFailureMessage()).isEqualTo(expected);
+        assertThat(p.getConfidence()).isGreaterThan(0.5);
+    }
+
+    private String seedLine(FailureEventPayload payload, FailureType type) throws Exception {
+        ObjectNode node = mapper.valueToTree(payload);
+        node.put("failureType", type.name());
+        return mapper.writeValueAsString(node);
+    }
+
+    private static FailureEventPayload locator(String page, String id) {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName("opens" + page);
+        p.setFeature("com.acme.ui.tests." + page + "Test");
+        p.setTestType("UI");
+        p.setFailureMessage("no such element: Unable to locate element: {\"method\":\"css selector\",\"selector\":\"#"
+                + id + "\"}");
+        p.setStackTrace("org.openqa.selenium.NoSuchElementException: no such element\n"
+                + "\tat org.openqa.selenium.remote.RemoteWebDriver.findElement(RemoteWebDriver.java:351)\n"
+                + "\tat com.acme.ui.pages." + page + "Page.open(" + page + "Page.java:21)\n");
+        return p;
+    }
+
+    private static FailureEventPayload backend(String page, int status) {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName("loads" + page);
+        p.setFeature("com.acme.api.tests." + page + "ApiTest");
+        p.setTestType("API");
+        p.setHttpMethod("GET");
+        p.setEndpoint("/api/" + page.toLowerCase());
+        p.setStatusCode(status);
+        p.setFailureMessage("Expected status code <200> but was <" + status + ">");
+        p.setResponseBody("{\"error\":\"Internal Server Error\"}");
+        p.setStackTrace("java.lang.AssertionError: Expected status code <200> but was <" + status + ">\n"
+                + "\tat io.restassured.internal.ValidatableResponseImpl.statusCode(ValidatableResponseImpl.java:89)\n");
+        return p;
+    }
+
+    private static FailureEventPayload unauthorized(String page) {
+        FailureEventPayload p = backend(page, 401);
+        p.setTestName("reads" + page + "AsGuest");
+        p.setFailureMessage("Expected status code <200> but was <401>: token expired");
+        p.setResponseBody("{\"error\":\"Unauthorized\",\"message\":\"invalid or expired token\"}");
+        return p;
+    }
+
+    private static FailureAnalysisResponse answer(FailureType type, double confidence) {
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        r.setFailureType(type);
+        r.setAiConfidence(confidence);
+        return r;
+    }
+}
@@ -0,0 +1,82 @@
+package com.shanthan.ai.client;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.MockLlm;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * One OpenAiClient (one OkHttpClient connection pool, one ObjectMapper)
+ * called from many threads at once: every caller must get the completion
+ * for its own prompt.
+ */
+@Timeout(value = 60, unit = TimeUnit.SECONDS)
+class OpenAiClientConcurrencyTest {
+
+    private static final int THREADS = 300;
+
+    private MockLlm llm;
+    private OpenAiClient client;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        llm = new MockLlm(10);
+        client = new OpenAiClient("test-key", llm.baseUrl(), "mock-model",
+                Duration.ofSeconds(5), Duration.ofSeconds(30), Duration.ofSeconds(10), Duration.ofSeconds(60));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        llm.close();
+    }
+
+    @Test
+    void concurrentCompletionsAreNotMixedUp() throws Exception {
+        ObjectMapper mapper = new ObjectMapper();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<String> names = new ArrayList<>();
+            List<String> tokens = new ArrayList<>();
+            List<Future<LlmCompletion>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                String name = "client" + i;
+                String token = UUID.randomUUID().toString();
+                names.add(name);
+                tokens.add(token);
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return client.complete("system", "testName: " + name + "\nfailureMessage: token=" + token);
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < THREADS; i++) {
+                LlmCompletion c = futures.get(i).get(30, TimeUnit.SECONDS);
+                assertThat(c.isStubbed()).as("stubbed answer for " + names.get(i)).isFalse();
+                assertThat(c.getModel()).isEqualTo("mock-model");
+                JsonNode content = mapper.readTree(c.getContent());
+                assertThat(content.path("rootCauseSummary").asText())
+                        .isEqualTo(MockLlm.expectedRootCause(names.get(i), tokens.get(i)));
+                assertThat(c.getCompletionTokens()).isEqualTo(60);
+            }
+            assertThat(llm.calls()).isEqualTo(THREADS);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
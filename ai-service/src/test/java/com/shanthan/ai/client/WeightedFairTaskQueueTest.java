@@ -0,0 +1,66 @@
+package com.shanthan.ai.client;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * WeightedFairTaskQueue bookkeeping: flows disappear once their queue
+ * drains (dispatched or preempted), and the queue still dispatches fairly.
+ */
+class WeightedFairTaskQueueTest {
+
+    private final AtomicLong seq = new AtomicLong();
+    private final WeightedFairTaskQueue queue = new WeightedFairTaskQueue(4);
+
+    @Test
+    void drainedFlowsAreRemoved() {
+        for (int i = 0; i < 1000; i++) {
+            assertThat(queue.offer(task("tenant-" + i, 50))).isTrue();
+            assertThat(queue.poll()).isNotNull();
+        }
+
+        assertThat(queue.flowStats()).isEmpty();
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void preemptedFlowsAreRemoved() {
+        for (int i = 0; i < 4; i++) {
+            queue.offer(task("nightly", 10));
+        }
+        for (int i = 0; i < 4; i++) {
+            assertThat(queue.offer(task("gating", 90))).isTrue();
+        }
+
+        assertThat(queue.preempted()).isEqualTo(4);
+        assertThat(queue.flowStats()).containsOnlyKeys("gating");
+    }
+
+    @Test
+    void flowsShareByPriorityWhileActive() {
+        WeightedFairTaskQueue big = new WeightedFairTaskQueue(100);
+        for (int i = 0; i < 20; i++) {
+            big.offer(task("a", 30));
+            big.offer(task("b", 10));
+        }
+
+        List<String> order = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            order.add(((PrioritizedTask<?>) big.poll()).flow);
+        }
+        assertThat(order).filteredOn("a"::equals).hasSize(6);
+        assertThat(big.flowStats()).containsOnlyKeys("a", "b");
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private PrioritizedTask<Object> task(String flow, int priority) {
+        return new PrioritizedTask<>(() -> null, flow, priority, seq.incrementAndGet());
+    }
+}
@@ -0,0 +1,145 @@
+package com.shanthan.ai.codec;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FailureType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bytes-on-wire and CPU comparison of JSON (Jackson) vs the binary codec for
+ * a realistic failure event (deep Selenium stack trace + large API body).
+ * Setup prints the encoded sizes and checks that both codecs round-trip.
+ *
+ * Run (after mvn -pl ai-service -am test-compile):
+ *   java -cp ai-service/target/test-classes:ai-service/target/classes:&lt;test classpath&gt; \
+ *        org.openjdk.jmh.Main TriageCodecBenchmark -prof gc
+ *
+ * Reference numbers (JDK 17, 1 vCPU container, 1 fork, -prof gc):
+ *   payload bytes   json 17387, binary 15801 (91%)
+ *   response bytes  json   416, binary   189
+ *   encodeJson      53.4 us/op   32 KB/op
+ *   decodeJson      29.1 us/op   18 KB/op
+ *   encodeBinary     9.3 us/op   79 KB/op   (nested length-prefixed buffers)
+ *   decodeBinary     3.0 us/op   17 KB/op
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TriageCodecBenchmark {
+
+    private ObjectMapper mapper;
+    private FailureEventPayload payload;
+    private byte[] json;
+    private byte[] binary;
+
+    @Setup
+    public void setUp() throws Exception {
+        mapper = new ObjectMapper();
+        payload = samplePayload();
+        json = mapper.writeValueAsBytes(payload);
+        binary = TriageBinaryCodec.encodePayload(payload);
+
+        FailureAnalysisResponse response = sampleResponse();
+        byte[] jsonResp = mapper.writeValueAsBytes(response);
+        byte[] binaryResp = TriageBinaryCodec.encodeResponse(response);
+        System.out.printf("payload  bytes: json=%d binary=%d (%.1f%%)%n",
+                json.length, binary.length, 100.0 * binary.length / json.length);
+        System.out.printf("response bytes: json=%d binary=%d (%.1f%%)%n",
+                jsonResp.length, binaryResp.length, 100.0 * binaryResp.length / jsonResp.length);
+
+        if (!payload.getStackTrace().equals(TriageBinaryCodec.decodePayload(binary).getStackTrace())
+                || !payload.getResponseBody().equals(mapper.readValue(json, FailureEventPayload.class).getResponseBody())) {
+            throw new IllegalStateException("codec round trip changed the payload");
+        }
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws Exception {
+        return mapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public FailureEventPayload decodeJson() throws Exception {
+        return mapper.readValue(json, FailureEventPayload.class);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return TriageBinaryCodec.encodePayload(payload);
+    }
+
+    @Benchmark
+    public FailureEventPayload decodeBinary() {
+        return TriageBinaryCodec.decodePayload(binary);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static FailureEventPayload samplePayload() {
+        StringBuilder stack = new StringBuilder(
+                "org.openqa.selenium.NoSuchElementException: no such element: Unable to locate element: "
+                        + "{\"method\":\"css selector\",\"selector\":\"#fake-username-field\"}\n");
+        for (int i = 0; i < 120; i++) {
+            stack.append("\tat org.openqa.selenium.remote.RemoteWebDriver.execute(RemoteWebDriver.java:")
+                    .append(500 + i).append(")\n");
+        }
+        StringBuilder body = new StringBuilder("{\"users\":[");
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) body.append(',');
+            body.append("{\"id\":").append(i).append(",\"name\":\"User ").append(i)
+                    .append("\",\"email\":\"user").append(i).append("@example.com\"}");
+        }
+        body.append("]}");
+
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName("Login_failure_with_invalid_credentials");
+        p.setSuiteName("AI-Augmented-UI-Suite");
+        p.setFeature("com.shanthan.ai.ui.tests.LoginTest");
+        p.setEnvironment("staging");
+        p.setRunId("run-20261019-001");
+        p.setSessionId("3f1c0e7a-1b7e-4d1e-9c44-8c1d2b7f0a11");
+        p.setEventTimestamp(1_792_405_876_940L);
+        p.setTestType("UI");
+        p.setFailureMessage("no such element: Unable to locate element: #fake-username-field");
+        p.setStackTrace(stack.toString());
+        p.setRawLogSnippet("");
+        p.setTags(List.of("com.shanthan.ai.ui.tests.LoginTest", "login", "smoke"));
+        p.setHttpMethod("GET");
+        p.setEndpoint("https://api.example.com/api/users");
+        p.setStatusCode(500);
+        p.setRequestBody("{\"page\":1}");
+        p.setResponseBody(body.toString());
+        return p;
+    }
+
+    private static FailureAnalysisResponse sampleResponse() {
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        r.setFailureType(FailureType.LOCATOR_ISSUE);
+        r.setRootCauseSummary("The username field locator does not exist on the page.");
+        r.setRecommendedNextSteps("1. Inspect the page. 2. Update the locator. 3. Re-run the test.");
+        r.setSeverityScore(2);
+        r.setJiraSummaryTemplate("[Login] Fix locator for username input");
+        r.setSimilarFailures(new ArrayList<>());
+        r.setAiConfidence(0.9);
+        r.setRuleBasedOverrideApplied(true);
+        return r;
+    }
+}
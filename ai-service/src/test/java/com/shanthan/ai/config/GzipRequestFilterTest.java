@@ -0,0 +1,79 @@
+package com.shanthan.ai.config;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * GzipRequestFilter with servlet mocks: bodies are inflated up to the cap,
+ * and gzip requests cannot go async or read non-blocking.
+ */
+class GzipRequestFilterTest {
+
+    private final GzipRequestFilter filter = new GzipRequestFilter(64);
+
+    @Test
+    void gzipBodiesAreInflatedAndReadBlocking() throws Exception {
+        HttpServletRequest seen = filter(gzipRequest("{\"testName\":\"t\"}"));
+
+        assertThat(seen.getHeader("Content-Encoding")).isNull();
+        assertThat(new String(seen.getInputStream().readAllBytes(), StandardCharsets.UTF_8))
+                .isEqualTo("{\"testName\":\"t\"}");
+        assertThat(seen.getInputStream().isFinished()).isTrue();
+
+        assertThat(seen.isAsyncSupported()).isFalse();
+        assertThatThrownBy(seen::startAsync).isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> seen.getInputStream().setReadListener(mock(ReadListener.class)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void inflatedBodiesAreCapped() throws Exception {
+        HttpServletRequest seen = filter(gzipRequest("x".repeat(65)));
+
+        assertThatThrownBy(() -> seen.getInputStream().readAllBytes())
+                .isInstanceOf(GzipRequestFilter.InflatedSizeExceededException.class);
+    }
+
+    @Test
+    void plainRequestsPassThrough() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/ai/analyze-failure");
+        request.setAsyncSupported(true);
+
+        assertThat(filter(request)).isSameAs(request);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private HttpServletRequest filter(MockHttpServletRequest request) throws Exception {
+        AtomicReference<ServletRequest> seen = new AtomicReference<>();
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> seen.set(req));
+        return (HttpServletRequest) seen.get();
+    }
+
+    private static MockHttpServletRequest gzipRequest(String body) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/ai/analyze-failure");
+        request.addHeader("Content-Encoding", "gzip");
+        request.setAsyncSupported(true);
+        request.setContent(bytes.toByteArray());
+        return request;
+    }
+}
@@ -0,0 +1,127 @@
+package com.shanthan.ai.controller;
+
+import com.shanthan.ai.codec.StreamFrame;
+import com.shanthan.ai.codec.TriageBinaryCodec;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.service.FailureAnalysisService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketSession;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * FailureStreamHandler with one worker and a one-slot queue: a request that
+ * does not fit is answered at once with a backpressure frame instead of
+ * running on the socket's reader thread, and a malformed frame is dropped
+ * without closing the stream.
+ */
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class FailureStreamHandlerTest {
+
+    private final FailureAnalysisService analysis = mock(FailureAnalysisService.class);
+    private final FailureStreamHandler handler =
+            new FailureStreamHandler(analysis, 1, 1, Duration.ofMillis(750));
+
+    @AfterEach
+    void tearDown() {
+        handler.shutdown();
+    }
+
+    @Test
+    void saturatedWorkersAnswerWithABackpressureFrame() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(analysis.analyzeFailure(any())).thenAnswer(inv -> {
+            started.countDown();
+            release.await();
+            return new FailureAnalysisResponse();
+        });
+        List<StreamFrame<FailureAnalysisResponse>> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession session = session(sent);
+        handler.afterConnectionEstablished(session);
+
+        handler.handleBinaryMessage(session, request(1)); // running
+        started.await();
+        handler.handleBinaryMessage(session, request(2)); // queued
+        handler.handleBinaryMessage(session, request(3)); // rejected; returns without analysing
+
+        assertThat(sent).hasSize(1);
+        assertThat(sent.get(0).getCorrelationId()).isEqualTo(3);
+        assertThat(sent.get(0).isBackpressure()).isTrue();
+        assertThat(sent.get(0).getRetryAfterMillis()).isEqualTo(750);
+        assertThat(sent.get(0).getBody()).isNull();
+
+        release.countDown();
+        while (sent.size() < 3) {
+            Thread.sleep(10);
+        }
+        assertThat(sent.subList(1, 3)).extracting(StreamFrame::getCorrelationId).containsExactly(1L, 2L);
+        assertThat(sent.subList(1, 3)).noneMatch(StreamFrame::isBackpressure);
+    }
+
+    @Test
+    void malformedFramesAreDroppedAndTheStreamKeepsWorking() throws Exception {
+        when(analysis.analyzeFailure(any())).thenReturn(new FailureAnalysisResponse());
+        List<StreamFrame<FailureAnalysisResponse>> sent = new CopyOnWriteArrayList<>();
+        WebSocketSession session = session(sent);
+        handler.afterConnectionEstablished(session);
+
+        // field 2 claims Integer.MAX_VALUE bytes: pos + length would overflow
+        byte[] oversized = {0x08, 0x07, 0x12, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0x01};
+        assertThatThrownBy(() -> TriageBinaryCodec.decodeStreamRequest(oversized))
+                .isInstanceOf(IllegalArgumentException.class).hasMessage("Truncated message");
+        handler.handleBinaryMessage(session, new BinaryMessage(oversized));
+        // truncated varint
+        handler.handleBinaryMessage(session, new BinaryMessage(new byte[]{0x08, (byte) 0x80}));
+        handler.handleBinaryMessage(session, request(4));
+
+        while (sent.isEmpty()) {
+            Thread.sleep(10);
+        }
+        assertThat(sent).extracting(StreamFrame::getCorrelationId).containsExactly(4L);
+        verify(analysis, times(1)).analyzeFailure(any());
+        verify(session, never()).close(any());
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static WebSocketSession session(List<StreamFrame<FailureAnalysisResponse>> sent) throws Exception {
+        WebSocketSession session = mock(WebSocketSession.class);
+        when(session.getId()).thenReturn("s1");
+        when(session.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            BinaryMessage m = inv.getArgument(0);
+            byte[] data = new byte[m.getPayloadLength()];
+            m.getPayload().get(data);
+            sent.add(TriageBinaryCodec.decodeStreamResponse(data));
+            return null;
+        }).when(session).sendMessage(any());
+        return session;
+    }
+
+    private static BinaryMessage request(long correlationId) {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName("streamTest" + correlationId);
+        p.setFailureMessage("failed");
+        return new BinaryMessage(TriageBinaryCodec.encodeStreamRequest(correlationId, p));
+    }
+}
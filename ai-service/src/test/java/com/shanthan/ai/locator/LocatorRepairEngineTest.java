@@ -0,0 +1,79 @@
+package com.shanthan.ai.locator;
+
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.LocatorSuggestion;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * LocatorRepairEngine on a small login page: a renamed id is repaired with
+ * a stable selector, and only Selenium's NoSuchElementException counts as a
+ * locator failure.
+ */
+class LocatorRepairEngineTest {
+
+    private static final String PAGE = "https://example.test/login";
+    private static final String DOM = String.join("\n",
+            "<input id=\"user-name\" name=\"user-name\" type=\"text\" placeholder=\"Username\"> @ body>div#root>form",
+            "<input id=\"password\" name=\"password\" type=\"password\" placeholder=\"Password\"> @ body>div#root>form",
+            "<input id=\"login-button\" type=\"submit\" value=\"Login\"> @ body>div#root>form",
+            "<a href=\"/help\">Forgot username?</a> @ body>div#root",
+            "");
+
+    private final LocatorRepairEngine engine = new LocatorRepairEngine(16, 3, 0.6);
+
+    @Test
+    void renamedIdRanksFirstWithAStableSelector() {
+        List<LocatorSuggestion> suggestions = engine.suggest(seleniumFailure(DOM));
+
+        assertThat(suggestions).isNotEmpty().hasSizeLessThanOrEqualTo(3);
+        LocatorSuggestion best = suggestions.get(0);
+        assertThat(best.getSelector()).isEqualTo("#user-name");
+        assertThat(best.getBy()).isEqualTo("By.id(\"user-name\")");
+        assertThat(best.getElement()).startsWith("<input id=\"user-name\"");
+        assertThat(engine.isConfident(suggestions)).isTrue();
+        assertThat(suggestions).extracting(LocatorSuggestion::getScore).isSortedAccordingTo((a, b) -> Double.compare(b, a));
+
+        // the page is kept: a later failure without a snapshot is repaired the same way
+        assertThat(engine.suggest(seleniumFailure(null))).first()
+                .extracting(LocatorSuggestion::getSelector).isEqualTo("#user-name");
+    }
+
+    @Test
+    void javaUtilNoSuchElementExceptionIsNotALocatorFailure() {
+        engine.suggest(seleniumFailure(DOM));
+
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName("readsFirstUser");
+        p.setTestType("UI");
+        p.setPageUrl(PAGE);
+        p.setFailureMessage("No value present, expected By.id: fake-username-field");
+        p.setStackTrace("java.util.NoSuchElementException: No value present\n"
+                + "\tat java.base/java.util.Optional.orElseThrow(Optional.java:377)\n"
+                + "\tat com.shanthan.ai.ui.pages.LoginPage.firstUser(LoginPage.java:31)\n");
+
+        assertThat(engine.suggest(p)).isEmpty();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static FailureEventPayload seleniumFailure(String dom) {
+        String message = "no such element: Unable to locate element: "
+                + "{\"method\":\"css selector\",\"selector\":\"#fake\\-username\\-field\"}";
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName("loginWithValidCredentials");
+        p.setFeature("com.shanthan.ai.ui.tests.LoginTest");
+        p.setTestType("UI");
+        p.setPageUrl(PAGE + "?next=%2Finventory");
+        p.setFailureMessage(message);
+        p.setStackTrace("org.openqa.selenium.NoSuchElementException: " + message + "\n"
+                + "\tat org.openqa.selenium.remote.RemoteWebDriver.findElement(RemoteWebDriver.java:350)\n"
+                + "\tat com.shanthan.ai.ui.tests.LoginTest.loginWithValidCredentials(LoginTest.java:16)\n");
+        p.setDomSnapshot(dom);
+        return p;
+    }
+}
@@ -0,0 +1,111 @@
+package com.shanthan.ai.queue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FailureLog under concurrent appends (with segments rolling) while a reader
+ * tails the partitions, as the listeners and IngestConsumer use it.
+ */
+@Timeout(value = 60, unit = TimeUnit.SECONDS)
+class FailureLogConcurrencyTest {
+
+    private static final int WRITERS = 16;
+    private static final int PER_WRITER = 500;
+    private static final int PARTITIONS = 4;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void concurrentAppendsAreEachReadExactlyOnce() throws Exception {
+        try (FailureLog log = FailureLog.open(dir, PARTITIONS, 16 * 1024, 64 * 1024)) {
+            ExecutorService pool = Executors.newFixedThreadPool(WRITERS);
+            AtomicBoolean writing = new AtomicBoolean(true);
+            Map<String, Integer> seen = new HashMap<>();
+            try {
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> writers = new ArrayList<>();
+                for (int w = 0; w < WRITERS; w++) {
+                    int writer = w;
+                    writers.add(pool.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < PER_WRITER; i++) {
+                            String key = writer + "-" + i;
+                            log.append(log.partitionFor(key), key, ("value of " + key).getBytes(StandardCharsets.UTF_8));
+                        }
+                        return null;
+                    }));
+                }
+
+                long[] positions = new long[PARTITIONS];
+                Thread reader = new Thread(() -> {
+                    try {
+                        boolean more = true;
+                        while (writing.get() || more) {
+                            boolean last = !writing.get();
+                            more = tail(log, positions, seen) > 0 || !last;
+                        }
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }, "failure-log-reader");
+                reader.start();
+                start.countDown();
+                for (Future<?> f : writers) {
+                    f.get(30, TimeUnit.SECONDS);
+                }
+                writing.set(false);
+                reader.join(30_000);
+                assertThat(reader.isAlive()).isFalse();
+            } finally {
+                pool.shutdownNow();
+            }
+
+            assertThat(seen).hasSize(WRITERS * PER_WRITER);
+            assertThat(seen.values()).allMatch(n -> n == 1);
+            assertThat(log.corrupt()).isZero();
+            for (int p = 0; p < PARTITIONS; p++) {
+                assertThat(log.startOffset(p)).isZero();
+                try (var segments = Files.list(dir.resolve("p-" + p))) {
+                    assertThat(segments.filter(f -> f.toString().endsWith(".log")).count()).isGreaterThan(1);
+                }
+            }
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static int tail(FailureLog log, long[] positions, Map<String, Integer> seen) throws Exception {
+        int read = 0;
+        for (int p = 0; p < positions.length; p++) {
+            FailureLog.Batch batch = log.read(p, positions[p], 256);
+            for (FailureLog.Record r : batch.getRecords()) {
+                assertThat(new String(r.getValue(), StandardCharsets.UTF_8)).isEqualTo("value of " + r.getKey());
+                assertThat(log.partitionFor(r.getKey())).isEqualTo(p);
+                seen.merge(r.getKey(), 1, Integer::sum);
+            }
+            positions[p] = batch.getNextOffset();
+            read += batch.getRecords().size();
+        }
+        return read;
+    }
+}
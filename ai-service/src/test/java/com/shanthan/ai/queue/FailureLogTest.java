@@ -0,0 +1,87 @@
+package com.shanthan.ai.queue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FailureLog reading past what a writer that died mid-record leaves behind,
+ * and telling record offsets from offsets inside a record.
+ */
+class FailureLogTest {
+
+    // magic "TRG1", a body length of 4096, then only 3 of those bytes
+    private static final byte[] TORN = {0x54, 0x52, 0x47, 0x31, 0, 0, 0x10, 0, 7, 7, 7};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornTailFollowedByARecordIsSkipped() throws Exception {
+        try (FailureLog log = FailureLog.open(dir, 1, 1 << 20, 64 * 1024)) {
+            log.append(0, "before", bytes("ok"));
+            Files.write(segment(0), TORN, StandardOpenOption.APPEND);
+            log.append(0, "after", bytes("ok"));
+
+            assertThat(keys(log.read(0, 0, 10))).containsExactly("before", "after");
+            assertThat(log.corrupt()).isPositive();
+        }
+    }
+
+    @Test
+    void incompleteLastRecordIsWaitedFor() throws Exception {
+        try (FailureLog log = FailureLog.open(dir, 1, 1 << 20, 64 * 1024)) {
+            long first = log.append(0, "before", bytes("ok"));
+            Files.write(segment(0), TORN, StandardOpenOption.APPEND);
+
+            FailureLog.Batch batch = log.read(0, first, 10);
+            assertThat(keys(batch)).containsExactly("before");
+            // nothing after it yet: it may still be being written
+            assertThat(batch.getNextOffset()).isEqualTo(Files.size(segment(0)) - TORN.length);
+            assertThat(log.corrupt()).isZero();
+        }
+    }
+
+    @Test
+    void onlyRecordBoundariesAreRecordStarts() throws Exception {
+        try (FailureLog log = FailureLog.open(dir, 1, 1 << 20, 64 * 1024)) {
+            long first = log.append(0, "a", bytes("ok"));
+            long second = log.append(0, "b", bytes("ok"));
+            long end = log.endOffset(0);
+
+            assertThat(log.isRecordStart(0, first)).isTrue();
+            assertThat(log.isRecordStart(0, second)).isTrue();
+            assertThat(log.isRecordStart(0, end)).isTrue();
+            assertThat(log.isRecordStart(0, first + 1)).isFalse();
+            assertThat(log.isRecordStart(0, second - 1)).isFalse();
+            assertThat(log.isRecordStart(0, end + 1)).isFalse();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private Path segment(long base) {
+        return dir.resolve("p-0").resolve(String.format("%020d", base) + ".log");
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static List<String> keys(FailureLog.Batch batch) {
+        List<String> keys = new ArrayList<>();
+        for (FailureLog.Record r : batch.getRecords()) {
+            keys.add(r.getKey());
+        }
+        return keys;
+    }
+}
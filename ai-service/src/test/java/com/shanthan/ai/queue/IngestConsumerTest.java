@@ -0,0 +1,271 @@
+package com.shanthan.ai.queue;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FlakinessScore;
+import com.shanthan.ai.model.TestOutcome;
+import com.shanthan.ai.model.TestOutcomeEvent;
+import com.shanthan.ai.service.FailureAnalysisService;
+import com.shanthan.ai.service.FlakinessTracker;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.stubbing.Answer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * IngestConsumer against a real FailureLog in a temp directory and a mocked
+ * analysis service: what gets committed, written and retried.
+ */
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class IngestConsumerTest {
+
+    private static final String GROUP = "test";
+    private static final String FEATURE = "com.example.QueueTest";
+
+    @TempDir
+    Path dir;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final FailureAnalysisService service = mock(FailureAnalysisService.class);
+    private final FlakinessTracker flakiness = new FlakinessTracker(1024, 8, 0.5);
+    private IngestConsumer consumer;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (consumer != null) {
+            consumer.shutdown();
+        }
+    }
+
+    @Test
+    void offsetStopsAtAResultThatCouldNotBeWritten() throws Exception {
+        Answer<FailureAnalysisResponse> answer = inv -> {
+            FailureEventPayload p = inv.getArgument(0);
+            FailureAnalysisResponse r = new FailureAnalysisResponse();
+            // too large for the results log (maxRecordBytes below) for test "big"
+            r.setRootCauseSummary("big".equals(p.getTestName()) ? "x".repeat(4096) : "ok");
+            return r;
+        };
+        AtomicInteger redelivered = new AtomicInteger();
+        when(service.analyzeFailure(any(), any(), anyBoolean())).thenAnswer(answer);
+        when(service.analyzeRedelivered(any())).thenAnswer(inv -> {
+            redelivered.incrementAndGet();
+            return answer.answer(inv);
+        });
+        long[] offsets;
+        try (FailureLog log = open("failures")) {
+            offsets = new long[]{
+                    log.append(0, "k1", payload("small1")),
+                    log.append(0, "k2", payload("big")),
+                    log.append(0, "k3", payload("small2"))};
+        }
+
+        consumer = start(2048);
+        try (FailureLog results = open("results"); FailureLog failures = open("failures")) {
+            await(() -> consumer.stats().get("errors") instanceof Long n && n >= 2 && redelivered.get() > 0);
+            // k1 is done, k2 is retried, k3 (written or not) is not committed past k2
+            assertThat(failures.committed(GROUP, 0)).isEqualTo(offsets[1]);
+            assertThat(results.read(0, 0, 10).getRecords())
+                    .extracting(FailureLog.Record::getKey)
+                    .contains("k1")
+                    .doesNotContain("k2");
+        }
+        // the retries of k2 and k3 are not counted as new failures
+        verify(service, times(3)).analyzeFailure(any(), any(), anyBoolean());
+        verify(service, atLeastOnce()).analyzeRedelivered(argThat(p -> "big".equals(p.getTestName())));
+    }
+
+    @Test
+    void replayReScoresConsumedRecordsAndRejectsOffsetsInsideARecord() throws Exception {
+        when(service.analyzeFailure(any(), any(), anyBoolean())).thenReturn(new FailureAnalysisResponse());
+        when(service.rescore(any())).thenReturn(new FailureAnalysisResponse());
+        long first;
+        long end;
+        try (FailureLog log = open("failures")) {
+            first = log.append(0, "k1", payload("a"));
+            log.append(0, "k2", payload("b"));
+            end = log.endOffset(0);
+        }
+
+        consumer = start(1 << 20);
+        try (FailureLog failures = open("failures"); FailureLog results = open("results")) {
+            await(() -> committed(failures) == end);
+            assertThatThrownBy(() -> consumer.replay(0, first + 1))
+                    .isInstanceOf(IllegalArgumentException.class);
+
+            consumer.replay(0, first);
+            // results are written before the offset is committed
+            await(() -> readQuietly(results).size() == 4 && committed(failures) == end);
+        }
+        verify(service, times(2)).analyzeFailure(any(), any(), anyBoolean());
+        verify(service, times(2)).rescore(any());
+    }
+
+    @Test
+    void replayedRecordsWithoutARealAnswerAreRetriedNotWritten() throws Exception {
+        when(service.analyzeFailure(any(), any(), anyBoolean())).thenReturn(new FailureAnalysisResponse());
+        AtomicInteger unavailable = new AtomicInteger(2);
+        when(service.rescore(any())).thenAnswer(inv -> {
+            FailureEventPayload p = inv.getArgument(0);
+            if ("b".equals(p.getTestName()) && unavailable.getAndDecrement() > 0) {
+                throw new FailureAnalysisService.RescoreUnavailable("LLM saturated");
+            }
+            return new FailureAnalysisResponse();
+        });
+        long first;
+        long end;
+        try (FailureLog log = open("failures")) {
+            first = log.append(0, "k1", payload("a"));
+            log.append(0, "k2", payload("b"));
+            end = log.endOffset(0);
+        }
+
+        consumer = start(1 << 20);
+        try (FailureLog failures = open("failures"); FailureLog results = open("results");
+             FailureLog deadLetters = open("dead-letter")) {
+            await(() -> committed(failures) == end);
+            consumer.replay(0, first);
+            await(() -> readQuietly(results).size() == 4 && committed(failures) == end);
+            // k2's two unanswered re-scores wrote nothing and did not dead-letter it
+            assertThat(readQuietly(results)).extracting(FailureLog.Record::getKey)
+                    .containsExactlyInAnyOrder("k1", "k1", "k2", "k2");
+            assertThat(deadLetters.read(0, 0, 10).getRecords()).isEmpty();
+            assertThat((Long) consumer.stats().get("errors")).isGreaterThanOrEqualTo(2L);
+        }
+        verify(service, times(2)).analyzeFailure(any(), any(), anyBoolean());
+        verify(service, times(1)).rescore(argThat(p -> "a".equals(p.getTestName())));
+        verify(service, times(3)).rescore(argThat(p -> "b".equals(p.getTestName())));
+    }
+
+    @Test
+    void recordsThatCannotBeAnalysedAreDeadLetteredAndCommittedPast() throws Exception {
+        when(service.analyzeFailure(any(), any(), anyBoolean())).thenAnswer(inv -> {
+            FailureEventPayload p = inv.getArgument(0);
+            if ("boom".equals(p.getTestName())) {
+                throw new IllegalStateException("analysis failed");
+            }
+            return new FailureAnalysisResponse();
+        });
+        long end;
+        try (FailureLog log = open("failures")) {
+            log.append(0, "k1", payload("fine1"));
+            log.append(0, "k2", payload("boom"));
+            log.append(0, "k3", "{not json".getBytes(StandardCharsets.UTF_8));
+            log.append(0, "k4", payload("fine2"));
+            end = log.endOffset(0);
+        }
+
+        consumer = start(1 << 20);
+        try (FailureLog failures = open("failures"); FailureLog results = open("results");
+             FailureLog deadLetters = open("dead-letter")) {
+            await(() -> committed(failures) == end);
+            assertThat(results.read(0, 0, 10).getRecords())
+                    .extracting(FailureLog.Record::getKey).containsExactlyInAnyOrder("k1", "k4");
+            assertThat(deadLetters.read(0, 0, 10).getRecords())
+                    .extracting(FailureLog.Record::getKey).containsExactlyInAnyOrder("k2", "k3");
+            assertThat(consumer.stats().get("deadLettered")).isEqualTo(2L);
+        }
+    }
+
+    @Test
+    void outcomesAndFailuresOfATestAreRecordedInLogOrder() throws Exception {
+        when(service.analyzeFailure(any(), any(), anyBoolean())).thenReturn(new FailureAnalysisResponse());
+        long end;
+        try (FailureLog log = open("failures")) {
+            log.append(0, IngestConsumer.OUTCOME_KEY_PREFIX + "1", outcome("t", TestOutcome.PASS));
+            log.append(0, "k1", payload("t"));
+            log.append(0, IngestConsumer.OUTCOME_KEY_PREFIX + "2", outcome("t", TestOutcome.PASS));
+            log.append(0, IngestConsumer.OUTCOME_KEY_PREFIX + "3", outcome("t", TestOutcome.SKIP));
+            end = log.endOffset(0);
+        }
+
+        consumer = start(1 << 20);
+        try (FailureLog failures = open("failures"); FailureLog results = open("results")) {
+            await(() -> committed(failures) == end);
+            // PASS, FAIL, PASS: two flips; any other order would have fewer
+            FlakinessScore score = flakiness.lookup(FEATURE, "t");
+            assertThat(score.getSamples()).isEqualTo(3);
+            assertThat(score.getFlips()).isEqualTo(2);
+            assertThat(score.getSkips()).isEqualTo(1);
+            // outcomes get no result
+            assertThat(readQuietly(results)).extracting(FailureLog.Record::getKey).containsExactly("k1");
+            assertThat(consumer.stats().get("outcomes")).isEqualTo(3L);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private IngestConsumer start(int maxRecordBytes) throws Exception {
+        IngestConsumer c = new IngestConsumer(service, flakiness, true, dir, 1, 1 << 20, maxRecordBytes, GROUP,
+                1, 8, 4, Duration.ofMillis(20), Duration.ofMillis(50), Duration.ofDays(1), Duration.ofSeconds(5));
+        c.onReady(null);
+        return c;
+    }
+
+    private static long committed(FailureLog log) {
+        try {
+            return log.committed(GROUP, 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<FailureLog.Record> readQuietly(FailureLog log) {
+        try {
+            return log.read(0, 0, 100).getRecords();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private FailureLog open(String name) throws Exception {
+        return FailureLog.open(dir.resolve(name), 1, 1 << 20, 1 << 20);
+    }
+
+    private byte[] payload(String testName) throws Exception {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName(testName);
+        p.setFeature(FEATURE);
+        p.setTestType("API");
+        p.setFailureMessage("failed");
+        return mapper.writeValueAsBytes(p);
+    }
+
+    private byte[] outcome(String testName, TestOutcome outcome) throws Exception {
+        TestOutcomeEvent e = new TestOutcomeEvent();
+        e.setTestName(testName);
+        e.setFeature(FEATURE);
+        e.setOutcome(outcome);
+        return mapper.writeValueAsBytes(e);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        while (!condition.getAsBoolean()) {
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.model.AnalysisJob;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.JobStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * AnalysisJobService with a mocked analysis: which callback URLs are
+ * accepted, and which jobs expire.
+ */
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class AnalysisJobServiceTest {
+
+    private final FailureAnalysisService analysis = mock(FailureAnalysisService.class);
+    private AnalysisJobService jobs;
+
+    @AfterEach
+    void tearDown() {
+        if (jobs != null) {
+            jobs.shutdown();
+        }
+    }
+
+    @Test
+    void callbacksToInternalAddressesAreRefused() {
+        when(analysis.analyzeFailure(any())).thenReturn(new FailureAnalysisResponse());
+        jobs = service(Duration.ofHours(1), List.of());
+
+        for (String url : List.of("http://127.0.0.1:8085/hook", "http://localhost/hook", "http://10.1.2.3/hook",
+                "http://192.168.0.10/hook", "http://169.254.169.254/latest/meta-data", "http://[::1]/hook",
+                "http://[fd00::1]/hook", "http://0.0.0.0/hook", "ftp://93.184.216.34/hook", "not a url")) {
+            assertThatThrownBy(() -> jobs.submit(payload(), url)).as(url)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThatCode(() -> jobs.submit(payload(), "https://93.184.216.34/hook")).doesNotThrowAnyException();
+    }
+
+    @Test
+    void callbackHostsRestrictTheHost() {
+        when(analysis.analyzeFailure(any())).thenReturn(new FailureAnalysisResponse());
+        jobs = service(Duration.ofHours(1), List.of("93.184.216.34", "*.example.com"));
+
+        assertThatCode(() -> jobs.submit(payload(), "https://93.184.216.34/hook")).doesNotThrowAnyException();
+        assertThatThrownBy(() -> jobs.submit(payload(), "https://93.184.216.35/hook"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("jobs.callbackHosts");
+    }
+
+    @Test
+    void runningJobsOutliveTheTtlAndFinishedOnesExpire() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(analysis.analyzeFailure(any())).thenAnswer(inv -> {
+            release.await();
+            return new FailureAnalysisResponse();
+        });
+        jobs = service(Duration.ofMillis(100), List.of());
+
+        AnalysisJob job = jobs.submit(payload(), null);
+        Thread.sleep(300);
+        assertThat(jobs.get(job.getJobId())).as("still running after the ttl").isNotNull();
+
+        release.countDown();
+        while (job.getStatus() != JobStatus.DONE) {
+            Thread.sleep(10);
+        }
+        // status is written last
+        assertThat(job.getCompletedAt()).isNotNull();
+        assertThat(job.getResult()).isNotNull();
+        Thread.sleep(300);
+        assertThat(jobs.get(job.getJobId())).as("expired after completion").isNull();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private AnalysisJobService service(Duration ttl, List<String> callbackHosts) {
+        return new AnalysisJobService(analysis, 2, 10, 100, ttl, Duration.ofSeconds(1), 1,
+                List.of("https", "http"), callbackHosts, false);
+    }
+
+    private static FailureEventPayload payload() {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName("jobTest");
+        p.setFailureMessage("failed");
+        return p;
+    }
+}
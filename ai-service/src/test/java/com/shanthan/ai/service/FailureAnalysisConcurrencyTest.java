@@ -0,0 +1,175 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.MockLlm;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * analyzeFailure from hundreds of threads at once against a local mock LLM.
+ * The service's singletons (OpenAiClient with its OkHttpClient and
+ * ObjectMapper, the caches, bulkhead, parser, quotas) are shared by all of
+ * them; each answer must still be the one for its own request, and none may
+ * be lost or duplicated.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@Timeout(value = 120, unit = TimeUnit.SECONDS)
+class FailureAnalysisConcurrencyTest {
+
+    private static final int THREADS = 400;
+
+    private static final MockLlm LLM = startLlm();
+
+    @Autowired
+    private FailureAnalysisService service;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("openai.apiKey", () -> "test-key");
+        registry.add("openai.baseUrl", LLM::baseUrl);
+        registry.add("warmup.enabled", () -> "false");
+        registry.add("semantic.enabled", () -> "false");   // near-duplicate reuse would answer for another test
+        registry.add("semantic.snapshot", () -> "");
+        registry.add("classifier.mode", () -> "off");
+        registry.add("llm.bulkhead.workers", () -> "64");
+        registry.add("llm.bulkhead.queueCapacity", () -> String.valueOf(THREADS * 2));
+        registry.add("llm.bulkhead.maxQueueWait", () -> "PT60S");
+    }
+
+    @AfterAll
+    static void stopLlm() throws IOException {
+        LLM.close();
+    }
+
+    @Test
+    void parallelDistinctFailuresEachGetTheirOwnAnalysis() throws Exception {
+        long callsBefore = LLM.calls();
+        List<FailureEventPayload> payloads = new ArrayList<>();
+        for (int i = 0; i < THREADS; i++) {
+            payloads.add(payload("distinct" + i + "_" + UUID.randomUUID(), UUID.randomUUID().toString()));
+        }
+
+        List<FailureAnalysisResponse> responses = runAll(payloads);
+
+        for (int i = 0; i < THREADS; i++) {
+            FailureEventPayload p = payloads.get(i);
+            FailureAnalysisResponse r = responses.get(i);
+            String token = token(p);
+            assertThat(r.getRootCauseSummary()).as("root cause of " + p.getTestName())
+                    .isEqualTo(MockLlm.expectedRootCause(p.getTestName(), token));
+            assertThat(r.getJiraSummaryTemplate()).isEqualTo("[" + p.getTestName() + "] " + token);
+            assertThat(r.getFailureType()).isEqualTo(MockLlm.expectedType(p.getTestName()));
+            assertThat(r.getSeverityScore()).isEqualTo(MockLlm.expectedSeverity(p.getTestName()));
+            assertThat(r.getReusedFrom()).isNull();
+        }
+        // one LLM call per distinct failure: nothing shed, dropped or sent twice
+        assertThat(LLM.calls() - callsBefore).isEqualTo(THREADS);
+    }
+
+    @Test
+    void parallelRepeatsOfOneFailureAgreeAndAreServedFromCacheAfterwards() throws Exception {
+        String testName = "repeated_" + UUID.randomUUID();
+        String token = UUID.randomUUID().toString();
+        List<FailureEventPayload> wave = new ArrayList<>();
+        for (int i = 0; i < THREADS / 2; i++) {
+            wave.add(payload(testName, token));
+        }
+
+        long callsBefore = LLM.calls();
+        List<FailureAnalysisResponse> first = runAll(wave);
+        long firstWaveCalls = LLM.calls() - callsBefore;
+
+        String expected = MockLlm.expectedRootCause(testName, token);
+        for (FailureAnalysisResponse r : first) {
+            assertThat(r.getRootCauseSummary()).isEqualTo(expected);
+            assertThat(r.getFailureType()).isEqualTo(MockLlm.expectedType(testName));
+        }
+        assertThat(firstWaveCalls).isBetween(1L, (long) wave.size());
+
+        // callers get private copies: changing one must not leak into the cache or other answers
+        first.get(0).setRootCauseSummary("mutated by a caller");
+        List<FailureAnalysisResponse> second = runAll(wave);
+        assertThat(LLM.calls() - callsBefore).isEqualTo(firstWaveCalls);
+        for (FailureAnalysisResponse r : second) {
+            assertThat(r.getRootCauseSummary()).isEqualTo(expected);
+        }
+        assertThat(first.get(1).getRootCauseSummary()).isEqualTo(expected);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * Analyses every payload on its own thread, all released at once; results in payload order.
+     */
+    private List<FailureAnalysisResponse> runAll(List<FailureEventPayload> payloads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(payloads.size());
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<FailureAnalysisResponse>> futures = new ArrayList<>();
+            for (FailureEventPayload p : payloads) {
+                Callable<FailureAnalysisResponse> call = () -> {
+                    start.await();
+                    return service.analyzeFailure(p);
+                };
+                futures.add(pool.submit(call));
+            }
+            start.countDown();
+            List<FailureAnalysisResponse> responses = new ArrayList<>();
+            for (Future<FailureAnalysisResponse> f : futures) {
+                FailureAnalysisResponse r = f.get(90, TimeUnit.SECONDS);
+                assertThat(r).isNotNull();
+                responses.add(r);
+            }
+            return responses;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static FailureEventPayload payload(String testName, String token) {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName(testName);
+        p.setSuiteName("concurrency");
+        p.setFeature("com.example.OrdersApiTest");
+        p.setTestType("API");
+        p.setHttpMethod("POST");
+        p.setEndpoint("/api/orders");
+        p.setFailureMessage("order total mismatch token=" + token);
+        p.setStackTrace("java.lang.AssertionError: order total mismatch\n"
+                + "\tat com.example.OrdersApiTest." + testName + "(OrdersApiTest.java:42)");
+        return p;
+    }
+
+    private static String token(FailureEventPayload p) {
+        String msg = p.getFailureMessage();
+        return msg.substring(msg.indexOf("token=") + "token=".length());
+    }
+
+    private static MockLlm startLlm() {
+        try {
+            return new MockLlm(20);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
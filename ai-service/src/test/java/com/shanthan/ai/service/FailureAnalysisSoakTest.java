@@ -0,0 +1,240 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.MockLlm;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Long-running load on analyzeFailure against the mock LLM (-Psoak; excluded
+ * from the normal build). -Dsoak.threads callers (default 200) run for
+ * -Dsoak.duration (default PT1M, the profile sets PT2H); about 80% of their
+ * failures repeat a known set (cache hits), the rest are new. Checks:
+ *
+ * - no call lost (exception / null) and no answer belonging to another request
+ * - heap in use after GC, sampled through the run, does not keep growing:
+ *   the caches, analytics rows and per-test tables get small caps that fill
+ *   during the first quarter of the run, and the last sample must stay
+ *   within max(64 MB, 50%) of the one taken then
+ *
+ * A JFR recording ("profile" settings) is dumped to target/soak/soak.jfr and
+ * summarised (GC pauses, top allocating classes, heap samples) in
+ * target/soak/soak-summary.txt; the profile writes a GC log to target/soak-gc.log.
+ */
+@Tag("soak")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class FailureAnalysisSoakTest {
+
+    private static final Duration DURATION = Duration.parse(System.getProperty("soak.duration", "PT1M"));
+    private static final int THREADS = Integer.getInteger("soak.threads", 200);
+    private static final int KNOWN_FAILURES = 2_000;
+    private static final long GROWTH_SLACK = 64L << 20;
+    private static final Path OUT = Path.of(System.getProperty("soak.dir", "target/soak"));
+
+    private static final MockLlm LLM = startLlm();
+
+    @Autowired
+    private FailureAnalysisService service;
+
+    @DynamicPropertySource
+    static void properties(DynamicPropertyRegistry registry) {
+        registry.add("openai.apiKey", () -> "test-key");
+        registry.add("openai.baseUrl", LLM::baseUrl);
+        registry.add("warmup.enabled", () -> "false");
+        registry.add("semantic.enabled", () -> "false");
+        registry.add("semantic.snapshot", () -> "");
+        registry.add("classifier.mode", () -> "off");
+        registry.add("llm.bulkhead.workers", () -> "64");
+        registry.add("llm.bulkhead.queueCapacity", () -> String.valueOf(THREADS * 2));
+        registry.add("llm.bulkhead.maxQueueWait", () -> "PT60S");
+        // small caps so every bounded structure is full after warm-up; growth past that is a leak
+        registry.add("cache.near.maxEntries", () -> "1000");
+        registry.add("cache.far.maxEntries", () -> "5000");
+        registry.add("analytics.maxRows", () -> "20000");
+        registry.add("flakiness.maxTests", () -> "4096");
+        registry.add("scheduler.noveltyMaxEntries", () -> "4096");
+    }
+
+    @AfterAll
+    static void stopLlm() throws IOException {
+        LLM.close();
+    }
+
+    @Test
+    void sustainedLoadLosesNothingAndKeepsMemoryBounded() throws Exception {
+        Files.createDirectories(OUT);
+        List<String> knownNames = new ArrayList<>();
+        List<String> knownTokens = new ArrayList<>();
+        for (int i = 0; i < KNOWN_FAILURES; i++) {
+            knownNames.add("soak" + i);
+            knownTokens.add(UUID.randomUUID().toString());
+        }
+
+        LongAdder calls = new LongAdder();
+        ConcurrentLinkedQueue<String> problems = new ConcurrentLinkedQueue<>();
+        List<Long> heapSamples = new ArrayList<>();
+        long sampleEveryMillis = Math.max(5_000, DURATION.toMillis() / 20);
+
+        try (Recording recording = new Recording(Configuration.getConfiguration("profile"))) {
+            recording.setToDisk(true);
+            recording.start();
+
+            long deadline = System.nanoTime() + DURATION.toNanos();
+            ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+            List<Future<?>> callers = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                callers.add(pool.submit(() -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    while (System.nanoTime() < deadline && problems.size() < 100) {
+                        String name;
+                        String token;
+                        if (random.nextInt(10) < 8) {
+                            int i = random.nextInt(KNOWN_FAILURES);
+                            name = knownNames.get(i);
+                            token = knownTokens.get(i);
+                        } else {
+                            name = "once" + UUID.randomUUID().toString().replace("-", "");
+                            token = UUID.randomUUID().toString();
+                        }
+                        check(name, token, problems);
+                        calls.increment();
+                    }
+                    return null;
+                }));
+            }
+
+            while (System.nanoTime() < deadline && problems.size() < 100) {
+                TimeUnit.MILLISECONDS.sleep(Math.min(sampleEveryMillis,
+                        Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()))));
+                heapSamples.add(heapAfterGc());
+            }
+            for (Future<?> f : callers) {
+                f.get(2, TimeUnit.MINUTES);
+            }
+            pool.shutdown();
+
+            recording.stop();
+            Path jfr = OUT.resolve("soak.jfr");
+            recording.dump(jfr);
+            writeSummary(jfr, calls.sum(), problems.size(), heapSamples);
+        }
+
+        assertThat(problems).as("lost or mixed-up results").isEmpty();
+        assertThat(calls.sum()).isPositive();
+        assertThat(heapSamples).hasSizeGreaterThanOrEqualTo(2);
+        long baseline = heapSamples.get(Math.min(heapSamples.size() - 2, heapSamples.size() / 4));
+        long last = heapSamples.get(heapSamples.size() - 1);
+        assertThat(last).as("heap after GC (baseline " + baseline + " bytes)")
+                .isLessThanOrEqualTo(baseline + Math.max(GROWTH_SLACK, baseline / 2));
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private void check(String name, String token, ConcurrentLinkedQueue<String> problems) {
+        try {
+            FailureAnalysisResponse r = service.analyzeFailure(payload(name, token));
+            if (r == null) {
+                problems.add(name + ": no result");
+            } else if (!MockLlm.expectedRootCause(name, token).equals(r.getRootCauseSummary())
+                    || r.getFailureType() != MockLlm.expectedType(name)) {
+                problems.add(name + ": got " + r.getFailureType() + " / " + r.getRootCauseSummary());
+            }
+        } catch (Exception e) {
+            problems.add(name + ": " + e);
+        }
+    }
+
+    private static FailureEventPayload payload(String testName, String token) {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setTestName(testName);
+        p.setSuiteName("soak");
+        p.setFeature("com.example.OrdersApiTest");
+        p.setTestType("API");
+        p.setHttpMethod("GET");
+        p.setEndpoint("/api/orders/" + Math.floorMod(testName.hashCode(), 100));
+        p.setFailureMessage("unexpected order state token=" + token);
+        p.setStackTrace("java.lang.AssertionError: unexpected order state\n"
+                + "\tat com.example.OrdersApiTest." + testName + "(OrdersApiTest.java:77)");
+        return p;
+    }
+
+    private static long heapAfterGc() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static void writeSummary(Path jfr, long calls, int problems, List<Long> heapSamples) throws IOException {
+        long gcs = 0;
+        Duration pauseTotal = Duration.ZERO;
+        Duration pauseMax = Duration.ZERO;
+        Map<String, Long> allocated = new LinkedHashMap<>();
+        for (RecordedEvent e : RecordingFile.readAllEvents(jfr)) {
+            switch (e.getEventType().getName()) {
+                case "jdk.GarbageCollection" -> {
+                    gcs++;
+                    Duration pause = e.getDuration("sumOfPauses");
+                    pauseTotal = pauseTotal.plus(pause);
+                    if (pause.compareTo(pauseMax) > 0) pauseMax = pause;
+                }
+                case "jdk.ObjectAllocationSample" ->
+                        allocated.merge(e.getClass("objectClass").getName(), e.getLong("weight"), Long::sum);
+                default -> { }
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("duration=").append(DURATION).append(" threads=").append(THREADS)
+                .append(" calls=").append(calls).append(" problems=").append(problems).append('\n');
+        sb.append("llmCalls=").append(LLM.calls()).append('\n');
+        sb.append("gc: count=").append(gcs).append(" totalPauseMs=").append(pauseTotal.toMillis())
+                .append(" maxPauseMs=").append(pauseMax.toMillis()).append('\n');
+        sb.append("heapAfterGcMb=");
+        heapSamples.forEach(h -> sb.append(h >> 20).append(' '));
+        sb.append("\ntop allocations (sampled bytes):\n");
+        allocated.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(15)
+                .forEach(a -> sb.append("  ").append(a.getValue() >> 20).append(" MB  ").append(a.getKey()).append('\n'));
+        Files.writeString(OUT.resolve("soak-summary.txt"), sb.toString());
+        System.out.println("DEBUG >>> [Soak] " + sb);
+    }
+
+    private static MockLlm startLlm() {
+        try {
+            return new MockLlm(20);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
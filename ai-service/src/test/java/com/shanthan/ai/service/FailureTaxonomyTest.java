@@ -0,0 +1,107 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureType;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * FailureTaxonomy label resolution (aliases, normalisation, configured
+ * overrides) and the per-test-type check LlmResponseParser applies to it.
+ */
+class FailureTaxonomyTest {
+
+    private final FailureTaxonomy taxonomy = new FailureTaxonomy(new MockEnvironment());
+    private final LlmResponseParser parser = new LlmResponseParser(taxonomy);
+
+    @Test
+    void resolvesCanonicalNamesAndPromptAliases() {
+        assertThat(taxonomy.resolve("TIMEOUT")).isEqualTo(FailureType.TIMEOUT);
+        assertThat(taxonomy.match("TIMEOUT")).isEqualTo(FailureTaxonomy.Match.EXACT);
+
+        assertThat(taxonomy.resolve("Waiting / sync issue")).isEqualTo(FailureType.TIMEOUT);
+        assertThat(taxonomy.match("Waiting / sync issue")).isEqualTo(FailureTaxonomy.Match.ALIAS);
+        assertThat(taxonomy.resolve("SERVER_BUG")).isEqualTo(FailureType.BACKEND_5XX);
+        assertThat(taxonomy.resolve("authentication/authorization")).isEqualTo(FailureType.AUTHENTICATION);
+        assertThat(taxonomy.resolve("backend-500")).isEqualTo(FailureType.BACKEND_5XX);
+
+        assertThat(taxonomy.resolve("cosmic rays")).isNull();
+        assertThat(taxonomy.match("cosmic rays")).isEqualTo(FailureTaxonomy.Match.UNKNOWN_LABEL);
+        assertThat(taxonomy.resolve(null)).isNull();
+        assertThat(taxonomy.match(null)).isEqualTo(FailureTaxonomy.Match.UNKNOWN_LABEL);
+    }
+
+    @Test
+    void normalizeCollapsesSeparatorsAndKeepsCanonicalLabels() {
+        String canonical = "BACKEND_5XX";
+        assertThat(FailureTaxonomy.normalize(canonical)).isSameAs(canonical);
+
+        assertThat(FailureTaxonomy.normalize("waiting / sync issue")).isEqualTo("WAITING_SYNC_ISSUE");
+        assertThat(FailureTaxonomy.normalize("  --Server   Bug!! ")).isEqualTo("SERVER_BUG");
+        assertThat(FailureTaxonomy.normalize("_TIMEOUT_")).isEqualTo("TIMEOUT");
+        assertThat(FailureTaxonomy.normalize("RATE__LIMIT")).isEqualTo("RATE_LIMIT");
+        assertThat(FailureTaxonomy.normalize("backend5xx")).isEqualTo("BACKEND5XX");
+        assertThat(FailureTaxonomy.normalize("")).isEmpty();
+        assertThat(FailureTaxonomy.normalize(" / ")).isEmpty();
+    }
+
+    @Test
+    void configuredAliasesAddAndOverrideLabels() {
+        FailureTaxonomy configured = new FailureTaxonomy(new MockEnvironment()
+                .withProperty("taxonomy.alias.[UI_GLITCH]", "FLAKY_TEST")
+                .withProperty("taxonomy.alias.[Gateway timeout]", "BACKEND_5XX")
+                .withProperty("taxonomy.alias.[SERVER_BUG]", "ENVIRONMENT"));
+
+        assertThat(configured.resolve("ui glitch")).isEqualTo(FailureType.FLAKY_TEST);
+        assertThat(configured.match("ui glitch")).isEqualTo(FailureTaxonomy.Match.ALIAS);
+        assertThat(configured.resolve("GATEWAY_TIMEOUT")).isEqualTo(FailureType.BACKEND_5XX);
+        assertThat(configured.resolve("SERVER_BUG")).isEqualTo(FailureType.ENVIRONMENT);
+        assertThat(configured.size()).isEqualTo(taxonomy.size() + 2);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void typesOutsideTheTestTypeAreKeptWithCappedConfidence() throws Exception {
+        assertThat(taxonomy.allowed("API", FailureType.LOCATOR_ISSUE)).isFalse();
+        assertThat(taxonomy.allowed("ui", FailureType.BACKEND_5XX)).isFalse();
+        assertThat(taxonomy.allowed("UI", FailureType.LOCATOR_ISSUE)).isTrue();
+        assertThat(taxonomy.allowed("API", FailureType.BACKEND_5XX)).isTrue();
+        assertThat(taxonomy.allowed("UNKNOWN", FailureType.LOCATOR_ISSUE)).isTrue();
+        assertThat(taxonomy.allowed(null, FailureType.BACKEND_5XX)).isTrue();
+
+        FailureAnalysisResponse locatorForApi = parser.parse(answer("LOCATOR_ISSUE"), "API");
+        assertThat(locatorForApi.getFailureType()).isEqualTo(FailureType.LOCATOR_ISSUE);
+        assertThat(locatorForApi.getAiConfidence()).isEqualTo(0.5);
+
+        FailureAnalysisResponse serverBugForUi = parser.parse(answer("Server bug"), "UI");
+        assertThat(serverBugForUi.getFailureType()).isEqualTo(FailureType.BACKEND_5XX);
+        assertThat(serverBugForUi.getAiConfidence()).isEqualTo(0.5);
+
+        FailureAnalysisResponse serverBugForApi = parser.parse(answer("SERVER_BUG"), "API");
+        assertThat(serverBugForApi.getAiConfidence()).isEqualTo(0.9);
+
+        FailureAnalysisResponse unknown = parser.parse(answer("cosmic rays"), "API");
+        assertThat(unknown.getFailureType()).isEqualTo(FailureType.UNKNOWN);
+        assertThat(unknown.getRootCauseSummary()).isEqualTo("root cause");
+
+        assertThat(parser.stats())
+                .containsEntry("crossTestType", 2L)
+                .containsEntry("exactType", 1L)
+                .containsEntry("aliasedType", 2L)
+                .containsEntry("unknownTypeLabel", 1L);
+        assertThat(((Map<String, ?>) parser.stats().get("nonCanonicalLabels")).keySet())
+                .containsExactlyInAnyOrder("Server bug", "SERVER_BUG", "cosmic rays");
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static String answer(String failureType) {
+        return "{\"failureType\":\"" + failureType + "\",\"rootCauseSummary\":\"root cause\","
+                + "\"severityScore\":3,\"aiConfidence\":0.9}";
+    }
+}
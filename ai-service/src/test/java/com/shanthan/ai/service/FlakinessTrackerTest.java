@@ -0,0 +1,226 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.cache.SemanticTriageCache;
+import com.shanthan.ai.cache.TieredTriageCache;
+import com.shanthan.ai.classifier.LocalTriageClassifier;
+import com.shanthan.ai.client.LlmBulkhead;
+import com.shanthan.ai.client.OpenAiClient;
+import com.shanthan.ai.locator.LocatorRepairEngine;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.FailureType;
+import com.shanthan.ai.model.FlakinessScore;
+import com.shanthan.ai.model.TestOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * FlakinessTracker with known pass/fail histories: the score and when it
+ * makes a test FLAKY_TEST, the bounded two-way set-associative table and its
+ * least-recently-updated eviction, and the striped locks under concurrent
+ * updates.
+ */
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class FlakinessTrackerTest {
+
+    private static final String FEATURE = "com.example.CheckoutTest";
+
+    private final FlakinessTracker tracker = new FlakinessTracker(1024, 8, 0.5);
+
+    @Test
+    void scoresKnownHistories() {
+        // P F P F ... 16 outcomes: every run flips, half fail
+        FlakinessScore alternating = record("alternating", "PFPFPFPFPFPFPFPF");
+        assertThat(alternating.getSamples()).isEqualTo(16);
+        assertThat(alternating.getFailures()).isEqualTo(8);
+        assertThat(alternating.getFlips()).isEqualTo(15);
+        assertThat(alternating.getFlipRate()).isEqualTo(1.0);
+        assertThat(alternating.getEntropy()).isEqualTo(1.0);
+        assertThat(alternating.getScore()).isEqualTo(1.0);
+        assertThat(tracker.isFlaky(alternating)).isTrue();
+
+        // always failing: broken, not flaky
+        FlakinessScore broken = record("broken", "FFFFFFFFFF");
+        assertThat(broken.getFailures()).isEqualTo(10);
+        assertThat(broken.getFlips()).isZero();
+        assertThat(broken.getScore()).isZero();
+        assertThat(tracker.isFlaky(broken)).isFalse();
+
+        // one recent regression: 1 flip in 7 transitions, p = 0.25
+        FlakinessScore regressed = record("regressed", "PPPPPPFF");
+        double entropy = -(0.25 * log2(0.25) + 0.75 * log2(0.75));
+        assertThat(regressed.getFlips()).isEqualTo(1);
+        assertThat(regressed.getEntropy()).isCloseTo(entropy, within(1e-9));
+        assertThat(regressed.getScore()).isCloseTo(Math.sqrt(entropy / 7), within(1e-9));
+        assertThat(tracker.isFlaky(regressed)).isFalse();
+
+        // flaky-looking but below flakiness.minSamples
+        FlakinessScore young = record("young", "PFPF");
+        assertThat(young.getScore()).isEqualTo(1.0);
+        assertThat(tracker.isFlaky(young)).isFalse();
+
+        assertThat(tracker.isFlaky(null)).isFalse();
+        assertThat(tracker.lookup(FEATURE, "never-seen")).isNull();
+    }
+
+    @Test
+    void skipsAreCountedOutsideTheWindowAndTheWindowIs64Runs() {
+        FlakinessScore s = record("skippy", "PSFSP");
+        assertThat(s.getSamples()).isEqualTo(3);
+        assertThat(s.getSkips()).isEqualTo(2);
+        assertThat(s.getFlips()).isEqualTo(2);
+
+        FlakinessScore longRun = record("long", "PF".repeat(50));
+        assertThat(longRun.getSamples()).isEqualTo(64);
+        assertThat(longRun.getFailures()).isEqualTo(32);
+        assertThat(longRun.getFlips()).isEqualTo(63);
+        assertThat(tracker.lookup(FEATURE, "long").getScore()).isEqualTo(1.0);
+    }
+
+    @Test
+    void knownFlakyTestsAreAnsweredWithoutTheLlm() {
+        OpenAiClient openAiClient = mock(OpenAiClient.class);
+        LlmBulkhead bulkhead = mock(LlmBulkhead.class);
+        TieredTriageCache triageCache = mock(TieredTriageCache.class);
+        LocalTriageClassifier classifier = mock(LocalTriageClassifier.class);
+        FailureAnalysisService service = new FailureAnalysisService(mock(SimilarityStore.class), openAiClient,
+                new TriageResultStore(1024), tracker, triageCache, mock(SemanticTriageCache.class),
+                mock(LocatorRepairEngine.class), bulkhead, mock(TriagePriorityPolicy.class),
+                mock(ShadowEvaluator.class), mock(TenantQuotas.class), classifier, mock(LlmResponseParser.class));
+
+        FlakinessScore score = record("checkout", "PFPFPFPFPFP");
+        FailureEventPayload failure = new FailureEventPayload();
+        failure.setFeature(FEATURE);
+        failure.setTestName("checkout");
+        failure.setTestType("UI");
+        FailureAnalysisResponse r = service.analyzeFailure(failure);
+
+        assertThat(r.getFailureType()).isEqualTo(FailureType.FLAKY_TEST);
+        assertThat(r.isRuleBasedOverrideApplied()).isTrue();
+        assertThat(r.getAiConfidence()).isEqualTo(1.0);
+        assertThat(r.getRootCauseSummary()).contains("6 failures and 11 flips in the last 12 runs");
+        assertThat(tracker.lookup(FEATURE, "checkout").getSamples()).isEqualTo(score.getSamples() + 1);
+        verifyNoInteractions(openAiClient, bulkhead, triageCache, classifier);
+    }
+
+    @Test
+    void fullSetEvictsTheLeastRecentlyUpdatedTest() {
+        // 4 slots = 2 sets of 2 ways
+        FlakinessTracker small = new FlakinessTracker(4, 8, 0.5);
+        List<String> sameSet = namesInSet(4, 0, 3);
+        String a = sameSet.get(0);
+        String b = sameSet.get(1);
+        String c = sameSet.get(2);
+
+        small.record(FEATURE, a, TestOutcome.FAIL);
+        small.record(FEATURE, b, TestOutcome.PASS);
+        small.record(FEATURE, a, TestOutcome.PASS);   // a is now the most recent
+        small.record(FEATURE, c, TestOutcome.FAIL);   // evicts b
+
+        assertThat(small.lookup(FEATURE, b)).isNull();
+        assertThat(small.lookup(FEATURE, a).getSamples()).isEqualTo(2);
+        assertThat(small.lookup(FEATURE, c).getSamples()).isEqualTo(1);
+
+        // the other set is untouched
+        String other = namesInSet(4, 2, 1).get(0);
+        small.record(FEATURE, other, TestOutcome.FAIL);
+        assertThat(small.lookup(FEATURE, a)).isNotNull();
+        assertThat(small.lookup(FEATURE, c)).isNotNull();
+
+        // an evicted test starts over
+        assertThat(small.record(FEATURE, b, TestOutcome.FAIL).getSamples()).isEqualTo(1);
+        assertThat(small.lookup(FEATURE, a)).isNull();
+    }
+
+    @Test
+    void concurrentUpdatesAcrossStripesAreNotLost() throws Exception {
+        // room for every test, so only a lost update can change the counts
+        FlakinessTracker big = new FlakinessTracker(1 << 16, 8, 0.5);
+        int threads = 8;
+        int tests = 256;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int round = 0; round < 5; round++) {
+                        for (int i = 0; i < tests; i++) {
+                            big.record(FEATURE, "t" + i, TestOutcome.SKIP);
+                            big.record(FEATURE, "t" + i, TestOutcome.FAIL);
+                        }
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        for (int i = 0; i < tests; i++) {
+            FlakinessScore s = big.lookup(FEATURE, "t" + i);
+            assertThat(s).as("t" + i).isNotNull();
+            assertThat(s.getSkips()).as("t" + i).isEqualTo(threads * 5);
+            assertThat(s.getSamples()).as("t" + i).isEqualTo(threads * 5);
+            assertThat(s.getFailures()).as("t" + i).isEqualTo(threads * 5);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * Records outcomes oldest first: P = pass, F = fail, S = skip.
+     */
+    private FlakinessScore record(String testName, String outcomes) {
+        FlakinessScore last = null;
+        for (char c : outcomes.toCharArray()) {
+            TestOutcome outcome = c == 'F' ? TestOutcome.FAIL : c == 'S' ? TestOutcome.SKIP : TestOutcome.PASS;
+            last = tracker.record(FEATURE, testName, outcome);
+        }
+        return last;
+    }
+
+    /**
+     * Test names whose key falls into the given set of a table with this many
+     * slots (same FNV-1a hash and set index as the tracker).
+     */
+    private static List<String> namesInSet(int capacity, int set, int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; names.size() < count; i++) {
+            String name = "test" + i;
+            String testId = FEATURE + "#" + name;
+            long h = 0xcbf29ce484222325L;
+            for (int j = 0; j < testId.length(); j++) {
+                h ^= testId.charAt(j);
+                h *= 0x100000001b3L;
+            }
+            if (((int) (h & (capacity - 1)) & ~1) == set) {
+                names.add(name);
+            }
+        }
+        return names;
+    }
+
+    private static double log2(double x) {
+        return Math.log(x) / Math.log(2);
+    }
+}
@@ -0,0 +1,117 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.mock.env.MockEnvironment;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * The shared LlmResponseParser (one ObjectMapper / JsonFactory, lock-free
+ * counters) used by every request thread: each parse must see only its own
+ * input, and stats() must count every parse exactly once.
+ */
+@Timeout(value = 60, unit = TimeUnit.SECONDS)
+class LlmResponseParserConcurrencyTest {
+
+    private static final int THREADS = 64;
+    private static final int PER_THREAD = 2_000;
+
+    private final LlmResponseParser parser = new LlmResponseParser(new FailureTaxonomy(new MockEnvironment()));
+
+    @Test
+    void parallelParsesStayIsolatedAndAreCountedOnce() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Integer>> futures = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    int unparseable = 0;
+                    for (int i = 0; i < PER_THREAD; i++) {
+                        unparseable += parseAndCheck(thread + "-" + i, i);
+                    }
+                    return unparseable;
+                }));
+            }
+            start.countDown();
+
+            long unparseable = 0;
+            for (Future<Integer> f : futures) {
+                unparseable += f.get(60, TimeUnit.SECONDS);
+            }
+            Map<String, Object> stats = parser.stats();
+            long total = (long) THREADS * PER_THREAD;
+            assertThat(stats.get("unparseable")).isEqualTo(unparseable);
+            assertThat(stats.get("parsed")).isEqualTo(total - unparseable);
+            assertThat((long) stats.get("exactType") + (long) stats.get("aliasedType")
+                    + (long) stats.get("unknownTypeLabel")).isEqualTo(total - unparseable);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * Parses one of several answer shapes tagged with id; returns 1 when the
+     * answer was (expectedly) unreadable.
+     */
+    private int parseAndCheck(String id, int i) throws IOException {
+        switch (i % 5) {
+            case 0 -> {
+                FailureAnalysisResponse r = parser.parse("{\"failureType\":\"ASSERTION_FAILURE\","
+                        + "\"rootCauseSummary\":\"" + id + "\",\"severityScore\":2,\"aiConfidence\":0.7}", "API");
+                assertThat(r.getRootCauseSummary()).isEqualTo(id);
+                assertThat(r.getFailureType()).isEqualTo(FailureType.ASSERTION_FAILURE);
+                assertThat(r.getSeverityScore()).isEqualTo(2);
+            }
+            case 1 -> {
+                FailureAnalysisResponse r = parser.parse("```json\n{\"failureType\":\"Server bug\","
+                        + "\"rootCauseSummary\":\"" + id + "\",\"severityScore\":\"4\",\"aiConfidence\":\"85%\"}\n```",
+                        "API");
+                assertThat(r.getRootCauseSummary()).isEqualTo(id);
+                assertThat(r.getFailureType()).isEqualTo(FailureType.BACKEND_5XX);
+                assertThat(r.getSeverityScore()).isEqualTo(4);
+                assertThat(r.getAiConfidence()).isEqualTo(0.85);
+            }
+            case 2 -> {
+                FailureAnalysisResponse r = parser.parse("{\"failureType\":\"SERVER_BUG\","
+                        + "\"rootCauseSummary\":\"" + id + "\",\"aiConfidence\":0.9,"
+                        + "\"recommendedNextSteps\":[\"a " + id + "\",\"b\"]}", "UI");
+                assertThat(r.getRootCauseSummary()).isEqualTo(id);
+                assertThat(r.getRecommendedNextSteps()).isEqualTo("a " + id + "\nb");
+                assertThat(r.getAiConfidence()).isEqualTo(0.5);   // not a UI failure type
+            }
+            case 3 -> {
+                FailureAnalysisResponse r = parser.parse("{\"failureType\":\"SOMETHING_NEW_" + id.hashCode()
+                        + "\",\"rootCauseSummary\":\"" + id + "\",\"severityScore\":9}", "API");
+                assertThat(r.getRootCauseSummary()).isEqualTo(id);
+                assertThat(r.getFailureType()).isEqualTo(FailureType.UNKNOWN);
+                assertThat(r.getSeverityScore()).isEqualTo(5);
+            }
+            default -> {
+                assertThatThrownBy(() -> parser.parse("no analysis for " + id, "API"))
+                        .isInstanceOf(IOException.class);
+                return 1;
+            }
+        }
+        return 0;
+    }
+}
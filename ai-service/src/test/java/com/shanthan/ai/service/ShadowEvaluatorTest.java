@@ -0,0 +1,97 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.MockLlm;
+import com.shanthan.ai.client.LlmBulkhead;
+import com.shanthan.ai.client.LlmCompletion;
+import com.shanthan.ai.client.LlmPricing;
+import com.shanthan.ai.client.OpenAiClient;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.mock.env.MockEnvironment;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * ShadowEvaluator against a local mock LLM: candidate calls go through the
+ * bulkhead and are charged to the "shadow" tenant, and mirroring stops once
+ * that tenant's budget is used up.
+ */
+@Timeout(value = 30, unit = TimeUnit.SECONDS)
+class ShadowEvaluatorTest {
+
+    private final MockLlm llm = new MockLlm(0);
+    private final MockEnvironment env = new MockEnvironment()
+            .withProperty("tenant.budget.requests.shadow", "2");
+    private final LlmPricing pricing = new LlmPricing(env);
+    private final TenantQuotas quotas = new TenantQuotas(env, pricing,
+            List.of("tenant:", "team:"), 256, Duration.ofHours(1), 12);
+    private final LlmBulkhead bulkhead = new LlmBulkhead(2, 8, Duration.ofSeconds(10), Duration.ofSeconds(20));
+    private final ShadowEvaluator shadow;
+
+    ShadowEvaluatorTest() throws Exception {
+        OpenAiClient primary = new OpenAiClient("test-key", llm.baseUrl(), "gpt-4o-mini",
+                Duration.ofSeconds(5), Duration.ofSeconds(20), Duration.ofSeconds(10), Duration.ofSeconds(20));
+        shadow = new ShadowEvaluator(primary, pricing, new LlmResponseParser(new FailureTaxonomy(env)),
+                bulkhead, quotas, true, 1.0, "gpt-4.1-nano", llm.baseUrl(), "test-key", "", 1, 10,
+                Duration.ofSeconds(20));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        shadow.shutdown();
+        bulkhead.shutdown();
+        llm.close();
+    }
+
+    @Test
+    void candidateCallsAreChargedToTheShadowBudget() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            shadow.observe("fp" + i, "system", "testName: shadowTest" + i + "\ntoken=t" + i,
+                    new LlmCompletion("{}", "gpt-4o-mini", 100, 20, 1_000_000, false), primaryAnswer());
+            long expected = Math.min(i + 1, 2);
+            while (candidate().get("calls") instanceof Long calls && calls < expected) {
+                Thread.sleep(10);
+            }
+        }
+
+        Map<String, Object> report = shadow.report();
+        assertThat(report.get("mirrored")).isEqualTo(2L);
+        assertThat(report.get("overBudget")).isEqualTo(3L);
+        assertThat(report.get("shed")).isEqualTo(0L);
+        assertThat(candidate().get("calls")).isEqualTo(2L);
+        assertThat(llm.calls()).isEqualTo(2);
+
+        assertThat(tenants()).containsOnlyKeys(ShadowEvaluator.SHADOW_TENANT);
+        assertThat(tenants().get(ShadowEvaluator.SHADOW_TENANT)).containsEntry("requests", 2L);
+        assertThat(bulkhead.stats().get("completed")).isEqualTo(2L);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> candidate() {
+        return (Map<String, Object>) ((Map<String, Object>) shadow.report().get("variants")).get("candidate");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Map<String, Object>> tenants() {
+        return (Map<String, Map<String, Object>>) quotas.stats().get("tenants");
+    }
+
+    private static FailureAnalysisResponse primaryAnswer() {
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        r.setFailureType(FailureType.ASSERTION_FAILURE);
+        r.setSeverityScore(3);
+        r.setAiConfidence(0.8);
+        return r;
+    }
+}
@@ -0,0 +1,65 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.client.LlmCompletion;
+import com.shanthan.ai.client.LlmPricing;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * TenantQuotas charging: only answered LLM calls count against a budget.
+ */
+class TenantQuotasTest {
+
+    private final MockEnvironment env = new MockEnvironment()
+            .withProperty("tenant.budget.requests.default", "2");
+    private final TenantQuotas quotas = new TenantQuotas(env, new LlmPricing(env),
+            List.of("tenant:", "team:"), 256, Duration.ofHours(1), 12);
+
+    @Test
+    void admittedCallsThatNeverAnswerAreNotCharged() {
+        // admitted, then shed by the bulkhead: no record()
+        assertThat(quotas.admit("payments")).isTrue();
+        assertThat(quotas.admit("payments")).isTrue();
+        // admitted, then stubbed (timeout, quota, no key)
+        assertThat(quotas.admit("payments")).isTrue();
+        quotas.record("payments", completion(true));
+        quotas.record("payments", completion(true));
+
+        assertThat(quotas.admit("payments")).isTrue();
+        assertThat(tenant("payments").get("requests")).isEqualTo(0L);
+        assertThat(tenant("payments").get("degraded")).isEqualTo(0L);
+    }
+
+    @Test
+    void answeredCallsUseUpTheBudget() {
+        for (int i = 0; i < 2; i++) {
+            assertThat(quotas.admit("payments")).isTrue();
+            quotas.record("payments", completion(false));
+        }
+
+        assertThat(quotas.admit("payments")).isFalse();
+        assertThat(quotas.admit("search")).isTrue();
+        Map<String, Object> payments = tenant("payments");
+        assertThat(payments.get("requests")).isEqualTo(2L);
+        assertThat(payments.get("promptTokens")).isEqualTo(200L);
+        assertThat(payments.get("degraded")).isEqualTo(1L);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> tenant(String name) {
+        return (Map<String, Object>) ((Map<String, Object>) quotas.stats().get("tenants")).get(name);
+    }
+
+    private static LlmCompletion completion(boolean stubbed) {
+        return new LlmCompletion("{}", "gpt-4o-mini", stubbed ? 0 : 100, stubbed ? 0 : 20, 1_000_000, stubbed);
+    }
+}
@@ -0,0 +1,71 @@
+package com.shanthan.ai.service;
+
+import com.shanthan.ai.model.AggregationDimension;
+import com.shanthan.ai.model.FailureAggregate;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+/**
+ * TriageResultStore at its smallest size (1024 rows): once the ring wraps,
+ * values of overwritten rows leave the dictionaries and the rest still
+ * aggregate correctly.
+ */
+class TriageResultStoreTest {
+
+    private static final int ROWS = 1024;
+
+    private final TriageResultStore store = new TriageResultStore(ROWS);
+
+    @Test
+    void dictionariesDropValuesOfOverwrittenRows() {
+        for (int i = 0; i < 3 * ROWS; i++) {
+            store.record(payload("run-" + i, i), new FailureAnalysisResponse());
+        }
+
+        assertThat(store.size()).isEqualTo(ROWS);
+        // suite + feature + environment, plus the runs of the last ROWS rows
+        assertThat(store.dictionaryEntries()).isEqualTo(3 + ROWS);
+
+        List<FailureAggregate> runs = store.aggregate(AggregationDimension.RUN, 0, Long.MAX_VALUE, null, 0);
+        assertThat(runs).hasSize(ROWS).allMatch(a -> a.getCount() == 1);
+        assertThat(runs).extracting(FailureAggregate::getKey)
+                .contains("run-" + (2 * ROWS), "run-" + (3 * ROWS - 1))
+                .doesNotContain("run-0", "run-" + (2 * ROWS - 1));
+        assertThat(store.aggregate(AggregationDimension.TYPE, 0, Long.MAX_VALUE, "run-5", 0)).isEmpty();
+        assertThat(store.aggregate(AggregationDimension.FEATURE, 0, Long.MAX_VALUE, "run-" + (3 * ROWS - 1), 0))
+                .extracting(FailureAggregate::getKey).containsExactly("Checkout");
+    }
+
+    @Test
+    void rowsWrittenAfterACompactionKeepTheirValues() {
+        for (int i = 0; i < ROWS + 10; i++) {
+            store.record(payload(i % 2 == 0 ? "even" : "odd", i), new FailureAnalysisResponse());
+        }
+
+        assertThat(store.dictionaryEntries()).isEqualTo(5);
+        assertThat(store.aggregate(AggregationDimension.RUN, 0, Long.MAX_VALUE, null, 0))
+                .extracting(FailureAggregate::getKey, FailureAggregate::getCount)
+                .containsExactlyInAnyOrder(
+                        tuple("even", (long) ROWS / 2),
+                        tuple("odd", (long) ROWS / 2));
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static FailureEventPayload payload(String runId, long timestamp) {
+        FailureEventPayload p = new FailureEventPayload();
+        p.setRunId(runId);
+        p.setEventTimestamp(timestamp);
+        p.setSuiteName("Regression");
+        p.setFeature("Checkout");
+        p.setEnvironment("qa");
+        return p;
+    }
+}
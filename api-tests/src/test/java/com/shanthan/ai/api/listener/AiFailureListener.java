@@ -1,86 +1,265 @@
 package com.shanthan.ai.api.listener;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.model.FailureAnalysisResponse;
 import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.TestOutcome;
+import com.shanthan.ai.model.TestOutcomeEvent;
+import com.shanthan.ai.trace.StackTraceScanner;
+import com.shanthan.ai.ui.listener.AiTriageQueueClient;
+import com.shanthan.ai.ui.listener.GzipRequestBody;
+import com.shanthan.ai.ui.listener.PayloadCompactor;
+import com.shanthan.ai.ui.listener.TriageReportWriter;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 import org.testng.Reporter;
 
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
 /**
  * Sends API test failures to the AI analysis service.
  * Reuses the shared FailureAnalysisRequest model from ai-service.
+ * Pass/skip outcomes are reported asynchronously for flakiness scoring.
+ * Payloads are trimmed with the shared PayloadCompactor and gzip-compressed
+ * above ai.payload.gzipMinBytes. Analyses go to the per-suite
+ * TriageReportWriter report; the TestNG report gets one line per failure.
+ * With -Dai.transport=queue failures and outcomes are appended to the service's
+ * file-backed queue instead (shared AiTriageQueueClient) and analyses are
+ * reported as the service publishes them.
  */
-public class AiFailureListener implements ITestListener {
+public class AiFailureListener implements ITestListener, ISuiteListener {
 
     private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
     private final OkHttpClient client = new OkHttpClient();
     private final ObjectMapper mapper = new ObjectMapper();
     private final String baseUrl = System.getProperty("ai.service.url", "http://localhost:8085");
 
+    // Shared run id across modules (-Dai.run.id), unique session id per JVM
+    private static final String RUN_ID = System.getProperty("ai.run.id", UUID.randomUUID().toString());
+    private static final String SESSION_ID = UUID.randomUUID().toString();
+
+    // Tenant charged for LLM usage on the AI side (-Dai.tenant); default is the suite
+    private static final String TENANT = System.getProperty("ai.tenant", "");
+
+    private final boolean gzipEnabled = Boolean.parseBoolean(System.getProperty("ai.payload.gzip", "true"));
+    private final int gzipMinBytes = Integer.getInteger("ai.payload.gzipMinBytes", 1024);
+
+    private final Map<String, TriageReportWriter> reports = new ConcurrentHashMap<>();
+
+    private final String transport = System.getProperty("ai.transport", "http");
+    private final long queueDrainTimeoutMs = Long.getLong("ai.stream.drainTimeoutMs", 120_000L);
+    // Shared by every suite of the run; closed when the last started suite finishes
+    private volatile AiTriageQueueClient queueClient;
+    private int activeSuites;   // guarded by this
+
+    @Override
+    public synchronized void onStart(ISuite suite) {
+        reportFor(suite);
+        activeSuites++;
+        if (queueClient == null && "queue".equalsIgnoreCase(transport)) {
+            try {
+                queueClient = new AiTriageQueueClient();
+            } catch (IOException e) {
+                System.out.println("DEBUG >>> [API Listener] Queue unavailable, falling back to HTTP: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        AiTriageQueueClient shared = queueClient;
+        if (shared != null) {
+            shared.awaitPending(queueDrainTimeoutMs);
+        }
+        synchronized (this) {
+            if (--activeSuites == 0 && queueClient != null) {
+                queueClient.close();
+                queueClient = null;
+            }
+        }
+        TriageReportWriter report = reports.remove(suite.getName());
+        if (report != null) {
+            try {
+                Reporter.log("AI triage report: " + report.finish().toAbsolutePath(), true);
+            } catch (IOException e) {
+                System.out.println("DEBUG >>> [API Listener] Could not write triage report: " + e.getMessage());
+            }
+        }
+    }
+
     @Override
     public void onTestFailure(ITestResult result) {
         String testName = result.getName();
         System.out.println("DEBUG >>> [API Listener] onTestFailure for: " + testName);
+        TriageReportWriter report = reportFor(result.getTestContext().getSuite());
 
         try {
             FailureEventPayload payload = buildPayload(result);
-            String json = mapper.writeValueAsString(payload);
+            AiTriageQueueClient queue = queueClient;
+            if (queue != null) {
+                queue.submit(payload).whenComplete((ai, err) -> {
+                    if (err != null) {
+                        if (report != null) report.appendError(testName, "AI triage (queue) failed: " + err.getMessage());
+                        Reporter.log("AI triage unavailable for API test '" + testName + "': " + err.getMessage(), true);
+                    } else {
+                        if (report != null) report.append(testName, payload.getTraceSignature(), ai);
+                        Reporter.log("AI triage: " + testName + " -> " + ai.getFailureType()
+                                + " (severity " + ai.getSeverityScore() + ", confidence " + ai.getAiConfidence() + ")", true);
+                    }
+                });
+                return;
+            }
+            byte[] json = mapper.writeValueAsBytes(payload);
 
-            Request request = new Request.Builder()
-                    .url(baseUrl + "/api/ai/analyze-failure")
-                    .post(RequestBody.create(json, JSON))
-                    .build();
+            Request.Builder builder = new Request.Builder().url(baseUrl + "/api/ai/analyze-failure");
+            long sentBytes = json.length;
+            if (gzipEnabled && json.length >= gzipMinBytes) {
+                GzipRequestBody gzipBody = new GzipRequestBody(json, JSON);
+                builder.header("Content-Encoding", "gzip").post(gzipBody);
+                sentBytes = gzipBody.contentLength();
+            } else {
+                builder.post(RequestBody.create(json, JSON));
+            }
 
-            try (Response response = client.newCall(request).execute()) {
+            long start = System.nanoTime();
+            try (Response response = client.newCall(builder.build()).execute()) {
                 String body = response.body() != null ? response.body().string() : "";
-                Reporter.log("AI analysis for API test '" + testName + "' (HTTP " + response.code() + "):", true);
-                Reporter.log(body, true);
+                long totalMs = (System.nanoTime() - start) / 1_000_000;
+                String serverMs = response.header("X-Triage-Server-Millis");
+                System.out.println("DEBUG >>> [API Listener] AI call took " + totalMs + " ms (server "
+                        + (serverMs != null ? serverMs + " ms" : "n/a")
+                        + ", server parse " + response.header("X-Triage-Parse-Micros", "n/a") + " us"
+                        + ", payload " + json.length + " bytes, sent " + sentBytes + " bytes)");
+                // Full analysis goes to the suite report; the TestNG report gets one line
+                FailureAnalysisResponse ai = null;
+                if (response.isSuccessful()) {
+                    try {
+                        ai = mapper.readValue(body, FailureAnalysisResponse.class);
+                    } catch (IOException parseErr) {
+                        System.out.println("DEBUG >>> [API Listener] Unparseable AI response: " + parseErr.getMessage());
+                    }
+                }
+                if (ai != null) {
+                    if (report != null) report.append(testName, payload.getTraceSignature(), ai);
+                    Reporter.log("AI triage: " + testName + " -> " + ai.getFailureType()
+                            + " (severity " + ai.getSeverityScore() + ", confidence " + ai.getAiConfidence() + ")", true);
+                } else {
+                    if (report != null) report.appendError(testName, "AI service answered HTTP " + response.code() + ": " + body);
+                    Reporter.log("AI triage unavailable for API test '" + testName + "' (HTTP " + response.code() + ")", true);
+                }
             }
         } catch (Exception e) {
+            if (report != null) report.appendError(testName, "AI triage call failed: " + e.getMessage());
             Reporter.log("AI triage call failed for API test '" + testName + "': " + e.getMessage(), true);
             e.printStackTrace();
         }
     }
 
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        sendOutcome(result, TestOutcome.PASS);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        sendOutcome(result, TestOutcome.SKIP);
+    }
+
+    private TriageReportWriter reportFor(ISuite suite) {
+        return reports.computeIfAbsent(suite.getName(), name -> {
+            try {
+                return TriageReportWriter.open(name);
+            } catch (IOException e) {
+                System.out.println("DEBUG >>> [API Listener] Triage report disabled: " + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    private void sendOutcome(ITestResult result, TestOutcome outcome) {
+        try {
+            TestOutcomeEvent event = new TestOutcomeEvent();
+            event.setTestName(result.getName());
+            event.setFeature(result.getTestClass().getName());
+            event.setOutcome(outcome);
+
+            // queue transport: in the queue, in order with this test's failures
+            AiTriageQueueClient queue = queueClient;
+            if (queue != null && queue.recordOutcome(event)) {
+                return;
+            }
+
+            Request request = new Request.Builder()
+                    .url(baseUrl + "/api/ai/test-outcome")
+                    .post(RequestBody.create(mapper.writeValueAsString(event), JSON))
+                    .build();
+
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    System.out.println("DEBUG >>> [API Listener] Outcome report failed: " + e.getMessage());
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                }
+            });
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> [API Listener] Could not send " + outcome + " outcome: " + e.getMessage());
+        }
+    }
+
     private FailureEventPayload buildPayload(ITestResult result) {
         FailureEventPayload req = new FailureEventPayload();
         req.setTestName(result.getName());
         req.setSuiteName(result.getTestContext().getSuite().getName());
         req.setFeature(result.getTestClass().getName());
         req.setEnvironment(System.getProperty("env", "local"));
+        req.setRunId(RUN_ID);
+        req.setSessionId(SESSION_ID);
+        req.setEventTimestamp(result.getEndMillis());
 
         Throwable t = result.getThrowable();
-        req.setFailureMessage(t != null ? t.getMessage() : "Unknown failure");
-        req.setStackTrace(stackTraceToString(t));
+        req.setFailureMessage(t != null ? PayloadCompactor.capBody(t.getMessage()) : "Unknown failure");
+        req.setStackTrace(PayloadCompactor.stackTrace(t));
+        req.setTraceSignature(StackTraceScanner.forThread().scan(t).signatureHex());
+        req.setTestType("API");
+        if (!TENANT.isBlank()) {
+            req.setTags(List.of("tenant:" + TENANT));
+        }
 
-        // Optional metadata from test attributes (populated in ApiBaseTest subclasses)
+        // Optional metadata from test attributes (populated in ApiBaseTest subclasses).
+        // Sent once in the dedicated fields; rawLogSnippet no longer repeats them.
+        Object httpMethod = result.getAttribute("httpMethod");
         Object endpoint = result.getAttribute("endpoint");
         Object statusCode = result.getAttribute("statusCode");
         Object responseBody = result.getAttribute("responseBody");
         Object requestBody = result.getAttribute("requestBody");
 
-        StringBuilder rawSnippet = new StringBuilder();
-        if (endpoint != null) rawSnippet.append("Endpoint: ").append(endpoint).append("\n");
-        if (statusCode != null) rawSnippet.append("Status: ").append(statusCode).append("\n");
-        if (requestBody != null) rawSnippet.append("Request: ").append(requestBody).append("\n");
-        if (responseBody != null) rawSnippet.append("Response: ").append(responseBody).append("\n");
-        req.setRawLogSnippet(rawSnippet.toString());
+        req.setHttpMethod(httpMethod != null ? httpMethod.toString() : null);
+        req.setEndpoint(endpoint != null ? endpoint.toString() : null);
+        if (statusCode != null) {
+            try {
+                req.setStatusCode(Integer.parseInt(statusCode.toString()));
+            } catch (NumberFormatException ignored) {}
+        }
+        req.setRequestBody(requestBody != null ? PayloadCompactor.capBody(requestBody.toString()) : null);
+        req.setResponseBody(responseBody != null ? PayloadCompactor.capBody(responseBody.toString()) : null);
 
         return req;
     }
-
-    private String stackTraceToString(Throwable t) {
-        if (t == null) return "";
-        StringBuilder sb = new StringBuilder();
-        sb.append(t).append("\n");
-        for (StackTraceElement ste : t.getStackTrace()) {
-            sb.append("    at ").append(ste.toString()).append("\n");
-        }
-        return sb.toString();
-    }
 }
@@ -0,0 +1,80 @@
+package com.shanthan.ai.trace;
+
+/**
+ * Builds a 128-bit fingerprint from a sequence of fields without
+ * concatenating them: each field is hashed char by char (optionally with
+ * digit runs collapsed to '#') and folded into two lanes in order. A null
+ * field and an empty one hash differently.
+ *
+ * Not thread-safe; cheap enough to create per call.
+ */
+public final class Fingerprint128 {
+
+    private long lane1 = TraceHash.SEED_1;
+    private long lane2 = TraceHash.SEED_2;
+
+    public Fingerprint128 add(CharSequence field) {
+        return add(field, false);
+    }
+
+    /**
+     * Adds the field with digit runs collapsed to '#'.
+     */
+    public Fingerprint128 addNormalized(CharSequence field) {
+        return add(field, true);
+    }
+
+    public Fingerprint128 add(long value) {
+        lane1 = TraceHash.combine(lane1, value);
+        lane2 = TraceHash.combine(lane2, ~value);
+        return this;
+    }
+
+    public long hi() {
+        return lane1;
+    }
+
+    public long lo() {
+        return lane2;
+    }
+
+    /**
+     * 32 hex chars.
+     */
+    public String hex() {
+        StringBuilder sb = new StringBuilder(32);
+        TraceHash.appendHex(sb, lane1);
+        TraceHash.appendHex(sb, lane2);
+        return sb.toString();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private Fingerprint128 add(CharSequence field, boolean normalize) {
+        long h1 = TraceHash.SEED_1;
+        long h2 = TraceHash.SEED_2;
+        if (field == null) {
+            h1 = TraceHash.step1(h1, '\u0000');
+            h2 = TraceHash.step2(h2, '\u0000');
+        } else {
+            boolean inDigits = false;
+            for (int i = 0; i < field.length(); i++) {
+                char c = field.charAt(i);
+                if (normalize && c >= '0' && c <= '9') {
+                    if (inDigits) continue;
+                    inDigits = true;
+                    c = '#';
+                } else {
+                    inDigits = false;
+                }
+                h1 = TraceHash.step1(h1, c);
+                h2 = TraceHash.step2(h2, c);
+            }
+        }
+        lane1 = TraceHash.combine(lane1, TraceHash.fmix64(h1));
+        lane2 = TraceHash.combine(lane2, TraceHash.fmix64(h2));
+        return this;
+    }
+}
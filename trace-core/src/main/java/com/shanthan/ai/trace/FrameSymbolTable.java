@@ -0,0 +1,133 @@
+package com.shanthan.ai.trace;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Interns normalized frames (by their 64-bit hash) into dense int ids, so
+ * traces can be held and compared as int[] for clustering without keeping
+ * frame strings around.
+ *
+ * Open addressing over primitive arrays (long keys, int values); lookups are
+ * optimistic reads that never block, inserts take the write lock. Ids are
+ * process-local and depend on insertion order; use TraceHash values or
+ * StackTraceScanner signatures for anything persisted or sent over the wire.
+ *
+ * The table never shrinks, so it is capped: once maxSymbols frames are
+ * interned, unseen frames get OVERFLOW instead of a new id (signatures are
+ * not affected). The default cap is -Dtrace.maxFrameSymbols (65536).
+ */
+public final class FrameSymbolTable {
+
+    /**
+     * Id given to frames seen after the table is full.
+     */
+    public static final int OVERFLOW = 0;
+
+    private static final int DEFAULT_MAX_SYMBOLS = Integer.getInteger("trace.maxFrameSymbols", 1 << 16);
+    private static final FrameSymbolTable SHARED = new FrameSymbolTable(1 << 12);
+    private static final long EMPTY = 0L;
+
+    private final StampedLock lock = new StampedLock();
+    private final int maxSymbols;
+    private long[] keys;
+    private int[] ids;
+    private int size;
+
+    public FrameSymbolTable(int initialCapacity) {
+        this(initialCapacity, DEFAULT_MAX_SYMBOLS);
+    }
+
+    public FrameSymbolTable(int initialCapacity, int maxSymbols) {
+        this.maxSymbols = Math.max(1, maxSymbols);
+        int cap = Integer.highestOneBit(Math.max(16, initialCapacity - 1)) << 1;
+        this.keys = new long[cap];
+        this.ids = new int[cap];
+    }
+
+    /**
+     * Table used by StackTraceScanner unless another is given.
+     */
+    public static FrameSymbolTable shared() {
+        return SHARED;
+    }
+
+    /**
+     * Id of the frame hash, assigning the next id (1, 2, ...) on first sight,
+     * or OVERFLOW for an unseen frame once maxSymbols ids are taken.
+     */
+    public int intern(long frameHash) {
+        long key = frameHash == EMPTY ? 1L : frameHash;
+
+        long stamp = lock.tryOptimisticRead();
+        long[] k = keys;
+        int[] v = ids;
+        boolean full = size >= maxSymbols;
+        int found = k.length == v.length ? find(k, v, key) : 0;
+        if (lock.validate(stamp) && (found != 0 || full)) {
+            return found;
+        }
+
+        stamp = lock.writeLock();
+        try {
+            found = find(keys, ids, key);
+            if (found != 0 || size >= maxSymbols) {
+                return found;
+            }
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int id = ++size;
+            insert(keys, ids, key, id);
+            return id;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static int find(long[] k, int[] v, long key) {
+        int mask = k.length - 1;
+        int i = (int) TraceHash.fmix64(key) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            long existing = k[i];
+            if (existing == key) return v[i];
+            if (existing == EMPTY) return 0;
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    private static void insert(long[] k, int[] v, long key, int id) {
+        int mask = k.length - 1;
+        int i = (int) TraceHash.fmix64(key) & mask;
+        while (k[i] != EMPTY) {
+            i = (i + 1) & mask;
+        }
+        k[i] = key;
+        v[i] = id;
+    }
+
+    private void grow() {
+        long[] newKeys = new long[keys.length * 2];
+        int[] newIds = new int[ids.length * 2];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                insert(newKeys, newIds, keys[i], ids[i]);
+            }
+        }
+        keys = newKeys;
+        ids = newIds;
+    }
+}
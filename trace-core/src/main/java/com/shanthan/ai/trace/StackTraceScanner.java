@@ -0,0 +1,352 @@
+package com.shanthan.ai.trace;
+
+/**
+ * Single-pass normalizer and fingerprinter for stack traces, from either a
+ * live Throwable (listeners) or its printed text (server, surefire reports).
+ * Both inputs yield the same signature for the same failure.
+ *
+ * Normalization:
+ * - up to MAX_THROWABLES throwables of the cause chain (circular causes stop
+ *   it); suppressed exceptions are ignored
+ * - per throwable its class name and its first MAX_FRAMES frames as
+ *   "declaringClass.method": file and line number dropped, module / class
+ *   loader prefixes dropped, hidden-class suffixes (/0x...) dropped, digit
+ *   runs collapsed ($$Lambda$14 -> $$Lambda$#), consecutive identical frames
+ *   (recursion) counted once, and the tail shared with the enclosing trace
+ *   cut off like Throwable.printStackTrace does
+ *
+ * Output: a 128-bit signature (signatureHi/Lo, or 64-bit signature64), the
+ * interned frame ids (FrameSymbolTable) and per-throwable simple-name hashes
+ * for rule matching (hasException).
+ *
+ * A scanner is reusable and not thread-safe; forThread() hands out one per
+ * thread. Scanning allocates nothing except the StackTraceElement[] copy the
+ * JDK returns from Throwable.getStackTrace(); signatureHex() allocates its
+ * result string.
+ */
+public final class StackTraceScanner {
+
+    public static final int MAX_THROWABLES = 5;
+    public static final int MAX_FRAMES = 8;
+
+    private static final String CAUSE_LINE = "\nCaused by: ";
+
+    private static final ThreadLocal<StackTraceScanner> PER_THREAD =
+            ThreadLocal.withInitial(() -> new StackTraceScanner(FrameSymbolTable.shared()));
+
+    private final FrameSymbolTable symbols;
+    private final int[] frameSymbols = new int[MAX_THROWABLES * MAX_FRAMES];
+    private final long[] exceptionNames = new long[MAX_THROWABLES];
+    private final Throwable[] chain = new Throwable[MAX_THROWABLES];
+
+    private int frameCount;
+    private int throwableCount;
+    private int framesInCurrent;
+    private long lastFrame1;
+    private long lastFrame2;
+    private long sig1;
+    private long sig2;
+
+    // element hash lanes while feeding chars
+    private long h1;
+    private long h2;
+    private long simple1;
+    private boolean inDigits;
+
+    public StackTraceScanner(FrameSymbolTable symbols) {
+        this.symbols = symbols;
+    }
+
+    public static StackTraceScanner forThread() {
+        return PER_THREAD.get();
+    }
+
+    public StackTraceScanner scan(Throwable t) {
+        reset();
+        StackTraceElement[] enclosing = null;
+        for (Throwable cur = t; cur != null && throwableCount < MAX_THROWABLES; cur = cur.getCause()) {
+            if (seen(cur)) break;
+            chain[throwableCount] = cur;
+
+            beginElement();
+            feed(cur.getClass().getName());
+            endThrowable();
+
+            StackTraceElement[] frames = cur.getStackTrace();
+            int end = frames.length;
+            if (enclosing != null) {
+                int j = enclosing.length - 1;
+                while (end > 0 && j >= 0 && frames[end - 1].equals(enclosing[j])) {
+                    end--;
+                    j--;
+                }
+            }
+            for (int i = 0; i < end && framesInCurrent < MAX_FRAMES; i++) {
+                if (i > 0 && frames[i].equals(frames[i - 1])) continue; // recursion; cheaper than hashing it
+                beginElement();
+                feedFrameName(frames[i].getClassName(), 0, frames[i].getClassName().length());
+                feed('.');
+                feed(frames[i].getMethodName());
+                endFrame();
+            }
+            enclosing = frames;
+        }
+        for (int i = 0; i < throwableCount; i++) {
+            chain[i] = null;
+        }
+        return this;
+    }
+
+    /**
+     * Parses printed trace text: a header line ("cls: message") or
+     * "Caused by: cls: message" lines starting throwables, "at ..." lines as
+     * frames, "..." lines, message continuation lines and Suppressed blocks ignored.
+     */
+    public StackTraceScanner scan(CharSequence text) {
+        reset();
+        if (text == null) return this;
+        int n = text.length();
+        int pos = 0;
+        boolean skipping = false;
+        int prevFrame = -1;
+        int prevFrameEnd = -1;
+        while (pos < n) {
+            if (throwableCount > 0 && (skipping || framesInCurrent >= MAX_FRAMES)) {
+                // nothing more to take from this throwable: jump to the next top-level cause
+                if (throwableCount >= MAX_THROWABLES) break;
+                int next = indexOf(text, CAUSE_LINE, pos - 1);
+                if (next < 0) break;
+                pos = next + 1;
+            }
+            int lineEnd = indexOf(text, '\n', pos);
+            if (lineEnd < 0) lineEnd = n;
+            int a = pos;
+            while (a < lineEnd && (text.charAt(a) == ' ' || text.charAt(a) == '\t')) a++;
+            int b = lineEnd;
+            while (b > a && Character.isWhitespace(text.charAt(b - 1))) b--;
+
+            if (a < b) {
+                if (a == pos && startsWith(text, a, b, "Caused by: ")) {
+                    skipping = !textThrowable(text, a + 11, b);
+                    prevFrame = -1;
+                } else if (throwableCount == 0 && !startsWith(text, a, b, "at ")) {
+                    skipping = !textThrowable(text, a, b);
+                } else if (startsWith(text, a, b, "Suppressed: ")) {
+                    skipping = true;
+                } else if (!skipping && startsWith(text, a, b, "at ")) {
+                    if (throwableCount == 0) {
+                        // bare frames without a header line
+                        beginElement();
+                        endThrowable();
+                    }
+                    if (!sameText(text, a, b, prevFrame, prevFrameEnd)) {
+                        textFrame(text, a + 3, b);
+                    }
+                    prevFrame = a;
+                    prevFrameEnd = b;
+                }
+            }
+            pos = lineEnd + 1;
+        }
+        return this;
+    }
+
+    public long signature64() {
+        return sig1 ^ Long.rotateLeft(sig2, 32);
+    }
+
+    public long signatureHi() {
+        return sig1;
+    }
+
+    public long signatureLo() {
+        return sig2;
+    }
+
+    /**
+     * 32 hex chars of the 128-bit signature.
+     */
+    public String signatureHex() {
+        StringBuilder sb = new StringBuilder(32);
+        TraceHash.appendHex(sb, sig1);
+        TraceHash.appendHex(sb, sig2);
+        return sb.toString();
+    }
+
+    public int throwableCount() {
+        return throwableCount;
+    }
+
+    public int frameCount() {
+        return frameCount;
+    }
+
+    /**
+     * Interned id of the i-th kept frame (all throwables, in order), or
+     * FrameSymbolTable.OVERFLOW once the table is full.
+     */
+    public int frameSymbol(int i) {
+        return frameSymbols[i];
+    }
+
+    /**
+     * True if any throwable in the chain has this simple class name; see TraceHash.nameHash.
+     */
+    public boolean hasException(long simpleNameHash) {
+        for (int i = 0; i < throwableCount; i++) {
+            if (exceptionNames[i] == simpleNameHash) return true;
+        }
+        return false;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private void reset() {
+        frameCount = 0;
+        throwableCount = 0;
+        framesInCurrent = 0;
+        sig1 = TraceHash.SEED_1;
+        sig2 = TraceHash.SEED_2;
+    }
+
+    private boolean seen(Throwable t) {
+        for (int i = 0; i < throwableCount; i++) {
+            if (chain[i] == t) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Header text: the class name ends at ':' or whitespace. False once the chain limit is reached.
+     */
+    private boolean textThrowable(CharSequence text, int a, int b) {
+        if (throwableCount >= MAX_THROWABLES || text.charAt(a) == '[') return false; // [CIRCULAR REFERENCE: ...]
+        int end = a;
+        while (end < b && text.charAt(end) != ':' && !Character.isWhitespace(text.charAt(end))) end++;
+        beginElement();
+        for (int i = a; i < end; i++) feed(text.charAt(i));
+        endThrowable();
+        return true;
+    }
+
+    /**
+     * "[loader/][module/]cls.method(File.java:12)" -> cls.method
+     */
+    private void textFrame(CharSequence text, int a, int b) {
+        if (framesInCurrent >= MAX_FRAMES) return;
+        int paren = a;
+        while (paren < b && text.charAt(paren) != '(') paren++;
+        beginElement();
+        feedFrameName(text, a, paren);
+        endFrame();
+    }
+
+    /**
+     * Feeds cls.method text, dropping loader/module prefixes ("app//", "java.base/")
+     * and hidden-class suffixes ("$$Lambda$14/0x0000000800c03000").
+     */
+    private void feedFrameName(CharSequence s, int a, int b) {
+        int start = a;
+        for (int i = a; i < b; i++) {
+            if (s.charAt(i) == '/' && !(i + 2 < b && s.charAt(i + 1) == '0' && s.charAt(i + 2) == 'x')) {
+                start = i + 1;
+            }
+        }
+        for (int i = start; i < b; i++) {
+            char c = s.charAt(i);
+            if (c == '/' && i + 2 < b && s.charAt(i + 1) == '0' && s.charAt(i + 2) == 'x') {
+                i += 3;
+                while (i < b && Character.digit(s.charAt(i), 16) >= 0) i++;
+                i--;
+                continue;
+            }
+            feed(c);
+        }
+    }
+
+    private void beginElement() {
+        h1 = TraceHash.SEED_1;
+        h2 = TraceHash.SEED_2;
+        simple1 = TraceHash.SEED_1;
+        inDigits = false;
+    }
+
+    private void feed(CharSequence s) {
+        for (int i = 0; i < s.length(); i++) feed(s.charAt(i));
+    }
+
+    private void feed(char c) {
+        if (c >= '0' && c <= '9') {
+            if (inDigits) return;
+            inDigits = true;
+            c = '#';
+        } else {
+            inDigits = false;
+        }
+        h1 = TraceHash.step1(h1, c);
+        h2 = TraceHash.step2(h2, c);
+        simple1 = c == '.' || c == '$' ? TraceHash.SEED_1 : TraceHash.step1(simple1, c);
+    }
+
+    private void endThrowable() {
+        long e1 = TraceHash.fmix64(h1);
+        long e2 = TraceHash.fmix64(h2);
+        exceptionNames[throwableCount++] = TraceHash.fmix64(simple1);
+        framesInCurrent = 0;
+        lastFrame1 = 0;
+        lastFrame2 = 0;
+        sig1 = TraceHash.combine(sig1, e1);
+        sig2 = TraceHash.combine(sig2, e2 ^ 0x2545F4914F6CDD1DL);
+    }
+
+    private void endFrame() {
+        long f1 = TraceHash.fmix64(h1);
+        long f2 = TraceHash.fmix64(h2);
+        if (f1 == lastFrame1 && f2 == lastFrame2) {
+            return; // recursion: identical consecutive frames count once
+        }
+        lastFrame1 = f1;
+        lastFrame2 = f2;
+        framesInCurrent++;
+        frameSymbols[frameCount++] = symbols.intern(f1);
+        sig1 = TraceHash.combine(sig1, f1);
+        sig2 = TraceHash.combine(sig2, f2);
+    }
+
+    private static boolean sameText(CharSequence s, int a, int b, int prevA, int prevB) {
+        if (prevA < 0 || b - a != prevB - prevA) return false;
+        for (int i = b - a - 1; i >= 0; i--) { // line numbers differ first
+            if (s.charAt(a + i) != s.charAt(prevA + i)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * String.indexOf (vectorized) when the text is a String.
+     */
+    private static int indexOf(CharSequence s, char c, int from) {
+        if (s instanceof String str) return str.indexOf(c, from);
+        for (int i = from; i < s.length(); i++) {
+            if (s.charAt(i) == c) return i;
+        }
+        return -1;
+    }
+
+    private static int indexOf(CharSequence s, String needle, int from) {
+        if (s instanceof String str) return str.indexOf(needle, from);
+        for (int i = from; i <= s.length() - needle.length(); i++) {
+            if (startsWith(s, i, s.length(), needle)) return i;
+        }
+        return -1;
+    }
+
+    private static boolean startsWith(CharSequence s, int a, int b, String prefix) {
+        if (b - a < prefix.length()) return false;
+        for (int i = 0; i < prefix.length(); i++) {
+            if (s.charAt(a + i) != prefix.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,73 @@
+package com.shanthan.ai.trace;
+
+/**
+ * Hash primitives shared by the scanner and the fingerprint builder.
+ *
+ * Every element (exception class, frame, field) is hashed char by char into
+ * two independent 64-bit lanes (FNV-1a style with different primes and
+ * seeds, finalised with the MurmurHash3 fmix64), so a 128-bit value can be
+ * built without materialising any String. Digit runs can be collapsed to a
+ * single '#' while feeding, which is the normalization used everywhere in
+ * this module (line numbers, ids, lambda/proxy counters).
+ */
+public final class TraceHash {
+
+    static final long SEED_1 = 0xcbf29ce484222325L;
+    static final long SEED_2 = 0x84222325cbf29ce4L;
+    static final long PRIME_1 = 0x100000001b3L;
+    static final long PRIME_2 = 0x9E3779B97F4A7C15L;
+
+    private TraceHash() {
+    }
+
+    static long step1(long h, char c) {
+        return (h ^ c) * PRIME_1;
+    }
+
+    static long step2(long h, char c) {
+        return (h ^ c) * PRIME_2 + 0x632BE59BD9B4E019L;
+    }
+
+    public static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+
+    /**
+     * Folds an element hash into a running signature lane (order-dependent).
+     */
+    static long combine(long acc, long element) {
+        return Long.rotateLeft(acc ^ fmix64(element), 27) * 5 + 0x52dce729;
+    }
+
+    /**
+     * First-lane hash of a simple exception class name (the part after the last
+     * '.' or '$'), e.g.
+     * nameHash("NoSuchElementException"); compare with StackTraceScanner.hasException.
+     */
+    public static long nameHash(CharSequence simpleName) {
+        long h = SEED_1;
+        boolean inDigits = false;
+        for (int i = 0; i < simpleName.length(); i++) {
+            char c = simpleName.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (!inDigits) h = step1(h, '#');
+                inDigits = true;
+            } else {
+                h = step1(h, c);
+                inDigits = false;
+            }
+        }
+        return fmix64(h);
+    }
+
+    static void appendHex(StringBuilder sb, long v) {
+        for (int shift = 60; shift >= 0; shift -= 4) {
+            sb.append(Character.forDigit((int) (v >>> shift) & 0xf, 16));
+        }
+    }
+}
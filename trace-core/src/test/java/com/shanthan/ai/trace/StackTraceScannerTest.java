@@ -0,0 +1,229 @@
+package com.shanthan.ai.trace;
+
+import org.junit.jupiter.api.Test;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The Throwable and printed-text paths of StackTraceScanner must agree: the
+ * listener signs the live Throwable, the service re-signs the text it was
+ * sent. Each case prints the failure with Throwable.printStackTrace and
+ * compares signature, throwable count and interned frames.
+ */
+class StackTraceScannerTest {
+
+    @Test
+    void nestedCausesWithSharedTailsMatch() {
+        Throwable t = catchIt(() -> outer(3));
+
+        assertThat(printed(t)).contains("Caused by: ").containsPattern("\\.\\.\\. \\d+ more");
+        Scan scan = assertSameScan(t);
+        assertThat(scan.throwables).isEqualTo(4);
+    }
+
+    @Test
+    void suppressedExceptionsAreIgnoredByBothPaths() {
+        Throwable t = catchIt(() -> {
+            try (Failing first = new Failing("first"); Failing second = new Failing("second")) {
+                throw new IllegalStateException("body failed", new IllegalArgumentException("bad input"));
+            }
+        });
+
+        assertThat(printed(t)).contains("Suppressed: ").contains("\tCaused by: ");
+        Scan scan = assertSameScan(t);
+        assertThat(scan.throwables).isEqualTo(2);
+
+        Throwable plain = catchIt(() -> {
+            throw new IllegalStateException("body failed", new IllegalArgumentException("bad input"));
+        });
+        assertThat(StackTraceScanner.forThread().scan(plain).throwableCount()).isEqualTo(2);
+    }
+
+    @Test
+    void lambdaAndStreamFramesMatch() {
+        Throwable fromStream = catchIt(() -> List.of(1, 2, 3).stream()
+                .map(i -> 10 / (i - 2))
+                .forEach(i -> { }));
+        Throwable fromSupplier = catchIt(() -> {
+            Supplier<Object> s = () -> {
+                throw new IllegalStateException("from lambda");
+            };
+            s.get();
+        });
+
+        assertThat(printed(fromStream)).contains("lambda$");
+        assertSameScan(fromStream);
+        assertSameScan(fromSupplier);
+    }
+
+    @Test
+    void hiddenClassAndModulePrefixesAreDropped() {
+        RuntimeException t = new RuntimeException("boom", new IllegalStateException("inner"));
+        t.setStackTrace(new StackTraceElement[]{
+                new StackTraceElement("app", null, null, "com.example.Pages$$Lambda$14/0x0000000800c03000",
+                        "apply", null, -1),
+                new StackTraceElement(null, "java.base", "17.0.9", "java.util.ArrayList", "forEach",
+                        "ArrayList.java", 1511),
+                new StackTraceElement("app", null, null, "com.example.Pages", "open", "Pages.java", 42),
+        });
+        t.getCause().setStackTrace(new StackTraceElement[]{
+                new StackTraceElement("com.example.Pages", "lambda$open$0", "Pages.java", 40),
+                new StackTraceElement("app", null, null, "com.example.Pages", "open", "Pages.java", 42),
+        });
+
+        assertThat(printed(t)).contains("app//com.example.Pages.open").contains("java.base@17.0.9/");
+        Scan scan = assertSameScan(t);
+        assertThat(scan.frames).isEqualTo(4);
+    }
+
+    @Test
+    void recursionAndLongChainsMatch() {
+        Throwable deep = catchIt(() -> recurse(60));
+        Throwable chain = new RuntimeException("level 0");
+        for (int i = 1; i < StackTraceScanner.MAX_THROWABLES + 3; i++) {
+            chain = new RuntimeException("level " + i, chain);
+        }
+
+        assertSameScan(deep);
+        Scan scan = assertSameScan(chain);
+        assertThat(scan.throwables).isEqualTo(StackTraceScanner.MAX_THROWABLES);
+    }
+
+    @Test
+    void circularCausesMatch() {
+        RuntimeException a = new RuntimeException("a");
+        IllegalStateException b = new IllegalStateException("b", a);
+        a.initCause(b);
+        RuntimeException top = new RuntimeException("top", b);
+
+        assertThat(printed(top)).contains("[CIRCULAR REFERENCE: ");
+        Scan scan = assertSameScan(top);
+        assertThat(scan.throwables).isEqualTo(3);
+    }
+
+    @Test
+    void differentFailuresGetDifferentSignatures() {
+        StackTraceScanner scanner = new StackTraceScanner(new FrameSymbolTable(64));
+        String nested = scanner.scan(catchIt(() -> outer(3))).signatureHex();
+        String shallow = scanner.scan(catchIt(() -> outer(2))).signatureHex();
+        String other = scanner.scan(catchIt(() -> recurse(5))).signatureHex();
+
+        assertThat(List.of(nested, shallow, other)).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void symbolTableStopsGrowingAtItsCap() {
+        FrameSymbolTable table = new FrameSymbolTable(16, 3);
+
+        assertThat(table.intern(11)).isEqualTo(1);
+        assertThat(table.intern(12)).isEqualTo(2);
+        assertThat(table.intern(13)).isEqualTo(3);
+        assertThat(table.intern(14)).isEqualTo(FrameSymbolTable.OVERFLOW);
+        assertThat(table.intern(12)).isEqualTo(2);
+        assertThat(table.size()).isEqualTo(3);
+
+        StackTraceScanner scanner = new StackTraceScanner(table);
+        String capped = scanner.scan(catchIt(() -> outer(3))).signatureHex();
+        String uncapped = new StackTraceScanner(new FrameSymbolTable(64)).scan(catchIt(() -> outer(3))).signatureHex();
+        assertThat(capped).isEqualTo(uncapped);
+        assertThat(table.size()).isEqualTo(3);
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private record Scan(String signature, int throwables, int frames, int[] symbols) {
+    }
+
+    private static Scan assertSameScan(Throwable t) {
+        StackTraceScanner scanner = new StackTraceScanner(new FrameSymbolTable(256));
+        String text = printed(t);
+
+        Scan fromThrowable = snapshot(scanner.scan(t));
+        Scan fromText = snapshot(scanner.scan(text));
+        Scan fromBuilder = snapshot(scanner.scan(new StringBuilder(text)));
+
+        for (Scan scan : List.of(fromText, fromBuilder)) {
+            assertThat(scan.signature).as(text).isEqualTo(fromThrowable.signature);
+            assertThat(scan.throwables).as(text).isEqualTo(fromThrowable.throwables);
+            assertThat(scan.symbols).as(text).containsExactly(fromThrowable.symbols);
+        }
+        assertThat(fromThrowable.frames).isPositive();
+        return fromThrowable;
+    }
+
+    private static Scan snapshot(StackTraceScanner scanner) {
+        int[] symbols = new int[scanner.frameCount()];
+        for (int i = 0; i < symbols.length; i++) {
+            symbols[i] = scanner.frameSymbol(i);
+        }
+        return new Scan(scanner.signatureHex(), scanner.throwableCount(), scanner.frameCount(), symbols);
+    }
+
+    private static String printed(Throwable t) {
+        StringWriter sw = new StringWriter();
+        t.printStackTrace(new PrintWriter(sw));
+        return sw.toString();
+    }
+
+    private static Throwable catchIt(Runnable r) {
+        try {
+            r.run();
+        } catch (Throwable t) {
+            return t;
+        }
+        throw new AssertionError("expected a failure");
+    }
+
+    private static void outer(int depth) {
+        try {
+            middle(depth);
+        } catch (RuntimeException e) {
+            throw new IllegalStateException("outer failed", e);
+        }
+    }
+
+    private static void middle(int depth) {
+        try {
+            inner(depth);
+        } catch (RuntimeException e) {
+            throw new RuntimeException("middle failed", e);
+        }
+    }
+
+    private static void inner(int depth) {
+        if (depth > 2) {
+            try {
+                Integer.parseInt("not a number " + depth);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("inner failed", e);
+            }
+        }
+        throw new UnsupportedOperationException("inner failed at depth " + depth);
+    }
+
+    private static int recurse(int n) {
+        if (n == 0) {
+            throw new StackOverflowError("simulated");
+        }
+        return recurse(n - 1) + 1;
+    }
+
+    private static final class Failing implements AutoCloseable {
+        private final String name;
+
+        Failing(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public void close() {
+            throw new IllegalStateException("close " + name, new RuntimeException("close cause"));
+        }
+    }
+}
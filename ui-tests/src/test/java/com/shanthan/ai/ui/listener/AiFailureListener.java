@@ -3,25 +3,54 @@ package com.shanthan.ai.ui.listener;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.shanthan.ai.model.FailureAnalysisResponse;
 import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.TestOutcome;
+import com.shanthan.ai.model.TestOutcomeEvent;
+import com.shanthan.ai.trace.StackTraceScanner;
+import com.shanthan.ai.ui.base.BaseTest;
+import okhttp3.Call;
+import okhttp3.Callback;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
+import org.openqa.selenium.WebDriver;
+import org.testng.ISuite;
+import org.testng.ISuiteListener;
 import org.testng.ITestListener;
 import org.testng.ITestResult;
 import org.testng.Reporter;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * TestNG listener that:
  *  - Listens for test failures
  *  - Sends a failure payload to the AI triage Spring Boot service
- *  - Logs a structured AI analysis block into the TestNG report/console
+ *  - Appends each analysis to a per-suite JSONL + HTML report (TriageReportWriter)
+ *    and logs one summary line per failure into the TestNG report/console
+ *  - Reports pass/skip outcomes (fire-and-forget) so the service can score flakiness
+ *
+ * With -Dai.transport=stream the listener opens one binary WebSocket per run
+ * instead of one JSON POST per failure; tests no longer wait for the LLM and
+ * analyses are logged as they arrive (pending ones are drained at suite end).
+ * -Dai.transport=async does the same over the async job API (short POST per
+ * failure, results polled in the background). -Dai.transport=queue appends
+ * failures, and pass/skip outcomes, to the service's file-backed queue
+ * (AiTriageQueueClient), which works while the service is down or
+ * redeploying.
+ *
+ * UI failures also carry a screenshot hash and a pruned DOM excerpt, produced
+ * off the test thread by FailureArtifactCollector.
  */
-public class AiFailureListener implements ITestListener {
+public class AiFailureListener implements ITestListener, ISuiteListener {
 
     private static final MediaType JSON
             = MediaType.parse("application/json; charset=utf-8");
@@ -36,93 +65,321 @@ public class AiFailureListener implements ITestListener {
     private final String baseUrl =
             System.getProperty("ai.service.url", "http://localhost:8085");
 
+    /**
+     * Run id shared by every failure of this build; pass -Dai.run.id=<ci build id>
+     * so several modules/forks report into the same run. The session id is
+     * unique per JVM.
+     */
+    private static final String RUN_ID =
+            System.getProperty("ai.run.id", UUID.randomUUID().toString());
+    private static final String SESSION_ID = UUID.randomUUID().toString();
+
+    /**
+     * Failure payloads of at least ai.payload.gzipMinBytes are sent gzip-compressed
+     * (disable with -Dai.payload.gzip=false).
+     */
+    private final boolean gzipEnabled =
+            Boolean.parseBoolean(System.getProperty("ai.payload.gzip", "true"));
+    private final int gzipMinBytes = Integer.getInteger("ai.payload.gzipMinBytes", 1024);
+
+    /**
+     * Tenant (team) charged for this run's LLM usage on the AI side
+     * (-Dai.tenant=payments); sent as a "tenant:" tag, default is the suite.
+     */
+    private static final String TENANT = System.getProperty("ai.tenant", "");
+
+    private final String transport = System.getProperty("ai.transport", "http");
+    private final long streamDrainTimeoutMs =
+            Long.getLong("ai.stream.drainTimeoutMs", 120_000L);
+    /**
+     * One client for every suite of the run (suites may run in parallel or
+     * nest), closed when the last suite that started has finished.
+     */
+    private volatile AiTriageClient asyncClient;
+    private int activeSuites;   // guarded by this
+
+    /**
+     * HTTP mode posts synchronously anyway, so it waits (bounded) for the
+     * artifacts; stream/async modes chain the submit onto the artifact future instead.
+     */
+    private final long artifactWaitMs = Long.getLong("ai.artifacts.waitMs", 3_000L);
+    private final Set<CompletableFuture<?>> pendingArtifacts = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, TriageReportWriter> reports = new ConcurrentHashMap<>();
+
+    @Override
+    public synchronized void onStart(ISuite suite) {
+        reportFor(suite);
+        activeSuites++;
+        if (asyncClient == null) {
+            if ("stream".equalsIgnoreCase(transport)) {
+                asyncClient = new AiTriageStreamClient(client, baseUrl);
+            } else if ("async".equalsIgnoreCase(transport)) {
+                asyncClient = new AiTriageJobClient(client, baseUrl);
+            } else if ("queue".equalsIgnoreCase(transport)) {
+                try {
+                    asyncClient = new AiTriageQueueClient();
+                } catch (IOException e) {
+                    System.out.println("DEBUG >>> [AI Listener] Queue unavailable, falling back to HTTP: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    @Override
+    public void onFinish(ISuite suite) {
+        AiTriageClient shared = asyncClient;
+        if (shared != null) {
+            awaitArtifacts();
+            shared.awaitPending(streamDrainTimeoutMs);
+        }
+        synchronized (this) {
+            if (--activeSuites == 0 && asyncClient != null) {
+                asyncClient.close();
+                asyncClient = null;
+            }
+        }
+        TriageReportWriter report = reports.remove(suite.getName());
+        if (report != null) {
+            try {
+                Reporter.log("AI triage report: " + report.finish().toAbsolutePath(), true);
+            } catch (IOException e) {
+                System.out.println("DEBUG >>> [AI Listener] Could not write triage report: " + e.getMessage());
+            }
+        }
+    }
+
     @Override
     public void onTestFailure(ITestResult result) {
         String testName = result.getName();
 
         System.out.println("DEBUG >>> [AI Listener] onTestFailure for: " + testName);
+        TriageReportWriter report = reportFor(result.getTestContext().getSuite());
 
         try {
             // 1. Build the payload sent to the AI service
             FailureEventPayload payload = buildPayload(result);
-            String json = mapper.writeValueAsString(payload);
+            CompletableFuture<FailureArtifactCollector.Artifacts> artifacts =
+                    FailureArtifactCollector.capture(driverOf(result), result.getThrowable());
+
+            AiTriageClient submitter = asyncClient;
+            if (submitter != null) {
+                CompletableFuture<?> submitted = artifacts
+                        .thenCompose(a -> submitter.submit(withArtifacts(payload, a)))
+                        .whenComplete((ai, err) -> {
+                            if (err != null) {
+                                logError(report, testName, "AI triage (" + transport + ") failed: " + err.getMessage());
+                            } else {
+                                logAnalysis(report, testName, payload.getTraceSignature(), ai);
+                            }
+                        });
+                pendingArtifacts.add(submitted);
+                submitted.whenComplete((ai, err) -> pendingArtifacts.remove(submitted));
+                return;
+            }
+
+            try {
+                withArtifacts(payload, artifacts.get(artifactWaitMs, TimeUnit.MILLISECONDS));
+            } catch (Exception e) {
+                System.out.println("DEBUG >>> [AI Listener] Sending without UI artifacts: " + e);
+            }
+
+            byte[] json = mapper.writeValueAsBytes(payload);
 
             String url = baseUrl + "/api/ai/analyze-failure";
             System.out.println("DEBUG >>> [AI Listener] Calling AI service at: " + url);
 
-            Request request = new Request.Builder()
-                    .url(url)
-                    .post(RequestBody.create(json, JSON))
-                    .build();
+            Request.Builder builder = new Request.Builder().url(url);
+            long sentBytes = json.length;
+            if (gzipEnabled && json.length >= gzipMinBytes) {
+                GzipRequestBody gzipBody = new GzipRequestBody(json, JSON);
+                builder.header("Content-Encoding", "gzip").post(gzipBody);
+                sentBytes = gzipBody.contentLength();
+            } else {
+                builder.post(RequestBody.create(json, JSON));
+            }
+            Request request = builder.build();
 
-            long start = System.currentTimeMillis();
+            long start = System.nanoTime();
 
             // 2. Synchronous HTTP call (we wait here, but we do NOT change the test result)
             try (Response response = client.newCall(request).execute()) {
-                long end = System.currentTimeMillis();
-
                 String body = response.body() != null ? response.body().string() : "";
+                long totalMs = (System.nanoTime() - start) / 1_000_000;
                 int statusCode = response.code();
 
                 System.out.println("DEBUG >>> [AI Listener] AI service HTTP status: " + statusCode);
-                System.out.println("DEBUG >>> [AI Listener] AI service call took " + (end - start) + " ms");
+                System.out.println("DEBUG >>> [AI Listener] AI service call took " + totalMs + " ms");
+                logTiming(totalMs, json.length, sentBytes, response);
                 System.out.println("DEBUG >>> [AI Listener] AI service raw body: " + body);
 
                 // 3. Try to parse into FailureAnalysisResponse; if parsing fails, just log the raw JSON
                 try {
                     FailureAnalysisResponse ai =
                             mapper.readValue(body, FailureAnalysisResponse.class);
-
-                    Reporter.log("===== AI TRIAGE FOR: " + testName + " =====", true);
-                    Reporter.log("Failure type        : " + ai.getFailureType(), true);
-                    Reporter.log("AI confidence       : " + ai.getAiConfidence(), true);
-                    Reporter.log("Severity (1–5)      : " + ai.getSeverityScore(), true);
-                    Reporter.log("Root cause (AI)     : " + ai.getRootCauseSummary(), true);
-                    Reporter.log("Next steps (AI)     : " + ai.getRecommendedNextSteps(), true);
-                    Reporter.log("Jira summary        : " + ai.getJiraSummaryTemplate(), true);
-                    Reporter.log("Rule override?      : " + ai.isRuleBasedOverrideApplied(), true);
-
-                    if (ai.getSimilarFailures() != null && !ai.getSimilarFailures().isEmpty()) {
-                        Reporter.log("Similar failures:", true);
-                        ai.getSimilarFailures().forEach(sim -> Reporter.log(" - [" + sim.getId() + "] " + sim.getShortDescription()
-                                + " (root cause: " + sim.getSuspectedRootCause() + ")", true));
-                    }
-
-                    Reporter.log("=========================================", true);
+                    logAnalysis(report, testName, payload.getTraceSignature(), ai);
                 } catch (Exception parseErr) {
-                    Reporter.log("===== AI TRIAGE (RAW JSON) FOR: " + testName + " =====", true);
-                    Reporter.log("HTTP status         : " + statusCode, true);
-                    Reporter.log(body, true);
-                    Reporter.log("=========================================", true);
+                    logError(report, testName, "AI service answered HTTP " + statusCode + ": " + body);
                 }
             }
         } catch (IOException e) {
             System.out.println("DEBUG >>> [AI Listener] Error calling AI service: " + e.getMessage());
             e.printStackTrace();
-            Reporter.log("AI triage call failed for test '" + testName +
-                    "' – see logs for details.", true);
+            logError(report, testName, "AI triage call failed: " + e.getMessage());
         } catch (Exception e) {
             System.out.println("DEBUG >>> [AI Listener] Unexpected error in AiFailureListener: " + e.getMessage());
             e.printStackTrace();
-            Reporter.log("AI triage listener crashed for test '" + testName + "'.", true);
+            logError(report, testName, "AI triage listener crashed: " + e);
         }
 
     }
 
+    @Override
+    public void onTestSuccess(ITestResult result) {
+        sendOutcome(result, TestOutcome.PASS);
+    }
+
+    @Override
+    public void onTestSkipped(ITestResult result) {
+        sendOutcome(result, TestOutcome.SKIP);
+    }
+
     // ------------------------------------------------------------------------
     // Helper methods
     // ------------------------------------------------------------------------
 
+    private static WebDriver driverOf(ITestResult result) {
+        Object instance = result.getInstance();
+        return instance instanceof BaseTest ? ((BaseTest) instance).getDriver() : null;
+    }
+
+    private static FailureEventPayload withArtifacts(FailureEventPayload p, FailureArtifactCollector.Artifacts a) {
+        if (a != null) {
+            p.setPageUrl(a.getPageUrl());
+            p.setScreenshotHash(a.getScreenshotHash());
+            p.setDomHash(a.getDomHash());
+            p.setDomSnapshot(a.getDomSnapshot());
+        }
+        return p;
+    }
+
+    /**
+     * Stream/async modes: failures whose artifacts are still being processed have
+     * not been submitted yet, so wait for them before draining the client.
+     */
+    private void awaitArtifacts() {
+        try {
+            CompletableFuture.allOf(pendingArtifacts.toArray(new CompletableFuture[0]))
+                    .get(streamDrainTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> [AI Listener] " + pendingArtifacts.size()
+                    + " failures still waiting on artifacts: " + e);
+        }
+    }
+
+    /**
+     * Splits the round trip using the server's timing headers: network time is
+     * what is left after server handling (includes transfer of both bodies).
+     */
+    private void logTiming(long totalMs, long rawBytes, long sentBytes, Response response) {
+        String serverMs = response.header("X-Triage-Server-Millis");
+        String parseMicros = response.header("X-Triage-Parse-Micros");
+        String network = "n/a";
+        if (serverMs != null) {
+            try {
+                network = (totalMs - Long.parseLong(serverMs)) + " ms";
+            } catch (NumberFormatException ignored) {}
+        }
+        System.out.println("DEBUG >>> [AI Listener] Payload " + rawBytes + " bytes, sent " + sentBytes
+                + " bytes | network ~" + network
+                + ", server " + (serverMs != null ? serverMs + " ms" : "n/a")
+                + ", server parse " + (parseMicros != null ? parseMicros + " us" : "n/a"));
+    }
+
+    /**
+     * Per-suite report, opened on first use; null if it cannot be created.
+     */
+    private TriageReportWriter reportFor(ISuite suite) {
+        return reports.computeIfAbsent(suite.getName(), name -> {
+            try {
+                return TriageReportWriter.open(name);
+            } catch (IOException e) {
+                System.out.println("DEBUG >>> [AI Listener] Triage report disabled: " + e.getMessage());
+                return null;
+            }
+        });
+    }
+
+    /**
+     * Full analysis goes to the suite report; the TestNG report gets one line.
+     */
+    private void logAnalysis(TriageReportWriter report, String testName, String traceSignature,
+                             FailureAnalysisResponse ai) {
+        if (report != null) {
+            report.append(testName, traceSignature, ai);
+        }
+        Reporter.log("AI triage: " + testName + " -> " + ai.getFailureType()
+                + " (severity " + ai.getSeverityScore() + ", confidence " + ai.getAiConfidence() + ")", true);
+    }
+
+    private void logError(TriageReportWriter report, String testName, String error) {
+        if (report != null) {
+            report.appendError(testName, error);
+        }
+        Reporter.log("AI triage unavailable for test '" + testName + "' – see the triage report / logs.", true);
+    }
+
+    /**
+     * Async POST of a small outcome event; never blocks or fails the test.
+     */
+    private void sendOutcome(ITestResult result, TestOutcome outcome) {
+        try {
+            TestOutcomeEvent event = new TestOutcomeEvent();
+            event.setTestName(result.getName());
+            event.setFeature(result.getTestClass().getName());
+            event.setOutcome(outcome);
+
+            // queue transport: in the queue, in order with this test's failures
+            AiTriageClient queued = asyncClient;
+            if (queued != null && queued.recordOutcome(event)) {
+                return;
+            }
+
+            Request request = new Request.Builder()
+                    .url(baseUrl + "/api/ai/test-outcome")
+                    .post(RequestBody.create(mapper.writeValueAsString(event), JSON))
+                    .build();
+
+            client.newCall(request).enqueue(new Callback() {
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    System.out.println("DEBUG >>> [AI Listener] Outcome report failed: " + e.getMessage());
+                }
+
+                @Override
+                public void onResponse(Call call, Response response) {
+                    response.close();
+                }
+            });
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> [AI Listener] Could not send " + outcome + " outcome: " + e.getMessage());
+        }
+    }
+
     private FailureEventPayload buildPayload(ITestResult result) {
         FailureEventPayload p = new FailureEventPayload();
         p.setTestName(result.getName());
         p.setSuiteName(result.getTestContext().getSuite().getName());
         p.setFeature(result.getTestClass().getName());
         p.setEnvironment(System.getProperty("env", "local"));
+        p.setRunId(RUN_ID);
+        p.setSessionId(SESSION_ID);
+        p.setEventTimestamp(result.getEndMillis());
 
         Throwable t = result.getThrowable();
-        p.setFailureMessage(t != null ? t.getMessage() : "");
-        p.setStackTrace(stackTraceToString(t));
+        p.setFailureMessage(t != null ? PayloadCompactor.capBody(t.getMessage()) : "");
+        p.setStackTrace(PayloadCompactor.stackTrace(t));
+        p.setTraceSignature(StackTraceScanner.forThread().scan(t).signatureHex());
         p.setRawLogSnippet("");
         // default type = UI unless we detect API attributes
         p.setTestType("UI");
@@ -130,6 +387,9 @@ public class AiFailureListener implements ITestListener {
         // Optional: tags to help grouping on the AI side
         List<String> tags = new ArrayList<>();
         tags.add(result.getTestClass().getName());
+        if (!TENANT.isBlank()) {
+            tags.add("tenant:" + TENANT);
+        }
         p.setTags(tags);
         // Read API-specific attributes (if present, treat as API test)
         Object methodAttr   = result.getAttribute("httpMethod");
@@ -149,21 +409,11 @@ public class AiFailureListener implements ITestListener {
                     p.setStatusCode(Integer.parseInt(statusAttr.toString()));
                 } catch (NumberFormatException ignored) {}
             }
-            p.setRequestBody(reqAttr != null ? reqAttr.toString() : null);
-            p.setResponseBody(resAttr != null ? resAttr.toString() : null);
+            p.setRequestBody(reqAttr != null ? PayloadCompactor.capBody(reqAttr.toString()) : null);
+            p.setResponseBody(resAttr != null ? PayloadCompactor.capBody(resAttr.toString()) : null);
         }
 
         return p;
     }
 
-    private String stackTraceToString(Throwable t) {
-        if (t == null) return "";
-        StringBuilder sb = new StringBuilder();
-        sb.append(t).append("\n");
-        for (StackTraceElement ste : t.getStackTrace()) {
-            sb.append("    at ").append(ste.toString()).append("\n");
-        }
-        return sb.toString();
-    }
-
 }
@@ -0,0 +1,32 @@
+package com.shanthan.ai.ui.listener;
+
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.TestOutcomeEvent;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking transports to the AI service (binary stream, async jobs):
+ * submit() returns at once and the analysis completes the future later.
+ */
+public interface AiTriageClient extends AutoCloseable {
+
+    CompletableFuture<FailureAnalysisResponse> submit(FailureEventPayload payload);
+
+    /**
+     * Sends a pass/skip outcome the same way as the failures, when the
+     * transport keeps them in order with each other; false means the
+     * caller reports it over HTTP.
+     */
+    default boolean recordOutcome(TestOutcomeEvent event) {
+        return false;
+    }
+
+    /**
+     * Waits (bounded) for the analyses still in flight, e.g. at suite end.
+     */
+    void awaitPending(long timeoutMillis);
+
+    @Override
+    void close();
+}
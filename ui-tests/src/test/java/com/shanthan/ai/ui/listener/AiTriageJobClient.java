@@ -0,0 +1,123 @@
+package com.shanthan.ai.ui.listener;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Async job transport (/api/ai/jobs): each failure is a short POST that
+ * returns a job id; one background thread polls the pending jobs every
+ * ai.jobs.pollMs and completes their futures. No connection is held open
+ * while the LLM works.
+ */
+public class AiTriageJobClient implements AiTriageClient {
+
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+
+    private final OkHttpClient client;
+    private final String baseUrl;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, CompletableFuture<FailureAnalysisResponse>> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ai-job-poller");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AiTriageJobClient(OkHttpClient client, String baseUrl) {
+        this.client = client;
+        this.baseUrl = baseUrl;
+        long pollMs = Long.getLong("ai.jobs.pollMs", 1000L);
+        poller.scheduleWithFixedDelay(this::pollAll, pollMs, pollMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public CompletableFuture<FailureAnalysisResponse> submit(FailureEventPayload payload) {
+        CompletableFuture<FailureAnalysisResponse> future = new CompletableFuture<>();
+        try {
+            Request request = new Request.Builder()
+                    .url(baseUrl + "/api/ai/jobs")
+                    .post(RequestBody.create(mapper.writeValueAsBytes(payload), JSON))
+                    .build();
+            try (Response response = client.newCall(request).execute()) {
+                String body = response.body() != null ? response.body().string() : "";
+                if (response.code() != 202) {
+                    future.completeExceptionally(new IOException("Job submit failed: HTTP " + response.code() + " " + body));
+                    return future;
+                }
+                String jobId = mapper.readTree(body).path("jobId").asText();
+                System.out.println("DEBUG >>> [AI Jobs] Submitted job " + jobId + " for " + payload.getTestName());
+                pending.put(jobId, future);
+            }
+        } catch (IOException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public void awaitPending(long timeoutMillis) {
+        try {
+            CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0]))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> [AI Jobs] " + pending.size()
+                    + " jobs still pending after " + timeoutMillis + " ms");
+        }
+    }
+
+    @Override
+    public void close() {
+        poller.shutdownNow();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private void pollAll() {
+        for (Map.Entry<String, CompletableFuture<FailureAnalysisResponse>> e : pending.entrySet()) {
+            try {
+                poll(e.getKey(), e.getValue());
+            } catch (Exception ex) {
+                System.out.println("DEBUG >>> [AI Jobs] Poll failed for " + e.getKey() + ": " + ex.getMessage());
+            }
+        }
+    }
+
+    private void poll(String jobId, CompletableFuture<FailureAnalysisResponse> future) throws IOException {
+        Request request = new Request.Builder().url(baseUrl + "/api/ai/jobs/" + jobId).get().build();
+        try (Response response = client.newCall(request).execute()) {
+            if (response.code() == 404) {
+                pending.remove(jobId);
+                future.completeExceptionally(new IOException("Job " + jobId + " expired or unknown"));
+                return;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
+                return; // transient; try again next round
+            }
+            JsonNode job = mapper.readTree(response.body().string());
+            String status = job.path("status").asText();
+            if ("DONE".equals(status)) {
+                pending.remove(jobId);
+                future.complete(mapper.treeToValue(job.path("result"), FailureAnalysisResponse.class));
+            } else if ("FAILED".equals(status)) {
+                pending.remove(jobId);
+                future.completeExceptionally(new IOException("Job " + jobId + " failed: " + job.path("error").asText()));
+            }
+        }
+    }
+}
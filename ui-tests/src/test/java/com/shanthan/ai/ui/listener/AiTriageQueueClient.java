@@ -0,0 +1,155 @@
+package com.shanthan.ai.ui.listener;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import com.shanthan.ai.model.TestOutcomeEvent;
+import com.shanthan.ai.queue.FailureLog;
+import com.shanthan.ai.queue.IngestConsumer;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Queue transport (-Dai.transport=queue): each failure is appended to the
+ * file-backed queue the AI service consumes (FailureLog in -Dai.queue.dir,
+ * default <tmp>/ai-triage-queue), partitioned by test name. Appending does
+ * not need the service, so failures recorded while it is down or being
+ * deployed are analysed once it is back. Pass/skip outcomes go to the same
+ * partition as the test's failures, so the service records a test's runs
+ * in the order they happened.
+ *
+ * A background thread tails the results log from where it ended when the
+ * client opened, and completes the futures whose key it sees. Failures still
+ * unanalysed at awaitPending() (which waits at most -Dai.queue.awaitMs,
+ * default 30 s) stay in the queue; their results can be read from the
+ * results log later.
+ */
+public class AiTriageQueueClient implements AiTriageClient {
+
+    private static final Path DIR = Path.of(System.getProperty("ai.queue.dir",
+            Path.of(System.getProperty("java.io.tmpdir"), "ai-triage-queue").toString()));
+    private static final int PARTITIONS = Integer.getInteger("ai.queue.partitions", 8);
+    private static final long SEGMENT_BYTES = 16L << 20;
+    private static final int MAX_RECORD_BYTES = 8 << 20;
+    private static final int READ_BATCH = 256;
+    private static final long AWAIT_MS = Long.getLong("ai.queue.awaitMs", 30_000L);
+
+    private final FailureLog failures;
+    private final FailureLog results;
+    private final long[] resultPositions;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final Map<String, CompletableFuture<FailureAnalysisResponse>> pending = new ConcurrentHashMap<>();
+    private final Map<String, String> queuedAt = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService tailer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "ai-queue-results");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AiTriageQueueClient() throws IOException {
+        this.failures = FailureLog.open(DIR.resolve("failures"), PARTITIONS, SEGMENT_BYTES, MAX_RECORD_BYTES);
+        this.results = FailureLog.open(DIR.resolve("results"), failures.partitions(), SEGMENT_BYTES, MAX_RECORD_BYTES);
+        this.resultPositions = new long[results.partitions()];
+        for (int p = 0; p < resultPositions.length; p++) {
+            resultPositions[p] = results.endOffset(p);
+        }
+        long pollMs = Long.getLong("ai.queue.pollMs", 500L);
+        tailer.scheduleWithFixedDelay(this::readResults, pollMs, pollMs, TimeUnit.MILLISECONDS);
+        System.out.println("DEBUG >>> [AI Queue] Appending failures to " + failures.dir());
+    }
+
+    @Override
+    public CompletableFuture<FailureAnalysisResponse> submit(FailureEventPayload payload) {
+        CompletableFuture<FailureAnalysisResponse> future = new CompletableFuture<>();
+        String key = UUID.randomUUID().toString();
+        try {
+            int partition = failures.partitionFor(payload.getTestName());
+            pending.put(key, future);
+            long offset = failures.append(partition, key, mapper.writeValueAsBytes(payload));
+            queuedAt.put(key, "p-" + partition + "@" + offset);
+            System.out.println("DEBUG >>> [AI Queue] Queued " + payload.getTestName() + " at p-" + partition + "@" + offset);
+        } catch (IOException e) {
+            pending.remove(key);
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    @Override
+    public boolean recordOutcome(TestOutcomeEvent event) {
+        try {
+            int partition = failures.partitionFor(event.getTestName());
+            failures.append(partition, IngestConsumer.OUTCOME_KEY_PREFIX + UUID.randomUUID(), mapper.writeValueAsBytes(event));
+            return true;
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> [AI Queue] Could not queue " + event.getOutcome() + " outcome: " + e.getMessage());
+            return false;
+        }
+    }
+
+    @Override
+    public void awaitPending(long timeoutMillis) {
+        timeoutMillis = Math.min(timeoutMillis, AWAIT_MS);
+        try {
+            CompletableFuture.allOf(pending.values().toArray(new CompletableFuture[0]))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> [AI Queue] " + pending.size()
+                    + " failures not analysed yet after " + timeoutMillis + " ms; they stay queued");
+        }
+    }
+
+    @Override
+    public void close() {
+        tailer.shutdownNow();
+        pending.forEach((key, future) -> future.completeExceptionally(new IOException(
+                "still queued at " + queuedAt.get(key) + " (AI service not consuming?); "
+                        + "the analysis will be written to " + results.dir())));
+        pending.clear();
+        try {
+            failures.close();
+            results.close();
+        } catch (IOException ignored) {
+            // nothing buffered; appends are already in the files
+        }
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private void readResults() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        for (int p = 0; p < resultPositions.length; p++) {
+            try {
+                FailureLog.Batch batch;
+                do {
+                    batch = results.read(p, resultPositions[p], READ_BATCH);
+                    for (FailureLog.Record record : batch.getRecords()) {
+                        CompletableFuture<FailureAnalysisResponse> future = pending.remove(record.getKey());
+                        if (future != null) {
+                            queuedAt.remove(record.getKey());
+                            try {
+                                future.complete(mapper.readValue(record.getValue(), FailureAnalysisResponse.class));
+                            } catch (IOException e) {
+                                future.completeExceptionally(e);
+                            }
+                        }
+                    }
+                    resultPositions[p] = batch.getNextOffset();
+                } while (batch.getRecords().size() == READ_BATCH);
+            } catch (Exception e) {
+                System.out.println("DEBUG >>> [AI Queue] Reading results of p-" + p + " failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.shanthan.ai.ui.listener;
+
+import com.shanthan.ai.codec.StreamFrame;
+import com.shanthan.ai.codec.TriageBinaryCodec;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureEventPayload;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okio.ByteString;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One long-lived binary WebSocket to the AI service (/api/ai/stream).
+ * - submit() sends a failure and returns immediately
+ * - the returned future completes when the service streams the analysis back
+ * - responses can arrive in any order; they are matched on correlation id
+ * - a backpressure frame (service saturated) makes the client send the same
+ *   request again after the delay it names, up to MAX_RETRIES times
+ */
+public class AiTriageStreamClient implements AiTriageClient {
+
+    private static final int MAX_RETRIES = 20;
+
+    private final WebSocket socket;
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    private static final class Pending {
+        final CompletableFuture<FailureAnalysisResponse> future = new CompletableFuture<>();
+        final byte[] frame;
+        int retries; // only touched on the socket's reader thread
+
+        Pending(byte[] frame) {
+            this.frame = frame;
+        }
+    }
+
+    public AiTriageStreamClient(OkHttpClient client, String baseUrl) {
+        String url = baseUrl.replaceFirst("^http", "ws") + "/api/ai/stream";
+        OkHttpClient streamClient = client.newBuilder()
+                .readTimeout(0, TimeUnit.MILLISECONDS)
+                .pingInterval(30, TimeUnit.SECONDS)
+                .build();
+
+        System.out.println("DEBUG >>> [AI Stream] Opening stream at: " + url);
+        this.socket = streamClient.newWebSocket(new Request.Builder().url(url).build(), new WebSocketListener() {
+            @Override
+            public void onMessage(WebSocket webSocket, ByteString bytes) {
+                StreamFrame<FailureAnalysisResponse> frame =
+                        TriageBinaryCodec.decodeStreamResponse(bytes.toByteArray());
+                if (frame.isBackpressure()) {
+                    retryLater(frame.getCorrelationId(), frame.getRetryAfterMillis());
+                    return;
+                }
+                Pending p = pending.remove(frame.getCorrelationId());
+                if (p != null) {
+                    p.future.complete(frame.getBody());
+                }
+            }
+
+            @Override
+            public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+                System.out.println("DEBUG >>> [AI Stream] Stream failed: " + t.getMessage());
+                failPending(t);
+            }
+
+            @Override
+            public void onClosed(WebSocket webSocket, int code, String reason) {
+                failPending(new IOException("AI stream closed: " + code + " " + reason));
+            }
+        });
+    }
+
+    @Override
+    public CompletableFuture<FailureAnalysisResponse> submit(FailureEventPayload payload) {
+        long id = nextId.incrementAndGet();
+        Pending p = new Pending(TriageBinaryCodec.encodeStreamRequest(id, payload));
+        pending.put(id, p);
+        send(id, p);
+        return p.future;
+    }
+
+    @Override
+    public void awaitPending(long timeoutMillis) {
+        try {
+            CompletableFuture.allOf(pending.values().stream().map(p -> p.future).toArray(CompletableFuture[]::new))
+                    .get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            System.out.println("DEBUG >>> [AI Stream] " + pending.size()
+                    + " analyses still pending after " + timeoutMillis + " ms");
+        }
+    }
+
+    @Override
+    public void close() {
+        socket.close(1000, "suite finished");
+    }
+
+    private void send(long id, Pending p) {
+        if (!socket.send(ByteString.of(p.frame))) {
+            pending.remove(id);
+            p.future.completeExceptionally(new IOException("AI stream is closed or its send buffer is full"));
+        }
+    }
+
+    private void retryLater(long id, long delayMillis) {
+        Pending p = pending.get(id);
+        if (p == null) return;
+        if (++p.retries > MAX_RETRIES) {
+            pending.remove(id);
+            p.future.completeExceptionally(new IOException("AI service still saturated after " + MAX_RETRIES + " retries"));
+            return;
+        }
+        System.out.println("DEBUG >>> [AI Stream] Service saturated, resending " + id + " in " + delayMillis + " ms");
+        CompletableFuture.delayedExecutor(delayMillis, TimeUnit.MILLISECONDS).execute(() -> {
+            if (pending.get(id) == p) {
+                send(id, p);
+            }
+        });
+    }
+
+    private void failPending(Throwable t) {
+        pending.values().forEach(p -> p.future.completeExceptionally(t));
+        pending.clear();
+    }
+}
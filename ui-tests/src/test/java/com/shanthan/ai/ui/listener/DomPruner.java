@@ -0,0 +1,188 @@
+package com.shanthan.ai.ui.listener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Turns a full page source into a small, LLM-friendly DOM excerpt.
+ *
+ * - script/style/svg/comments are dropped
+ * - only interactive and landmark elements are kept, one per line:
+ *     <input id="username" name="username" type="text"> @ body>div#app>form.login
+ *   (a subset of attributes, the first text node for buttons/links/labels,
+ *   and the element's ancestor path)
+ * - elements sharing tokens with the failing locator come first, the rest
+ *   follow in document order until the character budget is used up
+ *
+ * A tolerant tag scanner is enough here; no HTML parser dependency is needed.
+ */
+public final class DomPruner {
+
+    private static final Pattern NOISE = Pattern.compile(
+            "(?is)<!--.*?-->|<script\\b.*?</script>|<style\\b.*?</style>|<svg\\b.*?</svg>|<noscript\\b.*?</noscript>");
+    private static final Pattern TAG = Pattern.compile("<(/?)([a-zA-Z][a-zA-Z0-9-]*)((?:[^>\"']|\"[^\"]*\"|'[^']*')*)>");
+    private static final Pattern ATTR = Pattern.compile(
+            "([a-zA-Z_:][-a-zA-Z0-9_:.]*)\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+))");
+    private static final Pattern SELECTOR = Pattern.compile(
+            "\"selector\"\\s*:\\s*\"((?:[^\"\\\\]|\\\\.)*)\"|By\\.[a-zA-Z]+:\\s*([^\\s)]+)");
+
+    private static final Set<String> KEEP = Set.of(
+            "input", "button", "a", "select", "textarea", "label", "form", "img",
+            "h1", "h2", "h3", "iframe", "option");
+    private static final Set<String> WITH_TEXT = Set.of("button", "a", "label", "h1", "h2", "h3", "option");
+    private static final Set<String> VOID = Set.of(
+            "input", "img", "br", "hr", "meta", "link", "source", "area", "base", "col",
+            "embed", "param", "track", "wbr");
+    private static final List<String> ATTRS = List.of(
+            "id", "name", "class", "type", "placeholder", "aria-label", "role", "data-testid",
+            "for", "href", "title", "alt", "value");
+
+    private static final int MAX_PATH_DEPTH = 6;
+    private static final int MAX_ATTR_CHARS = 80;
+    private static final int MAX_TEXT_CHARS = 60;
+
+    private DomPruner() {
+    }
+
+    /**
+     * Extracts the locator from a Selenium exception message, e.g.
+     * {"method":"css selector","selector":"#fake-username-field"} or By.id: foo.
+     */
+    public static String failingLocator(String message) {
+        if (message == null) return null;
+        Matcher m = SELECTOR.matcher(message);
+        if (!m.find()) return null;
+        return m.group(1) != null ? m.group(1).replace("\\\"", "\"") : m.group(2);
+    }
+
+    public static String prune(String html, String locator, int maxChars) {
+        if (html == null || html.isEmpty()) return "";
+        String cleaned = NOISE.matcher(html).replaceAll(" ");
+        Set<String> tokens = tokens(locator);
+
+        List<String> lines = new ArrayList<>();
+        List<Integer> scores = new ArrayList<>();
+        List<String> stack = new ArrayList<>();
+
+        Matcher m = TAG.matcher(cleaned);
+        while (m.find()) {
+            String name = m.group(2).toLowerCase(Locale.ROOT);
+            if (!m.group(1).isEmpty()) {
+                // closing tag: pop up to (and including) the matching element
+                for (int i = stack.size() - 1; i >= 0; i--) {
+                    if (stack.get(i).equals(name) || stack.get(i).startsWith(name + "#")
+                            || stack.get(i).startsWith(name + ".")) {
+                        stack.subList(i, stack.size()).clear();
+                        break;
+                    }
+                }
+                continue;
+            }
+
+            String attrs = m.group(3);
+            String id = attr(attrs, "id");
+            String cls = attr(attrs, "class");
+            String step = id != null ? name + "#" + id
+                    : cls != null && !cls.isBlank() ? name + "." + cls.trim().split("\\s+")[0]
+                    : name;
+
+            if (KEEP.contains(name)) {
+                String text = WITH_TEXT.contains(name) ? textAfter(cleaned, m.end()) : null;
+                String line = render(name, attrs, text, stack);
+                lines.add(line);
+                scores.add(score(line, tokens));
+            }
+
+            boolean selfClosing = attrs.endsWith("/");
+            if (!VOID.contains(name) && !selfClosing) {
+                stack.add(step);
+            }
+        }
+
+        // Relevant elements first (stable: ties keep document order)
+        Integer[] order = new Integer[lines.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Integer.compare(scores.get(b), scores.get(a)));
+
+        StringBuilder sb = new StringBuilder(Math.min(maxChars, 4096));
+        if (locator != null) {
+            sb.append("# failing locator: ").append(locator).append('\n');
+        }
+        int kept = 0;
+        for (Integer i : order) {
+            String line = lines.get(i);
+            if (sb.length() + line.length() + 1 > maxChars) break;
+            sb.append(line).append('\n');
+            kept++;
+        }
+        if (kept < lines.size()) {
+            sb.append("# ... ").append(lines.size() - kept).append(" more elements omitted\n");
+        }
+        return sb.toString();
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static String render(String name, String attrs, String text, List<String> stack) {
+        StringBuilder sb = new StringBuilder(96).append('<').append(name);
+        for (String a : ATTRS) {
+            String v = attr(attrs, a);
+            if (v != null && !v.isBlank()) {
+                sb.append(' ').append(a).append("=\"")
+                        .append(PayloadCompactor.cap(v.trim(), MAX_ATTR_CHARS)).append('"');
+            }
+        }
+        sb.append('>');
+        if (text != null && !text.isEmpty()) {
+            sb.append(text).append("</").append(name).append('>');
+        }
+        sb.append(" @ ");
+        int from = Math.max(0, stack.size() - MAX_PATH_DEPTH);
+        sb.append(String.join(">", stack.subList(from, stack.size())));
+        return sb.toString();
+    }
+
+    private static String attr(String attrs, String name) {
+        Matcher m = ATTR.matcher(attrs);
+        while (m.find()) {
+            if (m.group(1).equalsIgnoreCase(name)) {
+                return m.group(2) != null ? m.group(2) : m.group(3) != null ? m.group(3) : m.group(4);
+            }
+        }
+        return null;
+    }
+
+    private static String textAfter(String html, int from) {
+        int end = html.indexOf('<', from);
+        if (end < 0) end = html.length();
+        String text = html.substring(from, Math.min(end, from + 4 * MAX_TEXT_CHARS)).replaceAll("\\s+", " ").trim();
+        return text.length() > MAX_TEXT_CHARS ? text.substring(0, MAX_TEXT_CHARS) + "…" : text;
+    }
+
+    private static Set<String> tokens(String locator) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (locator == null) return tokens;
+        for (String t : locator.toLowerCase(Locale.ROOT).split("[^a-z0-9]+")) {
+            if (t.length() >= 3) tokens.add(t);
+        }
+        return tokens;
+    }
+
+    private static int score(String line, Set<String> tokens) {
+        if (tokens.isEmpty()) return 0;
+        int hits = 0;
+        String lower = line.toLowerCase(Locale.ROOT);
+        for (String t : tokens) {
+            if (lower.contains(t)) hits++;
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,232 @@
+package com.shanthan.ai.ui.listener;
+
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.WebDriver;
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Captures UI evidence for a failed test without holding up the test thread.
+ *
+ * - On the test thread (driver still alive, @AfterMethod has not run yet):
+ *   only the raw screenshot bytes, page source and URL are pulled from the driver
+ * - On a small background pool: the screenshot is downscaled and re-encoded,
+ *   the DOM is pruned around the failing locator, both are SHA-256 hashed and
+ *   written once to ai.artifacts.dir (content-addressed, so identical
+ *   screenshots from repeated failures are stored a single time)
+ *
+ * The AI service only receives the hashes plus the pruned DOM excerpt.
+ *
+ * Tunables (system properties):
+ *   -Dai.artifacts.enabled=true
+ *   -Dai.artifacts.dir=target/ai-artifacts
+ *   -Dai.artifacts.maxWidth=1024
+ *   -Dai.artifacts.domMaxChars=6000
+ *   -Dai.artifacts.workers=2
+ */
+public final class FailureArtifactCollector {
+
+    public static final boolean ENABLED =
+            Boolean.parseBoolean(System.getProperty("ai.artifacts.enabled", "true"));
+
+    private static final Path DIR = Paths.get(System.getProperty("ai.artifacts.dir", "target/ai-artifacts"));
+    private static final int MAX_WIDTH = Integer.getInteger("ai.artifacts.maxWidth", 1024);
+    private static final int DOM_MAX_CHARS = Integer.getInteger("ai.artifacts.domMaxChars", 6000);
+    private static final int WORKERS = Integer.getInteger("ai.artifacts.workers", 2);
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final ThreadPoolExecutor POOL = newPool();
+
+    private FailureArtifactCollector() {
+    }
+
+    /**
+     * Result of one capture; any field may be null if that part failed.
+     */
+    public static final class Artifacts {
+        private final String pageUrl;
+        private final String screenshotHash;
+        private final String domHash;
+        private final String domSnapshot;
+
+        Artifacts(String pageUrl, String screenshotHash, String domHash, String domSnapshot) {
+            this.pageUrl = pageUrl;
+            this.screenshotHash = screenshotHash;
+            this.domHash = domHash;
+            this.domSnapshot = domSnapshot;
+        }
+
+        public String getPageUrl() {
+            return pageUrl;
+        }
+
+        public String getScreenshotHash() {
+            return screenshotHash;
+        }
+
+        public String getDomHash() {
+            return domHash;
+        }
+
+        public String getDomSnapshot() {
+            return domSnapshot;
+        }
+    }
+
+    /**
+     * Grabs the raw evidence synchronously (a few ms of driver round trips) and
+     * hands encoding, pruning, hashing and disk I/O to the background pool.
+     */
+    public static CompletableFuture<Artifacts> capture(WebDriver driver, Throwable failure) {
+        if (!ENABLED || driver == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        byte[] png = null;
+        String source = null;
+        String url = null;
+        try {
+            if (driver instanceof TakesScreenshot) {
+                png = ((TakesScreenshot) driver).getScreenshotAs(OutputType.BYTES);
+            }
+            source = driver.getPageSource();
+            url = driver.getCurrentUrl();
+        } catch (Exception e) {
+            // Session already gone / browser crashed: send whatever we have
+            System.out.println("DEBUG >>> [AI Artifacts] Capture incomplete: " + e.getMessage());
+        }
+
+        final byte[] rawPng = png;
+        final String pageSource = source;
+        final String pageUrl = url;
+        final String locator = DomPruner.failingLocator(failure != null ? failure.getMessage() : null);
+
+        return CompletableFuture.supplyAsync(() -> process(rawPng, pageSource, pageUrl, locator), POOL)
+                .exceptionally(e -> {
+                    System.out.println("DEBUG >>> [AI Artifacts] Processing failed: " + e.getMessage());
+                    return new Artifacts(pageUrl, null, null, null);
+                });
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static Artifacts process(byte[] rawPng, String pageSource, String pageUrl, String locator) {
+        long start = System.nanoTime();
+
+        String screenshotHash = null;
+        if (rawPng != null) {
+            byte[] scaled = downscale(rawPng);
+            screenshotHash = sha256(scaled);
+            store(screenshotHash + ".png", scaled);
+        }
+
+        String dom = null;
+        String domHash = null;
+        if (pageSource != null) {
+            dom = DomPruner.prune(pageSource, locator, DOM_MAX_CHARS);
+            byte[] domBytes = dom.getBytes(StandardCharsets.UTF_8);
+            domHash = sha256(domBytes);
+            store(domHash + ".dom.txt", domBytes);
+        }
+
+        System.out.println("DEBUG >>> [AI Artifacts] Processed in " + (System.nanoTime() - start) / 1_000_000
+                + " ms (screenshot " + screenshotHash + ", dom " + (dom != null ? dom.length() : 0) + " chars)");
+        return new Artifacts(pageUrl, screenshotHash, domHash, dom);
+    }
+
+    /**
+     * Scales to at most ai.artifacts.maxWidth pixels wide; returns the input if
+     * it is already small enough or cannot be decoded.
+     */
+    private static byte[] downscale(byte[] png) {
+        try {
+            BufferedImage src = ImageIO.read(new ByteArrayInputStream(png));
+            if (src == null || src.getWidth() <= MAX_WIDTH) {
+                return png;
+            }
+            int h = Math.max(1, (int) ((long) src.getHeight() * MAX_WIDTH / src.getWidth()));
+            BufferedImage dst = new BufferedImage(MAX_WIDTH, h, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = dst.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.drawImage(src, 0, 0, MAX_WIDTH, h, null);
+            } finally {
+                g.dispose();
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(png.length / 2);
+            ImageIO.write(dst, "png", out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            return png;
+        }
+    }
+
+    /**
+     * Content-addressed write: skipped when the file already exists, and
+     * written via temp file + atomic move so parallel forks never see a partial file.
+     */
+    private static void store(String fileName, byte[] data) {
+        Path target = DIR.resolve(fileName);
+        if (Files.exists(target)) {
+            return;
+        }
+        try {
+            Files.createDirectories(DIR);
+            Path tmp = Files.createTempFile(DIR, fileName, ".tmp");
+            Files.write(tmp, data);
+            try {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException raced) {
+                Files.deleteIfExists(tmp);
+            }
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> [AI Artifacts] Could not store " + fileName + ": " + e.getMessage());
+        }
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static ThreadPoolExecutor newPool() {
+        AtomicInteger n = new AtomicInteger();
+        // Bounded queue + CallerRuns: if the pool falls behind, the test thread does the work
+        // itself rather than letting artifacts pile up in memory.
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(WORKERS, WORKERS, 30, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+                r -> {
+                    Thread t = new Thread(r, "ai-artifacts-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+}
@@ -0,0 +1,43 @@
+package com.shanthan.ai.ui.listener;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Pre-compressed request body. Compressing up front (rather than streaming)
+ * gives a known Content-Length and lets the listener log the compressed size.
+ * Send it with the "Content-Encoding: gzip" header.
+ */
+public final class GzipRequestBody extends RequestBody {
+
+    private final MediaType contentType;
+    private final byte[] compressed;
+
+    public GzipRequestBody(byte[] content, MediaType contentType) throws IOException {
+        this.contentType = contentType;
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, content.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192)) {
+            gzip.write(content);
+        }
+        this.compressed = out.toByteArray();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return compressed.length;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        sink.write(compressed);
+    }
+}
@@ -0,0 +1,87 @@
+package com.shanthan.ai.ui.listener;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Shrinks failure payloads on the client before they are serialized:
+ * - caps large text fields (request/response bodies, messages)
+ * - renders stack traces with a frame budget, collapsing recursive runs
+ *   of identical frames and frames shared with the enclosing trace
+ *
+ * Limits are system properties so CI can tune them without code changes:
+ *   -Dai.payload.maxBodyChars=4000
+ *   -Dai.payload.maxFrames=40
+ */
+public final class PayloadCompactor {
+
+    private static final int MAX_BODY_CHARS = Integer.getInteger("ai.payload.maxBodyChars", 4000);
+    private static final int MAX_FRAMES = Integer.getInteger("ai.payload.maxFrames", 40);
+    private static final int MAX_CAUSES = 5;
+
+    private PayloadCompactor() {
+    }
+
+    public static String capBody(String s) {
+        return cap(s, MAX_BODY_CHARS);
+    }
+
+    public static String cap(String s, int maxChars) {
+        if (s == null || s.length() <= maxChars) return s;
+        return s.substring(0, maxChars) + "... [truncated " + (s.length() - maxChars) + " chars]";
+    }
+
+    public static String stackTrace(Throwable t) {
+        if (t == null) return "";
+        StringBuilder sb = new StringBuilder(2048);
+        Map<Throwable, Boolean> seen = new IdentityHashMap<>();
+        appendThrowable(sb, t, null, "", seen, 0);
+        return sb.toString();
+    }
+
+    private static void appendThrowable(StringBuilder sb, Throwable t, StackTraceElement[] enclosing,
+                                        String prefix, Map<Throwable, Boolean> seen, int depth) {
+        if (seen.put(t, Boolean.TRUE) != null) {
+            sb.append(prefix).append("[CIRCULAR REFERENCE: ").append(t).append("]\n");
+            return;
+        }
+        sb.append(prefix).append(cap(String.valueOf(t), MAX_BODY_CHARS)).append("\n");
+
+        StackTraceElement[] frames = t.getStackTrace();
+        int end = frames.length;
+        // Drop the tail shared with the enclosing trace, like Throwable.printStackTrace
+        if (enclosing != null) {
+            int j = enclosing.length - 1;
+            while (end > 0 && j >= 0 && frames[end - 1].equals(enclosing[j])) {
+                end--;
+                j--;
+            }
+        }
+
+        int printed = 0;
+        int i = 0;
+        while (i < end) {
+            int run = 1;
+            while (i + run < end && frames[i + run].equals(frames[i])) {
+                run++;
+            }
+            if (printed >= MAX_FRAMES) {
+                sb.append("    ... ").append(end - i).append(" more frames omitted\n");
+                break;
+            }
+            sb.append("    at ").append(frames[i]).append("\n");
+            if (run > 1) {
+                sb.append("    ... repeated ").append(run - 1).append(" more times\n");
+            }
+            printed++;
+            i += run;
+        }
+        if (end < frames.length) {
+            sb.append("    ... ").append(frames.length - end).append(" more\n");
+        }
+
+        if (t.getCause() != null && depth < MAX_CAUSES) {
+            appendThrowable(sb, t.getCause(), frames, "Caused by: ", seen, depth + 1);
+        }
+    }
+}
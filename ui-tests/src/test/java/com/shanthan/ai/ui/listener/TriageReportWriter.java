@@ -0,0 +1,352 @@
+package com.shanthan.ai.ui.listener;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.LocatorSuggestion;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-suite triage report, written as analyses arrive instead of through
+ * Reporter.log:
+ * - <suite>.jsonl: one compact JSON line per failure, appended and flushed
+ *   as it comes in (usable while the suite is still running)
+ * - <suite>.html: summary by failure type, then per type a table of its
+ *   clusters and the table of its failures, built at suite end
+ *
+ * A cluster is the failures of one type with the same stack-trace signature
+ * (the listener's traceSignature), i.e. the same failure hitting several
+ * tests or runs. Each type keeps counters per cluster, up to
+ * -Dai.report.maxClusters (200); later signatures are counted as "other".
+ *
+ * Each failure type has its own HTML fragment file the rows are appended
+ * to; finish() writes the summary and then streams the fragments into the
+ * page in order. Memory is one open writer per failure type and the cluster
+ * counters, whatever the number of failures. Directory: -Dai.report.dir
+ * (default target/ai-triage).
+ */
+public final class TriageReportWriter {
+
+    private static final String DIR = System.getProperty("ai.report.dir", "target/ai-triage");
+    private static final int MAX_CELL_CHARS = Integer.getInteger("ai.report.maxCellChars", 2000);
+    private static final int MAX_CLUSTERS = Integer.getInteger("ai.report.maxClusters", 200);
+    private static final int MAX_CLUSTER_TESTS = 3;
+    private static final String OTHER_CLUSTER = "other";
+
+    private final String suiteName;
+    private final Path dir;
+    private final String baseName;
+    private final Writer jsonl;
+    private final JsonGenerator json;
+    private final Map<String, Section> sections = new LinkedHashMap<>();
+    private long total;
+    private boolean finished;
+
+    /**
+     * Rows of one failure type: an append-only HTML fragment and its counters.
+     */
+    private static final class Section {
+        final String type;
+        final Path fragment;
+        final Writer rows;
+        long count;
+        long analysed;
+        long severitySum;
+        long overrides;
+        long reused;
+        final Map<String, Cluster> clusters = new LinkedHashMap<>();
+
+        Section(String type, Path fragment) throws IOException {
+            this.type = type;
+            this.fragment = fragment;
+            this.rows = Files.newBufferedWriter(fragment, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * The signature's cluster, or "other" once MAX_CLUSTERS are tracked.
+         */
+        Cluster cluster(String signature, String firstRootCause) {
+            Cluster c = clusters.get(signature);
+            if (c == null) {
+                String key = clusters.size() < MAX_CLUSTERS ? signature : OTHER_CLUSTER;
+                c = clusters.computeIfAbsent(key, k -> new Cluster(k, firstRootCause));
+            }
+            return c;
+        }
+    }
+
+    /**
+     * Failures of one type sharing a stack-trace signature.
+     */
+    private static final class Cluster {
+        final String signature;
+        final String rootCause;
+        final List<String> tests = new ArrayList<>(MAX_CLUSTER_TESTS);
+        long count;
+        long severitySum;
+        long reused;
+        boolean moreTests;
+
+        Cluster(String signature, String rootCause) {
+            this.signature = signature;
+            this.rootCause = PayloadCompactor.cap(rootCause, MAX_CELL_CHARS);
+        }
+
+        void addTest(String testName) {
+            if (tests.contains(testName)) {
+                return;
+            }
+            if (tests.size() < MAX_CLUSTER_TESTS) {
+                tests.add(testName);
+            } else {
+                moreTests = true;
+            }
+        }
+    }
+
+    private TriageReportWriter(String suiteName) throws IOException {
+        this.suiteName = suiteName;
+        this.dir = Path.of(DIR);
+        this.baseName = fileSafe(suiteName);
+        Files.createDirectories(dir);
+        this.jsonl = Files.newBufferedWriter(dir.resolve(baseName + ".jsonl"), StandardCharsets.UTF_8);
+        this.json = new JsonFactory().createGenerator(jsonl);
+        this.json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        this.json.setRootValueSeparator(null);   // lines are separated by endLine()
+    }
+
+    public static TriageReportWriter open(String suiteName) throws IOException {
+        return new TriageReportWriter(suiteName);
+    }
+
+    /**
+     * Appends one analysis; safe to call from the async transport callbacks.
+     *
+     * @param traceSignature the failure's stack-trace signature (cluster key); null or blank when it had none
+     */
+    public synchronized void append(String testName, String traceSignature, FailureAnalysisResponse ai) {
+        String type = ai.getFailureType() != null ? ai.getFailureType().name() : "UNKNOWN";
+        if (finished) {
+            return;
+        }
+        String signature = traceSignature == null ? "" : traceSignature;
+        String reusedFrom = ai.getReusedFrom();
+        try {
+            json.writeStartObject();
+            json.writeStringField("test", testName);
+            json.writeStringField("type", type);
+            json.writeNumberField("severity", ai.getSeverityScore());
+            json.writeNumberField("confidence", ai.getAiConfidence());
+            if (!signature.isEmpty()) json.writeStringField("cluster", signature);
+            if (ai.isRuleBasedOverrideApplied()) json.writeBooleanField("ruleOverride", true);
+            json.writeStringField("rootCause", ai.getRootCauseSummary());
+            json.writeStringField("nextSteps", ai.getRecommendedNextSteps());
+            json.writeStringField("jira", ai.getJiraSummaryTemplate());
+            if (reusedFrom != null) {
+                json.writeStringField("reusedFrom", reusedFrom);
+                if (ai.getReuseSimilarity() != null) json.writeNumberField("similarity", ai.getReuseSimilarity());
+            }
+            String locator = firstLocator(ai.getLocatorSuggestions());
+            if (locator != null) json.writeStringField("locator", locator);
+            json.writeEndObject();
+            endLine();
+
+            Section s = section(type);
+            s.count++;
+            s.analysed++;
+            s.severitySum += ai.getSeverityScore();
+            if (ai.isRuleBasedOverrideApplied()) s.overrides++;
+            if (reusedFrom != null) s.reused++;
+            Cluster c = s.cluster(signature, ai.getRootCauseSummary());
+            c.count++;
+            c.severitySum += ai.getSeverityScore();
+            if (reusedFrom != null) c.reused++;
+            c.addTest(testName);
+            row(s.rows, testName, clusterLabel(c.signature),
+                    String.valueOf(ai.getSeverityScore()),
+                    String.valueOf(ai.getAiConfidence()),
+                    ai.getRootCauseSummary(),
+                    ai.getRecommendedNextSteps() + (locator != null ? "\nLocator: " + locator : ""),
+                    ai.getJiraSummaryTemplate(),
+                    reusedFrom != null ? reusedFrom + " (" + ai.getReuseSimilarity() + ")" : "");
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> [AI Report] Could not append " + testName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Records a failure whose triage did not produce an analysis (transport
+     * error, unparseable body); listed under TRIAGE_ERROR.
+     */
+    public synchronized void appendError(String testName, String error) {
+        if (finished) {
+            return;
+        }
+        try {
+            json.writeStartObject();
+            json.writeStringField("test", testName);
+            json.writeStringField("type", "TRIAGE_ERROR");
+            json.writeStringField("error", PayloadCompactor.cap(error, MAX_CELL_CHARS));
+            json.writeEndObject();
+            endLine();
+
+            Section s = section("TRIAGE_ERROR");
+            s.count++;
+            row(s.rows, testName, "", "", "", error, "", "", "");
+        } catch (IOException e) {
+            System.out.println("DEBUG >>> [AI Report] Could not append " + testName + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Closes the JSONL file and renders the HTML page; returns its path.
+     * Later appends are ignored.
+     */
+    public synchronized Path finish() throws IOException {
+        Path html = dir.resolve(baseName + ".html");
+        if (finished) {
+            return html;
+        }
+        finished = true;
+        json.close();
+        jsonl.close();
+
+        List<Section> ordered = new ArrayList<>(sections.values());
+        ordered.sort(Comparator.comparingLong((Section s) -> -s.count).thenComparing(s -> s.type));
+
+        try (Writer out = Files.newBufferedWriter(html, StandardCharsets.UTF_8)) {
+            out.write("<!DOCTYPE html>\n<html><head><meta charset=\"utf-8\"><title>AI triage: ");
+            escape(out, suiteName);
+            out.write("</title>\n<style>body{font-family:sans-serif;margin:1em}"
+                    + "table{border-collapse:collapse;margin-bottom:2em}"
+                    + "td,th{border:1px solid #ccc;padding:4px 6px;vertical-align:top;text-align:left}"
+                    + "td{white-space:pre-wrap;max-width:40em}th{background:#eee}</style></head><body>\n<h1>AI triage: ");
+            escape(out, suiteName);
+            out.write("</h1>\n<p>" + total + " failures. Lines: <a href=\"" + baseName + ".jsonl\">"
+                    + baseName + ".jsonl</a></p>\n");
+
+            out.write("<table><tr><th>Failure type</th><th>Failures</th><th>Clusters</th><th>Avg severity</th>"
+                    + "<th>Rule overrides</th><th>Reused (near-duplicate)</th></tr>\n");
+            for (Section s : ordered) {
+                out.write("<tr><td><a href=\"#" + s.type + "\">" + s.type + "</a></td><td>" + s.count + "</td><td>"
+                        + (s.clusters.isEmpty() ? "" : s.clusters.size()) + "</td><td>"
+                        + (s.analysed == 0 ? "" : String.format("%.1f", (double) s.severitySum / s.analysed))
+                        + "</td><td>" + s.overrides + "</td><td>" + s.reused + "</td></tr>\n");
+            }
+            out.write("</table>\n");
+
+            for (Section s : ordered) {
+                s.rows.close();
+                out.write("<h2 id=\"" + s.type + "\">" + s.type + " (" + s.count + ")</h2>\n");
+                writeClusters(out, s);
+                out.write("<table><tr><th>Test</th><th>Cluster</th><th>Severity</th><th>Confidence</th><th>Root cause</th>"
+                        + "<th>Next steps</th><th>Jira summary</th><th>Reused from</th></tr>\n");
+                try (Reader in = Files.newBufferedReader(s.fragment, StandardCharsets.UTF_8)) {
+                    in.transferTo(out);
+                }
+                out.write("</table>\n");
+                Files.deleteIfExists(s.fragment);
+            }
+            out.write("</body></html>\n");
+        }
+        return html;
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    /**
+     * Clusters of one type, largest first.
+     */
+    private static void writeClusters(Writer out, Section s) throws IOException {
+        if (s.clusters.isEmpty()) {
+            return;
+        }
+        List<Cluster> clusters = new ArrayList<>(s.clusters.values());
+        clusters.sort(Comparator.comparingLong((Cluster c) -> -c.count).thenComparing(c -> c.signature));
+        out.write("<table><tr><th>Cluster</th><th>Failures</th><th>Avg severity</th><th>Reused</th>"
+                + "<th>Tests</th><th>Root cause (first failure)</th></tr>\n");
+        for (Cluster c : clusters) {
+            row(out, clusterLabel(c.signature),
+                    String.valueOf(c.count),
+                    String.format("%.1f", (double) c.severitySum / c.count),
+                    String.valueOf(c.reused),
+                    String.join(", ", c.tests) + (c.moreTests ? ", ..." : ""),
+                    c.rootCause);
+        }
+        out.write("</table>\n");
+    }
+
+    /**
+     * Short form of a signature for the tables (the JSONL has it in full).
+     */
+    private static String clusterLabel(String signature) {
+        if (signature.isEmpty()) {
+            return "(no stack trace)";
+        }
+        return signature.length() > 12 ? signature.substring(0, 12) : signature;
+    }
+
+    private Section section(String type) throws IOException {
+        Section s = sections.get(type);
+        if (s == null) {
+            s = new Section(type, dir.resolve(baseName + "." + type + ".part"));
+            sections.put(type, s);
+        }
+        return s;
+    }
+
+    /**
+     * Ends the current JSON line and flushes it so the file is readable mid-run.
+     */
+    private void endLine() throws IOException {
+        json.flush();
+        jsonl.write('\n');
+        jsonl.flush();
+        total++;
+    }
+
+    private static void row(Writer w, String... cells) throws IOException {
+        w.write("<tr>");
+        for (String cell : cells) {
+            w.write("<td>");
+            escape(w, PayloadCompactor.cap(cell, MAX_CELL_CHARS));
+            w.write("</td>");
+        }
+        w.write("</tr>\n");
+    }
+
+    private static String firstLocator(List<LocatorSuggestion> suggestions) {
+        return suggestions == null || suggestions.isEmpty() ? null : suggestions.get(0).getBy();
+    }
+
+    private static void escape(Writer w, String s) throws IOException {
+        if (s == null) return;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '<' -> w.write("&lt;");
+                case '>' -> w.write("&gt;");
+                case '&' -> w.write("&amp;");
+                case '"' -> w.write("&quot;");
+                default -> w.write(c);
+            }
+        }
+    }
+
+    private static String fileSafe(String name) {
+        String safe = name == null ? "" : name.replaceAll("[^A-Za-z0-9._-]", "_");
+        return safe.isEmpty() ? "suite" : safe;
+    }
+}
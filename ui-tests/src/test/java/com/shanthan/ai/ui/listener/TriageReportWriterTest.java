@@ -0,0 +1,192 @@
+package com.shanthan.ai.ui.listener;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.shanthan.ai.model.FailureAnalysisResponse;
+import com.shanthan.ai.model.FailureType;
+import com.shanthan.ai.model.LocatorSuggestion;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * TriageReportWriter with 10k failures: the JSONL lines, the HTML summary and
+ * per-type sections built from the fragment files, the cap on clusters per
+ * type, HTML escaping, and the time to write the whole report.
+ */
+public class TriageReportWriterTest {
+
+    private static final Path DIR = Path.of(System.getProperty("ai.report.dir", "target/ai-triage"));
+    private static final int FAILURES = 10_000;
+    private static final String SCRIPT = "<script>alert(\"x\")</script> & co";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void tenThousandFailuresAreWrittenAndRenderedUnderASecond() throws Exception {
+        // i % 4: 0 = LOCATOR_ISSUE (10 signatures), 1 = BACKEND_5XX (no stack trace), 2 and 3 = TIMEOUT (250 signatures)
+        List<FailureAnalysisResponse> analyses = new ArrayList<>(FAILURES);
+        List<String> signatures = new ArrayList<>(FAILURES);
+        for (int i = 0; i < FAILURES; i++) {
+            analyses.add(analysis(i));
+            signatures.add(signature(i));
+        }
+
+        // an untimed report first, so the timing below is the writer's and not the JIT's
+        TriageReportWriter warmUp = TriageReportWriter.open("TriageReportWriterTest warm-up");
+        for (int i = 0; i < FAILURES; i++) {
+            warmUp.append("test" + i, signatures.get(i), analyses.get(i));
+        }
+        warmUp.finish();
+
+        TriageReportWriter writer = TriageReportWriter.open("TriageReportWriterTest <10k>");
+        long start = System.nanoTime();
+        for (int i = 0; i < FAILURES; i++) {
+            writer.append("test" + i, signatures.get(i), analyses.get(i));
+            if (i == FAILURES / 2) {
+                for (String type : List.of("LOCATOR_ISSUE", "BACKEND_5XX", "TIMEOUT")) {
+                    Assert.assertTrue(Files.exists(DIR.resolve("TriageReportWriterTest__10k_." + type + ".part")), type);
+                }
+            }
+        }
+        writer.appendError("broken0", "HTTP 500 <b>boom</b>");
+        writer.appendError("broken1", "timeout");
+        Path html = writer.finish();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.println("DEBUG >>> [AI Report] " + FAILURES + " failures written and rendered in " + elapsedMs + " ms");
+        Assert.assertTrue(elapsedMs < 1000, "took " + elapsedMs + " ms");
+
+        // JSONL: one line per failure, full signatures even past the cluster cap
+        List<String> lines = Files.readAllLines(DIR.resolve("TriageReportWriterTest__10k_.jsonl"), StandardCharsets.UTF_8);
+        Assert.assertEquals(lines.size(), FAILURES + 2);
+        Set<String> timeoutClusters = new HashSet<>();
+        for (int i = 0; i < FAILURES; i++) {
+            JsonNode line = mapper.readTree(lines.get(i));
+            Assert.assertEquals(line.get("test").asText(), "test" + i);
+            Assert.assertEquals(line.get("type").asText(), analyses.get(i).getFailureType().name());
+            Assert.assertEquals(line.has("cluster"), !signatures.get(i).isEmpty(), "test" + i);
+            Assert.assertEquals(line.has("reusedFrom"), i % 5 == 0, "test" + i);
+            Assert.assertEquals(line.has("locator"), i % 4 == 0, "test" + i);
+            if (line.get("type").asText().equals("TIMEOUT")) {
+                timeoutClusters.add(line.get("cluster").asText());
+            }
+        }
+        Assert.assertEquals(timeoutClusters.size(), 250);
+        JsonNode reused = mapper.readTree(lines.get(40));
+        Assert.assertEquals(reused.get("reusedFrom").asText(), "fp-40");
+        Assert.assertEquals(reused.get("similarity").asDouble(), 0.97);
+        Assert.assertEquals(reused.get("locator").asText(), "By.id(\"login\")");
+        Assert.assertEquals(mapper.readTree(lines.get(42)).get("rootCause").asText(), SCRIPT);
+        JsonNode error = mapper.readTree(lines.get(FAILURES));
+        Assert.assertEquals(error.get("type").asText(), "TRIAGE_ERROR");
+        Assert.assertEquals(error.get("error").asText(), "HTTP 500 <b>boom</b>");
+
+        // HTML: summary, largest type first, ties by name
+        String page = Files.readString(html, StandardCharsets.UTF_8);
+        Assert.assertTrue(page.contains("<title>AI triage: TriageReportWriterTest &lt;10k&gt;</title>"));
+        Assert.assertTrue(page.contains("<p>" + (FAILURES + 2) + " failures."));
+        Assert.assertTrue(page.contains("<tr><td><a href=\"#TIMEOUT\">TIMEOUT</a></td><td>5000</td><td>201</td>"
+                + "<td>3.0</td><td>0</td><td>1000</td></tr>"));
+        Assert.assertTrue(page.contains("<tr><td><a href=\"#BACKEND_5XX\">BACKEND_5XX</a></td><td>2500</td><td>1</td>"
+                + "<td>3.0</td><td>100</td><td>500</td></tr>"));
+        Assert.assertTrue(page.contains("<tr><td><a href=\"#LOCATOR_ISSUE\">LOCATOR_ISSUE</a></td><td>2500</td><td>10</td>"
+                + "<td>3.0</td><td>0</td><td>500</td></tr>"));
+        Assert.assertTrue(page.contains("<tr><td><a href=\"#TRIAGE_ERROR\">TRIAGE_ERROR</a></td><td>2</td><td></td>"
+                + "<td></td><td>0</td><td>0</td></tr>"));
+
+        // one section per type, each holding exactly its own rows
+        int timeout = page.indexOf("<h2 id=\"TIMEOUT\">TIMEOUT (5000)</h2>");
+        int backend = page.indexOf("<h2 id=\"BACKEND_5XX\">BACKEND_5XX (2500)</h2>");
+        int locator = page.indexOf("<h2 id=\"LOCATOR_ISSUE\">LOCATOR_ISSUE (2500)</h2>");
+        int errors = page.indexOf("<h2 id=\"TRIAGE_ERROR\">TRIAGE_ERROR (2)</h2>");
+        Assert.assertTrue(0 < timeout && timeout < backend && backend < locator && locator < errors,
+                timeout + " " + backend + " " + locator + " " + errors);
+        Assert.assertEquals(count(page.substring(timeout, backend), "<tr><td>test"), 5000);
+        Assert.assertEquals(count(page.substring(backend, locator), "<tr><td>test"), 2500);
+        Assert.assertEquals(count(page.substring(locator, errors), "<tr><td>test"), 2500);
+        Assert.assertEquals(count(page.substring(errors), "<tr><td>broken"), 2);
+        try (var parts = Files.list(DIR)) {
+            Assert.assertTrue(parts.noneMatch(p -> p.getFileName().toString().startsWith("TriageReportWriterTest__10k_.")
+                    && p.getFileName().toString().endsWith(".part")));
+        }
+
+        // TIMEOUT: 200 clusters of 20, the other 50 signatures counted as "other"
+        String timeoutSection = page.substring(timeout, backend);
+        Pattern clusterOf20 = Pattern.compile("<tr><td>[0-9a-f]{12}</td><td>20</td>");
+        Assert.assertEquals(clusterOf20.matcher(timeoutSection).results().count(), 200L);
+        Assert.assertTrue(timeoutSection.contains("<tr><td>other</td><td>1000</td>"));
+        Assert.assertTrue(page.substring(backend, locator).contains("<tr><td>(no stack trace)</td><td>2500</td>"));
+        Assert.assertTrue(page.substring(locator, errors).contains("<td>test0, test40, test80, ...</td>"));
+
+        // everything from the analyses is escaped
+        Assert.assertFalse(page.contains("<script>"));
+        Assert.assertFalse(page.contains("<b>boom"));
+        Assert.assertTrue(page.contains("<td>&lt;script&gt;alert(&quot;x&quot;)&lt;/script&gt; &amp; co</td>"));
+        Assert.assertTrue(page.contains("<td>HTTP 500 &lt;b&gt;boom&lt;/b&gt;</td>"));
+        Assert.assertTrue(page.contains("Locator: By.id(&quot;login&quot;)"));
+    }
+
+    @Test
+    public void appendsAfterFinishAreIgnored() throws Exception {
+        TriageReportWriter writer = TriageReportWriter.open("TriageReportWriterTest finished");
+        writer.append("first", "abc", analysis(2));
+        Path html = writer.finish();
+        writer.append("late", "abc", analysis(2));
+        writer.appendError("late", "error");
+
+        Assert.assertEquals(writer.finish(), html);
+        Assert.assertEquals(Files.readAllLines(DIR.resolve("TriageReportWriterTest_finished.jsonl")).size(), 1);
+        Assert.assertFalse(Files.readString(html).contains("late"));
+    }
+
+    // ------------------------------------------------------------------------
+    // Helper methods
+    // ------------------------------------------------------------------------
+
+    private static FailureAnalysisResponse analysis(int i) {
+        FailureAnalysisResponse r = new FailureAnalysisResponse();
+        r.setFailureType(i % 4 == 0 ? FailureType.LOCATOR_ISSUE : i % 4 == 1 ? FailureType.BACKEND_5XX : FailureType.TIMEOUT);
+        r.setSeverityScore(i % 5 + 1);
+        r.setAiConfidence(0.8);
+        r.setRootCauseSummary(i == 42 ? SCRIPT : "root cause " + i);
+        r.setRecommendedNextSteps("next steps " + i);
+        r.setJiraSummaryTemplate("[LoginTest] failure in test" + i);
+        r.setRuleBasedOverrideApplied(i % 100 == 1);
+        if (i % 5 == 0) {
+            r.setReusedFrom("fp-" + i);
+            r.setReuseSimilarity(0.97);
+        }
+        if (i % 4 == 0) {
+            r.setLocatorSuggestions(List.of(new LocatorSuggestion("#login", "By.id(\"login\")", 0.9, "<button id=\"login\">")));
+        }
+        return r;
+    }
+
+    /**
+     * Stack-trace signature of failure i; distinct signatures differ in their
+     * first 12 characters, as the tables show.
+     */
+    private static String signature(int i) {
+        return switch (i % 4) {
+            case 0 -> String.format("%04x", 0x1000 + i / 4 % 10) + "0123456789ab";
+            case 1 -> "";
+            default -> String.format("%04x", 0x2000 + i % 250) + "0123456789ab";
+        };
+    }
+
+    private static int count(String s, String token) {
+        int n = 0;
+        for (int at = s.indexOf(token); at >= 0; at = s.indexOf(token, at + token.length())) {
+            n++;
+        }
+        return n;
+    }
+}